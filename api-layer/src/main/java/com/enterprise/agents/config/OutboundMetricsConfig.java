@@ -0,0 +1,17 @@
+package com.enterprise.agents.config;
+
+import com.enterprise.agents.common.http.OutboundMetrics;
+import com.service.api.helpers.HttpHelper;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Reports HttpHelper calls to the outbound meters of the RestTemplate beans, so every integration call shows up
+ * under http.client.outbound.* on the metrics endpoint.
+ */
+@Configuration
+public class OutboundMetricsConfig {
+
+    public OutboundMetricsConfig(OutboundMetrics outboundMetrics) {
+        HttpHelper.setOutboundObserver(outboundMetrics);
+    }
+}
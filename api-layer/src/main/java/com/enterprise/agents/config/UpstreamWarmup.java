@@ -0,0 +1,74 @@
+package com.enterprise.agents.config;
+
+import com.enterprise.agents.common.model.IntegrationType;
+import com.service.api.helpers.ConnectionWarmer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Warms DNS and connections to the integration upstreams at startup, see {@link ConnectionWarmer}, and keeps the
+ * readiness probe out of service until the warm-up finished. The upstreams are the OAuth and token URLs of every
+ * {@link IntegrationType} unless http.warmup.urls is set, Ex: to local stand-ins in tests.
+ */
+@Component("upstreamWarmup")
+public class UpstreamWarmup implements HealthIndicator {
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamWarmup.class);
+
+    private final boolean enabled;
+    private final List<URI> urls;
+    private final ConnectionWarmer warmer;
+
+    public UpstreamWarmup(@Value("${http.warmup.enabled:true}") boolean enabled,
+                          @Value("${http.warmup.urls:}") List<String> urls,
+                          @Value("${http.warmup.connections-per-host:2}") int connectionsPerHost,
+                          @Value("${http.warmup.timeout:10s}") Duration timeout) {
+        this.enabled = enabled;
+        this.urls = urls.isEmpty() ? integrationUrls() : urls.stream().filter(url -> !url.isBlank()).map(URI::create).toList();
+        this.warmer = ConnectionWarmer.builder().connectionsPerHost(connectionsPerHost).timeout(timeout).build();
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void warm() {
+        if (!enabled) {
+            return;
+        }
+        warmer.warm(urls).thenAccept(hosts -> hosts.forEach(host -> {
+            if (host.error() != null) {
+                logger.warn("Warm-up of {} opened {} connections: {}", host.origin(), host.connections(), host.error());
+            } else {
+                logger.info("Warmed {} with {} connections in {} ms", host.origin(), host.connections(), host.millis());
+            }
+        }));
+    }
+
+    @Override
+    public Health health() {
+        if (!enabled) {
+            return Health.up().withDetail("warmup", "disabled").build();
+        }
+        if (!warmer.isWarm()) {
+            return Health.outOfService().withDetail("upstreams", urls.size()).build();
+        }
+        return Health.up().withDetail("hosts", warmer.getHosts()).build();
+    }
+
+    private static List<URI> integrationUrls() {
+        List<URI> urls = new ArrayList<>();
+        for (IntegrationType type : IntegrationType.values()) {
+            urls.add(URI.create(type.getOAuthUrl()));
+            urls.add(URI.create(type.getTokenUrl()));
+        }
+        return urls;
+    }
+}
@@ -1,65 +1,58 @@
 package com.enterprise.agents.controller;
 
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
+import com.enterprise.agents.service.HealthMonitor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Health of the integration services from the snapshot of {@link HealthMonitor}, see {@link HealthAggregateController}.
+ */
 @RestController
 @RequestMapping("/api/system")
 public class SystemHealthController {
 
-    private static final Map<String, String> SERVICE_URLS = Map.of(
-            "github", "http://localhost:8081/api/github/actuator/health",
-            "google-calendar", "http://localhost:8082/actuator/health",
-            "slack", "http://localhost:8083/actuator/health",
-            "jira", "http://localhost:8084/api/jira/actuator/health"
+    // Service ids of this endpoint by target of the health monitor.
+    private static final Map<String, String> SERVICE_IDS = Map.of(
+            "github", "github",
+            "google", "google-calendar",
+            "slack", "slack",
+            "jira", "jira"
     );
-    @Autowired
-    private RestTemplate restTemplate;
+    private final HealthMonitor healthMonitor;
+    private final Duration timeout;
+
+    public SystemHealthController(HealthMonitor healthMonitor, @Value("${service.health.timeout:3s}") Duration timeout) {
+        this.healthMonitor = healthMonitor;
+        this.timeout = timeout;
+    }
 
     @GetMapping("/health")
-    public ResponseEntity<Map<String, Object>> getSystemHealth() {
+    public ResponseEntity<Map<String, Object>> getSystemHealth(@RequestParam(defaultValue = "false") boolean refresh) {
+        HealthMonitor.Snapshot snapshot = refresh ? healthMonitor.refresh(timeout) : healthMonitor.getSnapshot();
         Map<String, Object> response = new HashMap<>();
         Map<String, Object> services = new HashMap<>();
         Instant now = Instant.now();
 
-        SERVICE_URLS.forEach((serviceId, url) -> {
-            Map<String, Object> serviceStatus = checkServiceHealth(url);
-            serviceStatus.put("lastChecked", now.toString());
-            services.put(serviceId, serviceStatus);
+        snapshot.targets().forEach((target, health) -> {
+            Map<String, Object> serviceStatus = health.toMap(now);
+            if (health.details() != null) {
+                serviceStatus.put("uptime", health.details().get("uptime"));
+            }
+            services.put(SERVICE_IDS.getOrDefault(target, target), serviceStatus);
         });
 
         response.put("services", services);
         response.put("timestamp", now.toString());
+        response.put("ageMs", snapshot.getAgeMs(now));
         return ResponseEntity.ok(response);
     }
-
-    private Map<String, Object> checkServiceHealth(String url) {
-        Map<String, Object> status = new HashMap<>();
-        try {
-            ResponseEntity<Map> response = restTemplate.getForEntity(url, Map.class);
-            if (response.getStatusCode() == HttpStatus.OK) {
-                Map<String, Object> healthData = response.getBody();
-                String healthStatus = (String) healthData.get("status");
-                status.put("status", healthStatus);
-                status.put("uptime", healthData.get("uptime"));
-                status.put("details", healthData);
-            } else {
-                status.put("status", "DOWN");
-                status.put("error", "Service returned non-200 status: " + response.getStatusCode());
-            }
-        } catch (Exception e) {
-            status.put("status", "DOWN");
-            status.put("error", e.getMessage());
-        }
-        return status;
-    }
-} 
\ No newline at end of file
+}
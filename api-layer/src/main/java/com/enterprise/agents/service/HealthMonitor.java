@@ -0,0 +1,322 @@
+package com.enterprise.agents.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Polls the health of the integration services every service.health.poll-interval and keeps the last result of each
+ * in an immutable snapshot, so health endpoints answer without calling the services. Each probe has a deadline,
+ * service.health.target-timeout, a service that does not answer in time is TIMEOUT with the time waited. The connection
+ * of a probe gets what is left of the deadline to connect and is closed once the deadline passed, so a hung service
+ * frees its thread by then.
+ * <p>
+ * Refreshes are coalesced per service: callers asking while a probe is in flight share it, so a service is never
+ * probed more than once at a time whatever the number of callers.
+ */
+@Service
+public class HealthMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(HealthMonitor.class);
+
+    private final Map<String, String> targets = new LinkedHashMap<>();
+    private final Duration interval;
+    private final Duration targetTimeout;
+    private static final ParameterizedTypeReference<Map<String, Object>> HEALTH = new ParameterizedTypeReference<>() {
+    };
+
+    private final List<HttpMessageConverter<?>> messageConverters = new RestTemplate().getMessageConverters();
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicReference<Snapshot> snapshot;
+    private final Map<String, CompletableFuture<TargetHealth>> probes = new ConcurrentHashMap<>();
+
+    public HealthMonitor(@Value("${service.github.health-url:http://localhost:8081/api/github/actuator/health}") String githubHealthUrl,
+                         @Value("${service.google.health-url:http://localhost:8082/actuator/health}") String googleHealthUrl,
+                         @Value("${service.slack.health-url:http://localhost:8083/actuator/health}") String slackHealthUrl,
+                         @Value("${service.jira.health-url:http://localhost:8084/api/jira/actuator/health}") String jiraHealthUrl,
+                         @Value("${service.health.poll-interval:30s}") Duration interval,
+                         @Value("${service.health.target-timeout:2s}") Duration targetTimeout,
+                         @Value("${service.health.max-threads:8}") int maxThreads) {
+        targets.put("github", githubHealthUrl);
+        targets.put("google", googleHealthUrl);
+        targets.put("slack", slackHealthUrl);
+        targets.put("jira", jiraHealthUrl);
+        this.interval = interval;
+        this.targetTimeout = targetTimeout;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "health-check-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "health-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<String, TargetHealth> unknown = new LinkedHashMap<>();
+        targets.keySet().forEach(target -> unknown.put(target, TargetHealth.UNKNOWN));
+        this.snapshot = new AtomicReference<>(new Snapshot(Collections.unmodifiableMap(unknown)));
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::poll, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return The last result of every service, refreshed in the background if it is older than two poll intervals,
+     * Ex: the poller fell behind.
+     */
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot.get();
+        Instant stale = Instant.now().minus(interval.multipliedBy(2));
+        if (current.targets().values().stream().anyMatch(health -> health.checkedAt() == null || health.checkedAt().isBefore(stale))) {
+            refresh();
+        }
+        return current;
+    }
+
+    /**
+     * Probe every service now, or join the probes in flight.
+     *
+     * @return The snapshot once every probe completed, at the latest after the target timeout.
+     */
+    public CompletableFuture<Snapshot> refresh() {
+        CompletableFuture<?>[] refreshed = targets.keySet().stream().map(this::probe).toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(refreshed).thenApply(ignored -> snapshot.get());
+    }
+
+    /**
+     * Probe every service now, or join the probes in flight, waiting at most the timeout.
+     *
+     * @return The refreshed snapshot, or the current one if the probes did not complete in time.
+     */
+    public Snapshot refresh(Duration timeout) {
+        try {
+            return refresh().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return snapshot.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return snapshot.get();
+        }
+    }
+
+    private void poll() {
+        try {
+            refresh().join();
+        } catch (RuntimeException e) {
+            // Keep polling, the failure is in the snapshot.
+            logger.warn("Health poll failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Start a probe of the service unless one is in flight. The probe completes once the snapshot holds its result.
+     */
+    private CompletableFuture<TargetHealth> probe(String target) {
+        CompletableFuture<TargetHealth> probe = new CompletableFuture<>();
+        CompletableFuture<TargetHealth> inFlight = probes.putIfAbsent(target, probe);
+        if (inFlight != null) {
+            return inFlight;
+        }
+        check(targets.get(target)).whenComplete((health, ex) -> {
+            snapshot.updateAndGet(current -> current.with(target, health));
+            probes.remove(target, probe);
+            probe.complete(health);
+        });
+        return probe;
+    }
+
+    /**
+     * Check a service on the executor, completing with TIMEOUT and closing its connection once the target timeout
+     * passed.
+     */
+    private CompletableFuture<TargetHealth> check(String url) {
+        long start = System.nanoTime();
+        DeadlineRequestFactory requestFactory = new DeadlineRequestFactory(start + targetTimeout.toNanos());
+        CompletableFuture<TargetHealth> check = new CompletableFuture<>();
+        try {
+            executor.execute(() -> check.complete(checkHealthWithDetails(url, requestFactory, start)));
+        } catch (RejectedExecutionException e) {
+            check.complete(TargetHealth.down("Too many health checks in flight", 0));
+            return check;
+        }
+        CompletableFuture.delayedExecutor(targetTimeout.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+            // Completed first, the aborted probe fails with a closed connection.
+            check.complete(TargetHealth.timedOut(System.nanoTime() - start));
+            requestFactory.abort();
+        });
+        return check;
+    }
+
+    private TargetHealth checkHealthWithDetails(String url, DeadlineRequestFactory requestFactory, long start) {
+        RestTemplate restTemplate = new RestTemplate(messageConverters);
+        restTemplate.setRequestFactory(requestFactory);
+        try {
+            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(url, HttpMethod.GET, null, HEALTH);
+            long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+                Map<String, Object> healthData = response.getBody();
+                return new TargetHealth((String) healthData.get("status"), Collections.unmodifiableMap(healthData), null, latencyMs, Instant.now());
+            }
+            return TargetHealth.down("Service returned non-200 status: " + response.getStatusCode(), latencyMs);
+        } catch (ResourceAccessException e) {
+            if (e.getCause() instanceof SocketTimeoutException) {
+                return TargetHealth.timedOut(System.nanoTime() - start);
+            }
+            return TargetHealth.down(e.getMessage(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            return TargetHealth.down(e.getMessage(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Connections of one probe: connect and read timeouts are what is left of the deadline when the connection is
+     * opened, and {@link #abort()} closes the connection so a read blocked past the deadline ends.
+     */
+    static final class DeadlineRequestFactory extends SimpleClientHttpRequestFactory {
+        private final long deadline;
+        private volatile HttpURLConnection connection;
+
+        DeadlineRequestFactory(long deadline) {
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+            super.prepareConnection(connection, httpMethod);
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMs <= 0) {
+                throw new SocketTimeoutException("Health check deadline passed before connecting");
+            }
+            connection.setConnectTimeout((int) remainingMs);
+            connection.setReadTimeout((int) remainingMs);
+            this.connection = connection;
+        }
+
+        void abort() {
+            HttpURLConnection current = connection;
+            if (current != null) {
+                current.disconnect();
+            }
+        }
+    }
+
+    /**
+     * The last result of every service, Ex: github, google, slack and jira.
+     */
+    public record Snapshot(Map<String, TargetHealth> targets) {
+
+        /**
+         * @return True if every service is UP.
+         */
+        public boolean isUp() {
+            return targets.values().stream().allMatch(health -> "UP".equals(health.status()));
+        }
+
+        /**
+         * @return When the oldest result was checked, or null if a service was never checked.
+         */
+        public Instant getCheckedAt() {
+            Instant oldest = Instant.MAX;
+            for (TargetHealth health : targets.values()) {
+                if (health.checkedAt() == null) {
+                    return null;
+                }
+                oldest = health.checkedAt().isBefore(oldest) ? health.checkedAt() : oldest;
+            }
+            return oldest;
+        }
+
+        /**
+         * @return Age of the oldest result in milliseconds, or -1 if a service was never checked.
+         */
+        public long getAgeMs(Instant now) {
+            Instant checkedAt = getCheckedAt();
+            return checkedAt != null ? Duration.between(checkedAt, now).toMillis() : -1;
+        }
+
+        private Snapshot with(String target, TargetHealth health) {
+            Map<String, TargetHealth> updated = new LinkedHashMap<>(targets);
+            updated.put(target, health);
+            return new Snapshot(Collections.unmodifiableMap(updated));
+        }
+    }
+
+    /**
+     * The result of a probe, Ex: UP, DOWN or TIMEOUT. UNKNOWN until the service is checked.
+     */
+    public record TargetHealth(String status, Map<String, Object> details, String error, long latencyMs, Instant checkedAt) {
+        static final TargetHealth UNKNOWN = new TargetHealth("UNKNOWN", null, "Not checked yet", -1, null);
+
+        static TargetHealth down(String error, long latencyMs) {
+            return new TargetHealth("DOWN", null, error, latencyMs, Instant.now());
+        }
+
+        static TargetHealth timedOut(long nanos) {
+            long latencyMs = TimeUnit.NANOSECONDS.toMillis(nanos);
+            return new TargetHealth("TIMEOUT", null, "No answer within " + latencyMs + " ms", latencyMs, Instant.now());
+        }
+
+        /**
+         * @return The result as served by the health endpoints, with its age in milliseconds.
+         */
+        public Map<String, Object> toMap(Instant now) {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("status", this.status);
+            if (checkedAt != null) {
+                status.put("lastChecked", checkedAt.toString());
+                status.put("ageMs", Duration.between(checkedAt, now).toMillis());
+                status.put("latencyMs", latencyMs);
+            }
+            if (details != null) {
+                status.put("details", details);
+            }
+            if (error != null) {
+                status.put("error", error);
+            }
+            return status;
+        }
+    }
+}
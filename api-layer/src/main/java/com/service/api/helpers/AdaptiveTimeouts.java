@@ -0,0 +1,225 @@
+package com.service.api.helpers;
+
+import com.enterprise.agents.common.http.EndpointLatencies;
+
+import java.net.URI;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static com.service.api.helpers.Constants.REST_CLIENT_TIMEOUT_MS;
+
+/**
+ * Connect and read timeouts derived from the latencies observed per endpoint instead of a fixed
+ * {@link Constants#REST_CLIENT_TIMEOUT_MS}, so a slow upstream fails fast instead of holding threads for minutes.
+ * <p>
+ * Latencies are kept in rolling {@link EndpointLatencies}, per host for connects and per method, host and path for
+ * responses, Ex: GET api.github.com/repos/{id}/issues. The timeout is the p99 of the window times a multiplier,
+ * bounded by a floor and a ceiling, and the ceiling until the endpoint has enough samples. Instances are thread-safe.
+ */
+public final class AdaptiveTimeouts {
+	private static final String CONNECT = "CONNECT";
+
+	private final boolean adaptive;
+	private final double multiplier;
+	private final long minSamples;
+	private final Duration connectFloor;
+	private final Duration connectCeiling;
+	private final Duration readFloor;
+	private final Duration readCeiling;
+	private final EndpointLatencies connects;
+	private final EndpointLatencies responses;
+
+	private AdaptiveTimeouts(Builder builder) {
+		this.adaptive = builder.adaptive;
+		this.multiplier = builder.multiplier;
+		this.minSamples = builder.minSamples;
+		this.connectFloor = builder.connectFloor;
+		this.connectCeiling = builder.connectCeiling;
+		this.readFloor = builder.readFloor;
+		this.readCeiling = builder.readCeiling;
+		this.connects = builder.latencies.build();
+		this.responses = builder.latencies.build();
+	}
+
+	/**
+	 * @return Timeouts that are always {@link Constants#REST_CLIENT_TIMEOUT_MS}, latencies are still recorded.
+	 */
+	public static AdaptiveTimeouts fixed() {
+		Builder builder = builder();
+		builder.adaptive = false;
+		return builder.build();
+	}
+
+	/**
+	 * Start a configuration. Defaults to p99 times 3 over the last minute once 20 calls were seen, between 1 s and
+	 * 10 s to connect and between 1 s and 60 s to read.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @return The connect timeout for the host of the URL, in milliseconds.
+	 */
+	public int getConnectTimeout(URL url) {
+		if (!adaptive) {
+			return REST_CLIENT_TIMEOUT_MS;
+		}
+		return timeout(connects.get(CONNECT, url.getHost(), url.getPort(), null), connectFloor, connectCeiling);
+	}
+
+	/**
+	 * @return The read timeout for the endpoint of the method and URL, in milliseconds.
+	 */
+	public int getReadTimeout(String method, URL url) {
+		if (!adaptive) {
+			return REST_CLIENT_TIMEOUT_MS;
+		}
+		return timeout(responses.get(method, url.getHost(), url.getPort(), url.getPath()), readFloor, readCeiling);
+	}
+
+	/**
+	 * @return The percentile of the response latencies of the endpoint in milliseconds, or -1 without enough
+	 * samples, Ex: 0.95 for the p95.
+	 */
+	public long getPercentile(String method, URI uri, double quantile) {
+		EndpointLatencies.Histogram histogram = responses.get(method, uri);
+		if (histogram == null || histogram.getCount() < minSamples) {
+			return -1;
+		}
+		return TimeUnit.NANOSECONDS.toMillis(histogram.getPercentile(quantile));
+	}
+
+	/**
+	 * Record the time to connect to the host of the URI, the connect timeout if it timed out.
+	 */
+	public void recordConnect(URI uri, long nanos) {
+		connects.record(CONNECT, uri.getHost(), uri.getPort(), null, nanos);
+	}
+
+	/**
+	 * Record the time from sending a request to its response headers, the read timeout if it timed out.
+	 */
+	public void recordResponse(String method, URI uri, long nanos) {
+		responses.record(method, uri, nanos);
+	}
+
+	/**
+	 * @return The endpoints seen in the window with their p99 and read timeout, slowest first.
+	 */
+	public List<EndpointLatency> getEndpoints() {
+		List<EndpointLatency> endpoints = new ArrayList<>();
+		responses.getEndpoints().forEach((endpoint, histogram) -> {
+			long count = histogram.getCount();
+			if (count > 0) {
+				long p99 = TimeUnit.NANOSECONDS.toMillis(histogram.getPercentile(0.99));
+				endpoints.add(new EndpointLatency(endpoint, count, p99, timeout(histogram, readFloor, readCeiling)));
+			}
+		});
+		endpoints.sort(Comparator.comparingLong(EndpointLatency::p99Millis).reversed());
+		return endpoints;
+	}
+
+	private int timeout(EndpointLatencies.Histogram histogram, Duration floor, Duration ceiling) {
+		if (histogram == null || histogram.getCount() < minSamples) {
+			return (int) ceiling.toMillis();
+		}
+		long millis = (long) Math.ceil(TimeUnit.NANOSECONDS.toMillis(histogram.getPercentile(0.99)) * multiplier);
+		return (int) Math.max(floor.toMillis(), Math.min(ceiling.toMillis(), millis));
+	}
+
+	/**
+	 * Latency of an endpoint over the window.
+	 */
+	public record EndpointLatency(String endpoint, long calls, long p99Millis, int readTimeoutMillis) {
+	}
+
+	/**
+	 * Timeouts configuration.
+	 */
+	public static final class Builder {
+		private boolean adaptive = true;
+		private double multiplier = 3;
+		private long minSamples = 20;
+		private Duration connectFloor = Duration.ofSeconds(1);
+		private Duration connectCeiling = Duration.ofSeconds(10);
+		private Duration readFloor = Duration.ofSeconds(1);
+		private Duration readCeiling = Duration.ofSeconds(60);
+		private final EndpointLatencies.Builder latencies = EndpointLatencies.builder();
+
+		private Builder() {
+		}
+
+		/**
+		 * Timeout as a multiple of the p99 latency.
+		 */
+		public Builder multiplier(double multiplier) {
+			if (!(multiplier >= 1)) {
+				throw new IllegalArgumentException("AdaptiveTimeouts multiplier must be at least 1: " + multiplier);
+			}
+			this.multiplier = multiplier;
+			return this;
+		}
+
+		/**
+		 * Calls an endpoint needs in the window before its timeout adapts, it is the ceiling until then.
+		 */
+		public Builder minSamples(long minSamples) {
+			if (minSamples < 1) {
+				throw new IllegalArgumentException("AdaptiveTimeouts min samples must be positive: " + minSamples);
+			}
+			this.minSamples = minSamples;
+			return this;
+		}
+
+		public Builder connect(Duration floor, Duration ceiling) {
+			checkBounds(floor, ceiling);
+			this.connectFloor = floor;
+			this.connectCeiling = ceiling;
+			return this;
+		}
+
+		public Builder read(Duration floor, Duration ceiling) {
+			checkBounds(floor, ceiling);
+			this.readFloor = floor;
+			this.readCeiling = ceiling;
+			return this;
+		}
+
+		/**
+		 * Latencies older than the window are forgotten, a slice at a time.
+		 */
+		public Builder window(Duration window, int slices) {
+			latencies.window(window, slices);
+			return this;
+		}
+
+		/**
+		 * Endpoints tracked, later ones share one histogram per method and host.
+		 */
+		public Builder maxEndpoints(int maxEndpoints) {
+			latencies.maxEndpoints(maxEndpoints);
+			return this;
+		}
+
+		Builder ticker(LongSupplier ticker) {
+			latencies.ticker(ticker);
+			return this;
+		}
+
+		public AdaptiveTimeouts build() {
+			return new AdaptiveTimeouts(this);
+		}
+
+		private static void checkBounds(Duration floor, Duration ceiling) {
+			if (floor.isNegative() || floor.isZero() || ceiling.compareTo(floor) < 0 || ceiling.toMillis() > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("AdaptiveTimeouts bounds must be positive with the floor under the ceiling: " + floor + ", " + ceiling);
+			}
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package com.service.api.helpers;
+
+/**
+ * Pre-tokenized form of a json path. Ex: obj1.array[1].obj2 is stored as [obj1, array[1], obj2] with the array index
+ * already parsed, so evaluating the path does not split or parse strings. Array fields may also select by key, Ex:
+ * members[id=U123].profile.email selects the member whose id is U123, and may select several elements, Ex: issues[*].key
+ * or issues[0:10].key, which makes the path multi-valued.
+ * <p>
+ * Instances are immutable and thread-safe. Use {@link JsonPath#compile(String)} to obtain one, it caches compiled paths.
+ */
+public final class CompiledJsonPath {
+	private final String path;
+	private final Segment[] segments;
+	private final boolean multiValued;
+
+	CompiledJsonPath(String path, Segment[] segments) {
+		this.path = path;
+		this.segments = segments;
+		boolean hasRange = false;
+		for (Segment segment : segments) {
+			hasRange |= segment.isRange();
+		}
+		this.multiValued = hasRange;
+	}
+
+	/**
+	 * @return The source path this instance was compiled from.
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return Number of fields in the path. Ex: obj1.array[1].obj2 => 3
+	 */
+	public int size() {
+		return segments.length;
+	}
+
+	/**
+	 * @return True if the path contains a wildcard or slice and may select more than one element.
+	 */
+	public boolean isMultiValued() {
+		return multiValued;
+	}
+
+	/**
+	 * @return Name of the last field. Ex: obj1.array[1].obj2 => obj2
+	 */
+	String getLeafField() {
+		return segments[segments.length - 1].name;
+	}
+
+	Segment getSegment(int position) {
+		return segments[position];
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof CompiledJsonPath)) {
+			return false;
+		}
+		return path.equals(((CompiledJsonPath) other).path);
+	}
+
+	@Override
+	public int hashCode() {
+		return path.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return path;
+	}
+
+	/**
+	 * How an array field selects its elements. Ex: array[1] selects by index, members[id=U123] selects by key, array[*]
+	 * selects every element and array[1:3] selects a range.
+	 */
+	enum Selector {
+		None,
+		Index,
+		Key,
+		Wildcard,
+		Slice
+	}
+
+	/**
+	 * One field of a compiled path. For array fields the name is stored without the selector. Ex: array[1] => array, 1
+	 * and members[id=U123] => members, id, U123.
+	 */
+	static final class Segment {
+		final String name;
+		final JsonPath.FieldType type;
+		final Selector selector;
+		final int index;
+		final CompiledJsonPath key;
+		final String value;
+		final Integer start;
+		final Integer end;
+
+		Segment(String name, JsonPath.FieldType type) {
+			this(name, type, Selector.None, -1, null, null, null, null);
+		}
+
+		Segment(String name, int index) {
+			this(name, JsonPath.FieldType.Array, Selector.Index, index, null, null, null, null);
+		}
+
+		Segment(String name, CompiledJsonPath key, String value) {
+			this(name, JsonPath.FieldType.Array, Selector.Key, -1, key, value, null, null);
+		}
+
+		/**
+		 * Range field. Null bounds are open and negative bounds count from the end. Ex: [:2], [1:], [-2:].
+		 */
+		Segment(String name, Integer start, Integer end) {
+			this(name, JsonPath.FieldType.Array, start == null && end == null ? Selector.Wildcard : Selector.Slice, -1, null, null, start, end);
+		}
+
+		private Segment(String name, JsonPath.FieldType type, Selector selector, int index, CompiledJsonPath key, String value,
+						Integer start, Integer end) {
+			this.name = name;
+			this.type = type;
+			this.selector = selector;
+			this.index = index;
+			this.key = key;
+			this.value = value;
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * @return True for wildcard and slice fields, which select any number of elements.
+		 */
+		boolean isRange() {
+			return selector == Selector.Wildcard || selector == Selector.Slice;
+		}
+
+		/**
+		 * @return True if a range bound counts from the end, so the array size is needed to resolve it.
+		 */
+		boolean isRelativeToEnd() {
+			return (start != null && start < 0) || (end != null && end < 0);
+		}
+
+		/**
+		 * @return First index of the range in an array of the given size.
+		 */
+		int rangeStart(int size) {
+			return resolveBound(start, 0, size);
+		}
+
+		/**
+		 * @return Index after the last index of the range in an array of the given size.
+		 */
+		int rangeEnd(int size) {
+			return resolveBound(end, size, size);
+		}
+
+		private static int resolveBound(Integer bound, int defaultValue, int size) {
+			if (bound == null) {
+				return defaultValue;
+			}
+			int position = bound < 0 ? size + bound : bound;
+			return Math.max(0, Math.min(position, size));
+		}
+
+		/**
+		 * @return The selector without the array name. Ex: members[id=U123] => id=U123
+		 */
+		String selectorText() {
+			switch (selector) {
+				case Index:
+					return String.valueOf(index);
+				case Key:
+					return key + "=" + value;
+				case Wildcard:
+					return "*";
+				case Slice:
+					return (start == null ? "" : start) + ":" + (end == null ? "" : end);
+				default:
+					return "";
+			}
+		}
+
+		@Override
+		public String toString() {
+			return type == JsonPath.FieldType.Array ? name + "[" + selectorText() + "]" : name;
+		}
+	}
+}
@@ -0,0 +1,228 @@
+package com.service.api.helpers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms the connections to known upstreams before the first calls need them, Ex: right after a deploy. For every
+ * origin the host is resolved, which fills the JVM DNS cache, then connections are opened with HEAD requests, both
+ * through the engine of {@link HttpHelper} and through HttpURLConnection, so the first calls skip the TCP and TLS
+ * handshakes. The TLS sessions are cached by the default SSL context, so later connections resume them.
+ * <p>
+ * A host that cannot be resolved or reached is reported with its error, it does not keep the warm-up from
+ * finishing. Instances are thread-safe, only the first {@link #warm} call warms.
+ */
+public final class ConnectionWarmer {
+	private static final String HEAD = "HEAD";
+
+	private final int connectionsPerHost;
+	private final Duration timeout;
+	private CompletableFuture<List<HostWarmup>> warmup;
+
+	private ConnectionWarmer(Builder builder) {
+		this.connectionsPerHost = builder.connectionsPerHost;
+		this.timeout = builder.timeout;
+	}
+
+	/**
+	 * Start a configuration. Defaults to 2 connections per host and client, within 10 s per host.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Start warming the origins of the URLs, Ex: the token URL of every integration. URLs of one origin are warmed
+	 * once.
+	 *
+	 * @return The warm-up, completed with a report per origin once every origin is warm, failed or timed out.
+	 */
+	public synchronized CompletableFuture<List<HostWarmup>> warm(Collection<URI> urls) {
+		if (warmup != null) {
+			return warmup;
+		}
+		Set<URI> origins = new LinkedHashSet<>();
+		for (URI url : urls) {
+			origins.add(URI.create(url.getScheme() + "://" + url.getRawAuthority() + "/"));
+		}
+		HttpClientEngine httpClientEngine = HttpHelper.getHttpClientEngine() != null ? HttpHelper.getHttpClientEngine() : HttpClientEngine.shared();
+		ExecutorService executor = Executors.newCachedThreadPool(daemonThreads());
+		List<CompletableFuture<HostWarmup>> hosts = new ArrayList<>();
+		for (URI origin : origins) {
+			hosts.add(warm(origin, httpClientEngine, executor));
+		}
+		warmup = CompletableFuture.allOf(hosts.toArray(CompletableFuture[]::new))
+				.thenApply(ignored -> hosts.stream().map(CompletableFuture::join).toList());
+		warmup.whenComplete((report, ex) -> executor.shutdown());
+		return warmup;
+	}
+
+	/**
+	 * @return True once the warm-up finished, whatever the outcome of each host.
+	 */
+	public synchronized boolean isWarm() {
+		return warmup != null && warmup.isDone();
+	}
+
+	/**
+	 * @return The report per origin once warm, else an empty list.
+	 */
+	public synchronized List<HostWarmup> getHosts() {
+		return isWarm() ? warmup.join() : List.of();
+	}
+
+	private CompletableFuture<HostWarmup> warm(URI origin, HttpClientEngine httpClientEngine, ExecutorService executor) {
+		long start = System.nanoTime();
+		return CompletableFuture.supplyAsync(() -> resolve(origin.getHost()), executor)
+				.thenCompose(addresses -> {
+					long dnsMillis = millisSince(start);
+					List<CompletableFuture<String>> connections = new ArrayList<>();
+					for (int i = 0; i < connectionsPerHost; i++) {
+						connections.add(httpClientEngine.sendAsync(head(origin), HttpResponse.BodyHandlers.discarding())
+								.handle((response, ex) -> ex == null ? null : message(ex)));
+						connections.add(CompletableFuture.supplyAsync(() -> open(origin), executor));
+					}
+					return CompletableFuture.allOf(connections.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+						List<String> errors = connections.stream().map(CompletableFuture::join).filter(Objects::nonNull).toList();
+						return new HostWarmup(origin.toString(), addresses, connections.size() - errors.size(), dnsMillis, millisSince(start),
+								errors.isEmpty() ? null : errors.get(0));
+					});
+				})
+				.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+				.exceptionally(ex -> new HostWarmup(origin.toString(), List.of(), 0, -1, millisSince(start), message(ex)));
+	}
+
+	private HttpRequest head(URI origin) {
+		return HttpRequest.newBuilder(origin).method(HEAD, HttpRequest.BodyPublishers.noBody()).timeout(timeout).build();
+	}
+
+	/**
+	 * Open a connection with HttpURLConnection and leave it in the keep-alive cache.
+	 *
+	 * @return The error, or null if the connection was opened.
+	 */
+	private String open(URI origin) {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) origin.toURL().openConnection();
+			connection.setRequestMethod(HEAD);
+			connection.setConnectTimeout((int) timeout.toMillis());
+			connection.setReadTimeout((int) timeout.toMillis());
+			long connecting = System.nanoTime();
+			connection.connect();
+			HttpHelper.getAdaptiveTimeouts().recordConnect(origin, System.nanoTime() - connecting);
+			int httpResponseCode = connection.getResponseCode();
+			// Reading the response to its end gives the connection back to the keep-alive cache.
+			try (InputStream body = httpResponseCode >= HttpURLConnection.HTTP_BAD_REQUEST ? connection.getErrorStream() : connection.getInputStream()) {
+				if (body != null) {
+					body.transferTo(OutputStream.nullOutputStream());
+				}
+			}
+			return null;
+		} catch (IOException ex) {
+			return message(ex);
+		}
+	}
+
+	private static List<String> resolve(String host) {
+		try {
+			return Arrays.stream(InetAddress.getAllByName(host)).map(InetAddress::getHostAddress).toList();
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	private static String message(Throwable ex) {
+		Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+		if (cause instanceof UncheckedIOException && cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		if (cause instanceof TimeoutException) {
+			return "Timed out";
+		}
+		return cause.getClass().getSimpleName() + ": " + cause.getMessage();
+	}
+
+	private static long millisSince(long start) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+
+	private static ThreadFactory daemonThreads() {
+		AtomicInteger threads = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, "connection-warmer-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * Warm-up of an origin.
+	 *
+	 * @param addresses   Addresses the host resolved to.
+	 * @param connections Connections opened, through both clients.
+	 * @param dnsMillis   Time to resolve the host, or -1 if it failed.
+	 * @param error       First error, or null if every connection was opened.
+	 */
+	public record HostWarmup(String origin, List<String> addresses, int connections, long dnsMillis, long millis, String error) {
+	}
+
+	/**
+	 * Warm-up configuration.
+	 */
+	public static final class Builder {
+		private int connectionsPerHost = 2;
+		private Duration timeout = Duration.ofSeconds(10);
+
+		private Builder() {
+		}
+
+		/**
+		 * Connections opened per host through each client. HTTP/2 requests to a host share one connection.
+		 */
+		public Builder connectionsPerHost(int connectionsPerHost) {
+			if (connectionsPerHost < 1) {
+				throw new IllegalArgumentException("ConnectionWarmer connections per host must be positive: " + connectionsPerHost);
+			}
+			this.connectionsPerHost = connectionsPerHost;
+			return this;
+		}
+
+		/**
+		 * Time allowed to warm a host, after which it is reported as timed out.
+		 */
+		public Builder timeout(Duration timeout) {
+			if (timeout.isNegative() || timeout.isZero() || timeout.toMillis() > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("ConnectionWarmer timeout must be positive: " + timeout);
+			}
+			this.timeout = timeout;
+			return this;
+		}
+
+		public ConnectionWarmer build() {
+			return new ConnectionWarmer(this);
+		}
+	}
+}
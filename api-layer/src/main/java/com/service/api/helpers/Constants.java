@@ -2,6 +2,7 @@ package com.service.api.helpers;
 
 public final class Constants {
     public static final String CONTENT_TYPE = "Content-Type";
+    public static final String AUTHORIZATION = "Authorization";
     public static final int MAX_RETRY_SERVICE_REQUEST = 3;
     public static final int REST_CLIENT_TIMEOUT_MS = 300000;
 
@@ -0,0 +1,60 @@
+package com.service.api.helpers;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * {@link JsonNodeAccessor} for Gson trees.
+ */
+public final class GsonNodeAccessor implements JsonNodeAccessor<JsonElement> {
+	public static final GsonNodeAccessor INSTANCE = new GsonNodeAccessor();
+
+	private GsonNodeAccessor() {
+	}
+
+	@Override
+	public boolean isObject(JsonElement node) {
+		return node.isJsonObject();
+	}
+
+	@Override
+	public boolean isArray(JsonElement node) {
+		return node.isJsonArray();
+	}
+
+	@Override
+	public boolean isPrimitive(JsonElement node) {
+		return node.isJsonPrimitive();
+	}
+
+	@Override
+	public JsonElement getField(JsonElement object, String name) {
+		return ((JsonObject) object).get(name);
+	}
+
+	@Override
+	public int size(JsonElement array) {
+		return ((JsonArray) array).size();
+	}
+
+	@Override
+	public JsonElement getElement(JsonElement array, int index) {
+		return ((JsonArray) array).get(index);
+	}
+
+	@Override
+	public String getAsString(JsonElement primitive) {
+		return primitive.getAsString();
+	}
+
+	@Override
+	public boolean getAsBoolean(JsonElement primitive) {
+		return primitive.getAsBoolean();
+	}
+
+	@Override
+	public long getAsLong(JsonElement primitive) {
+		return primitive.getAsLong();
+	}
+}
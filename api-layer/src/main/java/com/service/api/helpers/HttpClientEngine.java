@@ -0,0 +1,265 @@
+package com.service.api.helpers;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import static com.service.api.helpers.Constants.REST_CLIENT_TIMEOUT_MS;
+
+/**
+ * Sends requests through one shared {@link HttpClient}, so connections are pooled and kept alive across requests and
+ * HTTP/2 streams to the same host are multiplexed over one connection. The number of requests in flight per host is
+ * capped, requests over the cap wait in order for a slot without holding a thread, and the wait is reported to the
+ * observer of HttpHelper.
+ * <p>
+ * Pool size and idle keep-alive are JVM wide settings of the JDK client, set them with the system properties
+ * jdk.httpclient.connectionPoolSize and jdk.httpclient.keepalive.timeout (seconds). Instances are thread-safe.
+ */
+public final class HttpClientEngine {
+	private static final int DEFAULT_MAX_REQUESTS_PER_HOST = 64;
+	private static volatile HttpClientEngine shared;
+
+	private final HttpClient client;
+	private final int maxRequestsPerHost;
+	private final Map<String, HostLimiter> limiters = new ConcurrentHashMap<>();
+
+	private HttpClientEngine(Builder builder) {
+		HttpClient.Builder clientBuilder = HttpClient.newBuilder()
+				.version(builder.version)
+				.connectTimeout(builder.connectTimeout)
+				.followRedirects(HttpClient.Redirect.NORMAL);
+		if (builder.executor != null) {
+			clientBuilder.executor(builder.executor);
+		}
+		this.client = clientBuilder.build();
+		this.maxRequestsPerHost = builder.maxRequestsPerHost;
+	}
+
+	/**
+	 * @return The engine shared by the application, created with the default settings on first use.
+	 */
+	public static HttpClientEngine shared() {
+		HttpClientEngine engine = shared;
+		if (engine == null) {
+			synchronized (HttpClientEngine.class) {
+				engine = shared;
+				if (engine == null) {
+					engine = builder().build();
+					shared = engine;
+				}
+			}
+		}
+		return engine;
+	}
+
+	/**
+	 * Start an engine configuration.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @return The underlying client.
+	 */
+	public HttpClient getClient() {
+		return client;
+	}
+
+	/**
+	 * @return Maximum number of requests in flight per host.
+	 */
+	public int getMaxRequestsPerHost() {
+		return maxRequestsPerHost;
+	}
+
+	/**
+	 * Send a request and wait for the response headers.
+	 *
+	 * @throws java.net.http.HttpTimeoutException If the request timeout expires.
+	 * @throws InterruptedIOException              If the thread is interrupted while waiting.
+	 */
+	public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws IOException {
+		HostLimiter limiter = limiter(request.uri());
+		long waiting = System.nanoTime();
+		CompletableFuture<Void> slot = limiter.acquire();
+		boolean queued = !slot.isDone();
+		try {
+			slot.get();
+		} catch (InterruptedException ex) {
+			if (!limiter.withdraw(slot)) {
+				limiter.release();
+			}
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("HttpClientEngine was interrupted waiting for a connection to " + request.uri().getHost());
+		} catch (ExecutionException ex) {
+			throw new IllegalStateException(ex.getCause());
+		}
+		if (queued) {
+			HttpHelper.getOutboundObserver().onPoolWait(request.uri(), System.nanoTime() - waiting);
+		}
+		try {
+			return client.send(request, bodyHandler);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("HttpClientEngine was interrupted sending to " + request.uri().getHost());
+		} finally {
+			limiter.release();
+		}
+	}
+
+	/**
+	 * Send a request without blocking. The slot of the host is held until the body handler completes, Ex: until the
+	 * whole body is read for byte array handlers and until the headers arrive for streaming handlers.
+	 * <p>
+	 * Completing the returned future, Ex: cancelling it, gives up the slot if the request is still waiting for one
+	 * and cancels the exchange if it was sent.
+	 */
+	public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+		HostLimiter limiter = limiter(request.uri());
+		long waiting = System.nanoTime();
+		CompletableFuture<Void> slot = limiter.acquire();
+		boolean queued = !slot.isDone();
+		CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+		slot.thenRun(() -> {
+			if (result.isDone()) {
+				limiter.release();
+				return;
+			}
+			if (queued) {
+				HttpHelper.getOutboundObserver().onPoolWait(request.uri(), System.nanoTime() - waiting);
+			}
+			CompletableFuture<HttpResponse<T>> exchange = client.sendAsync(request, bodyHandler);
+			exchange.whenComplete((response, ex) -> {
+				limiter.release();
+				if (ex != null) {
+					result.completeExceptionally(ex);
+				} else {
+					result.complete(response);
+				}
+			});
+			result.whenComplete((response, ex) -> {
+				if (ex != null) {
+					exchange.cancel(true);
+				}
+			});
+		});
+		result.whenComplete((response, ex) -> {
+			if (ex != null) {
+				limiter.withdraw(slot);
+			}
+		});
+		return result;
+	}
+
+	private HostLimiter limiter(URI uri) {
+		String host = uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+		return limiters.computeIfAbsent(host, key -> new HostLimiter(maxRequestsPerHost));
+	}
+
+	/**
+	 * Counts the requests in flight to one host and queues the ones over the cap.
+	 */
+	private static final class HostLimiter {
+		private final int permits;
+		private final Queue<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+		private int inFlight;
+
+		private HostLimiter(int permits) {
+			this.permits = permits;
+		}
+
+		private synchronized CompletableFuture<Void> acquire() {
+			if (inFlight < permits) {
+				inFlight++;
+				return CompletableFuture.completedFuture(null);
+			}
+			CompletableFuture<Void> waiter = new CompletableFuture<>();
+			waiters.add(waiter);
+			return waiter;
+		}
+
+		/**
+		 * Hand the slot to the next waiter, or free it.
+		 */
+		private void release() {
+			CompletableFuture<Void> next;
+			synchronized (this) {
+				next = waiters.poll();
+				if (next == null) {
+					inFlight--;
+					return;
+				}
+			}
+			next.complete(null);
+		}
+
+		/**
+		 * Stop waiting for a slot.
+		 *
+		 * @return False if the slot was already handed over, it must then be released.
+		 */
+		private synchronized boolean withdraw(CompletableFuture<Void> slot) {
+			return waiters.remove(slot);
+		}
+	}
+
+	/**
+	 * Engine configuration. Defaults to HTTP/2, falling back to HTTP/1.1 when the server does not support it, the
+	 * {@link Constants#REST_CLIENT_TIMEOUT_MS} connect timeout and 64 requests in flight per host.
+	 */
+	public static final class Builder {
+		private HttpClient.Version version = HttpClient.Version.HTTP_2;
+		private Duration connectTimeout = Duration.ofMillis(REST_CLIENT_TIMEOUT_MS);
+		private int maxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST;
+		private Executor executor;
+
+		private Builder() {
+		}
+
+		public Builder version(HttpClient.Version version) {
+			this.version = version;
+			return this;
+		}
+
+		public Builder connectTimeout(Duration connectTimeout) {
+			this.connectTimeout = connectTimeout;
+			return this;
+		}
+
+		/**
+		 * Maximum number of requests in flight per host. Over HTTP/1.1 every request in flight holds a connection, so
+		 * this also caps the connections per host.
+		 */
+		public Builder maxRequestsPerHost(int maxRequestsPerHost) {
+			if (maxRequestsPerHost < 1) {
+				throw new IllegalArgumentException("HttpClientEngine max requests per host must be positive: " + maxRequestsPerHost);
+			}
+			this.maxRequestsPerHost = maxRequestsPerHost;
+			return this;
+		}
+
+		/**
+		 * Executor for the client's asynchronous tasks, the client creates its own by default.
+		 */
+		public Builder executor(Executor executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		public HttpClientEngine build() {
+			return new HttpClientEngine(this);
+		}
+	}
+}
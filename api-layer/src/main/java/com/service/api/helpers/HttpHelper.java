@@ -1,38 +1,101 @@
 package com.service.api.helpers;
 
+import com.enterprise.agents.common.exception.CallNotPermittedException;
+import com.enterprise.agents.common.http.HttpResponseCache;
+import com.enterprise.agents.common.http.OutboundObserver;
+import com.enterprise.agents.common.http.RequestHedging;
+import com.enterprise.agents.common.resilience.OutboundGuard;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.gson.*;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.net.*;
-import java.util.HashMap;
-import java.util.Map;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntSupplier;
+import java.util.function.UnaryOperator;
 
 import static com.service.api.helpers.Constants.*;
 import static com.service.api.helpers.Constants.LogCodes.INFO_1652;
 import static com.service.api.helpers.Constants.LogCodes.INFO_1654;
 
+/**
+ * Sends json requests built with {@link #buildHttpURLConnection} and parses their responses.
+ * <p>
+ * HttpURLConnection does not give an Authorization header back once it is set, so HttpHelper only knows the
+ * Authorization of a connection set with {@link #setAuthorization}, or declared absent with a null one. Requests of
+ * other connections, Ex: authorized with setRequestProperty, are sent as they are with HttpURLConnection, never through
+ * the engine of {@link #setHttpClientEngine} which would send them without it. The sendHttpRequestAsync methods then
+ * send them on a bounded pool of blocking threads instead of the engine. They are not retried either, a retry opens a
+ * new connection which would not have the header, nor coalesced with or answered from the cached responses of other
+ * principals. Build connections with their Authorization instead, see
+ * {@link #buildHttpURLConnection(String, String, String, boolean, String, String)}.
+ */
 public class HttpHelper {
     private static final Logger logger = LoggerFactory.getLogger(HttpHelper.class);
     private static final Gson gson = new GsonBuilder().create();
+    private static final String HTTP_ENGINE_PROPERTY = "api.http.engine";
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+    private static volatile HttpClientEngine engine = "httpclient".equalsIgnoreCase(System.getProperty(HTTP_ENGINE_PROPERTY))
+            ? HttpClientEngine.shared() : null;
+    private static volatile RetryPolicy retryPolicy = RetryPolicy.builder().build();
+    private static volatile OutboundGuard outboundGuard = OutboundGuard.shared();
+    private static volatile OutboundObserver observer = OutboundObserver.NONE;
+    private static volatile boolean requestCoalescing = true;
+    private static volatile boolean responseCaching = true;
+    private static volatile boolean requestHedging = true;
+    private static volatile AdaptiveTimeouts timeouts = AdaptiveTimeouts.builder().build();
+    private static volatile long maxResponseBodyBytes = 16L << 20;
+    private static final SingleFlight<RequestKey, JsonElement> GET_REQUESTS = new SingleFlight<>(JsonElement::deepCopy);
+    // HttpURLConnection hides the Authorization header once set, keep it for retries, the engine and coalescing. Empty
+    // for connections declared without one.
+    private static final Cache<HttpURLConnection, Optional<String>> AUTHORIZATIONS = CacheBuilder.newBuilder().weakKeys().build();
 
     private HttpHelper() {
         throw new IllegalStateException("HttpHelper should be used as a utility class");
     }
 
+    /**
+     * Build HTTP URL Connection with basic information and its Authorization, see {@link #setAuthorization}. Callers
+     * should build their connections here rather than set the header with setRequestProperty, whose requests are
+     * never retried, coalesced, cached or sent through the engine.
+     * Ex: buildHttpURLConnection(url, "GET", "application/json", false, "Bearer " + token, appId)
+     *
+     * @param authorization The Authorization header, or null for a connection without one.
+     */
+    public static HttpURLConnection buildHttpURLConnection(String url, String requestMethod, String contentType, boolean doOutput,
+                                                           String authorization, String appId) {
+        HttpURLConnection httpURLConnection = buildHttpURLConnection(url, requestMethod, contentType, doOutput, appId);
+        setAuthorization(httpURLConnection, authorization);
+        return httpURLConnection;
+    }
+
     /**
      * Build HTTP URL Connection with basic information
      */
     public static HttpURLConnection buildHttpURLConnection(String url, String requestMethod, String contentType, boolean doOutput, String appId) {
         HttpURLConnection httpURLConnection = null;
-        int connectionTimeout = REST_CLIENT_TIMEOUT_MS;
         try {
             // Validate that the URL is absolute
             try {
@@ -45,8 +108,9 @@ public class HttpHelper {
             httpURLConnection.setDoOutput(doOutput);
             httpURLConnection.setRequestMethod(requestMethod);
             httpURLConnection.setRequestProperty(CONTENT_TYPE, contentType);
-            httpURLConnection.setConnectTimeout(connectionTimeout);
-            httpURLConnection.setReadTimeout(connectionTimeout);
+            httpURLConnection.setRequestProperty(ResponseBodies.ACCEPT_ENCODING, ResponseBodies.SUPPORTED_ENCODINGS);
+            httpURLConnection.setConnectTimeout(timeouts.getConnectTimeout(httpURLConnection.getURL()));
+            httpURLConnection.setReadTimeout(timeouts.getReadTimeout(requestMethod, httpURLConnection.getURL()));
         } catch (Exception exception) {
             logger.error("[{}][{}][{}] Exception in buildHttpURLConnection", appId, API_SERVICE, INFO_1652, exception);
             throw new IllegalArgumentException("Invalid URL: " + url, exception);
@@ -54,81 +118,1077 @@ public class HttpHelper {
         return httpURLConnection;
     }
 
+    /**
+     * Send the requests of the sendHttpRequest methods through the engine instead of opening the connections, or go
+     * back to HttpURLConnection with null. Also enabled with -Dapi.http.engine=httpclient. Only connections whose
+     * Authorization is known go through the engine, see {@link #setAuthorization}.
+     */
+    public static void setHttpClientEngine(HttpClientEngine httpClientEngine) {
+        engine = httpClientEngine;
+    }
+
+    /**
+     * @return The engine requests are sent through or null if they are sent with HttpURLConnection.
+     */
+    public static HttpClientEngine getHttpClientEngine() {
+        return engine;
+    }
+
+    /**
+     * Retry the requests of the sendHttpRequest methods with the policy, Ex: {@link RetryPolicy#none()} to send every
+     * request once.
+     */
+    public static void setRetryPolicy(RetryPolicy policy) {
+        retryPolicy = Objects.requireNonNull(policy);
+    }
+
+    /**
+     * @return The policy requests are retried with.
+     */
+    public static RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Derive the connect and read timeouts of built connections from the latencies of their endpoint, Ex:
+     * {@link AdaptiveTimeouts#fixed()} for {@link Constants#REST_CLIENT_TIMEOUT_MS}. The timeouts of a connection
+     * can still be set after it is built.
+     */
+    public static void setAdaptiveTimeouts(AdaptiveTimeouts adaptiveTimeouts) {
+        timeouts = Objects.requireNonNull(adaptiveTimeouts);
+    }
+
+    /**
+     * @return The timeouts connections are built with, and the latencies recorded per endpoint.
+     */
+    public static AdaptiveTimeouts getAdaptiveTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * Fail responses whose body, decoded, is larger than the size with a {@link ServiceRuntimeException} instead of
+     * reading it, 16 MiB by default.
+     */
+    public static void setMaxResponseBodySize(long bytes) {
+        if (bytes < 1) {
+            throw new IllegalArgumentException("Max response body size must be positive: " + bytes);
+        }
+        maxResponseBodyBytes = bytes;
+    }
+
+    /**
+     * Guard every attempt with the circuit breaker and bulkhead of its host, the guard shared with the RestTemplate
+     * bean by default.
+     */
+    public static void setOutboundGuard(OutboundGuard guard) {
+        outboundGuard = Objects.requireNonNull(guard);
+    }
+
+    /**
+     * @return The guard attempts go through.
+     */
+    public static OutboundGuard getOutboundGuard() {
+        return outboundGuard;
+    }
+
+    /**
+     * Report every attempt, its status, latency, bytes, retries and the wait for a connection slot, Ex: to
+     * OutboundMetrics. Reports nothing by default.
+     */
+    public static void setOutboundObserver(OutboundObserver outboundObserver) {
+        observer = Objects.requireNonNull(outboundObserver);
+    }
+
+    /**
+     * @return The observer attempts are reported to.
+     */
+    public static OutboundObserver getOutboundObserver() {
+        return observer;
+    }
+
+    /**
+     * Set the Authorization header of a connection built with {@link #buildHttpURLConnection}, or declare with null
+     * that it has none. HttpURLConnection does not give the header back once set, so it is only kept on retries and
+     * engine requests, and only used to tell coalesced requests apart, when set here.
+     */
+    public static void setAuthorization(HttpURLConnection httpURLConnection, String authorization) {
+        if (authorization != null) {
+            httpURLConnection.setRequestProperty(AUTHORIZATION, authorization);
+        }
+        AUTHORIZATIONS.put(httpURLConnection, Optional.ofNullable(authorization));
+    }
+
+    /**
+     * Share one upstream call between identical GET requests in flight, Ex: dashboards of one tenant loading the same
+     * list concurrently. Enabled by default, nothing is cached once the call completes. Only requests whose
+     * Authorization is known are coalesced, see {@link #setAuthorization}.
+     */
+    public static void setRequestCoalescing(boolean enabled) {
+        requestCoalescing = enabled;
+    }
+
+    /**
+     * @return Number of GET requests that joined an identical request in flight.
+     */
+    public static long getCoalescedRequestHits() {
+        return GET_REQUESTS.getHits();
+    }
+
+    /**
+     * @return Number of GET requests that made their own upstream call while coalescing was enabled.
+     */
+    public static long getCoalescedRequestMisses() {
+        return GET_REQUESTS.getMisses();
+    }
+
+    /**
+     * Send GET requests conditionally on the response cached for their URL and Authorization, and answer a 304 Not
+     * Modified with the cached body, see {@link HttpResponseCache#shared()}. Enabled by default, only for requests
+     * whose Authorization is known, see {@link #setAuthorization}.
+     */
+    public static void setResponseCaching(boolean enabled) {
+        responseCaching = enabled;
+    }
+
+    /**
+     * Send a second attempt of GET requests sent through an engine when they have no response by the observed p95 of
+     * their endpoint, and take whichever response comes first, see {@link RequestHedging#shared()}. Enabled by
+     * default, second attempts are capped by the budget of the shared hedging.
+     */
+    public static void setRequestHedging(boolean enabled) {
+        requestHedging = enabled;
+    }
+
     /**
      * Send HTTP POST request (supports, application/json)
      */
     public static JsonElement sendHttpRequest(String requestQuery, HttpURLConnection httpURLConnection, String appId) throws IOException {
-        JsonElement jsonResponse = new JsonObject();
-        int connectionTimeout = REST_CLIENT_TIMEOUT_MS;
-        // Implement retry for request timeout.
-        int count = 0;
-        if (httpURLConnection != null) {
-            while (count < MAX_RETRY_SERVICE_REQUEST) {
-                count++;
-                try (OutputStream outputStream = httpURLConnection.getOutputStream()) {
-                    if (requestQuery != null) {
-                        outputStream.write(requestQuery.getBytes());
-                    }
-                    return processHttpResponse(httpURLConnection, appId);
-                } catch (SocketTimeoutException ex) {
-                    if (count >= MAX_RETRY_SERVICE_REQUEST) {
-                        throw new ServiceRuntimeException(INFO_1654, ex, count, connectionTimeout, ex.getMessage());
-                    } else {
-                        logger.warn("[{}][{}][{}] Timeout on attempt {} of {} with timeout {} ms", appId, API_SERVICE, INFO_1652, count, MAX_RETRY_SERVICE_REQUEST, connectionTimeout);
-                    }
-                }
-            }
-        } else {
+        if (httpURLConnection == null) {
             logger.warn("[{}][{}][{}] HTTPURLConnection not a valid value in sendHttpRequest()", appId, API_SERVICE, INFO_1652);
+            return new JsonObject();
         }
-        return jsonResponse;
+        HttpClientEngine httpClientEngine = engine;
+        if (httpClientEngine != null && isAuthorizationKnown(httpURLConnection)) {
+            HttpRequest request = toHttpRequest(httpURLConnection, requestQuery);
+            return sendHttpRequest(httpClientEngine, request, response -> processHttpResponse(response, appId), appId);
+        }
+        return sendHttpRequest(httpURLConnection, requestQuery, connection -> processHttpResponse(connection, appId), appId);
     }
 
     /**
-     * Send HTTP GET request
+     * Send HTTP GET request. Identical requests in flight, same URL and Authorization, share one upstream call, see
+     * {@link #setRequestCoalescing(boolean)}, and cached responses are revalidated, see {@link #setResponseCaching(boolean)}.
      */
     public static JsonElement sendHttpRequest(HttpURLConnection httpURLConnection, String appId) throws IOException {
-        JsonElement jsonResponse = new JsonObject();
-        int connectionTimeout = REST_CLIENT_TIMEOUT_MS;
         // Check for null HttpURLConnection
         if (httpURLConnection == null) {
             logger.warn("[{}][{}][{}] HTTPURLConnection not a valid value in sendHttpRequest()", appId, API_SERVICE, INFO_1652);
-            return jsonResponse;
-        }
-        // Implement retry for request timeout.
-        int count = 0;
-        while (count < MAX_RETRY_SERVICE_REQUEST) {
-            count++;
-            try (InputStream ignored = httpURLConnection.getInputStream()) {
-                return processHttpResponse(httpURLConnection, appId);
-            } catch (SocketTimeoutException ex) {
-                if (count >= MAX_RETRY_SERVICE_REQUEST) {
-                    throw new ServiceRuntimeException(INFO_1654, ex, count, connectionTimeout, ex.getMessage());
-                } else {
-                    logger.warn("[{}][{}][{}] Timeout on attempt {} of {} with timeout {} ms", appId, API_SERVICE, INFO_1652, count, MAX_RETRY_SERVICE_REQUEST, connectionTimeout);
+            return new JsonObject();
+        }
+        // Requests with an unknown Authorization could belong to any principal.
+        if (requestCoalescing && GET_REQUEST_METHOD.equals(httpURLConnection.getRequestMethod()) && isAuthorizationKnown(httpURLConnection)) {
+            RequestKey key = new RequestKey(GET_REQUEST_METHOD, httpURLConnection.getURL().toString(), getAuthorization(httpURLConnection));
+            return GET_REQUESTS.execute(key, () -> sendGetRequest(httpURLConnection, appId));
+        }
+        return sendGetRequest(httpURLConnection, appId);
+    }
+
+    private static JsonElement sendGetRequest(HttpURLConnection httpURLConnection, String appId) throws IOException {
+        Revalidation revalidation = Revalidation.prepare(httpURLConnection);
+        HttpClientEngine httpClientEngine = engine;
+        if (httpClientEngine != null && isAuthorizationKnown(httpURLConnection)) {
+            HttpRequest request = toHttpRequest(httpURLConnection, null);
+            return sendHttpRequest(httpClientEngine, request, response -> processHttpResponse(response, revalidation, appId), appId);
+        }
+        return sendHttpRequest(httpURLConnection, null, connection -> processHttpResponse(connection, revalidation, appId), appId);
+    }
+
+    /**
+     * Send HTTP GET request and stream only the requested paths out of the response, without building the whole
+     * response tree.
+     */
+    public static JsonPathValues sendHttpRequest(HttpURLConnection httpURLConnection, JsonPathSet paths, String appId) throws IOException {
+        if (httpURLConnection == null) {
+            logger.warn("[{}][{}][{}] HTTPURLConnection not a valid value in sendHttpRequest()", appId, API_SERVICE, INFO_1652);
+            return paths.extract(InputStream.nullInputStream());
+        }
+        HttpClientEngine httpClientEngine = engine;
+        if (httpClientEngine != null && isAuthorizationKnown(httpURLConnection)) {
+            HttpRequest request = toHttpRequest(httpURLConnection, null);
+            return sendHttpRequest(httpClientEngine, request, response -> processHttpResponse(response, paths, appId), appId);
+        }
+        return sendHttpRequest(httpURLConnection, null, connection -> processHttpResponse(connection, paths, appId), appId);
+    }
+
+    /**
+     * Send the request with the retry policy. Every retry opens a new connection like the given one, the used one is
+     * disconnected so a broken socket is not kept alive. Requests whose Authorization is unknown are sent once.
+     */
+    private static <T> T sendHttpRequest(HttpURLConnection httpURLConnection, String requestQuery, ConnectionProcessor<T> processor,
+                                         String appId) throws IOException {
+        // Headers can only be read before connecting.
+        Map<String, List<String>> headers = new LinkedHashMap<>(httpURLConnection.getRequestProperties());
+        Optional<String> authorization = AUTHORIZATIONS.getIfPresent(httpURLConnection);
+        URI uri = toUri(httpURLConnection.getURL());
+        String method = httpURLConnection.getRequestMethod();
+        // A new connection would not have an Authorization header that is not known.
+        RetryPolicy policy = authorization != null ? retryPolicy : RetryPolicy.none();
+        RetryPolicy.Call retry = policy.start(uri, method, httpURLConnection.getRequestProperty(RetryPolicy.IDEMPOTENCY_KEY));
+        AdaptiveTimeouts adaptiveTimeouts = timeouts;
+        OutboundObserver outboundObserver = observer;
+        byte[] requestBody = requestQuery != null ? requestQuery.getBytes() : null;
+        long requestBytes = requestBody != null ? requestBody.length : 0;
+        HttpURLConnection connection = httpURLConnection;
+        while (true) {
+            long delay;
+            OutboundGuard.Permit permit = acquire(outboundObserver, method, uri, requestBytes);
+            boolean failed = true;
+            long sent = 0;
+            long connecting = System.nanoTime();
+            try {
+                try {
+                    connection.connect();
+                } catch (SocketTimeoutException ex) {
+                    adaptiveTimeouts.recordConnect(uri, System.nanoTime() - connecting);
+                    throw ex;
+                }
+                sent = System.nanoTime();
+                adaptiveTimeouts.recordConnect(uri, sent - connecting);
+                if (connection.getDoOutput()) {
+                    try (OutputStream outputStream = connection.getOutputStream()) {
+                        if (requestBody != null) {
+                            outputStream.write(requestBody);
+                        }
+                    }
+                }
+                int httpResponseCode = connection.getResponseCode();
+                adaptiveTimeouts.recordResponse(method, uri, System.nanoTime() - sent);
+                outboundObserver.onResponse(method, uri, httpResponseCode, System.nanoTime() - connecting, requestBytes);
+                failed = httpResponseCode >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+                delay = retry.onStatus(httpResponseCode, connection.getHeaderField(RetryPolicy.RETRY_AFTER));
+                if (delay < 0) {
+                    return processor.process(connection);
+                }
+            } catch (IOException ex) {
+                failed = true;
+                if (ex instanceof SocketTimeoutException && sent != 0) {
+                    // Timed out reading, the latency is at least the read timeout.
+                    adaptiveTimeouts.recordResponse(method, uri, System.nanoTime() - sent);
+                }
+                outboundObserver.onFailure(method, uri, ex, System.nanoTime() - connecting, requestBytes);
+                delay = retry.onFailure(ex);
+                if (delay < 0) {
+                    throw failure(ex, retry.getAttempts(), connection.getReadTimeout());
                 }
+            } finally {
+                permit.complete(failed);
             }
+            outboundObserver.onRetry(method, uri);
+            logger.warn("[{}][{}][{}] Retrying attempt {} of {} in {} ms", appId, API_SERVICE, INFO_1652, retry.getAttempts(), policy.getMaxAttempts(), delay);
+            connection.disconnect();
+            pause(delay);
+            connection = reopen(connection, headers, authorization);
+        }
+    }
+
+    /**
+     * Send HTTP POST request without blocking (supports, application/json), see
+     * {@link #sendHttpRequestAsync(String, HttpURLConnection, Duration, String)}. The deadline is the read timeout of
+     * the connection.
+     */
+    public static CompletableFuture<JsonElement> sendHttpRequestAsync(String requestQuery, HttpURLConnection httpURLConnection, String appId) {
+        return sendHttpRequestAsync(requestQuery, httpURLConnection, null, appId);
+    }
+
+    /**
+     * Send HTTP POST request without blocking (supports, application/json). The request is sent through the engine,
+     * or the shared engine if none is set, and the response is parsed on a bounded pool, so no thread waits for the
+     * upstream. A full bulkhead is waited for without a thread, up to the max wait of the outbound guard. Cancelling
+     * the future cancels the request. Connections whose Authorization is unknown, see
+     * {@link #setAuthorization}, are sent with HttpURLConnection on a bounded pool instead.
+     *
+     * @param deadline Time allowed for the whole call, retries included, the read timeout of the connection if null.
+     *                 The future then fails with a {@link ServiceRuntimeException}.
+     */
+    public static CompletableFuture<JsonElement> sendHttpRequestAsync(String requestQuery, HttpURLConnection httpURLConnection,
+                                                                      Duration deadline, String appId) {
+        if (httpURLConnection == null) {
+            logger.warn("[{}][{}][{}] HTTPURLConnection not a valid value in sendHttpRequestAsync()", appId, API_SERVICE, INFO_1652);
+            return CompletableFuture.completedFuture(new JsonObject());
+        }
+        if (!isAuthorizationKnown(httpURLConnection)) {
+            return sendBlockingAsync(requestQuery, httpURLConnection, deadline, appId);
+        }
+        Revalidation revalidation = requestQuery == null ? Revalidation.prepare(httpURLConnection) : null;
+        HttpRequest request;
+        try {
+            request = toHttpRequest(httpURLConnection, requestQuery, deadline);
+        } catch (IOException ex) {
+            return CompletableFuture.failedFuture(ex);
         }
-        return jsonResponse;
+        return sendHttpRequestAsync(request, revalidation, appId);
+    }
+
+    /**
+     * Send HTTP GET request without blocking, see {@link #sendHttpRequestAsync(HttpURLConnection, Duration, String)}.
+     * The deadline is the read timeout of the connection.
+     */
+    public static CompletableFuture<JsonElement> sendHttpRequestAsync(HttpURLConnection httpURLConnection, String appId) {
+        return sendHttpRequestAsync(null, httpURLConnection, null, appId);
+    }
+
+    /**
+     * Send HTTP GET request without blocking, see {@link #sendHttpRequestAsync(String, HttpURLConnection, Duration, String)}.
+     */
+    public static CompletableFuture<JsonElement> sendHttpRequestAsync(HttpURLConnection httpURLConnection, Duration deadline, String appId) {
+        return sendHttpRequestAsync(null, httpURLConnection, deadline, appId);
+    }
+
+    /**
+     * Send many requests without blocking, Ex: the profile of every new hire, at most concurrency in flight at once.
+     * Requests go through the engine like {@link #sendHttpRequestAsync(String, HttpURLConnection, String)}, so they
+     * share pooled connections and HTTP/2 streams, and each host gets no more than the engine and the outbound guard
+     * admit. Slots of the host held by other callers are waited for like any asynchronous request, up to the max wait
+     * of the guard, after which the request fails with a {@link CallNotPermittedException}. Connections whose
+     * Authorization is unknown are sent on the blocking pool instead, see the class doc.
+     *
+     * @return The batch, with the responses in request order or as they arrive.
+     */
+    public static RequestBatch sendAll(List<RequestBatch.Request> requests, int concurrency, String appId) {
+        HttpClientEngine httpClientEngine = engine != null ? engine : HttpClientEngine.shared();
+        int maxPerHost = Math.min(httpClientEngine.getMaxRequestsPerHost(), outboundGuard.getMaxConcurrentCalls());
+        RequestBatch batch = new RequestBatch(requests, concurrency, maxPerHost,
+                request -> sendHttpRequestAsync(request.requestQuery(), request.connection(), appId));
+        batch.start();
+        return batch;
+    }
+
+    private static CompletableFuture<JsonElement> sendHttpRequestAsync(HttpRequest request, Revalidation revalidation, String appId) {
+        long timeout = request.timeout().map(Duration::toMillis).orElse((long) REST_CLIENT_TIMEOUT_MS);
+        RetryPolicy.Call retry = retryPolicy.start(request.uri(), request.method(), request.headers().firstValue(RetryPolicy.IDEMPOTENCY_KEY).orElse(null));
+        CompletableFuture<JsonElement> result = GET_REQUEST_METHOD.equals(request.method()) && requestCoalescing
+                ? GET_REQUESTS.executeAsync(new RequestKey(request.method(), request.uri().toString(), request.headers().firstValue(AUTHORIZATION).orElse(null)),
+                () -> sendAttemptsAsync(request, retry, revalidation, appId))
+                : sendAttemptsAsync(request, retry, revalidation, appId);
+        return reported(result, timeout, retry::getAttempts);
+    }
+
+    /**
+     * Send a request whose Authorization is unknown with the blocking sendHttpRequest methods on the blocking pool, so
+     * its Authorization header is sent. Cancelling the future disconnects the connection.
+     */
+    private static CompletableFuture<JsonElement> sendBlockingAsync(String requestQuery, HttpURLConnection httpURLConnection, Duration deadline,
+                                                                    String appId) {
+        long timeout = deadline != null ? deadline.toMillis()
+                : httpURLConnection.getReadTimeout() > 0 ? httpURLConnection.getReadTimeout() : REST_CLIENT_TIMEOUT_MS;
+        CompletableFuture<JsonElement> result = new CompletableFuture<>();
+        BlockingExecutor.INSTANCE.execute(() -> {
+            // Cancelled or past its deadline while queued.
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                result.complete(requestQuery != null ? sendHttpRequest(requestQuery, httpURLConnection, appId) : sendHttpRequest(httpURLConnection, appId));
+            } catch (IOException | RuntimeException ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+        result.whenComplete((response, ex) -> {
+            if (ex != null) {
+                // Unblock the thread once the caller gave up or the deadline passed.
+                httpURLConnection.disconnect();
+            }
+        });
+        return reported(result, timeout, () -> 1);
+    }
+
+    /**
+     * @return The result failing with a {@link ServiceRuntimeException} once the timeout passed, like the blocking
+     * requests. Cancelling the returned future cancels the result.
+     */
+    private static CompletableFuture<JsonElement> reported(CompletableFuture<JsonElement> result, long timeout, IntSupplier attempts) {
+        result.orTimeout(timeout, TimeUnit.MILLISECONDS);
+        CompletableFuture<JsonElement> reported = new CompletableFuture<>();
+        result.whenComplete((response, ex) -> {
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (cause == null) {
+                reported.complete(response);
+            } else if (cause instanceof TimeoutException) {
+                reported.completeExceptionally(new ServiceRuntimeException(INFO_1654, cause, attempts.getAsInt(), timeout, cause.getMessage()));
+            } else {
+                reported.completeExceptionally(cause);
+            }
+        });
+        reported.whenComplete((response, ex) -> {
+            if (reported.isCancelled()) {
+                result.cancel(true);
+            }
+        });
+        return reported;
+    }
+
+    /**
+     * Send the attempts of an asynchronous request. Failing the returned future, Ex: cancelling it, cancels the
+     * attempt in flight.
+     */
+    private static CompletableFuture<JsonElement> sendAttemptsAsync(HttpRequest request, RetryPolicy.Call retry, Revalidation revalidation,
+                                                               String appId) {
+        HttpClientEngine httpClientEngine = engine != null ? engine : HttpClientEngine.shared();
+        CompletableFuture<JsonElement> result = new CompletableFuture<>();
+        AtomicReference<Future<?>> attempt = new AtomicReference<>();
+        sendAttemptAsync(httpClientEngine, request, retry, revalidation, result, attempt, appId);
+        result.whenComplete((response, ex) -> {
+            Future<?> current = attempt.get();
+            if (ex != null && current != null) {
+                // Stop waiting for the upstream once the caller gave up or the deadline passed.
+                current.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Send one attempt of an asynchronous request and complete the result with it, or schedule the next attempt
+     * without holding a thread.
+     */
+    private static void sendAttemptAsync(HttpClientEngine httpClientEngine, HttpRequest request, RetryPolicy.Call retry, Revalidation revalidation,
+                                         CompletableFuture<JsonElement> result, AtomicReference<Future<?>> attempt, String appId) {
+        OutboundObserver outboundObserver = observer;
+        long requestBytes = requestBytes(request);
+        // Wait for a bulkhead slot without holding a thread, the attempt is sent by the call that frees it.
+        outboundGuard.acquireAsync(request.uri().getHost()).whenComplete((permit, ex) -> {
+            if (ex != null) {
+                Throwable failure = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                outboundObserver.onFailure(request.method(), request.uri(), failure, 0, requestBytes);
+                result.completeExceptionally(failure);
+            } else {
+                sendAttemptAsync(httpClientEngine, request, retry, revalidation, result, attempt, permit, appId);
+            }
+        });
+    }
+
+    /**
+     * Send one admitted attempt of an asynchronous request.
+     */
+    private static void sendAttemptAsync(HttpClientEngine httpClientEngine, HttpRequest request, RetryPolicy.Call retry, Revalidation revalidation,
+                                         CompletableFuture<JsonElement> result, AtomicReference<Future<?>> attempt, OutboundGuard.Permit permit,
+                                         String appId) {
+        OutboundObserver outboundObserver = observer;
+        long requestBytes = requestBytes(request);
+        AdaptiveTimeouts adaptiveTimeouts = timeouts;
+        long sent = System.nanoTime();
+        CompletableFuture<HttpResponse<byte[]>> exchange = RequestHedging.shared().send(hedgePercentile(request, adaptiveTimeouts),
+                () -> httpClientEngine.sendAsync(request, ResponseBodies.ofByteArray(maxResponseBodyBytes)), ignored -> {
+                });
+        attempt.set(exchange);
+        if (result.isDone()) {
+            exchange.cancel(true);
+        }
+        exchange.whenComplete((response, ex) -> {
+            Throwable failure = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (failure == null) {
+                adaptiveTimeouts.recordResponse(request.method(), request.uri(), System.nanoTime() - sent);
+                outboundObserver.onResponse(request.method(), request.uri(), response.statusCode(), System.nanoTime() - sent, requestBytes);
+                outboundObserver.onResponseBody(request.method(), request.uri(), response.body().length);
+            } else {
+                recordTimeout(adaptiveTimeouts, request, failure, System.nanoTime() - sent);
+                outboundObserver.onFailure(request.method(), request.uri(), failure, System.nanoTime() - sent, requestBytes);
+            }
+            permit.complete(failure != null ? !(failure instanceof CancellationException) : response.statusCode() >= HttpURLConnection.HTTP_INTERNAL_ERROR);
+            long delay = failure != null ? retry.onFailure(failure)
+                    : retry.onStatus(response.statusCode(), response.headers().firstValue(RetryPolicy.RETRY_AFTER).orElse(null));
+            if (delay >= 0) {
+                outboundObserver.onRetry(request.method(), request.uri());
+                logger.warn("[{}][{}][{}] Retrying attempt {} of {} in {} ms", appId, API_SERVICE, INFO_1652, retry.getAttempts(), retryPolicy.getMaxAttempts(), delay);
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+                    if (!result.isDone()) {
+                        sendAttemptAsync(httpClientEngine, request, retry, revalidation, result, attempt, appId);
+                    }
+                });
+            } else if (failure instanceof HttpTimeoutException) {
+                long timeout = request.timeout().map(Duration::toMillis).orElse((long) REST_CLIENT_TIMEOUT_MS);
+                result.completeExceptionally(new ServiceRuntimeException(INFO_1654, failure, retry.getAttempts(), timeout, failure.getMessage()));
+            } else if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                try {
+                    ParseExecutor.INSTANCE.execute(() -> {
+                        try {
+                            result.complete(processAsyncHttpResponse(response, revalidation, appId));
+                        } catch (RuntimeException parseException) {
+                            result.completeExceptionally(parseException);
+                        }
+                    });
+                } catch (RejectedExecutionException rejected) {
+                    result.completeExceptionally(rejected);
+                }
+            }
+        });
     }
 
     /**
      * Process HTTP Response
      */
     private static JsonElement processHttpResponse(HttpURLConnection httpURLConnection, String appId) throws IOException {
-        JsonElement jsonResponse = new JsonObject();
         int httpResponseCode = httpURLConnection.getResponseCode();
 
         if (httpResponseCode >= HttpURLConnection.HTTP_MULT_CHOICE) {
-            String errorStream = StringUtils.toString(httpURLConnection.getErrorStream());
+            String errorStream = errorBody(httpURLConnection, httpResponseCode);
+            logger.info("[{}][{}][{}] Server returned error response: {} with code {}", appId, API_SERVICE, INFO_1652, errorStream, httpResponseCode);
+            throw new ServiceRuntimeException(INFO_1654, httpResponseCode, errorStream);
+        }
+        return ResponseBodies.parse(decodedBody(httpURLConnection, httpResponseCode));
+    }
+
+    /**
+     * Process HTTP Response of a GET request, answering a 304 Not Modified from the cache and storing a cacheable 200.
+     */
+    private static JsonElement processHttpResponse(HttpURLConnection httpURLConnection, Revalidation revalidation, String appId) throws IOException {
+        if (revalidation != null) {
+            int httpResponseCode = httpURLConnection.getResponseCode();
+            byte[] body = revalidation.resolve(httpResponseCode, httpURLConnection::getHeaderField, () -> {
+                try (ResponseBodies.Body read = ResponseBodies.read(observed(httpURLConnection.getInputStream(), httpURLConnection), httpURLConnection.getContentEncoding(),
+                        httpURLConnection.getContentLengthLong(), httpResponseCode, maxResponseBodyBytes)) {
+                    return read.toByteArray();
+                }
+            });
+            if (body != null) {
+                return parseBody(body);
+            }
+        }
+        return processHttpResponse(httpURLConnection, appId);
+    }
+
+    /**
+     * Process HTTP Response by streaming the requested paths out of the body.
+     */
+    private static JsonPathValues processHttpResponse(HttpURLConnection httpURLConnection, JsonPathSet paths, String appId) throws IOException {
+        int httpResponseCode = httpURLConnection.getResponseCode();
+
+        if (httpResponseCode >= HttpURLConnection.HTTP_MULT_CHOICE) {
+            String errorStream = errorBody(httpURLConnection, httpResponseCode);
+            logger.info("[{}][{}][{}] Server returned error response: {} with code {}", appId, API_SERVICE, INFO_1652, errorStream, httpResponseCode);
+            throw new ServiceRuntimeException(INFO_1654, httpResponseCode, errorStream);
+        }
+        try (InputStream inputStream = decodedBody(httpURLConnection, httpResponseCode)) {
+            return paths.extract(inputStream);
+        }
+    }
+
+    /**
+     * @return The decoded body of the connection, limited to the max response body size.
+     */
+    private static InputStream decodedBody(HttpURLConnection httpURLConnection, int httpResponseCode) throws IOException {
+        return ResponseBodies.decode(observed(httpURLConnection.getInputStream(), httpURLConnection), httpURLConnection.getContentEncoding(),
+                httpURLConnection.getContentLengthLong(), httpResponseCode, maxResponseBodyBytes);
+    }
+
+    private static String errorBody(HttpURLConnection httpURLConnection, int httpResponseCode) throws IOException {
+        try (ResponseBodies.Body body = ResponseBodies.read(observed(httpURLConnection.getErrorStream(), httpURLConnection), httpURLConnection.getContentEncoding(),
+                httpURLConnection.getContentLengthLong(), httpResponseCode, maxResponseBodyBytes)) {
+            return body.toString();
+        }
+    }
+
+    /**
+     * Send the request through the engine with the retry policy.
+     */
+    private static <T> T sendHttpRequest(HttpClientEngine httpClientEngine, HttpRequest request, ResponseProcessor<T> processor,
+                                         String appId) throws IOException {
+        long timeout = request.timeout().map(Duration::toMillis).orElse((long) REST_CLIENT_TIMEOUT_MS);
+        RetryPolicy.Call retry = retryPolicy.start(request.uri(), request.method(), request.headers().firstValue(RetryPolicy.IDEMPOTENCY_KEY).orElse(null));
+        AdaptiveTimeouts adaptiveTimeouts = timeouts;
+        OutboundObserver outboundObserver = observer;
+        long requestBytes = requestBytes(request);
+        while (true) {
+            long delay;
+            OutboundGuard.Permit permit = acquire(outboundObserver, request.method(), request.uri(), requestBytes);
+            boolean failed = true;
+            long sent = System.nanoTime();
+            try {
+                HttpResponse<InputStream> response = send(httpClientEngine, request, adaptiveTimeouts);
+                adaptiveTimeouts.recordResponse(request.method(), request.uri(), System.nanoTime() - sent);
+                outboundObserver.onResponse(request.method(), request.uri(), response.statusCode(), System.nanoTime() - sent, requestBytes);
+                failed = response.statusCode() >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+                delay = retry.onStatus(response.statusCode(), response.headers().firstValue(RetryPolicy.RETRY_AFTER).orElse(null));
+                if (delay < 0) {
+                    return processor.process(response);
+                }
+                response.body().close();
+            } catch (IOException ex) {
+                failed = true;
+                recordTimeout(adaptiveTimeouts, request, ex, System.nanoTime() - sent);
+                outboundObserver.onFailure(request.method(), request.uri(), ex, System.nanoTime() - sent, requestBytes);
+                delay = retry.onFailure(ex);
+                if (delay < 0) {
+                    throw failure(ex, retry.getAttempts(), timeout);
+                }
+            } finally {
+                permit.complete(failed);
+            }
+            outboundObserver.onRetry(request.method(), request.uri());
+            logger.warn("[{}][{}][{}] Retrying attempt {} of {} in {} ms", appId, API_SERVICE, INFO_1652, retry.getAttempts(), retryPolicy.getMaxAttempts(), delay);
+            pause(delay);
+        }
+    }
+
+    /**
+     * Send a request through the engine and wait for the response headers, hedged if it is a GET.
+     */
+    private static HttpResponse<InputStream> send(HttpClientEngine httpClientEngine, HttpRequest request, AdaptiveTimeouts adaptiveTimeouts)
+            throws IOException {
+        long percentile = hedgePercentile(request, adaptiveTimeouts);
+        if (percentile < 0) {
+            return httpClientEngine.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        }
+        CompletableFuture<HttpResponse<InputStream>> response = RequestHedging.shared().send(percentile,
+                () -> httpClientEngine.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream()), HttpHelper::close);
+        try {
+            return response.get();
+        } catch (InterruptedException ex) {
+            response.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("HttpHelper was interrupted sending to " + request.uri().getHost());
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause() instanceof CompletionException && ex.getCause().getCause() != null ? ex.getCause().getCause() : ex.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * @return The latency percentile to hedge the request after, or -1 if it is not hedged.
+     */
+    private static long hedgePercentile(HttpRequest request, AdaptiveTimeouts adaptiveTimeouts) {
+        if (!requestHedging || !GET_REQUEST_METHOD.equals(request.method())) {
+            return -1;
+        }
+        return adaptiveTimeouts.getPercentile(request.method(), request.uri(), RequestHedging.shared().getQuantile());
+    }
+
+    private static void close(HttpResponse<InputStream> response) {
+        try {
+            response.body().close();
+        } catch (IOException ex) {
+            logger.debug("[{}][{}] Could not close the body of a hedged response: {}", API_SERVICE, INFO_1652, ex.getMessage());
+        }
+    }
+
+    /**
+     * Wait for the outbound guard of the host, reporting the wait and a refused call to the observer.
+     */
+    private static OutboundGuard.Permit acquire(OutboundObserver outboundObserver, String method, URI uri, long requestBytes) {
+        long waiting = System.nanoTime();
+        try {
+            return outboundGuard.acquire(uri.getHost());
+        } catch (CallNotPermittedException ex) {
+            outboundObserver.onFailure(method, uri, ex, 0, requestBytes);
+            throw ex;
+        } finally {
+            outboundObserver.onPoolWait(uri, System.nanoTime() - waiting);
+        }
+    }
+
+    /**
+     * @return The size of the request body, 0 without one or -1 if unknown.
+     */
+    private static long requestBytes(HttpRequest request) {
+        return request.bodyPublisher().map(HttpRequest.BodyPublisher::contentLength).orElse(0L);
+    }
+
+    /**
+     * @return The raw body of a response counted for the observer, as received before decoding.
+     */
+    private static InputStream observed(InputStream body, String method, URI uri) {
+        OutboundObserver outboundObserver = observer;
+        if (outboundObserver == OutboundObserver.NONE) {
+            return body;
+        }
+        return ResponseBodies.counting(body, bytes -> outboundObserver.onResponseBody(method, uri, bytes));
+    }
+
+    private static InputStream observed(InputStream body, HttpURLConnection httpURLConnection) throws IOException {
+        return observer == OutboundObserver.NONE ? body : observed(body, httpURLConnection.getRequestMethod(), toUri(httpURLConnection.getURL()));
+    }
+
+    /**
+     * Record the latency of an engine attempt that timed out, the connect or the whole exchange.
+     */
+    private static void recordTimeout(AdaptiveTimeouts adaptiveTimeouts, HttpRequest request, Throwable failure, long nanos) {
+        if (failure instanceof HttpConnectTimeoutException) {
+            adaptiveTimeouts.recordConnect(request.uri(), nanos);
+        } else if (failure instanceof HttpTimeoutException) {
+            adaptiveTimeouts.recordResponse(request.method(), request.uri(), nanos);
+        }
+    }
+
+    /**
+     * @return The failure of the last attempt, timeouts are reported as {@link ServiceRuntimeException}.
+     */
+    private static IOException failure(IOException ex, int attempts, long timeout) {
+        if (ex instanceof SocketTimeoutException || ex instanceof HttpTimeoutException) {
+            throw new ServiceRuntimeException(INFO_1654, ex, attempts, timeout, ex.getMessage());
+        }
+        return ex;
+    }
+
+    /**
+     * Wait before a retry of a blocking request. The caller is blocked until the response anyway, asynchronous
+     * requests schedule their retries instead.
+     */
+    private static void pause(long delay) throws IOException {
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("HttpHelper was interrupted waiting to retry");
+        }
+    }
+
+    /**
+     * @return True if the Authorization of the connection was set or declared absent with {@link #setAuthorization}.
+     */
+    private static boolean isAuthorizationKnown(HttpURLConnection httpURLConnection) {
+        return AUTHORIZATIONS.getIfPresent(httpURLConnection) != null;
+    }
+
+    /**
+     * @return The Authorization set with {@link #setAuthorization}, or null if there is none or it is not known.
+     */
+    private static String getAuthorization(HttpURLConnection httpURLConnection) {
+        Optional<String> authorization = AUTHORIZATIONS.getIfPresent(httpURLConnection);
+        return authorization != null ? authorization.orElse(null) : null;
+    }
+
+    /**
+     * Open a new connection with the URL, method, timeouts, headers and known Authorization of a used one.
+     */
+    private static HttpURLConnection reopen(HttpURLConnection used, Map<String, List<String>> headers, Optional<String> authorization)
+            throws IOException {
+        HttpURLConnection connection = createHttpUrlConnection(used.getURL().toString());
+        connection.setDoOutput(used.getDoOutput());
+        connection.setRequestMethod(used.getRequestMethod());
+        connection.setConnectTimeout(used.getConnectTimeout());
+        connection.setReadTimeout(used.getReadTimeout());
+        headers.forEach((name, values) -> {
+            if (name != null) {
+                values.forEach(value -> connection.addRequestProperty(name, value));
+            }
+        });
+        setAuthorization(connection, authorization.orElse(null));
+        return connection;
+    }
+
+    /**
+     * Process HTTP Response of the engine
+     */
+    private static JsonElement processHttpResponse(HttpResponse<InputStream> response, String appId) throws IOException {
+        try (InputStream body = decodedBody(response)) {
+            checkHttpResponse(response.statusCode(), body, appId);
+            return ResponseBodies.parse(body);
+        }
+    }
+
+    /**
+     * Process HTTP Response of the engine to a GET request, see
+     * {@link #processHttpResponse(HttpURLConnection, Revalidation, String)}.
+     */
+    private static JsonElement processHttpResponse(HttpResponse<InputStream> response, Revalidation revalidation, String appId) throws IOException {
+        if (revalidation != null) {
+            byte[] body = revalidation.resolve(response.statusCode(), name -> response.headers().firstValue(name).orElse(null), () -> {
+                try (ResponseBodies.Body read = ResponseBodies.read(decodedBody(response), contentLength(response))) {
+                    return read.toByteArray();
+                }
+            });
+            if (body != null) {
+                response.body().close();
+                return parseBody(body);
+            }
+        }
+        return processHttpResponse(response, appId);
+    }
+
+    /**
+     * Process HTTP Response of the engine by streaming the requested paths out of the body.
+     */
+    private static JsonPathValues processHttpResponse(HttpResponse<InputStream> response, JsonPathSet paths, String appId) throws IOException {
+        try (InputStream body = decodedBody(response)) {
+            checkHttpResponse(response.statusCode(), body, appId);
+            return paths.extract(body);
+        }
+    }
+
+    /**
+     * Process HTTP Response of an asynchronous request, parsing the body bytes directly.
+     */
+    private static JsonElement processAsyncHttpResponse(HttpResponse<byte[]> response, Revalidation revalidation, String appId) {
+        byte[] body = decodedBytes(response);
+        if (revalidation != null) {
+            byte[] resolved;
+            try {
+                resolved = revalidation.resolve(response.statusCode(), name -> response.headers().firstValue(name).orElse(null), () -> body);
+            } catch (IOException ex) {
+                // The body is already read.
+                throw new UncheckedIOException(ex);
+            }
+            if (resolved != null) {
+                return parseBody(resolved);
+            }
+        }
+        if (response.statusCode() >= HttpURLConnection.HTTP_MULT_CHOICE) {
+            String errorStream = new String(body, StandardCharsets.UTF_8);
+            logger.info("[{}][{}][{}] Server returned error response: {} with code {}", appId, API_SERVICE, INFO_1652, errorStream, response.statusCode());
+            throw new ServiceRuntimeException(INFO_1654, response.statusCode(), errorStream);
+        }
+        return parseBody(body);
+    }
+
+    private static JsonElement parseBody(byte[] body) {
+        if (body.length == 0) {
+            return new JsonObject();
+        }
+        return gson.fromJson(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8), JsonElement.class);
+    }
+
+    /**
+     * @return The decoded body of an engine response, limited to the max response body size.
+     */
+    private static InputStream decodedBody(HttpResponse<InputStream> response) throws IOException {
+        return ResponseBodies.decode(observed(response.body(), response.request().method(), response.request().uri()),
+                response.headers().firstValue(ResponseBodies.CONTENT_ENCODING).orElse(null),
+                response.headers().firstValueAsLong(ResponseBodies.CONTENT_LENGTH).orElse(-1), response.statusCode(), maxResponseBodyBytes);
+    }
+
+    /**
+     * @return The Content-Length of an identity encoded response, or -1.
+     */
+    private static long contentLength(HttpResponse<?> response) {
+        return response.headers().firstValue(ResponseBodies.CONTENT_ENCODING).isPresent()
+                ? -1 : response.headers().firstValueAsLong(ResponseBodies.CONTENT_LENGTH).orElse(-1);
+    }
+
+    /**
+     * @return The decoded body of an asynchronous response, whose size was limited as it arrived.
+     */
+    private static byte[] decodedBytes(HttpResponse<byte[]> response) {
+        String contentEncoding = response.headers().firstValue(ResponseBodies.CONTENT_ENCODING).orElse(null);
+        if (contentEncoding == null || response.body().length == 0) {
+            return response.body();
+        }
+        try (ResponseBodies.Body body = ResponseBodies.read(new ByteArrayInputStream(response.body()), contentEncoding, -1,
+                response.statusCode(), maxResponseBodyBytes)) {
+            return body.toByteArray();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static void checkHttpResponse(int httpResponseCode, InputStream body, String appId) throws IOException {
+        if (httpResponseCode >= HttpURLConnection.HTTP_MULT_CHOICE) {
+            String errorStream;
+            try (ResponseBodies.Body read = ResponseBodies.read(body, -1)) {
+                errorStream = read.toString();
+            }
             logger.info("[{}][{}][{}] Server returned error response: {} with code {}", appId, API_SERVICE, INFO_1652, errorStream, httpResponseCode);
             throw new ServiceRuntimeException(INFO_1654, httpResponseCode, errorStream);
         }
-        String response = StringUtils.toString(httpURLConnection.getInputStream());
-        if (!Strings.isNullOrEmpty(response)) {
-            return gson.fromJson(response, JsonElement.class);
+    }
+
+    /**
+     * Build the engine request from a connection that was built but not connected, with its URL, method, headers and
+     * read timeout.
+     */
+    private static HttpRequest toHttpRequest(HttpURLConnection httpURLConnection, String requestQuery) throws IOException {
+        return toHttpRequest(httpURLConnection, requestQuery, null);
+    }
+
+    /**
+     * Build the engine request from a connection, with the deadline as timeout instead of the read timeout if set.
+     */
+    private static HttpRequest toHttpRequest(HttpURLConnection httpURLConnection, String requestQuery, Duration deadline) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(toUri(httpURLConnection.getURL()));
+        for (Map.Entry<String, List<String>> header : httpURLConnection.getRequestProperties().entrySet()) {
+            if (header.getKey() != null && !RESTRICTED_HEADERS.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+                for (String value : header.getValue()) {
+                    builder.header(header.getKey(), value);
+                }
+            }
+        }
+        String authorization = getAuthorization(httpURLConnection);
+        if (authorization != null) {
+            builder.header(AUTHORIZATION, authorization);
+        }
+        if (deadline != null) {
+            builder.timeout(deadline);
+        } else if (httpURLConnection.getReadTimeout() > 0) {
+            builder.timeout(Duration.ofMillis(httpURLConnection.getReadTimeout()));
+        }
+        HttpRequest.BodyPublisher body = requestQuery != null
+                ? HttpRequest.BodyPublishers.ofByteArray(requestQuery.getBytes())
+                : HttpRequest.BodyPublishers.noBody();
+        return builder.method(httpURLConnection.getRequestMethod(), body).build();
+    }
+
+    /**
+     * Parses the responses of the asynchronous requests. The pool and its queue are bounded, requests whose response
+     * cannot be queued fail with a {@link java.util.concurrent.RejectedExecutionException} instead of piling up.
+     */
+    private static final class ParseExecutor {
+        private static final int QUEUE_SIZE = 1024;
+        private static final Executor INSTANCE = create();
+
+        private ParseExecutor() {
         }
-        return jsonResponse;
+
+        private static Executor create() {
+            int threads = Runtime.getRuntime().availableProcessors();
+            AtomicInteger count = new AtomicInteger();
+            return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), runnable -> {
+                Thread thread = new Thread(runnable, "http-helper-parse-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Sends the asynchronous requests whose Authorization is unknown with HttpURLConnection, a thread per request in
+     * flight. Requests over the max threads, Ex: of a large batch, wait in the queue for a thread, their deadline
+     * running, and idle threads stop after a minute.
+     */
+    private static final class BlockingExecutor {
+        private static final int MAX_THREADS = 64;
+        private static final Executor INSTANCE = create();
+
+        private BlockingExecutor() {
+        }
+
+        private static Executor create() {
+            AtomicInteger count = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "http-helper-blocking-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+
+    private static URI toUri(URL url) throws IOException {
+        try {
+            return url.toURI();
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid URL syntax: " + url, e);
+        }
+    }
+
+    /**
+     * Reads the connection response into the result of a sendHttpRequest method.
+     */
+    @FunctionalInterface
+    private interface ConnectionProcessor<T> {
+        T process(HttpURLConnection httpURLConnection) throws IOException;
+    }
+
+    /**
+     * A GET request sent conditionally on the response cached for its URL and Authorization.
+     */
+    private static final class Revalidation {
+        private final HttpResponseCache cache;
+        private final String url;
+        private final String authorization;
+        private final UnaryOperator<String> requestHeaders;
+        private final HttpResponseCache.Entry cached;
+
+        private Revalidation(HttpResponseCache cache, String url, String authorization, UnaryOperator<String> requestHeaders,
+                             HttpResponseCache.Entry cached) {
+            this.cache = cache;
+            this.url = url;
+            this.authorization = authorization;
+            this.requestHeaders = requestHeaders;
+            this.cached = cached;
+        }
+
+        /**
+         * Add the validators of the cached response to a GET connection that is not connected yet.
+         *
+         * @return The revalidation, or null if response caching is disabled, the request is not a GET or its
+         * Authorization is unknown, so the cached response of another principal could be served.
+         */
+        private static Revalidation prepare(HttpURLConnection httpURLConnection) {
+            if (!responseCaching || !GET_REQUEST_METHOD.equals(httpURLConnection.getRequestMethod()) || !isAuthorizationKnown(httpURLConnection)) {
+                return null;
+            }
+            HttpResponseCache cache = HttpResponseCache.shared();
+            String url = httpURLConnection.getURL().toString();
+            String authorization = getAuthorization(httpURLConnection);
+            // Headers can only be read before connecting, the response could vary on them.
+            Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            httpURLConnection.getRequestProperties().forEach((name, values) -> {
+                if (name != null && !values.isEmpty()) {
+                    headers.put(name, values);
+                }
+            });
+            UnaryOperator<String> requestHeaders = name -> headers.containsKey(name) ? headers.get(name).get(0) : null;
+            HttpResponseCache.Entry cached = cache.lookup(url, authorization, requestHeaders);
+            if (cached != null) {
+                cached.addValidators(httpURLConnection::setRequestProperty);
+            }
+            return new Revalidation(cache, url, authorization, requestHeaders, cached);
+        }
+
+        /**
+         * @return The cached body for a 304 Not Modified, the read body once stored for a cacheable 200, or null to
+         * process the response as usual, its body unread.
+         */
+        private byte[] resolve(int httpResponseCode, UnaryOperator<String> headers, BodyReader body) throws IOException {
+            if (httpResponseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                cache.recordHit();
+                return cached.getBody();
+            }
+            String etag = headers.apply(HttpResponseCache.ETAG);
+            String lastModified = headers.apply(HttpResponseCache.LAST_MODIFIED);
+            if (httpResponseCode != HttpURLConnection.HTTP_OK
+                    || !HttpResponseCache.isCacheable(etag, lastModified, headers.apply(HttpResponseCache.CACHE_CONTROL), headers.apply(HttpResponseCache.VARY))) {
+                return null;
+            }
+            byte[] bytes = body.read();
+            // The body is decoded, its Content-Encoding is not stored.
+            Map<String, List<String>> stored = new LinkedHashMap<>();
+            for (String name : List.of(HttpResponseCache.ETAG, HttpResponseCache.LAST_MODIFIED, CONTENT_TYPE, HttpResponseCache.VARY)) {
+                String value = headers.apply(name);
+                if (value != null) {
+                    stored.put(name, List.of(value));
+                }
+            }
+            cache.store(url, authorization, requestHeaders, stored, bytes);
+            return bytes;
+        }
+
+        @FunctionalInterface
+        private interface BodyReader {
+            byte[] read() throws IOException;
+        }
+    }
+
+    /**
+     * Identity of a coalesced request.
+     */
+    private record RequestKey(String method, String url, String authorization) {
+    }
+
+    /**
+     * Reads the engine response into the result of a sendHttpRequest method.
+     */
+    @FunctionalInterface
+    private interface ResponseProcessor<T> {
+        T process(HttpResponse<InputStream> response) throws IOException;
     }
 
     public static void extractHttpErrors(StringBuilder apiError, ServiceRuntimeException ex) throws IOException {
@@ -188,7 +1248,7 @@ public class HttpHelper {
      * Send HTTP request with a simpler interface
      */
     public static String sendHttpRequest(String url, String payload) throws IOException {
-        HttpURLConnection connection = buildHttpURLConnection(url, "POST", "application/json", true, "default");
+        HttpURLConnection connection = buildHttpURLConnection(url, "POST", "application/json", true, null, "default");
         if (connection == null) {
             throw new IOException("Failed to create HTTP connection");
         }
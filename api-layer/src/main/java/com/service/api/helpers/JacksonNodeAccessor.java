@@ -0,0 +1,59 @@
+package com.service.api.helpers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * {@link JsonNodeAccessor} for Jackson trees, Ex: the result of ObjectMapper.readTree. Values convert the way Gson
+ * converts them, so a path returns the same value whichever tree it runs on.
+ */
+public final class JacksonNodeAccessor implements JsonNodeAccessor<JsonNode> {
+	public static final JacksonNodeAccessor INSTANCE = new JacksonNodeAccessor();
+
+	private JacksonNodeAccessor() {
+	}
+
+	@Override
+	public boolean isObject(JsonNode node) {
+		return node.isObject();
+	}
+
+	@Override
+	public boolean isArray(JsonNode node) {
+		return node.isArray();
+	}
+
+	@Override
+	public boolean isPrimitive(JsonNode node) {
+		return node.isValueNode() && !node.isNull();
+	}
+
+	@Override
+	public JsonNode getField(JsonNode object, String name) {
+		return object.get(name);
+	}
+
+	@Override
+	public int size(JsonNode array) {
+		return array.size();
+	}
+
+	@Override
+	public JsonNode getElement(JsonNode array, int index) {
+		return array.get(index);
+	}
+
+	@Override
+	public String getAsString(JsonNode primitive) {
+		return primitive.asText();
+	}
+
+	@Override
+	public boolean getAsBoolean(JsonNode primitive) {
+		return primitive.isBoolean() ? primitive.booleanValue() : Boolean.parseBoolean(primitive.asText());
+	}
+
+	@Override
+	public long getAsLong(JsonNode primitive) {
+		return primitive.isNumber() ? primitive.longValue() : Long.parseLong(primitive.asText());
+	}
+}
@@ -0,0 +1,142 @@
+package com.service.api.helpers;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hash indexes for key selectors like members[id=U123]. The first key lookup on an array builds a value => slot
+ * index for that key field and later lookups on the same array are a map get instead of a scan, found or not.
+ * <p>
+ * Indexes are keyed weakly by array identity, so they go away with the array. An index is rebuilt when the array size
+ * changes or when the indexed slot no longer holds an element with the key value. Writes made with {@link JsonPath}
+ * keep the indexes current: appended keyed elements are added to the index and writes below an element that may
+ * change its key drop the index. An element replaced in place by other code, Ex: array.set(i, element), is not found
+ * by its new key until the array size changes or its slot is looked up by its old key.
+ */
+final class JsonArrayIndex {
+	private static final int MIN_INDEXED_SIZE = 16;
+	private static final int MAX_INDEXED_ARRAYS = 1024;
+	private static final Cache<Object, Map<CompiledJsonPath, KeyIndex>> indexes = CacheBuilder.newBuilder()
+			.weakKeys()
+			.maximumSize(MAX_INDEXED_ARRAYS)
+			.build();
+
+	private JsonArrayIndex() {
+		throw new IllegalStateException("JsonArrayIndex should be used as a utility class");
+	}
+
+	/**
+	 * Return the first array element whose key field has the value or null if there is none.
+	 *
+	 * @param accessor Accessor for the node type of the array.
+	 * @param array    The array to search.
+	 * @param key      Path of the key field, relative to the array element. Ex: id or profile.email
+	 * @param value    The key value to match.
+	 */
+	static <N> N find(JsonNodeAccessor<N> accessor, N array, CompiledJsonPath key, String value) {
+		int size = accessor.size(array);
+
+		// Scanning a small array is cheaper than hashing it.
+		if (size < MIN_INDEXED_SIZE) {
+			return scan(accessor, array, size, key, value);
+		}
+
+		Map<CompiledJsonPath, KeyIndex> arrayIndexes = indexes.asMap().computeIfAbsent(array, k -> new ConcurrentHashMap<>());
+		KeyIndex keyIndex = arrayIndexes.get(key);
+		if (keyIndex == null || keyIndex.size != size) {
+			keyIndex = new KeyIndex(accessor, array, key);
+			arrayIndexes.put(key, keyIndex);
+		}
+
+		int slot = keyIndex.get(value);
+		if (slot < 0) {
+			return null;
+		}
+		N element = accessor.getElement(array, slot);
+		if (!value.equals(keyValue(accessor, element, key))) {
+			// The slot was edited in place, Ex: array.set(i, element).
+			keyIndex = new KeyIndex(accessor, array, key);
+			arrayIndexes.put(key, keyIndex);
+			slot = keyIndex.get(value);
+			element = slot < 0 ? null : accessor.getElement(array, slot);
+		}
+		return element;
+	}
+
+	/**
+	 * Add an element appended to the array with the key value to the index of the key, so the next lookup is not a
+	 * rebuild.
+	 *
+	 * @param slot Index of the appended element, the array size before the append.
+	 */
+	static void appended(Object array, CompiledJsonPath key, String value, int slot) {
+		Map<CompiledJsonPath, KeyIndex> arrayIndexes = indexes.getIfPresent(array);
+		KeyIndex keyIndex = arrayIndexes != null ? arrayIndexes.get(key) : null;
+		if (keyIndex != null && keyIndex.size == slot) {
+			keyIndex.append(value, slot);
+		}
+	}
+
+	/**
+	 * Drop the indexes of the array whose key may have changed by a write below one of its elements.
+	 *
+	 * @param field First field written below the element, Ex: name for members[id=U1].name, or null if the element
+	 *              itself was written.
+	 */
+	static void written(Object array, String field) {
+		Map<CompiledJsonPath, KeyIndex> arrayIndexes = indexes.getIfPresent(array);
+		if (arrayIndexes != null) {
+			arrayIndexes.keySet().removeIf(key -> field == null || key.getSegment(0).name.equals(field));
+		}
+	}
+
+	private static <N> N scan(JsonNodeAccessor<N> accessor, N array, int size, CompiledJsonPath key, String value) {
+		for (int i = 0; i < size; i++) {
+			N element = accessor.getElement(array, i);
+			if (value.equals(keyValue(accessor, element, key))) {
+				return element;
+			}
+		}
+		return null;
+	}
+
+	private static <N> String keyValue(JsonNodeAccessor<N> accessor, N element, CompiledJsonPath key) {
+		N keyNode = JsonPath.findNode(accessor, element, key);
+		if (keyNode != null && accessor.isPrimitive(keyNode)) {
+			return accessor.getAsString(keyNode);
+		}
+		return null;
+	}
+
+	/**
+	 * Key value => slot of the first element with that value, for one array and one key field.
+	 */
+	private static final class KeyIndex {
+		private final Map<String, Integer> slots;
+		private volatile int size;
+
+		private <N> KeyIndex(JsonNodeAccessor<N> accessor, N array, CompiledJsonPath key) {
+			this.size = accessor.size(array);
+			this.slots = new ConcurrentHashMap<>(size * 4 / 3 + 1);
+			for (int i = 0; i < size; i++) {
+				String value = keyValue(accessor, accessor.getElement(array, i), key);
+				if (value != null) {
+					slots.putIfAbsent(value, i);
+				}
+			}
+		}
+
+		private int get(String value) {
+			Integer slot = slots.get(value);
+			return slot != null ? slot : -1;
+		}
+
+		private void append(String value, int slot) {
+			slots.putIfAbsent(value, slot);
+			size = slot + 1;
+		}
+	}
+}
@@ -0,0 +1,374 @@
+package com.service.api.helpers;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.RecordComponent;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Maps json elements to maps or records from a declarative spec of target field => json path. The spec is compiled
+ * once into a plan of compiled paths and value conversions, which is then applied to every element.
+ *
+ * <pre>
+ * JsonMapping&lt;Map&lt;String, Object&gt;&gt; issues = JsonMapping.builder()
+ *         .field("id", "id")
+ *         .field("key", "key")
+ *         .field("summary", "fields.summary")
+ *         .toMap();
+ * List&lt;Map&lt;String, Object&gt;&gt; rows = issues.mapArray(OrgJsonNodeAccessor.INSTANCE, response, "issues");
+ * </pre>
+ * <p>
+ * Missing or non-primitive values map to null, or to the default value of primitive record components. Instances are
+ * immutable and thread-safe, build them once and reuse them.
+ *
+ * @param <T> Type of the mapped values.
+ */
+public final class JsonMapping<T> {
+	private static final String JSON_MAPPING_UNSUPPORTED_TYPE = "JsonMapping does not support field type %s for field %s";
+	private static final String JSON_MAPPING_STREAM_PATH = "JsonMapping can only stream arrays at plain field paths: %s";
+
+	private final String[] targets;
+	private final CompiledJsonPath[] paths;
+	private final ValueType[] types;
+	private final JsonPathSet pathSet;
+	private final Function<Object[], T> factory;
+
+	private JsonMapping(String[] targets, CompiledJsonPath[] paths, ValueType[] types, Function<Object[], T> factory) {
+		this.targets = targets;
+		this.paths = paths;
+		this.types = types;
+		this.pathSet = JsonPathSet.of(paths);
+		this.factory = factory;
+	}
+
+	/**
+	 * Start a mapping spec.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @return Target field names, in spec order.
+	 */
+	public List<String> getTargets() {
+		return List.of(targets);
+	}
+
+	/**
+	 * Map a Gson element.
+	 */
+	public T map(JsonElement element) {
+		return map(GsonNodeAccessor.INSTANCE, element);
+	}
+
+	/**
+	 * Map a node of any json tree.
+	 *
+	 * @param accessor Accessor for the node type.
+	 * @param node     The node to map, the spec paths are relative to it.
+	 */
+	public <N> T map(JsonNodeAccessor<N> accessor, N node) {
+		Object[] values = new Object[paths.length];
+		for (int i = 0; i < paths.length; i++) {
+			values[i] = types[i].convert(accessor, JsonPath.findNode(accessor, node, paths[i]));
+		}
+		return factory.apply(values);
+	}
+
+	/**
+	 * Map every element of a Gson array.
+	 *
+	 * @param element   Element containing the array.
+	 * @param arrayPath Path of the array, relative to the element. Empty if the element is the array.
+	 * @return The mapped elements, empty if there is no array at the path.
+	 */
+	public List<T> mapArray(JsonElement element, String arrayPath) {
+		return mapArray(GsonNodeAccessor.INSTANCE, element, arrayPath);
+	}
+
+	/**
+	 * Map every element of an array of any json tree.
+	 *
+	 * @param accessor  Accessor for the node type.
+	 * @param node      Node containing the array.
+	 * @param arrayPath Path of the array, relative to the node. Empty if the node is the array.
+	 * @return The mapped elements, empty if there is no array at the path.
+	 */
+	public <N> List<T> mapArray(JsonNodeAccessor<N> accessor, N node, String arrayPath) {
+		N array = JsonPath.findNode(accessor, node, arrayPath);
+		if (array == null || !accessor.isArray(array)) {
+			return new ArrayList<>();
+		}
+		int size = accessor.size(array);
+		List<T> mapped = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			mapped.add(map(accessor, accessor.getElement(array, i)));
+		}
+		return mapped;
+	}
+
+	/**
+	 * Read the array at the path from the reader and map its elements as they are read, so mapping starts before the
+	 * rest of the document is parsed. Only the spec paths of each element are materialized. Nothing after the array
+	 * is read.
+	 *
+	 * @param reader    Reader positioned before the document.
+	 * @param arrayPath Path of the array of plain fields, Ex: issues or data.items. Empty if the document is the array.
+	 * @param consumer  Receives every mapped element, in array order.
+	 * @throws IllegalArgumentException If the array path has array selectors.
+	 */
+	public void stream(JsonReader reader, String arrayPath, Consumer<? super T> consumer) throws IOException {
+		CompiledJsonPath path = JsonPath.compile(arrayPath);
+		for (int i = 0; i < path.size(); i++) {
+			if (path.getSegment(i).type == JsonPath.FieldType.Array) {
+				throw new IllegalArgumentException(String.format(JSON_MAPPING_STREAM_PATH, arrayPath));
+			}
+		}
+
+		try {
+			reader.peek();
+		} catch (EOFException ex) {
+			// Empty document, nothing to map.
+			return;
+		}
+		if (!seek(reader, path, 0) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+			return;
+		}
+		reader.beginArray();
+		while (reader.hasNext()) {
+			JsonPathValues values = pathSet.extract(reader);
+			Object[] row = new Object[paths.length];
+			for (int i = 0; i < paths.length; i++) {
+				row[i] = types[i].convert(GsonNodeAccessor.INSTANCE, first(paths[i], values.getElement(paths[i])));
+			}
+			consumer.accept(factory.apply(row));
+		}
+		reader.endArray();
+	}
+
+	/**
+	 * @return The first match of a multi-valued path, like {@link #map} reads it. The path set returns every match.
+	 */
+	private static JsonElement first(CompiledJsonPath path, JsonElement element) {
+		if (path.isMultiValued() && element != null) {
+			JsonArray matches = element.getAsJsonArray();
+			return matches.isEmpty() ? null : matches.get(0);
+		}
+		return element;
+	}
+
+	/**
+	 * Read the array at the path from the reader and return its mapped elements, see {@link #stream}.
+	 */
+	public List<T> readArray(JsonReader reader, String arrayPath) throws IOException {
+		List<T> mapped = new ArrayList<>();
+		stream(reader, arrayPath, mapped::add);
+		return mapped;
+	}
+
+	/**
+	 * Move the reader to the value of the path, skipping every other field on the way.
+	 *
+	 * @return False if the path does not exist, the reader is then after the object that should have had the field.
+	 */
+	private static boolean seek(JsonReader reader, CompiledJsonPath path, int position) throws IOException {
+		if (position == path.size()) {
+			return true;
+		}
+		if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+			reader.skipValue();
+			return false;
+		}
+		String name = path.getSegment(position).name;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			if (name.equals(reader.nextName())) {
+				return seek(reader, path, position + 1);
+			}
+			reader.skipValue();
+		}
+		reader.endObject();
+		return false;
+	}
+
+	/**
+	 * Value conversions of a mapped field.
+	 */
+	private enum ValueType {
+		STRING(null),
+		BOOLEAN(null),
+		INTEGER(null),
+		LONG(null),
+		BOOLEAN_VALUE(false),
+		INTEGER_VALUE(0),
+		LONG_VALUE(0L);
+
+		private final Object missingValue;
+
+		ValueType(Object missingValue) {
+			this.missingValue = missingValue;
+		}
+
+		private static ValueType of(Class<?> type, String target) {
+			if (type == String.class) {
+				return STRING;
+			} else if (type == Boolean.class) {
+				return BOOLEAN;
+			} else if (type == Integer.class) {
+				return INTEGER;
+			} else if (type == Long.class) {
+				return LONG;
+			} else if (type == boolean.class) {
+				return BOOLEAN_VALUE;
+			} else if (type == int.class) {
+				return INTEGER_VALUE;
+			} else if (type == long.class) {
+				return LONG_VALUE;
+			}
+			throw new IllegalArgumentException(String.format(JSON_MAPPING_UNSUPPORTED_TYPE, type.getName(), target));
+		}
+
+		private <N> Object convert(JsonNodeAccessor<N> accessor, N node) {
+			if (node == null || !accessor.isPrimitive(node)) {
+				return missingValue;
+			}
+			switch (this) {
+				case BOOLEAN:
+				case BOOLEAN_VALUE:
+					return accessor.getAsBoolean(node);
+				case INTEGER:
+				case INTEGER_VALUE:
+					return (int) accessor.getAsLong(node);
+				case LONG:
+				case LONG_VALUE:
+					return accessor.getAsLong(node);
+				default:
+					return accessor.getAsString(node);
+			}
+		}
+	}
+
+	/**
+	 * Spec of target field => json path. Fields are String unless a type is given, record mappings take the type of
+	 * the record component instead.
+	 */
+	public static final class Builder {
+		private final Map<String, CompiledJsonPath> fields = new LinkedHashMap<>();
+		private final Map<String, Class<?>> fieldTypes = new HashMap<>();
+
+		private Builder() {
+		}
+
+		/**
+		 * Map a string field.
+		 *
+		 * @param target Name of the field in the mapped value.
+		 * @param path   Path of the source value, relative to the mapped element.
+		 */
+		public Builder field(String target, String path) {
+			return field(target, JsonPath.compile(path), null);
+		}
+
+		/**
+		 * Map a field of a given type, one of String, Boolean, Integer, Long or their primitives.
+		 *
+		 * @param target Name of the field in the mapped value.
+		 * @param path   Path of the source value, relative to the mapped element.
+		 * @param type   Type of the mapped value.
+		 */
+		public Builder field(String target, String path, Class<?> type) {
+			return field(target, JsonPath.compile(path), type);
+		}
+
+		/**
+		 * Map a field of a given type, a null type is String for maps and the component type for records.
+		 */
+		public Builder field(String target, CompiledJsonPath path, Class<?> type) {
+			if (type != null) {
+				ValueType.of(type, target);
+			}
+			fields.put(target, path);
+			fieldTypes.put(target, type);
+			return this;
+		}
+
+		/**
+		 * Compile the spec into a mapping to pre-sized maps of target field => value.
+		 */
+		public JsonMapping<Map<String, Object>> toMap() {
+			String[] targets = fields.keySet().toArray(new String[0]);
+			ValueType[] types = new ValueType[targets.length];
+			for (int i = 0; i < targets.length; i++) {
+				Class<?> type = fieldTypes.get(targets[i]);
+				types[i] = ValueType.of(type != null ? type : String.class, targets[i]);
+			}
+			int capacity = (int) (targets.length / 0.75f) + 1;
+			return new JsonMapping<>(targets, paths(targets), types, values -> {
+				Map<String, Object> map = new HashMap<>(capacity);
+				for (int i = 0; i < targets.length; i++) {
+					map.put(targets[i], values[i]);
+				}
+				return map;
+			});
+		}
+
+		/**
+		 * Compile the spec into a mapping to records. Every record component needs a spec field of the same name.
+		 *
+		 * @throws IllegalArgumentException If a component has no field, or its type does not match the field type.
+		 */
+		public <R extends Record> JsonMapping<R> toRecord(Class<R> recordType) {
+			RecordComponent[] components = recordType.getRecordComponents();
+			String[] targets = new String[components.length];
+			ValueType[] types = new ValueType[components.length];
+			Class<?>[] parameterTypes = new Class<?>[components.length];
+			for (int i = 0; i < components.length; i++) {
+				targets[i] = components[i].getName();
+				parameterTypes[i] = components[i].getType();
+				if (!fields.containsKey(targets[i])) {
+					throw new IllegalArgumentException(String.format("JsonMapping has no field for record component %s.%s",
+							recordType.getSimpleName(), targets[i]));
+				}
+				Class<?> type = fieldTypes.get(targets[i]);
+				if (type != null && type != parameterTypes[i]) {
+					throw new IllegalArgumentException(String.format("JsonMapping field type %s does not match record component %s.%s",
+							type.getName(), recordType.getSimpleName(), targets[i]));
+				}
+				types[i] = ValueType.of(parameterTypes[i], targets[i]);
+			}
+
+			Constructor<R> constructor;
+			try {
+				constructor = recordType.getDeclaredConstructor(parameterTypes);
+				constructor.setAccessible(true);
+			} catch (NoSuchMethodException ex) {
+				throw new IllegalArgumentException("JsonMapping could not find the canonical constructor of " + recordType.getName(), ex);
+			}
+			return new JsonMapping<>(targets, paths(targets), types, values -> {
+				try {
+					return constructor.newInstance(values);
+				} catch (InstantiationException | IllegalAccessException | InvocationTargetException ex) {
+					throw new IllegalStateException("JsonMapping could not create " + recordType.getName(), ex);
+				}
+			});
+		}
+
+		private CompiledJsonPath[] paths(String[] targets) {
+			CompiledJsonPath[] paths = new CompiledJsonPath[targets.length];
+			for (int i = 0; i < targets.length; i++) {
+				paths[i] = fields.get(targets[i]);
+			}
+			return paths;
+		}
+	}
+}
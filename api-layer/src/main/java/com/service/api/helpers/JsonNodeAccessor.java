@@ -0,0 +1,58 @@
+package com.service.api.helpers;
+
+/**
+ * Read access to a json tree, so {@link JsonPath} can query whichever tree a caller already has without converting it.
+ * Adapters exist for Gson ({@link GsonNodeAccessor}), Jackson ({@link JacksonNodeAccessor}) and org.json
+ * ({@link OrgJsonNodeAccessor}).
+ * <p>
+ * Implementations must be stateless and thread-safe. A json null is a node, missing fields and indexes are null.
+ *
+ * @param <N> Node type of the json library.
+ */
+public interface JsonNodeAccessor<N> {
+	/**
+	 * @return True if the node is a json object.
+	 */
+	boolean isObject(N node);
+
+	/**
+	 * @return True if the node is a json array.
+	 */
+	boolean isArray(N node);
+
+	/**
+	 * @return True if the node is a string, number or boolean.
+	 */
+	boolean isPrimitive(N node);
+
+	/**
+	 * @return The field of a json object or null if there is no such field.
+	 */
+	N getField(N object, String name);
+
+	/**
+	 * @return Number of elements of a json array.
+	 */
+	int size(N array);
+
+	/**
+	 * @return The element of a json array at an index within the array size.
+	 */
+	N getElement(N array, int index);
+
+	/**
+	 * @return The string value of a primitive node.
+	 */
+	String getAsString(N primitive);
+
+	/**
+	 * @return The boolean value of a primitive node. Strings are parsed.
+	 */
+	boolean getAsBoolean(N primitive);
+
+	/**
+	 * @return The long value of a primitive node. Strings are parsed.
+	 * @throws NumberFormatException If the value is not a number.
+	 */
+	long getAsLong(N primitive);
+}
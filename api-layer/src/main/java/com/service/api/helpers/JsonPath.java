@@ -1,18 +1,59 @@
 package com.service.api.helpers;
 
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Json path knows how to get and set the value of field from an Json object using XPath like syntax.
+ * <p>
+ * Array elements are selected by index, Ex: members[0].id, or by key, Ex: members[id=U123].profile.email. Wildcards and
+ * slices select several elements, Ex: issues[*].fields.summary or issues[0:10].key, use {@link #stream} to read all of
+ * them. The single value getters return the first match of such paths.
+ * <p>
+ * Lookups also run on Jackson and org.json trees through the overloads taking a {@link JsonNodeAccessor}, Ex:
+ * JsonPath.getValue(JacksonNodeAccessor.INSTANCE, jsonNode, "authed_user.id").
  */
 public class JsonPath {
 	public static final String FIELD_SEPARATOR = ".";
+	private static final int COMPILED_PATH_CACHE_SIZE = 1024;
+	private static final CompiledJsonPath EMPTY_PATH = new CompiledJsonPath("", new CompiledJsonPath.Segment[0]);
+	private static final Cache<String, CompiledJsonPath> compiledPaths = CacheBuilder.newBuilder()
+			.maximumSize(COMPILED_PATH_CACHE_SIZE)
+			.build();
+	private static final Cache<List<CompiledJsonPath>, JsonPathSet> pathSets = CacheBuilder.newBuilder()
+			.maximumSize(COMPILED_PATH_CACHE_SIZE)
+			.build();
+
+	/**
+	 * Compile a path so it can be evaluated without re-parsing. Compiled paths are cached, so calling this for the same
+	 * path again returns the cached instance.
+	 *
+	 * @param path Path to compile. Ex: obj1.obj2.obj3 or obj1.array[1].obj2
+	 * @return Immutable, thread-safe compiled path.
+	 * @throws IllegalArgumentException If an array field in the path is not in the format name[index].
+	 */
+	public static CompiledJsonPath compile(String path) {
+		if (Strings.isNullOrEmpty(path)) {
+			return EMPTY_PATH;
+		}
+		CompiledJsonPath compiledPath = compiledPaths.getIfPresent(path);
+		if (compiledPath == null) {
+			compiledPath = parsePath(path);
+			compiledPaths.put(path, compiledPath);
+		}
+		return compiledPath;
+	}
 
 	/**
 	 * Helper method to return true if path is found.
@@ -21,10 +62,113 @@ public class JsonPath {
 	 * @param path          Child path to search. Ex: obj1.obj2.obj3 or obj1.array[1].obj2
 	 */
 	public static boolean hasValue(JsonElement parentElement, String path) {
+		return hasValue(parentElement, compile(path));
+	}
+
+	/**
+	 * Helper method to return true if path is found.
+	 *
+	 * @param parentElement Json parent element to begin search for child objects.
+	 * @param path          Compiled child path to search.
+	 */
+	public static boolean hasValue(JsonElement parentElement, CompiledJsonPath path) {
 		JsonElement element = findElement(parentElement, path);
 		return element != null;
 	}
 
+	/**
+	 * Lazily stream every element matching the path. Wildcard and slice fields are expanded element by element while the
+	 * stream is consumed, so short-circuiting operations like findFirst or limit stop the traversal early and no list of
+	 * matches is built.
+	 *
+	 * @param parentElement Json parent element to begin search for child objects.
+	 * @param path          Child path to search. Ex: issues[*].fields.summary or issues[0:10].key
+	 */
+	public static Stream<JsonElement> stream(JsonElement parentElement, String path) {
+		return stream(parentElement, compile(path));
+	}
+
+	/**
+	 * Lazily stream every element matching the path.
+	 *
+	 * @param parentElement Json parent element to begin search for child objects.
+	 * @param path          Compiled child path to search.
+	 */
+	public static Stream<JsonElement> stream(JsonElement parentElement, CompiledJsonPath path) {
+		Spliterator<JsonElement> spliterator = Spliterators.spliteratorUnknownSize(iterator(parentElement, path),
+				Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false);
+	}
+
+	/**
+	 * Lazily iterate every element matching the path.
+	 *
+	 * @param parentElement Json parent element to begin search for child objects.
+	 * @param path          Compiled child path to search.
+	 */
+	public static Iterator<JsonElement> iterator(JsonElement parentElement, CompiledJsonPath path) {
+		return new NodeIterator<>(GsonNodeAccessor.INSTANCE, parentElement, path);
+	}
+
+	/**
+	 * Helper method to get the values of several paths in one traversal. Paths that share a prefix, like team.id and
+	 * team.name, walk the shared part once. The path set built for the given paths is cached.
+	 *
+	 * @param parentElement Json parent element to begin search for child objects.
+	 * @param paths         Compiled child paths to search.
+	 */
+	public static JsonPathValues getValues(JsonElement parentElement, CompiledJsonPath... paths) {
+		return getPathSet(Arrays.asList(paths)).evaluate(parentElement);
+	}
+
+	/**
+	 * Helper method to get the values of all paths in the set in one traversal.
+	 *
+	 * @param parentElement Json parent element to begin search for child objects.
+	 * @param paths         Paths to search.
+	 */
+	public static JsonPathValues getValues(JsonElement parentElement, JsonPathSet paths) {
+		return paths.evaluate(parentElement);
+	}
+
+	/**
+	 * Copy only the given paths of the element into a new, minimal object, Ex: to cache the few fields of a large
+	 * response that are used. The paths read the same values from the projection as from the element. The path set
+	 * built for the given paths is cached.
+	 *
+	 * @param parentElement Json parent element to project.
+	 * @param paths         Compiled child paths to keep.
+	 * @return The projection, empty if none of the paths were found.
+	 */
+	public static JsonObject project(JsonElement parentElement, Set<CompiledJsonPath> paths) {
+		return getPathSet(new ArrayList<>(paths)).project(parentElement);
+	}
+
+	/**
+	 * Read the next json value from the reader and copy only the given paths into a new, minimal object. Subtrees that
+	 * no path refers to are skipped without being parsed.
+	 *
+	 * @param reader Reader positioned before the value to read.
+	 * @param paths  Compiled child paths to keep.
+	 * @return The projection, empty if none of the paths were found.
+	 */
+	public static JsonObject project(JsonReader reader, Set<CompiledJsonPath> paths) throws IOException {
+		return getPathSet(new ArrayList<>(paths)).project(reader);
+	}
+
+	/**
+	 * @return The cached path set for the paths, built on first use.
+	 */
+	private static JsonPathSet getPathSet(List<CompiledJsonPath> paths) {
+		JsonPathSet pathSet = pathSets.getIfPresent(paths);
+		if (pathSet == null) {
+			List<CompiledJsonPath> key = List.copyOf(paths);
+			pathSet = JsonPathSet.of(key);
+			pathSets.put(key, pathSet);
+		}
+		return pathSet;
+	}
+
 	/**
 	 * Helper method to get the value of an object or return null if not found.
 	 *
@@ -32,6 +176,16 @@ public class JsonPath {
 	 * @param path          Child path to search. Ex: obj1.obj2.obj3 or obj1.array[1].obj2
 	 */
 	public static String getValue(JsonElement parentElement, String path) {
+		return getValue(parentElement, compile(path), null);
+	}
+
+	/**
+	 * Helper method to get the value of an object or return null if not found.
+	 *
+	 * @param parentElement Json parent element to begin search for child objects.
+	 * @param path          Compiled child path to search.
+	 */
+	public static String getValue(JsonElement parentElement, CompiledJsonPath path) {
 		return getValue(parentElement, path, null);
 	}
 
@@ -43,6 +197,17 @@ public class JsonPath {
 	 * @param defaultValue  Value to return if path is not found.
 	 */
 	public static String getValue(JsonElement parentElement, String path, String defaultValue) {
+		return getValue(parentElement, compile(path), defaultValue);
+	}
+
+	/**
+	 * Helper method to get the string value of an object or return default value if not found.
+	 *
+	 * @param parentElement Json parent element to begin search for child objects.
+	 * @param path          Compiled child path to search.
+	 * @param defaultValue  Value to return if path is not found.
+	 */
+	public static String getValue(JsonElement parentElement, CompiledJsonPath path, String defaultValue) {
 		JsonElement element = findElement(parentElement, path);
 		if (element != null && element.isJsonPrimitive()) {
 			return element.getAsString();
@@ -58,6 +223,17 @@ public class JsonPath {
 	 * @param defaultValue  Value to return if path is not found.
 	 */
 	public static boolean getValue(JsonElement parentElement, String path, boolean defaultValue) {
+		return getValue(parentElement, compile(path), defaultValue);
+	}
+
+	/**
+	 * Helper method to get the boolean value of an object or return default value if not found.
+	 *
+	 * @param parentElement Json parent element to begin search for child objects.
+	 * @param path          Compiled child path to search.
+	 * @param defaultValue  Value to return if path is not found.
+	 */
+	public static boolean getValue(JsonElement parentElement, CompiledJsonPath path, boolean defaultValue) {
 		JsonElement element = findElement(parentElement, path);
 		if (element != null && element.isJsonPrimitive()) {
 			return element.getAsBoolean();
@@ -73,6 +249,17 @@ public class JsonPath {
 	 * @param defaultValue  Value to return if path is not found.
 	 */
 	public static int getValue(JsonElement parentElement, String path, int defaultValue) {
+		return getValue(parentElement, compile(path), defaultValue);
+	}
+
+	/**
+	 * Helper method to get the int value of an object or return default value if not found.
+	 *
+	 * @param parentElement Json parent element to begin search for child objects.
+	 * @param path          Compiled child path to search.
+	 * @param defaultValue  Value to return if path is not found.
+	 */
+	public static int getValue(JsonElement parentElement, CompiledJsonPath path, int defaultValue) {
 		JsonElement element = findElement(parentElement, path);
 		if (element != null && element.isJsonPrimitive()) {
 			return element.getAsInt();
@@ -88,13 +275,177 @@ public class JsonPath {
 	 * @param defaultValue  Value to return if path is not found.
 	 */
 	public static long getValue(JsonElement parentElement, String path, long defaultValue) {
+		return getValue(parentElement, compile(path), defaultValue);
+	}
+
+	/**
+	 * Helper method to get the long value of an object or return default value if not found.
+	 *
+	 * @param parentElement Json parent element to begin search for child objects.
+	 * @param path          Compiled child path to search.
+	 * @param defaultValue  Value to return if path is not found.
+	 */
+	public static long getValue(JsonElement parentElement, CompiledJsonPath path, long defaultValue) {
 		JsonElement element = findElement(parentElement, path);
 		if (element != null && element.isJsonPrimitive()) {
-			return element.getAsInt();
+			return element.getAsLong();
 		}
 		return defaultValue;
 	}
 
+	/**
+	 * Helper method to find a node of any json tree or return null if not found.
+	 *
+	 * @param accessor   Accessor for the node type of the tree.
+	 * @param parentNode Parent node to begin search for child nodes.
+	 * @param path       Child path to search. Ex: obj1.obj2.obj3 or obj1.array[1].obj2
+	 */
+	public static <N> N findNode(JsonNodeAccessor<N> accessor, N parentNode, String path) {
+		return findNode(accessor, parentNode, compile(path));
+	}
+
+	/**
+	 * Helper method to find a node of any json tree or return null if not found. Multi-valued paths return the first
+	 * match.
+	 *
+	 * @param accessor   Accessor for the node type of the tree.
+	 * @param parentNode Parent node to begin search for child nodes.
+	 * @param path       Compiled child path to search.
+	 */
+	public static <N> N findNode(JsonNodeAccessor<N> accessor, N parentNode, CompiledJsonPath path) {
+		if (path.isMultiValued()) {
+			Iterator<N> iterator = new NodeIterator<>(accessor, parentNode, path);
+			return iterator.hasNext() ? iterator.next() : null;
+		}
+		N currentNode = parentNode;
+
+		for (int i = 0; i < path.size(); i++) {
+			CompiledJsonPath.Segment segment = path.getSegment(i);
+
+			if (currentNode == null || !accessor.isObject(currentNode)) {
+				return null;
+			}
+			currentNode = accessor.getField(currentNode, segment.name);
+			if (segment.type == FieldType.Array) {
+				if (currentNode == null || !accessor.isArray(currentNode)) {
+					return null;
+				}
+				currentNode = selectNode(accessor, currentNode, segment);
+			}
+		}
+
+		return currentNode;
+	}
+
+	/**
+	 * Helper method to return true if path is found in any json tree.
+	 */
+	public static <N> boolean hasValue(JsonNodeAccessor<N> accessor, N parentNode, String path) {
+		return findNode(accessor, parentNode, compile(path)) != null;
+	}
+
+	/**
+	 * Helper method to return true if path is found in any json tree.
+	 */
+	public static <N> boolean hasValue(JsonNodeAccessor<N> accessor, N parentNode, CompiledJsonPath path) {
+		return findNode(accessor, parentNode, path) != null;
+	}
+
+	/**
+	 * Helper method to get the string value of a node of any json tree or return null if not found.
+	 */
+	public static <N> String getValue(JsonNodeAccessor<N> accessor, N parentNode, String path) {
+		return getValue(accessor, parentNode, compile(path), null);
+	}
+
+	/**
+	 * Helper method to get the string value of a node of any json tree or return default value if not found.
+	 */
+	public static <N> String getValue(JsonNodeAccessor<N> accessor, N parentNode, String path, String defaultValue) {
+		return getValue(accessor, parentNode, compile(path), defaultValue);
+	}
+
+	/**
+	 * Helper method to get the string value of a node of any json tree or return default value if not found.
+	 */
+	public static <N> String getValue(JsonNodeAccessor<N> accessor, N parentNode, CompiledJsonPath path, String defaultValue) {
+		N node = findNode(accessor, parentNode, path);
+		if (node != null && accessor.isPrimitive(node)) {
+			return accessor.getAsString(node);
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * Helper method to get the boolean value of a node of any json tree or return default value if not found.
+	 */
+	public static <N> boolean getValue(JsonNodeAccessor<N> accessor, N parentNode, String path, boolean defaultValue) {
+		return getValue(accessor, parentNode, compile(path), defaultValue);
+	}
+
+	/**
+	 * Helper method to get the boolean value of a node of any json tree or return default value if not found.
+	 */
+	public static <N> boolean getValue(JsonNodeAccessor<N> accessor, N parentNode, CompiledJsonPath path, boolean defaultValue) {
+		N node = findNode(accessor, parentNode, path);
+		if (node != null && accessor.isPrimitive(node)) {
+			return accessor.getAsBoolean(node);
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * Helper method to get the int value of a node of any json tree or return default value if not found.
+	 */
+	public static <N> int getValue(JsonNodeAccessor<N> accessor, N parentNode, String path, int defaultValue) {
+		return getValue(accessor, parentNode, compile(path), defaultValue);
+	}
+
+	/**
+	 * Helper method to get the int value of a node of any json tree or return default value if not found.
+	 */
+	public static <N> int getValue(JsonNodeAccessor<N> accessor, N parentNode, CompiledJsonPath path, int defaultValue) {
+		N node = findNode(accessor, parentNode, path);
+		if (node != null && accessor.isPrimitive(node)) {
+			return (int) accessor.getAsLong(node);
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * Helper method to get the long value of a node of any json tree or return default value if not found.
+	 */
+	public static <N> long getValue(JsonNodeAccessor<N> accessor, N parentNode, String path, long defaultValue) {
+		return getValue(accessor, parentNode, compile(path), defaultValue);
+	}
+
+	/**
+	 * Helper method to get the long value of a node of any json tree or return default value if not found.
+	 */
+	public static <N> long getValue(JsonNodeAccessor<N> accessor, N parentNode, CompiledJsonPath path, long defaultValue) {
+		N node = findNode(accessor, parentNode, path);
+		if (node != null && accessor.isPrimitive(node)) {
+			return accessor.getAsLong(node);
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * Lazily stream every node of any json tree matching the path.
+	 */
+	public static <N> Stream<N> stream(JsonNodeAccessor<N> accessor, N parentNode, String path) {
+		return stream(accessor, parentNode, compile(path));
+	}
+
+	/**
+	 * Lazily stream every node of any json tree matching the path.
+	 */
+	public static <N> Stream<N> stream(JsonNodeAccessor<N> accessor, N parentNode, CompiledJsonPath path) {
+		Spliterator<N> spliterator = Spliterators.spliteratorUnknownSize(new NodeIterator<>(accessor, parentNode, path),
+				Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false);
+	}
+
 	/**
 	 * Set a value in the json object.
 	 *
@@ -103,11 +454,21 @@ public class JsonPath {
 	 * @param value         The new value of the field.
 	 */
 	public static void setValue(JsonElement parentElement, String path, String value) {
-		Map.Entry<JsonElement, String> entry = createParentPath(parentElement, path);
-		JsonObject parent = entry.getKey() != null && entry.getKey().isJsonObject() ? entry.getKey().getAsJsonObject() : null;
-		String field = entry.getValue();
+		setValue(parentElement, compile(path), value);
+	}
 
-		if (parent != null && field != null) {
+	/**
+	 * Set a value in the json object.
+	 *
+	 * @param parentElement The parent element to set the value in.
+	 * @param path          The compiled field path to set the value.
+	 * @param value         The new value of the field.
+	 */
+	public static void setValue(JsonElement parentElement, CompiledJsonPath path, String value) {
+		JsonObject parent = createParentPath(parentElement, path);
+
+		if (parent != null) {
+			String field = path.getLeafField();
 			parent.addProperty(field, value);
 		}
 	}
@@ -120,11 +481,21 @@ public class JsonPath {
 	 * @param value         The new value of the field.
 	 */
 	public static void setValue(JsonElement parentElement, String path, boolean value) {
-		Map.Entry<JsonElement, String> entry = createParentPath(parentElement, path);
-		JsonObject parent = entry.getKey() != null && entry.getKey().isJsonObject() ? entry.getKey().getAsJsonObject() : null;
-		String field = entry.getValue();
+		setValue(parentElement, compile(path), value);
+	}
 
-		if (parent != null && field != null) {
+	/**
+	 * Set a value in the json object.
+	 *
+	 * @param parentElement The parent element to set the value in.
+	 * @param path          The compiled field path to set the value.
+	 * @param value         The new value of the field.
+	 */
+	public static void setValue(JsonElement parentElement, CompiledJsonPath path, boolean value) {
+		JsonObject parent = createParentPath(parentElement, path);
+
+		if (parent != null) {
+			String field = path.getLeafField();
 			parent.addProperty(field, value);
 		}
 	}
@@ -137,11 +508,21 @@ public class JsonPath {
 	 * @param jsonObject    The new value of the field.
 	 */
 	public static void setValue(JsonElement parentElement, String path, JsonObject jsonObject) {
-		Map.Entry<JsonElement, String> entry = createParentPath(parentElement, path);
-		JsonObject parent = entry.getKey() != null && entry.getKey().isJsonObject() ? entry.getKey().getAsJsonObject() : null;
-		String field = entry.getValue();
+		setValue(parentElement, compile(path), jsonObject);
+	}
 
-		if (parent != null && field != null) {
+	/**
+	 * Set a value in the json object.
+	 *
+	 * @param parentElement The parent element to set the value in.
+	 * @param path          The compiled field path to set the value.
+	 * @param jsonObject    The new value of the field.
+	 */
+	public static void setValue(JsonElement parentElement, CompiledJsonPath path, JsonObject jsonObject) {
+		JsonObject parent = createParentPath(parentElement, path);
+
+		if (parent != null) {
+			String field = path.getLeafField();
 			if (parent.has(field)) {
 				parent.remove(field);
 			}
@@ -157,11 +538,21 @@ public class JsonPath {
 	 * @param jsonArray     The new value of the field.
 	 */
 	public static void setValue(JsonElement parentElement, String path, JsonArray jsonArray) {
-		Map.Entry<JsonElement, String> entry = createParentPath(parentElement, path);
-		JsonObject parent = entry.getKey() != null && entry.getKey().isJsonObject() ? entry.getKey().getAsJsonObject() : null;
-		String field = entry.getValue();
+		setValue(parentElement, compile(path), jsonArray);
+	}
 
-		if (parent != null && field != null) {
+	/**
+	 * Set a value in the json object.
+	 *
+	 * @param parentElement The parent element to set the value in.
+	 * @param path          The compiled field path to set the value.
+	 * @param jsonArray     The new value of the field.
+	 */
+	public static void setValue(JsonElement parentElement, CompiledJsonPath path, JsonArray jsonArray) {
+		JsonObject parent = createParentPath(parentElement, path);
+
+		if (parent != null) {
+			String field = path.getLeafField();
 			if (parent.has(field)) {
 				parent.remove(field);
 			}
@@ -169,6 +560,17 @@ public class JsonPath {
 		}
 	}
 
+	/**
+	 * Start a batch of writes to the json object. Shared parent paths of the writes are created once, use it instead of
+	 * a run of setValue calls on the same object.
+	 *
+	 * @param parentObject The object to write the values in.
+	 * @return A writer, the values are written when {@link JsonPathWriter#write()} is called.
+	 */
+	public static JsonPathWriter writer(JsonObject parentObject) {
+		return new JsonPathWriter(parentObject);
+	}
+
 	/**
 	 * Remove the last item in the path.
 	 *
@@ -200,6 +602,16 @@ public class JsonPath {
 	 * @param path          Child path to search. Ex: obj1.obj2.array or obj1.array1[1].obj3.array2
 	 */
 	public static JsonArray findArray(JsonElement parentElement, String path) {
+		return findArray(parentElement, compile(path));
+	}
+
+	/**
+	 * Helper method to find an array or return null if not found.
+	 *
+	 * @param parentElement Json parent element to begin search for child objects.
+	 * @param path          Compiled child path to search.
+	 */
+	public static JsonArray findArray(JsonElement parentElement, CompiledJsonPath path) {
 		JsonElement findElement = findElement(parentElement, path);
 		if (findElement == null || !findElement.isJsonArray()) {
 			return null;
@@ -231,6 +643,16 @@ public class JsonPath {
 	 * @param path          Child path to search. Ex: obj1.obj2.obj3 or obj1.array[1].obj2
 	 */
 	public static JsonObject findObject(JsonElement parentElement, String path) {
+		return findObject(parentElement, compile(path));
+	}
+
+	/**
+	 * Helper method to find an object or return null if not found.
+	 *
+	 * @param parentElement Json parent element to begin search for child objects.
+	 * @param path          Compiled child path to search.
+	 */
+	public static JsonObject findObject(JsonElement parentElement, CompiledJsonPath path) {
 		JsonElement findElement = findElement(parentElement, path);
 		if (findElement == null || !findElement.isJsonObject()) {
 			return null;
@@ -269,115 +691,187 @@ public class JsonPath {
 	 *
 	 * @param parentElement Parent element of new path.
 	 * @param path          Path to create.
-	 * @return Key/value pair of parent json object and leaf field name to set the value.
+	 * @return Parent json object of the leaf field or null if the path does not end with a field.
 	 */
-	private static Map.Entry<JsonElement, String> createParentPath(JsonElement parentElement, String path) {
+	private static JsonObject createParentPath(JsonElement parentElement, CompiledJsonPath path) {
 		JsonElement currentElement = parentElement;
-		JsonFieldIterator iterator = new JsonFieldIterator(path);
+		final String JSON_RECORD_SET_VALUE_FAILED_MULTI_VALUED = "JsonPath set value failed because field path selects several elements: %s";
+
+		if (path.isMultiValued()) {
+			throw new IllegalArgumentException(String.format(JSON_RECORD_SET_VALUE_FAILED_MULTI_VALUED, path));
+		}
+		for (int i = 0; i < path.size(); i++) {
+			CompiledJsonPath.Segment segment = path.getSegment(i);
+			JsonObject parent = asParentObject(currentElement, path);
+
+			switch (segment.type) {
+				case Object:
+					currentElement = createChild(parent, segment.name);
+					break;
+				case Array:
+					JsonArray array = createChildArray(parent, segment.name, path);
+					currentElement = createArrayElement(array, segment, path);
+					JsonArrayIndex.written(array, i + 1 < path.size() ? path.getSegment(i + 1).name : null);
+					break;
+				case Primitive:
+					return parent;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return The element as the json object to create the next field in.
+	 * @throws IllegalArgumentException If the element is missing or not an object.
+	 */
+	static JsonObject asParentObject(JsonElement element, CompiledJsonPath path) {
 		final String JSON_RECORD_SET_VALUE_FAILED_INVALID_PATH = "JsonPath set value failed because of invalid field path: %s";
 		final String JSON_RECORD_SET_VALUE_FAILED_UNEXPECTED_TYPE = "JsonPath set value failed, expected = %s,found = %s, field = %s";
 
-		while (iterator.hasNext()) {
-			FieldToken fieldToken = iterator.next();
+		if (element == null) {
+			throw new IllegalArgumentException(String.format(JSON_RECORD_SET_VALUE_FAILED_INVALID_PATH, path));
+		}
+		if (!element.isJsonObject()) {
+			throw new IllegalArgumentException(String.format(JSON_RECORD_SET_VALUE_FAILED_UNEXPECTED_TYPE,
+					JsonObject.class.getSimpleName(), element.getClass().getSimpleName(), path));
+		}
+		return (JsonObject) element;
+	}
 
-			if (currentElement == null) {
-				throw new IllegalArgumentException(String.format(JSON_RECORD_SET_VALUE_FAILED_INVALID_PATH, path));
-			}
-			if (!currentElement.isJsonObject()) {
-				throw new IllegalArgumentException(String.format(JSON_RECORD_SET_VALUE_FAILED_UNEXPECTED_TYPE,
-						JsonObject.class.getSimpleName(), currentElement.getClass().getSimpleName(), path));
-			}
+	/**
+	 * @return The child of the parent, a new empty object is added if the child does not exist.
+	 */
+	static JsonElement createChild(JsonObject parent, String name) {
+		JsonElement child = parent.get(name);
+		if (child == null) {
+			child = new JsonObject();
+			parent.add(name, child);
+		}
+		return child;
+	}
 
-			switch (fieldToken.type) {
-				case Object: {
-					JsonObject parent = (JsonObject) currentElement;
-					currentElement = parent.get(fieldToken.name);
-					if (currentElement == null) {
-						currentElement = new JsonObject();
-						parent.add(fieldToken.name, currentElement);
-					}
-					break;
-				}
-				case Array: {
-					// Make sure the array exists.
-					JsonObject parent = (JsonObject) currentElement;
-					String arrayName = getArrayName(fieldToken.name);
-					JsonElement arrayElement = parent.get(arrayName);
-					if (arrayElement == null) {
-						arrayElement = new JsonArray();
-						parent.add(arrayName, arrayElement);
-					}
-					if (!arrayElement.isJsonArray()) {
-						throw new IllegalArgumentException(String.format(JSON_RECORD_SET_VALUE_FAILED_UNEXPECTED_TYPE,
-								JsonArray.class.getSimpleName(), arrayElement.getClass().getSimpleName(), path));
-					}
-
-					// Make sure the array child object exists. Ex: if index=1 is referenced, then make sure index=0 and index=1 exist.
-					JsonArray array = (JsonArray) arrayElement;
-					int index = getArrayIndex(array, fieldToken.name);
-
-					// If index is less than zero.
-					if (index < 0) {
-						throw new IllegalArgumentException(String.format(JSON_RECORD_SET_VALUE_FAILED_INVALID_PATH, path));
-					}
-
-					// If field is referencing array index = 5 and there are only 2 nodes, create needed nodes.
-					while (index >= array.size()) {
-						array.add(new JsonObject());
-					}
-
-					currentElement = array.get(index);
-					break;
-				}
-				case Primitive: {
-					return new AbstractMap.SimpleEntry<>(currentElement, fieldToken.name);
-				}
+	/**
+	 * @return The array child of the parent, a new empty array is added if the child does not exist.
+	 * @throws IllegalArgumentException If the child exists and is not an array.
+	 */
+	static JsonArray createChildArray(JsonObject parent, String name, CompiledJsonPath path) {
+		final String JSON_RECORD_SET_VALUE_FAILED_UNEXPECTED_TYPE = "JsonPath set value failed, expected = %s,found = %s, field = %s";
+
+		JsonElement arrayElement = parent.get(name);
+		if (arrayElement == null) {
+			arrayElement = new JsonArray();
+			parent.add(name, arrayElement);
+		}
+		if (!arrayElement.isJsonArray()) {
+			throw new IllegalArgumentException(String.format(JSON_RECORD_SET_VALUE_FAILED_UNEXPECTED_TYPE,
+					JsonArray.class.getSimpleName(), arrayElement.getClass().getSimpleName(), path));
+		}
+		return (JsonArray) arrayElement;
+	}
+
+	/**
+	 * @return The array element selected by the array field, missing elements are added as empty objects.
+	 */
+	static JsonElement createArrayElement(JsonArray array, CompiledJsonPath.Segment segment, CompiledJsonPath path) {
+		final String JSON_RECORD_SET_VALUE_FAILED_INVALID_PATH = "JsonPath set value failed because of invalid field path: %s";
+
+		// Select the element by key, add it with the key set if it does not exist. Ex: members[id=U123]
+		if (segment.selector == CompiledJsonPath.Selector.Key) {
+			JsonElement keyElement = JsonArrayIndex.find(GsonNodeAccessor.INSTANCE, array, segment.key, segment.value);
+			if (keyElement == null) {
+				keyElement = new JsonObject();
+				setValue(keyElement, segment.key, segment.value);
+				array.add(keyElement);
+				JsonArrayIndex.appended(array, segment.key, segment.value, array.size() - 1);
 			}
+			return keyElement;
 		}
-		return new AbstractMap.SimpleEntry<>(currentElement, null);
+
+		// Make sure the array child object exists. Ex: if index=1 is referenced, then make sure index=0 and index=1 exist.
+		int index = segment.index;
+
+		// If index is less than zero.
+		if (index < 0) {
+			throw new IllegalArgumentException(String.format(JSON_RECORD_SET_VALUE_FAILED_INVALID_PATH, path));
+		}
+
+		// If field is referencing array index = 5 and there are only 2 nodes, create needed nodes.
+		while (index >= array.size()) {
+			array.add(new JsonObject());
+		}
+
+		return array.get(index);
 	}
 
 	/**
 	 * Helper method to find the element or return null if not found.
 	 */
-	private static JsonElement findElement(JsonElement parentElement, String field) {
-		JsonElement currentElement = parentElement;
-		JsonFieldIterator iterator = new JsonFieldIterator(field);
+	static JsonElement findElement(JsonElement parentElement, CompiledJsonPath path) {
+		return findNode(GsonNodeAccessor.INSTANCE, parentElement, path);
+	}
 
-		while (iterator.hasNext()) {
-			FieldToken fieldToken = iterator.next();
+	/**
+	 * Helper method to return the array element selected by an array field or null if there is none.
+	 */
+	static JsonElement selectElement(JsonArray array, CompiledJsonPath.Segment segment) {
+		return selectNode(GsonNodeAccessor.INSTANCE, array, segment);
+	}
 
-			if (currentElement == null || !currentElement.isJsonObject()) {
-				return null;
-			}
+	private static <N> N selectNode(JsonNodeAccessor<N> accessor, N array, CompiledJsonPath.Segment segment) {
+		if (segment.selector == CompiledJsonPath.Selector.Key) {
+			return JsonArrayIndex.find(accessor, array, segment.key, segment.value);
+		}
+		if (segment.index < 0 || segment.index >= accessor.size(array)) {
+			return null;
+		}
+		return accessor.getElement(array, segment.index);
+	}
 
-			switch (fieldToken.type) {
-				case Object:
-					JsonObject parent = (JsonObject) currentElement;
-					currentElement = parent.get(fieldToken.name);
-					break;
-				case Array:
-					JsonObject parentObject = (JsonObject) currentElement;
-					String arrayName = getArrayName(fieldToken.name);
-					JsonElement arrayElement = parentObject.get(arrayName);
-					if (arrayElement == null || !arrayElement.isJsonArray()) {
-						return null;
-					}
-					JsonArray array = (JsonArray) arrayElement;
-					int index = getArrayIndex(array, fieldToken.name);
-					if (index < 0 || index >= array.size()) {
-						return null;
-					}
-					currentElement = array.get(index);
-					break;
-				case Primitive:
-					JsonObject value = (JsonObject) currentElement;
-					currentElement = value.get(fieldToken.name);
-					break;
+	/**
+	 * Tokenize the path once. Array indexes and keys are parsed here so evaluation never has to.
+	 */
+	private static CompiledJsonPath parsePath(String path) {
+		List<String> fields = splitFields(path, FIELD_SEPARATOR);
+		CompiledJsonPath.Segment[] segments = new CompiledJsonPath.Segment[fields.size()];
+
+		for (int i = 0; i < segments.length; i++) {
+			String name = fields.get(i);
+			if (name.contains("[")) {
+				segments[i] = parseArraySegment(name);
+			} else {
+				segments[i] = new CompiledJsonPath.Segment(name, i < segments.length - 1 ? FieldType.Object : FieldType.Primitive);
 			}
 		}
 
-		return currentElement;
+		return new CompiledJsonPath(path, segments);
+	}
+
+	/**
+	 * Parse an array field. Ex: "field[0]" => field, 0 and "field[x.y=4]" => field, x.y, 4. Key values may be quoted,
+	 * Ex: "field[name=\"a.b\"]". Ranges are "field[*]" and "field[start:end]" where either bound may be left out.
+	 */
+	private static CompiledJsonPath.Segment parseArraySegment(String field) {
+		String name = getArrayName(field);
+		String selector = parseArrayIndex(field).trim();
+		int separator = selector.indexOf('=');
+		if (separator >= 0) {
+			CompiledJsonPath key = compile(selector.substring(0, separator).trim());
+			String value = StringUtils.trimDoubleQuotes(selector.substring(separator + 1).trim());
+			return new CompiledJsonPath.Segment(name, key, value);
+		}
+		if ("*".equals(selector)) {
+			return new CompiledJsonPath.Segment(name, (Integer) null, (Integer) null);
+		}
+		separator = selector.indexOf(':');
+		if (separator >= 0) {
+			return new CompiledJsonPath.Segment(name, parseBound(selector.substring(0, separator)), parseBound(selector.substring(separator + 1)));
+		}
+		return new CompiledJsonPath.Segment(name, Integer.parseInt(selector));
+	}
+
+	private static Integer parseBound(String bound) {
+		String trimmed = bound.trim();
+		return trimmed.isEmpty() ? null : Integer.valueOf(trimmed);
 	}
 
 	/**
@@ -387,25 +881,13 @@ public class JsonPath {
 	 * @return Index parsed from field name.
 	 */
 	private static String getArrayName(String field) {
-		int pos = field.lastIndexOf('[');
+		int pos = field.indexOf('[');
 		if (pos >= 0) {
 			return field.substring(0, pos);
 		}
 		return field;
 	}
 
-	/**
-	 * Helper method to return index from field name. Ex: "field[0]" => 0.
-	 *
-	 * @param array The array to search.
-	 * @param field The field name to parse.
-	 * @return Index parsed from field name.
-	 */
-	private static int getArrayIndex(JsonArray array, String field) {
-		String indexString = parseArrayIndex(field);
-		return Integer.parseInt(indexString);
-	}
-
 	/**
 	 * Helper method to return index from field name. Ex: "field[0]" => "0".
 	 *
@@ -414,7 +896,7 @@ public class JsonPath {
 	 */
 	private static String parseArrayIndex(String field) {
 		final String FIELD_NAME_INVALID_ARRAY_FORMAT = "field array format is invalid, field = %s";
-		int start = field.lastIndexOf('[');
+		int start = field.indexOf('[');
 		int end = field.lastIndexOf(']');
 		if (start >= 0 && end >= 0 && start < end) {
 			return field.substring(start + 1, end);
@@ -429,65 +911,86 @@ public class JsonPath {
 	}
 
 	/**
-	 * Helper class to iterate a field hierarchy. Ex: obj1.obj1.arr[0].obj
+	 * Depth first iterator over the nodes matching a path. Single element fields are followed directly, each wildcard or
+	 * slice field pushes an iterator over its index range, so only one element per range is in flight.
 	 */
-	private static class JsonFieldIterator implements Iterator<FieldToken> {
-		private Iterator<String> fieldIterator;
+	private static class NodeIterator<N> implements Iterator<N> {
+		private final JsonNodeAccessor<N> accessor;
+		private final CompiledJsonPath path;
+		private final Deque<RangeFrame<N>> frames = new ArrayDeque<>();
+		private N nextNode;
 
-		public JsonFieldIterator(String field) {
-			if (!Strings.isNullOrEmpty(field)) {
-				fieldIterator = splitFields(field, FIELD_SEPARATOR).iterator();
-			}
+		NodeIterator(JsonNodeAccessor<N> accessor, N parentNode, CompiledJsonPath path) {
+			this.accessor = accessor;
+			this.path = path;
+			descend(parentNode, 0);
 		}
 
-		/**
-		 * @return True if there are more field tokens in the message.
-		 */
 		@Override
 		public boolean hasNext() {
-			return fieldIterator != null && fieldIterator.hasNext();
+			while (nextNode == null && !frames.isEmpty()) {
+				RangeFrame<N> frame = frames.peek();
+				if (frame.position >= frame.end) {
+					frames.pop();
+				} else {
+					descend(accessor.getElement(frame.array, frame.position++), frame.nextSegment);
+				}
+			}
+			return nextNode != null;
 		}
 
-		/**
-		 * @return The next field token.
-		 */
 		@Override
-		public FieldToken next() {
-			String name = fieldIterator.next();
-			FieldType type = name.contains("[") ? FieldType.Array : fieldIterator.hasNext() ? FieldType.Object : FieldType.Primitive;
-
-			return new FieldToken(name, type);
-		}
-	}
-
-	private static class FieldToken {
-		private String name;
-		private FieldType type;
-
-		public FieldToken(String name, FieldType type) {
-			this.name = name;
-			this.type = type;
-		}
-
-		public String getName() {
-			return name;
+		public N next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			N node = nextNode;
+			nextNode = null;
+			return node;
 		}
 
-		public void setName(String name) {
-			this.name = name;
+		/**
+		 * Follow the path from the node until it ends, fails, or reaches a range field.
+		 */
+		private void descend(N node, int segmentPosition) {
+			N currentNode = node;
+			for (int i = segmentPosition; i < path.size(); i++) {
+				if (currentNode == null || !accessor.isObject(currentNode)) {
+					return;
+				}
+				CompiledJsonPath.Segment segment = path.getSegment(i);
+				currentNode = accessor.getField(currentNode, segment.name);
+				if (segment.type != FieldType.Array) {
+					continue;
+				}
+				if (currentNode == null || !accessor.isArray(currentNode)) {
+					return;
+				}
+				if (segment.isRange()) {
+					int size = accessor.size(currentNode);
+					frames.push(new RangeFrame<>(currentNode, segment.rangeStart(size), segment.rangeEnd(size), i + 1));
+					return;
+				}
+				currentNode = selectNode(accessor, currentNode, segment);
+			}
+			nextNode = currentNode;
 		}
+	}
 
-		public FieldType getType() {
-			return type;
-		}
+	private static class RangeFrame<N> {
+		private final N array;
+		private final int end;
+		private final int nextSegment;
+		private int position;
 
-		public void setType(FieldType type) {
-			this.type = type;
+		RangeFrame(N array, int start, int end, int nextSegment) {
+			this.array = array;
+			this.position = start;
+			this.end = end;
+			this.nextSegment = nextSegment;
 		}
 	}
 
-	//todo: Not required until contextkey is supported. Simple numeric array index does not require this complexity.
-
 	/**
 	 * Split the fields using separator character. Ignore separator inside array brackets. Ex: t1.t2[x.y=4] => t1,
 	 * t2[x.y=4].
@@ -0,0 +1,547 @@
+package com.service.api.helpers;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A fixed set of json paths merged into a prefix tree, so all of them can be resolved in a single pass over a document.
+ * Ex: team.id, team.name and authed_user.id share the team node and are resolved together.
+ * <p>
+ * Multi-valued paths, Ex: issues[*].key, resolve to a json array of every match in document order.
+ * <p>
+ * Instances are immutable and thread-safe, build them once and reuse them.
+ */
+public final class JsonPathSet {
+	private static final int[] NO_TARGETS = new int[0];
+
+	private final Map<CompiledJsonPath, Integer> slots;
+	private final boolean[] multiValued;
+	private final Node root = new Node();
+
+	private JsonPathSet(Collection<CompiledJsonPath> paths) {
+		Map<CompiledJsonPath, Integer> pathSlots = new LinkedHashMap<>();
+		for (CompiledJsonPath path : paths) {
+			if (!pathSlots.containsKey(path)) {
+				int slot = pathSlots.size();
+				pathSlots.put(path, slot);
+				addPath(path, slot);
+			}
+		}
+		this.slots = Collections.unmodifiableMap(pathSlots);
+		this.multiValued = new boolean[pathSlots.size()];
+		for (Map.Entry<CompiledJsonPath, Integer> slot : pathSlots.entrySet()) {
+			multiValued[slot.getValue()] = slot.getKey().isMultiValued();
+		}
+	}
+
+	/**
+	 * Create a path set from compiled paths.
+	 */
+	public static JsonPathSet of(CompiledJsonPath... paths) {
+		return new JsonPathSet(Arrays.asList(paths));
+	}
+
+	/**
+	 * Create a path set from compiled paths.
+	 */
+	public static JsonPathSet of(Collection<CompiledJsonPath> paths) {
+		return new JsonPathSet(paths);
+	}
+
+	/**
+	 * Create a path set from path strings. Ex: JsonPathSet.of("team.id", "team.name")
+	 */
+	public static JsonPathSet of(String... paths) {
+		List<CompiledJsonPath> compiledPaths = new ArrayList<>(paths.length);
+		for (String path : paths) {
+			compiledPaths.add(JsonPath.compile(path));
+		}
+		return new JsonPathSet(compiledPaths);
+	}
+
+	/**
+	 * @return The paths in this set, in the order they were added.
+	 */
+	public Set<CompiledJsonPath> getPaths() {
+		return slots.keySet();
+	}
+
+	/**
+	 * Read a json document from the stream and return the values of the paths in this set. Subtrees that no path
+	 * refers to are skipped without being parsed into json elements. The stream is read as UTF-8 and is not closed.
+	 *
+	 * @param inputStream Stream containing a single json document.
+	 */
+	public JsonPathValues extract(InputStream inputStream) throws IOException {
+		return extract(new JsonReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Read the next json value from the reader and return the values of the paths in this set. Subtrees that no path
+	 * refers to are skipped without being parsed into json elements.
+	 *
+	 * @param reader Reader positioned before the value to read.
+	 */
+	public JsonPathValues extract(JsonReader reader) throws IOException {
+		JsonElement[] values = new JsonElement[slots.size()];
+		try {
+			reader.peek();
+		} catch (EOFException ex) {
+			// Empty document, nothing to extract.
+			return new JsonPathValues(slots, values);
+		}
+		read(reader, root, values);
+		return new JsonPathValues(slots, values);
+	}
+
+	/**
+	 * Resolve every path of this set against an already parsed element in a single traversal. Shared prefixes are
+	 * walked once.
+	 *
+	 * @param parentElement Json parent element to begin search for child objects.
+	 */
+	public JsonPathValues evaluate(JsonElement parentElement) {
+		JsonElement[] values = new JsonElement[slots.size()];
+		evaluate(parentElement, root, values);
+		return new JsonPathValues(slots, values);
+	}
+
+	/**
+	 * Copy the parts of the element that the paths in this set select into a new, minimal object. Evaluating any of the
+	 * paths against the projection gives the same value as against the element. Selected array elements keep their
+	 * positions, the elements in between are json null and the array is cut after the last selected element, unless a
+	 * slice counts from the end.
+	 *
+	 * @param parentElement Json parent element to project.
+	 * @return The projection, empty if none of the paths were found.
+	 */
+	public JsonObject project(JsonElement parentElement) {
+		return asObject(project(parentElement, root));
+	}
+
+	/**
+	 * Read the next json value from the reader and project it like {@link #project(JsonElement)}. Subtrees that no path
+	 * refers to are skipped without being parsed into json elements.
+	 *
+	 * @param reader Reader positioned before the value to read.
+	 */
+	public JsonObject project(JsonReader reader) throws IOException {
+		try {
+			reader.peek();
+		} catch (EOFException ex) {
+			// Empty document, nothing to project.
+			return new JsonObject();
+		}
+		return asObject(readProjection(reader, root));
+	}
+
+	private void addPath(CompiledJsonPath path, int slot) {
+		Node node = root;
+		for (int i = 0; i < path.size(); i++) {
+			CompiledJsonPath.Segment segment = path.getSegment(i);
+			node = node.field(segment.name);
+			if (segment.selector == CompiledJsonPath.Selector.Index) {
+				node = node.index(segment.index);
+			} else if (segment.selector == CompiledJsonPath.Selector.Key) {
+				node = node.key(segment);
+			} else if (segment.isRange()) {
+				node = node.range(segment);
+			}
+		}
+		node.addTarget(slot);
+	}
+
+	/**
+	 * Stream the current value. Only values that are themselves requested get materialized, everything else is either
+	 * walked token by token or skipped. Key selectors and slices counting from the end need the whole array, so those
+	 * arrays are materialized.
+	 */
+	private void read(JsonReader reader, Node node, JsonElement[] values) throws IOException {
+		if (node.targets.length > 0 || node.keys != null || node.relativeRanges) {
+			evaluate(JsonParser.parseReader(reader), node, values);
+			return;
+		}
+
+		JsonToken token = reader.peek();
+		if (token == JsonToken.BEGIN_OBJECT && node.fields != null) {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				Node child = node.fields.get(reader.nextName());
+				if (child == null) {
+					reader.skipValue();
+				} else {
+					read(reader, child, values);
+				}
+			}
+			reader.endObject();
+		} else if (token == JsonToken.BEGIN_ARRAY && (node.indexes != null || node.ranges != null)) {
+			reader.beginArray();
+			int index = 0;
+			while (reader.hasNext()) {
+				readArrayElement(reader, node, index++, values);
+			}
+			reader.endArray();
+		} else {
+			reader.skipValue();
+		}
+	}
+
+	/**
+	 * Stream one array element into every child selecting it. An element selected by more than one child, Ex: by
+	 * items[0] and items[*], is materialized once and evaluated for each.
+	 */
+	private void readArrayElement(JsonReader reader, Node node, int index, JsonElement[] values) throws IOException {
+		Node selected = node.indexes != null ? node.indexes.get(index) : null;
+		int selectedCount = selected != null ? 1 : 0;
+		if (node.ranges != null) {
+			for (Node range : node.ranges.values()) {
+				if (range.selects(index)) {
+					selected = range;
+					selectedCount++;
+				}
+			}
+		}
+
+		if (selectedCount == 0) {
+			reader.skipValue();
+		} else if (selectedCount == 1) {
+			read(reader, selected, values);
+		} else {
+			JsonElement element = JsonParser.parseReader(reader);
+			if (node.indexes != null && node.indexes.containsKey(index)) {
+				evaluate(element, node.indexes.get(index), values);
+			}
+			for (Node range : node.ranges.values()) {
+				if (range.selects(index)) {
+					evaluate(element, range, values);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Resolve the node and its descendants against an already parsed element.
+	 */
+	private void evaluate(JsonElement element, Node node, JsonElement[] values) {
+		if (element == null) {
+			return;
+		}
+		for (int target : node.targets) {
+			if (multiValued[target]) {
+				if (values[target] == null) {
+					values[target] = new JsonArray();
+				}
+				((JsonArray) values[target]).add(element);
+			} else {
+				values[target] = element;
+			}
+		}
+		if (node.fields != null && element.isJsonObject()) {
+			JsonObject object = element.getAsJsonObject();
+			for (Map.Entry<String, Node> child : node.fields.entrySet()) {
+				evaluate(object.get(child.getKey()), child.getValue(), values);
+			}
+		}
+		if (node.indexes != null && element.isJsonArray()) {
+			JsonArray array = element.getAsJsonArray();
+			for (Map.Entry<Integer, Node> child : node.indexes.entrySet()) {
+				int index = child.getKey();
+				if (index >= 0 && index < array.size()) {
+					evaluate(array.get(index), child.getValue(), values);
+				}
+			}
+		}
+		if (node.keys != null && element.isJsonArray()) {
+			JsonArray array = element.getAsJsonArray();
+			for (Node child : node.keys.values()) {
+				evaluate(JsonPath.selectElement(array, child.selector), child, values);
+			}
+		}
+		if (node.ranges != null && element.isJsonArray()) {
+			JsonArray array = element.getAsJsonArray();
+			for (Node child : node.ranges.values()) {
+				int end = child.selector.rangeEnd(array.size());
+				for (int index = child.selector.rangeStart(array.size()); index < end; index++) {
+					evaluate(array.get(index), child, values);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Project the node and its descendants out of an already parsed element.
+	 *
+	 * @return The projected copy or null if no path below the node was found.
+	 */
+	private JsonElement project(JsonElement element, Node node) {
+		if (element == null) {
+			return null;
+		}
+		if (node.targets.length > 0) {
+			return element.deepCopy();
+		}
+		if (node.fields != null && element.isJsonObject()) {
+			JsonObject object = element.getAsJsonObject();
+			JsonObject projection = new JsonObject();
+			for (Map.Entry<String, Node> child : node.fields.entrySet()) {
+				JsonElement value = project(object.get(child.getKey()), child.getValue());
+				if (value != null) {
+					projection.add(child.getKey(), value);
+				}
+			}
+			return projection.size() > 0 ? projection : null;
+		}
+		if (element.isJsonArray() && (node.indexes != null || node.keys != null || node.ranges != null)) {
+			JsonArray array = element.getAsJsonArray();
+			JsonElement[] projections = new JsonElement[array.size()];
+			if (node.indexes != null) {
+				for (Map.Entry<Integer, Node> child : node.indexes.entrySet()) {
+					int index = child.getKey();
+					if (index >= 0 && index < array.size()) {
+						projections[index] = merge(projections[index], project(array.get(index), child.getValue()));
+					}
+				}
+			}
+			if (node.keys != null) {
+				for (Node child : node.keys.values()) {
+					projectKeyElement(array, child, projections);
+				}
+			}
+			if (node.ranges != null) {
+				for (Node child : node.ranges.values()) {
+					int end = child.selector.rangeEnd(array.size());
+					for (int index = child.selector.rangeStart(array.size()); index < end; index++) {
+						projections[index] = merge(projections[index], project(array.get(index), child));
+					}
+				}
+			}
+			return toArray(Arrays.asList(projections), node.relativeRanges);
+		}
+		return null;
+	}
+
+	/**
+	 * Project the element selected by a key selector. The key field is projected as well, so the selector still finds
+	 * the element in the projection.
+	 */
+	private void projectKeyElement(JsonArray array, Node child, JsonElement[] projections) {
+		JsonElement selected = JsonPath.selectElement(array, child.selector);
+		if (selected == null) {
+			return;
+		}
+		for (int index = 0; index < array.size(); index++) {
+			if (array.get(index) == selected) {
+				JsonElement projection = merge(project(selected, child),
+						JsonPath.project(selected, Collections.singleton(child.selector.key)));
+				projections[index] = merge(projections[index], projection);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Stream the projection of the current value. Like {@link #read}, only requested values get materialized.
+	 */
+	private JsonElement readProjection(JsonReader reader, Node node) throws IOException {
+		if (node.targets.length > 0 || node.keys != null || node.relativeRanges) {
+			return project(JsonParser.parseReader(reader), node);
+		}
+
+		JsonToken token = reader.peek();
+		if (token == JsonToken.BEGIN_OBJECT && node.fields != null) {
+			JsonObject projection = new JsonObject();
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				Node child = node.fields.get(name);
+				if (child == null) {
+					reader.skipValue();
+				} else {
+					JsonElement value = readProjection(reader, child);
+					if (value != null) {
+						projection.add(name, value);
+					}
+				}
+			}
+			reader.endObject();
+			return projection.size() > 0 ? projection : null;
+		} else if (token == JsonToken.BEGIN_ARRAY && (node.indexes != null || node.ranges != null)) {
+			List<JsonElement> projections = new ArrayList<>();
+			reader.beginArray();
+			int index = 0;
+			while (reader.hasNext()) {
+				projections.add(readArrayElementProjection(reader, node, index++));
+			}
+			reader.endArray();
+			return toArray(projections, false);
+		}
+		reader.skipValue();
+		return null;
+	}
+
+	/**
+	 * Stream the projection of one array element, merging the projections of every child selecting it.
+	 */
+	private JsonElement readArrayElementProjection(JsonReader reader, Node node, int index) throws IOException {
+		Node selected = node.indexes != null ? node.indexes.get(index) : null;
+		int selectedCount = selected != null ? 1 : 0;
+		if (node.ranges != null) {
+			for (Node range : node.ranges.values()) {
+				if (range.selects(index)) {
+					selected = range;
+					selectedCount++;
+				}
+			}
+		}
+
+		if (selectedCount == 0) {
+			reader.skipValue();
+			return null;
+		} else if (selectedCount == 1) {
+			return readProjection(reader, selected);
+		}
+		JsonElement element = JsonParser.parseReader(reader);
+		JsonElement projection = null;
+		if (node.indexes != null && node.indexes.containsKey(index)) {
+			projection = project(element, node.indexes.get(index));
+		}
+		for (Node range : node.ranges.values()) {
+			if (range.selects(index)) {
+				projection = merge(projection, project(element, range));
+			}
+		}
+		return projection;
+	}
+
+	/**
+	 * @return The projected array elements as a json array, with json null for elements that were not selected. The
+	 * array is cut after the last selected element unless its length is needed, or null if nothing was selected.
+	 */
+	private static JsonElement toArray(List<JsonElement> projections, boolean keepLength) {
+		int length = projections.size();
+		while (length > 0 && projections.get(length - 1) == null) {
+			length--;
+		}
+		if (length == 0) {
+			return null;
+		}
+		if (keepLength) {
+			length = projections.size();
+		}
+		JsonArray array = new JsonArray(length);
+		for (int index = 0; index < length; index++) {
+			JsonElement projection = projections.get(index);
+			array.add(projection != null ? projection : JsonNull.INSTANCE);
+		}
+		return array;
+	}
+
+	/**
+	 * Merge two projections of the same element into one. A full copy already contains any partial projection.
+	 */
+	private static JsonElement merge(JsonElement first, JsonElement second) {
+		if (first == null || first.isJsonNull()) {
+			return second;
+		}
+		if (second == null || second.isJsonNull()) {
+			return first;
+		}
+		if (first.isJsonObject() && second.isJsonObject()) {
+			JsonObject object = first.getAsJsonObject();
+			for (Map.Entry<String, JsonElement> field : second.getAsJsonObject().entrySet()) {
+				object.add(field.getKey(), merge(object.get(field.getKey()), field.getValue()));
+			}
+		} else if (first.isJsonArray() && second.isJsonArray()) {
+			JsonArray array = first.getAsJsonArray();
+			JsonArray other = second.getAsJsonArray();
+			for (int index = 0; index < other.size(); index++) {
+				if (index < array.size()) {
+					array.set(index, merge(array.get(index), other.get(index)));
+				} else {
+					array.add(other.get(index));
+				}
+			}
+		}
+		return first;
+	}
+
+	private static JsonObject asObject(JsonElement projection) {
+		return projection != null && projection.isJsonObject() ? projection.getAsJsonObject() : new JsonObject();
+	}
+
+	/**
+	 * Prefix tree node. Object fields and array selectors are separate steps, so array[1] is the child "array" followed
+	 * by the index child 1, members[id=U123] is the child "members" followed by the key child id=U123 and issues[*] is
+	 * the child "issues" followed by the range child *.
+	 */
+	private static final class Node {
+		private Map<String, Node> fields;
+		private Map<Integer, Node> indexes;
+		private Map<String, Node> keys;
+		private Map<String, Node> ranges;
+		private boolean relativeRanges;
+		private CompiledJsonPath.Segment selector;
+		private int[] targets = NO_TARGETS;
+
+		private Node field(String name) {
+			if (fields == null) {
+				fields = new HashMap<>();
+			}
+			return fields.computeIfAbsent(name, key -> new Node());
+		}
+
+		private Node index(int index) {
+			if (indexes == null) {
+				indexes = new HashMap<>();
+			}
+			return indexes.computeIfAbsent(index, key -> new Node());
+		}
+
+		private Node key(CompiledJsonPath.Segment segment) {
+			if (keys == null) {
+				keys = new HashMap<>();
+			}
+			return keys.computeIfAbsent(segment.selectorText(), key -> {
+				Node node = new Node();
+				node.selector = segment;
+				return node;
+			});
+		}
+
+		private Node range(CompiledJsonPath.Segment segment) {
+			if (ranges == null) {
+				ranges = new LinkedHashMap<>();
+			}
+			relativeRanges |= segment.isRelativeToEnd();
+			return ranges.computeIfAbsent(segment.selectorText(), key -> {
+				Node node = new Node();
+				node.selector = segment;
+				return node;
+			});
+		}
+
+		/**
+		 * @return True if this range node selects the index. Only used for ranges that do not count from the end.
+		 */
+		private boolean selects(int index) {
+			return index >= selector.rangeStart(Integer.MAX_VALUE) && index < selector.rangeEnd(Integer.MAX_VALUE);
+		}
+
+		private void addTarget(int slot) {
+			targets = Arrays.copyOf(targets, targets.length + 1);
+			targets[targets.length - 1] = slot;
+		}
+	}
+}
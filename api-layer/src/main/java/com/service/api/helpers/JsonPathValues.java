@@ -0,0 +1,97 @@
+package com.service.api.helpers;
+
+import com.google.gson.JsonElement;
+
+import java.util.Map;
+
+/**
+ * Values resolved for every path of a {@link JsonPathSet}. Getters mirror the {@link JsonPath} getters and return the
+ * default value when the path was not found.
+ */
+public final class JsonPathValues {
+	private static final String JSON_PATH_NOT_REQUESTED = "JsonPath was not part of the requested path set: %s";
+
+	private final Map<CompiledJsonPath, Integer> slots;
+	private final JsonElement[] values;
+
+	JsonPathValues(Map<CompiledJsonPath, Integer> slots, JsonElement[] values) {
+		this.slots = slots;
+		this.values = values;
+	}
+
+	/**
+	 * @return The element found at the path or null if not found.
+	 */
+	public JsonElement getElement(CompiledJsonPath path) {
+		Integer slot = slots.get(path);
+		if (slot == null) {
+			throw new IllegalArgumentException(String.format(JSON_PATH_NOT_REQUESTED, path));
+		}
+		return values[slot];
+	}
+
+	/**
+	 * @return The element found at the path or null if not found.
+	 */
+	public JsonElement getElement(String path) {
+		return getElement(JsonPath.compile(path));
+	}
+
+	/**
+	 * @return True if the path was found.
+	 */
+	public boolean hasValue(CompiledJsonPath path) {
+		return getElement(path) != null;
+	}
+
+	/**
+	 * @return The string value at the path or null if not found.
+	 */
+	public String getValue(CompiledJsonPath path) {
+		return getValue(path, null);
+	}
+
+	/**
+	 * @return The string value at the path or the default value if not found.
+	 */
+	public String getValue(CompiledJsonPath path, String defaultValue) {
+		JsonElement element = getElement(path);
+		if (element != null && element.isJsonPrimitive()) {
+			return element.getAsString();
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * @return The boolean value at the path or the default value if not found.
+	 */
+	public boolean getValue(CompiledJsonPath path, boolean defaultValue) {
+		JsonElement element = getElement(path);
+		if (element != null && element.isJsonPrimitive()) {
+			return element.getAsBoolean();
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * @return The int value at the path or the default value if not found.
+	 */
+	public int getValue(CompiledJsonPath path, int defaultValue) {
+		JsonElement element = getElement(path);
+		if (element != null && element.isJsonPrimitive()) {
+			return element.getAsInt();
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * @return The long value at the path or the default value if not found.
+	 */
+	public long getValue(CompiledJsonPath path, long defaultValue) {
+		JsonElement element = getElement(path);
+		if (element != null && element.isJsonPrimitive()) {
+			return element.getAsLong();
+		}
+		return defaultValue;
+	}
+}
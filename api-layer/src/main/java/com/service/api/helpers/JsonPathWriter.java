@@ -0,0 +1,225 @@
+package com.service.api.helpers;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects several field writes and applies them to a json object in one pass. Paths are merged by shared prefix, so
+ * every intermediate object and array is looked up or created once no matter how many fields are written below it.
+ * Ex: team.id, team.name and team.icon.image_34 walk to team once.
+ * <p>
+ * Writes are applied in the order they were added, a later write to a field replaces an earlier write to the same field
+ * or to any field below it. Writes below the same field must agree on its type, Ex: a.x then a[0].y throws. Not
+ * thread-safe, create one writer per document.
+ *
+ * <pre>
+ * JsonPath.writer(payload)
+ *         .set("team.id", "T1")
+ *         .set("team.name", "Acme")
+ *         .set("members[id=U1].is_admin", true)
+ *         .write();
+ * </pre>
+ */
+public final class JsonPathWriter {
+	private static final String JSON_RECORD_SET_VALUE_FAILED_MULTI_VALUED = "JsonPath set value failed because field path selects several elements: %s";
+	private static final String JSON_RECORD_SET_VALUE_FAILED_NOT_A_FIELD = "JsonPath set value failed because field path does not end with a field: %s";
+	private static final String JSON_RECORD_SET_VALUE_FAILED_UNEXPECTED_TYPE = "JsonPath set value failed, expected = %s,found = %s, field = %s";
+
+	private final JsonObject target;
+	private Node root = new Node(null);
+
+	JsonPathWriter(JsonObject target) {
+		this.target = target;
+	}
+
+	/**
+	 * Add a string write, a null value writes json null.
+	 */
+	public JsonPathWriter set(String path, String value) {
+		return set(JsonPath.compile(path), value);
+	}
+
+	/**
+	 * Add a string write, a null value writes json null.
+	 */
+	public JsonPathWriter set(CompiledJsonPath path, String value) {
+		return add(path, value != null ? new JsonPrimitive(value) : JsonNull.INSTANCE);
+	}
+
+	/**
+	 * Add a boolean write.
+	 */
+	public JsonPathWriter set(String path, boolean value) {
+		return set(JsonPath.compile(path), value);
+	}
+
+	/**
+	 * Add a boolean write.
+	 */
+	public JsonPathWriter set(CompiledJsonPath path, boolean value) {
+		return add(path, new JsonPrimitive(value));
+	}
+
+	/**
+	 * Add a number write, a null value writes json null.
+	 */
+	public JsonPathWriter set(String path, Number value) {
+		return set(JsonPath.compile(path), value);
+	}
+
+	/**
+	 * Add a number write, a null value writes json null.
+	 */
+	public JsonPathWriter set(CompiledJsonPath path, Number value) {
+		return add(path, value != null ? new JsonPrimitive(value) : JsonNull.INSTANCE);
+	}
+
+	/**
+	 * Add a json object write. The object is added as is, not copied.
+	 */
+	public JsonPathWriter set(String path, JsonObject jsonObject) {
+		return set(JsonPath.compile(path), jsonObject);
+	}
+
+	/**
+	 * Add a json object write. The object is added as is, not copied.
+	 */
+	public JsonPathWriter set(CompiledJsonPath path, JsonObject jsonObject) {
+		return add(path, jsonObject != null ? jsonObject : JsonNull.INSTANCE);
+	}
+
+	/**
+	 * Add a json array write. The array is added as is, not copied.
+	 */
+	public JsonPathWriter set(String path, JsonArray jsonArray) {
+		return set(JsonPath.compile(path), jsonArray);
+	}
+
+	/**
+	 * Add a json array write. The array is added as is, not copied.
+	 */
+	public JsonPathWriter set(CompiledJsonPath path, JsonArray jsonArray) {
+		return add(path, jsonArray != null ? jsonArray : JsonNull.INSTANCE);
+	}
+
+	/**
+	 * Apply every pending write to the target object and clear them, so the writer can be reused.
+	 *
+	 * @return The target object.
+	 * @throws IllegalArgumentException If a path runs into an existing field of the wrong type.
+	 */
+	public JsonObject write() {
+		try {
+			writeFields(target, root);
+		} finally {
+			root = new Node(null);
+		}
+		return target;
+	}
+
+	private JsonPathWriter add(CompiledJsonPath path, JsonElement value) {
+		if (path.isMultiValued()) {
+			throw new IllegalArgumentException(String.format(JSON_RECORD_SET_VALUE_FAILED_MULTI_VALUED, path));
+		}
+		if (path.size() == 0 || path.getSegment(path.size() - 1).type != JsonPath.FieldType.Primitive) {
+			throw new IllegalArgumentException(String.format(JSON_RECORD_SET_VALUE_FAILED_NOT_A_FIELD, path));
+		}
+
+		Node node = root;
+		for (int i = 0; i < path.size(); i++) {
+			CompiledJsonPath.Segment segment = path.getSegment(i);
+			node = node.field(segment.name, path);
+			if (segment.type == JsonPath.FieldType.Array) {
+				node = node.element(segment, path);
+			}
+		}
+		node.value = value;
+		node.fields = null;
+		node.elements = null;
+		return this;
+	}
+
+	/**
+	 * Write the field children of the node into the object. A field with a value replaces the existing field, writes
+	 * added after the value then go into the new value.
+	 */
+	private static void writeFields(JsonObject object, Node node) {
+		if (node.fields == null) {
+			return;
+		}
+		for (Map.Entry<String, Node> entry : node.fields.entrySet()) {
+			String name = entry.getKey();
+			Node child = entry.getValue();
+			if (child.value != null) {
+				object.remove(name);
+				object.add(name, child.value);
+			}
+			if (child.fields != null) {
+				writeFields(JsonPath.asParentObject(JsonPath.createChild(object, name), child.path), child);
+			} else if (child.elements != null) {
+				JsonArray array = JsonPath.createChildArray(object, name, child.path);
+				for (Node element : child.elements.values()) {
+					JsonElement arrayElement = JsonPath.createArrayElement(array, element.selector, element.path);
+					writeFields(JsonPath.asParentObject(arrayElement, element.path), element);
+					if (element.fields != null) {
+						element.fields.keySet().forEach(field -> JsonArrayIndex.written(array, field));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Pending write tree. A field node has either object field children or array element children, never both, array
+	 * element nodes are keyed by their selector, Ex: 1 or id=U123.
+	 */
+	private static final class Node {
+		private final CompiledJsonPath.Segment selector;
+		private CompiledJsonPath path;
+		private Map<String, Node> fields;
+		private Map<String, Node> elements;
+		private JsonElement value;
+
+		private Node(CompiledJsonPath.Segment selector) {
+			this.selector = selector;
+		}
+
+		/**
+		 * @throws IllegalArgumentException If the node has array element children, Ex: a[0].x then a.y.
+		 */
+		private Node field(String name, CompiledJsonPath path) {
+			if (elements != null) {
+				throw new IllegalArgumentException(String.format(JSON_RECORD_SET_VALUE_FAILED_UNEXPECTED_TYPE,
+						JsonArray.class.getSimpleName(), JsonObject.class.getSimpleName(), path));
+			}
+			if (fields == null) {
+				fields = new LinkedHashMap<>();
+			}
+			Node child = fields.computeIfAbsent(name, key -> new Node(null));
+			child.path = path;
+			return child;
+		}
+
+		/**
+		 * @throws IllegalArgumentException If the node has object field children, Ex: a.x then a[0].y.
+		 */
+		private Node element(CompiledJsonPath.Segment segment, CompiledJsonPath path) {
+			if (fields != null) {
+				throw new IllegalArgumentException(String.format(JSON_RECORD_SET_VALUE_FAILED_UNEXPECTED_TYPE,
+						JsonObject.class.getSimpleName(), JsonArray.class.getSimpleName(), path));
+			}
+			if (elements == null) {
+				elements = new LinkedHashMap<>();
+			}
+			Node child = elements.computeIfAbsent(segment.selectorText(), key -> new Node(segment));
+			child.path = path;
+			return child;
+		}
+	}
+}
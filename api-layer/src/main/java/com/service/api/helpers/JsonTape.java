@@ -0,0 +1,384 @@
+package com.service.api.helpers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * On-demand json reader for large UTF-8 documents. A single scan records the offsets of every structural character
+ * outside strings, Ex: { } [ ] : and , in an int tape, together with the tape index of the matching close of every
+ * open. Values are decoded only when they are read, so looking up a few paths in a multi-megabyte response skips the
+ * strings and numbers that are never touched.
+ * <p>
+ * Query a tape through {@link JsonTapeNodeAccessor}, Ex:
+ * JsonPath.getValue(JsonTapeNodeAccessor.INSTANCE, JsonTape.parse(bytes).getRoot(), "members[0].profile.email").
+ * <p>
+ * The scan checks that brackets are balanced but does not validate the rest of the syntax, malformed values are only
+ * noticed if they are read. The bytes must not change while the tape is in use. Tapes are thread-safe once built.
+ * <p>
+ * Object and array nodes are created once per tape, so their element offsets and the key indexes of
+ * {@link JsonArrayIndex} are kept across lookups.
+ */
+public final class JsonTape {
+	private static final int INITIAL_TAPE_SIZE = 64;
+	private static final String JSON_TAPE_UNBALANCED = "JsonTape found unbalanced brackets at offset %d";
+
+	private final byte[] json;
+	private final int[] tape;
+	private final int[] closes;
+	private final int tapeSize;
+	private final Node[] containers;
+	private final Node root;
+
+	private JsonTape(byte[] json, int offset, int length) {
+		this.json = json;
+		int end = offset + length;
+		int[] positions = new int[Math.max(INITIAL_TAPE_SIZE, length / 8)];
+		int[] matches = new int[positions.length];
+		int[] opens = new int[16];
+		int depth = 0;
+		int size = 0;
+		boolean inString = false;
+
+		for (int i = offset; i < end; i++) {
+			byte b = json[i];
+			if (inString) {
+				if (b == '\\') {
+					i++;
+				} else if (b == '"') {
+					inString = false;
+				}
+				continue;
+			}
+			switch (b) {
+				case '"':
+					inString = true;
+					continue;
+				case '{':
+				case '[':
+					if (depth == opens.length) {
+						opens = Arrays.copyOf(opens, depth * 2);
+					}
+					opens[depth++] = size;
+					break;
+				case '}':
+				case ']':
+					if (depth == 0 || json[positions[opens[depth - 1]]] != (b == '}' ? '{' : '[')) {
+						throw new IllegalArgumentException(String.format(JSON_TAPE_UNBALANCED, i));
+					}
+					depth--;
+					matches[opens[depth]] = size;
+					break;
+				case ':':
+				case ',':
+					break;
+				default:
+					continue;
+			}
+			if (size == positions.length) {
+				positions = Arrays.copyOf(positions, size * 2);
+				matches = Arrays.copyOf(matches, size * 2);
+			}
+			positions[size++] = i;
+		}
+		if (depth != 0) {
+			throw new IllegalArgumentException(String.format(JSON_TAPE_UNBALANCED, end));
+		}
+
+		this.tape = positions;
+		this.closes = matches;
+		this.tapeSize = size;
+		this.containers = new Node[size];
+		int start = skipWhitespace(offset, end);
+		this.root = start == end ? null : node(start, size > 0 ? 0 : -1, trimEnd(start, end));
+	}
+
+	/**
+	 * Scan a UTF-8 json document.
+	 */
+	public static JsonTape parse(byte[] json) {
+		return new JsonTape(json, 0, json.length);
+	}
+
+	/**
+	 * Scan a UTF-8 json document from a range of the array.
+	 */
+	public static JsonTape parse(byte[] json, int offset, int length) {
+		return new JsonTape(json, offset, length);
+	}
+
+	/**
+	 * Scan a UTF-8 json document from the remaining bytes of the buffer. Heap buffers are read in place, other buffers
+	 * are copied. The buffer position is not changed.
+	 */
+	public static JsonTape parse(ByteBuffer buffer) {
+		if (buffer.hasArray()) {
+			return new JsonTape(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		}
+		byte[] json = new byte[buffer.remaining()];
+		buffer.duplicate().get(json);
+		return new JsonTape(json, 0, json.length);
+	}
+
+	/**
+	 * @return The top level value or null if the document is empty.
+	 */
+	public Node getRoot() {
+		return root;
+	}
+
+	/**
+	 * @return Number of structural characters in the document.
+	 */
+	public int getTapeSize() {
+		return tapeSize;
+	}
+
+	/**
+	 * @return The node of the value starting at the offset. Containers start at the tape entry of their open and are
+	 * created once. Threads racing on the first lookup may each create one, which only costs the cached offsets.
+	 */
+	private Node node(int start, int tapeIndex, int end) {
+		byte first = json[start];
+		if (first == '{' || first == '[') {
+			Node container = containers[tapeIndex];
+			if (container == null) {
+				container = new Node(this, start, tape[closes[tapeIndex]] + 1, tapeIndex);
+				containers[tapeIndex] = container;
+			}
+			return container;
+		}
+		return new Node(this, start, end, -1);
+	}
+
+	/**
+	 * @return The value following the structural character at the tape index, Ex: after a colon, comma or open.
+	 */
+	private Node valueAfter(int tapeIndex) {
+		int start = skipWhitespace(tape[tapeIndex] + 1, tape[tapeIndex + 1]);
+		return node(start, tapeIndex + 1, trimEnd(start, tape[tapeIndex + 1]));
+	}
+
+	/**
+	 * @return The tape index of the structural character following the value after the tape index.
+	 */
+	private int nextSeparator(int tapeIndex) {
+		int start = skipWhitespace(tape[tapeIndex] + 1, tape[tapeIndex + 1]);
+		byte first = json[start];
+		return first == '{' || first == '[' ? closes[tapeIndex + 1] + 1 : tapeIndex + 1;
+	}
+
+	private Node getField(Node object, String name) {
+		int close = closes[object.tapeIndex];
+		int separator = object.tapeIndex;
+		if (separator + 1 == close) {
+			return null;
+		}
+		while (separator != close) {
+			int colon = separator + 1;
+			if (keyEquals(skipWhitespace(tape[separator] + 1, tape[colon]), trimEnd(tape[separator] + 1, tape[colon]), name)) {
+				return valueAfter(colon);
+			}
+			separator = nextSeparator(colon);
+		}
+		return null;
+	}
+
+	/**
+	 * @return The tape index of the open or comma before every element of the array.
+	 */
+	private int[] elements(Node array) {
+		int close = closes[array.tapeIndex];
+		if (skipWhitespace(array.start + 1, tape[close]) == tape[close]) {
+			return new int[0];
+		}
+		int[] elements = new int[8];
+		int size = 0;
+		int separator = array.tapeIndex;
+		while (separator != close) {
+			if (size == elements.length) {
+				elements = Arrays.copyOf(elements, size * 2);
+			}
+			elements[size++] = separator;
+			separator = nextSeparator(separator);
+		}
+		return Arrays.copyOf(elements, size);
+	}
+
+	/**
+	 * Compare a quoted key with a field name. Keys without escapes or non-ASCII characters are compared byte by byte.
+	 */
+	private boolean keyEquals(int start, int end, String name) {
+		int length = end - start - 2;
+		boolean plain = true;
+		for (int i = start + 1; i < end - 1 && plain; i++) {
+			plain = json[i] != '\\' && json[i] >= 0;
+		}
+		if (!plain) {
+			return name.equals(decodeString(start, end));
+		}
+		if (length != name.length()) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (json[start + 1 + i] != name.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Decode a quoted string, unescaping it if needed.
+	 */
+	private String decodeString(int start, int end) {
+		int from = start + 1;
+		int to = end - 1;
+		int escape = from;
+		while (escape < to && json[escape] != '\\') {
+			escape++;
+		}
+		if (escape == to) {
+			return new String(json, from, to - from, StandardCharsets.UTF_8);
+		}
+
+		StringBuilder builder = new StringBuilder(to - from);
+		int run = from;
+		for (int i = escape; i < to; i++) {
+			if (json[i] != '\\') {
+				continue;
+			}
+			builder.append(new String(json, run, i - run, StandardCharsets.UTF_8));
+			char escaped = (char) json[++i];
+			switch (escaped) {
+				case 'b':
+					builder.append('\b');
+					break;
+				case 'f':
+					builder.append('\f');
+					break;
+				case 'n':
+					builder.append('\n');
+					break;
+				case 'r':
+					builder.append('\r');
+					break;
+				case 't':
+					builder.append('\t');
+					break;
+				case 'u':
+					builder.append((char) Integer.parseInt(new String(json, i + 1, 4, StandardCharsets.US_ASCII), 16));
+					i += 4;
+					break;
+				default:
+					builder.append(escaped);
+			}
+			run = i + 1;
+		}
+		return builder.append(new String(json, run, to - run, StandardCharsets.UTF_8)).toString();
+	}
+
+	private int skipWhitespace(int start, int end) {
+		while (start < end && isWhitespace(json[start])) {
+			start++;
+		}
+		return start;
+	}
+
+	private int trimEnd(int start, int end) {
+		while (end > start && isWhitespace(json[end - 1])) {
+			end--;
+		}
+		return end;
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+	}
+
+	/**
+	 * A value of the document, located by its byte range. Nothing is decoded until it is read.
+	 */
+	public static final class Node {
+		private final JsonTape tape;
+		private final int start;
+		private final int end;
+		private final int tapeIndex;
+		private volatile int[] elements;
+
+		private Node(JsonTape tape, int start, int end, int tapeIndex) {
+			this.tape = tape;
+			this.start = start;
+			this.end = end;
+			this.tapeIndex = tapeIndex;
+		}
+
+		public boolean isObject() {
+			return tape.json[start] == '{';
+		}
+
+		public boolean isArray() {
+			return tape.json[start] == '[';
+		}
+
+		public boolean isString() {
+			return tape.json[start] == '"';
+		}
+
+		public boolean isNull() {
+			return tape.json[start] == 'n';
+		}
+
+		/**
+		 * @return True for strings, numbers and booleans.
+		 */
+		public boolean isPrimitive() {
+			return tapeIndex < 0 && !isNull();
+		}
+
+		/**
+		 * @return The field of the object or null if there is no such field.
+		 */
+		public Node getField(String name) {
+			return isObject() ? tape.getField(this, name) : null;
+		}
+
+		/**
+		 * @return Number of elements of the array. The element offsets are indexed on first use.
+		 */
+		public int size() {
+			return elements().length;
+		}
+
+		/**
+		 * @return The element of the array at an index within the array size.
+		 */
+		public Node getElement(int index) {
+			return tape.valueAfter(elements()[index]);
+		}
+
+		/**
+		 * @return The decoded value of a string, or the text of a number or boolean.
+		 */
+		public String getAsString() {
+			return isString() ? tape.decodeString(start, end) : new String(tape.json, start, end - start, StandardCharsets.US_ASCII);
+		}
+
+		private int[] elements() {
+			int[] offsets = elements;
+			if (offsets == null) {
+				offsets = isArray() ? tape.elements(this) : new int[0];
+				elements = offsets;
+			}
+			return offsets;
+		}
+
+		/**
+		 * @return The json text of the value.
+		 */
+		@Override
+		public String toString() {
+			return new String(tape.json, start, end - start, StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package com.service.api.helpers;
+
+import java.math.BigDecimal;
+
+/**
+ * {@link JsonNodeAccessor} for {@link JsonTape} documents. Values convert the way Gson converts them, so a path returns
+ * the same value whichever tree it runs on.
+ */
+public final class JsonTapeNodeAccessor implements JsonNodeAccessor<JsonTape.Node> {
+	public static final JsonTapeNodeAccessor INSTANCE = new JsonTapeNodeAccessor();
+
+	private JsonTapeNodeAccessor() {
+	}
+
+	@Override
+	public boolean isObject(JsonTape.Node node) {
+		return node.isObject();
+	}
+
+	@Override
+	public boolean isArray(JsonTape.Node node) {
+		return node.isArray();
+	}
+
+	@Override
+	public boolean isPrimitive(JsonTape.Node node) {
+		return node.isPrimitive();
+	}
+
+	@Override
+	public JsonTape.Node getField(JsonTape.Node object, String name) {
+		return object.getField(name);
+	}
+
+	@Override
+	public int size(JsonTape.Node array) {
+		return array.size();
+	}
+
+	@Override
+	public JsonTape.Node getElement(JsonTape.Node array, int index) {
+		return array.getElement(index);
+	}
+
+	@Override
+	public String getAsString(JsonTape.Node primitive) {
+		return primitive.getAsString();
+	}
+
+	@Override
+	public boolean getAsBoolean(JsonTape.Node primitive) {
+		return Boolean.parseBoolean(primitive.getAsString());
+	}
+
+	@Override
+	public long getAsLong(JsonTape.Node primitive) {
+		String value = primitive.getAsString();
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException ex) {
+			// Decimals and exponents, Gson truncates them the same way.
+			return new BigDecimal(value).longValue();
+		}
+	}
+}
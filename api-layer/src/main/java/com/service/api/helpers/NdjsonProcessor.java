@@ -0,0 +1,344 @@
+package com.service.api.helpers;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+/**
+ * Filters and reshapes newline delimited json, Ex: tenant exports, with compiled json paths. Input is read in batches
+ * of whole lines, every batch is filtered and projected on a fork join pool and the results are written in input
+ * order. At most two batches per worker are in flight, so memory stays bounded whatever the input size.
+ * <p>
+ * Filters run on a {@link JsonTape} of the line, so only the filtered values are decoded. Lines that pass every filter
+ * are projected to the configured paths, or checked to be valid json and copied as they are if there are no projection
+ * paths. Lines dropped by a filter are only checked for balanced brackets.
+ *
+ * <pre>
+ * NdjsonProcessor processor = NdjsonProcessor.builder()
+ *         .filter("type", "user"::equals)
+ *         .project("id", "profile.email")
+ *         .build();
+ * long written = processor.process(Path.of("export.ndjson"), outputStream);
+ * </pre>
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+public final class NdjsonProcessor {
+	private static final int DEFAULT_BATCH_SIZE = 1 << 20;
+	private static final String NDJSON_INVALID_LINE = "NdjsonProcessor could not parse the line at byte offset %d";
+
+	private final List<CompiledJsonPath> filterPaths;
+	private final List<Predicate<String>> filterValues;
+	private final JsonPathSet projection;
+	private final int parallelism;
+	private final int batchSize;
+
+	private NdjsonProcessor(Builder builder) {
+		this.filterPaths = List.copyOf(builder.filterPaths);
+		this.filterValues = List.copyOf(builder.filterValues);
+		this.projection = builder.projectionPaths.isEmpty() ? null : JsonPathSet.of(builder.projectionPaths);
+		this.parallelism = builder.parallelism;
+		this.batchSize = builder.batchSize;
+	}
+
+	/**
+	 * Start a processor configuration.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Process a UTF-8 ndjson file.
+	 *
+	 * @param input  The file to read.
+	 * @param output Receives the lines that pass the filters, one json value per line. Not closed.
+	 * @return The number of lines written.
+	 * @throws IllegalArgumentException If a line is not valid json, for lines dropped by a filter only if its brackets are
+	 *                                  unbalanced or a filtered value is malformed.
+	 */
+	public long process(Path input, OutputStream output) throws IOException {
+		try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+			return process(channel, output);
+		}
+	}
+
+	/**
+	 * Process a UTF-8 ndjson stream, see {@link #process(Path, OutputStream)}. The input is not closed.
+	 */
+	public long process(InputStream input, OutputStream output) throws IOException {
+		return process(Channels.newChannel(input), output);
+	}
+
+	private long process(ReadableByteChannel channel, OutputStream output) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		Deque<Future<Batch>> pending = new ArrayDeque<>();
+		long written = 0;
+		try {
+			BatchReader reader = new BatchReader(channel, batchSize);
+			byte[] lines;
+			while ((lines = reader.next()) != null) {
+				byte[] batch = lines;
+				long offset = reader.offset - lines.length;
+				pending.add(pool.submit(() -> processBatch(batch, offset)));
+				if (pending.size() >= parallelism * 2) {
+					written += write(pending.poll(), output);
+				}
+			}
+			while (!pending.isEmpty()) {
+				written += write(pending.poll(), output);
+			}
+			output.flush();
+		} finally {
+			pool.shutdownNow();
+		}
+		return written;
+	}
+
+	/**
+	 * Wait for the batch and write its output.
+	 *
+	 * @return The number of lines written.
+	 */
+	private static int write(Future<Batch> future, OutputStream output) throws IOException {
+		Batch batch;
+		try {
+			batch = future.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("NdjsonProcessor was interrupted");
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw new IOException(ex.getCause());
+		}
+		batch.output.writeTo(output);
+		return batch.lines;
+	}
+
+	/**
+	 * Filter and project every line of a batch of whole lines.
+	 *
+	 * @param lines  The batch, every line but the last one ends with a line feed.
+	 * @param offset Byte offset of the batch in the input, for error messages.
+	 */
+	private Batch processBatch(byte[] lines, long offset) {
+		Batch batch = new Batch(lines.length);
+		int start = 0;
+		while (start < lines.length) {
+			int end = start;
+			while (end < lines.length && lines[end] != '\n') {
+				end++;
+			}
+			int lineEnd = end > start && lines[end - 1] == '\r' ? end - 1 : end;
+			try {
+				processLine(lines, start, lineEnd, batch);
+			} catch (IllegalArgumentException | JsonParseException ex) {
+				throw new IllegalArgumentException(String.format(NDJSON_INVALID_LINE, offset + start), ex);
+			}
+			start = end + 1;
+		}
+		return batch;
+	}
+
+	private void processLine(byte[] lines, int start, int end, Batch batch) {
+		JsonTape.Node line = JsonTape.parse(lines, start, end - start).getRoot();
+		if (line == null) {
+			// Blank line.
+			return;
+		}
+		for (int i = 0; i < filterPaths.size(); i++) {
+			if (!matches(line, filterPaths.get(i), filterValues.get(i))) {
+				return;
+			}
+		}
+
+		try {
+			JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(lines, start, end - start), StandardCharsets.UTF_8));
+			if (projection == null) {
+				// The tape does not validate syntax, read the line once before copying it.
+				reader.skipValue();
+				reader.peek();
+				batch.output.write(lines, start, end - start);
+			} else {
+				batch.output.writeBytes(projection.project(reader).toString().getBytes(StandardCharsets.UTF_8));
+				reader.peek();
+			}
+		} catch (IOException ex) {
+			// Malformed json or trailing text, the input itself is already in memory.
+			throw new IllegalArgumentException(ex.getMessage(), ex);
+		}
+		batch.output.write('\n');
+		batch.lines++;
+	}
+
+	/**
+	 * @return True if the value of the path passes the predicate. Paths selecting several values pass if any of them
+	 * passes, a missing or non-primitive value is tested as null.
+	 */
+	private static boolean matches(JsonTape.Node line, CompiledJsonPath path, Predicate<String> predicate) {
+		JsonTapeNodeAccessor accessor = JsonTapeNodeAccessor.INSTANCE;
+		if (path.isMultiValued()) {
+			return JsonPath.stream(accessor, line, path)
+					.anyMatch(node -> predicate.test(accessor.isPrimitive(node) ? accessor.getAsString(node) : null));
+		}
+		return predicate.test(JsonPath.getValue(accessor, line, path, null));
+	}
+
+	/**
+	 * Output of one batch.
+	 */
+	private static final class Batch {
+		private final ByteArrayOutputStream output;
+		private int lines;
+
+		private Batch(int size) {
+			this.output = new ByteArrayOutputStream(size);
+		}
+	}
+
+	/**
+	 * Reads the channel in batches of whole lines. A line longer than the batch size makes a batch of its own.
+	 */
+	private static final class BatchReader {
+		private final ReadableByteChannel channel;
+		private byte[] buffer;
+		private int filled;
+		private boolean eof;
+		private long offset;
+
+		private BatchReader(ReadableByteChannel channel, int batchSize) {
+			this.channel = channel;
+			this.buffer = new byte[batchSize];
+		}
+
+		/**
+		 * @return The next batch of whole lines or null at the end of the input.
+		 */
+		private byte[] next() throws IOException {
+			while (true) {
+				int lastLineFeed = filled - 1;
+				while (lastLineFeed >= 0 && buffer[lastLineFeed] != '\n') {
+					lastLineFeed--;
+				}
+				if (lastLineFeed >= 0 && (filled == buffer.length || eof)) {
+					return take(lastLineFeed + 1);
+				}
+				if (eof) {
+					return filled > 0 ? take(filled) : null;
+				}
+				if (filled == buffer.length) {
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				}
+				int read = channel.read(ByteBuffer.wrap(buffer, filled, buffer.length - filled));
+				if (read < 0) {
+					eof = true;
+				} else {
+					filled += read;
+				}
+			}
+		}
+
+		private byte[] take(int length) {
+			byte[] lines = Arrays.copyOf(buffer, length);
+			System.arraycopy(buffer, length, buffer, 0, filled - length);
+			filled -= length;
+			offset += length;
+			return lines;
+		}
+	}
+
+	/**
+	 * Processor configuration. Filters are combined with and.
+	 */
+	public static final class Builder {
+		private final List<CompiledJsonPath> filterPaths = new ArrayList<>();
+		private final List<Predicate<String>> filterValues = new ArrayList<>();
+		private final List<CompiledJsonPath> projectionPaths = new ArrayList<>();
+		private int parallelism = Runtime.getRuntime().availableProcessors();
+		private int batchSize = DEFAULT_BATCH_SIZE;
+
+		private Builder() {
+		}
+
+		/**
+		 * Keep only lines where the string value of the path passes the predicate, Ex: filter("type", "user"::equals).
+		 */
+		public Builder filter(String path, Predicate<String> predicate) {
+			return filter(JsonPath.compile(path), predicate);
+		}
+
+		/**
+		 * Keep only lines where the string value of the path passes the predicate.
+		 */
+		public Builder filter(CompiledJsonPath path, Predicate<String> predicate) {
+			filterPaths.add(Objects.requireNonNull(path));
+			filterValues.add(Objects.requireNonNull(predicate));
+			return this;
+		}
+
+		/**
+		 * Write only the paths of each line, see {@link JsonPathSet#project(JsonReader)}.
+		 */
+		public Builder project(String... paths) {
+			for (String path : paths) {
+				projectionPaths.add(JsonPath.compile(path));
+			}
+			return this;
+		}
+
+		/**
+		 * Write only the paths of each line, see {@link JsonPathSet#project(JsonReader)}.
+		 */
+		public Builder project(Collection<CompiledJsonPath> paths) {
+			projectionPaths.addAll(paths);
+			return this;
+		}
+
+		/**
+		 * Number of worker threads, the number of processors by default.
+		 */
+		public Builder parallelism(int parallelism) {
+			if (parallelism < 1) {
+				throw new IllegalArgumentException("NdjsonProcessor parallelism must be positive: " + parallelism);
+			}
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		/**
+		 * Bytes read per batch, 1 MiB by default.
+		 */
+		public Builder batchSize(int batchSize) {
+			if (batchSize < 1) {
+				throw new IllegalArgumentException("NdjsonProcessor batch size must be positive: " + batchSize);
+			}
+			this.batchSize = batchSize;
+			return this;
+		}
+
+		public NdjsonProcessor build() {
+			return new NdjsonProcessor(this);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package com.service.api.helpers;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * {@link JsonNodeAccessor} for org.json trees. Nodes are the values org.json stores: JSONObject, JSONArray, String,
+ * Number, Boolean and JSONObject.NULL.
+ */
+public final class OrgJsonNodeAccessor implements JsonNodeAccessor<Object> {
+	public static final OrgJsonNodeAccessor INSTANCE = new OrgJsonNodeAccessor();
+
+	private OrgJsonNodeAccessor() {
+	}
+
+	@Override
+	public boolean isObject(Object node) {
+		return node instanceof JSONObject;
+	}
+
+	@Override
+	public boolean isArray(Object node) {
+		return node instanceof JSONArray;
+	}
+
+	@Override
+	public boolean isPrimitive(Object node) {
+		return node instanceof String || node instanceof Number || node instanceof Boolean;
+	}
+
+	@Override
+	public Object getField(Object object, String name) {
+		return ((JSONObject) object).opt(name);
+	}
+
+	@Override
+	public int size(Object array) {
+		return ((JSONArray) array).length();
+	}
+
+	@Override
+	public Object getElement(Object array, int index) {
+		return ((JSONArray) array).opt(index);
+	}
+
+	@Override
+	public String getAsString(Object primitive) {
+		return primitive instanceof Number ? JSONObject.numberToString((Number) primitive) : primitive.toString();
+	}
+
+	@Override
+	public boolean getAsBoolean(Object primitive) {
+		return primitive instanceof Boolean ? (Boolean) primitive : Boolean.parseBoolean(primitive.toString());
+	}
+
+	@Override
+	public long getAsLong(Object primitive) {
+		return primitive instanceof Number ? ((Number) primitive).longValue() : Long.parseLong(primitive.toString());
+	}
+}
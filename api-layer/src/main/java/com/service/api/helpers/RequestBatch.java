@@ -0,0 +1,213 @@
+package com.service.api.helpers;
+
+import com.google.gson.JsonElement;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Requests sent by {@link HttpHelper#sendAll(List, int, String)}: at most a given number are in flight at once, and
+ * per host no more than the engine and the outbound guard admit, so the batch does not queue on the engine or fill
+ * the bulkhead by itself. The others wait in order, without holding a thread, and are started as responses arrive.
+ * Slots held by other callers of the host can still make a request fail with a CallNotPermittedException once the
+ * max wait of the guard is over.
+ * <p>
+ * Responses are available in request order with {@link #getResponses()} or as they arrive with
+ * {@link #inCompletionOrder()}. A failed request only fails its own response.
+ */
+public final class RequestBatch {
+	private final List<Request> requests;
+	private final int concurrency;
+	private final int maxPerHost;
+	private final Function<Request, CompletableFuture<JsonElement>> sender;
+	private final List<CompletableFuture<JsonElement>> responses;
+	private final BlockingQueue<Completed> completed = new LinkedBlockingQueue<>();
+	// Indexes of the requests not started yet, per host in request order.
+	private final Map<String, Queue<Integer>> pending = new LinkedHashMap<>();
+	private final Map<String, Integer> inFlightPerHost = new HashMap<>();
+	private final AtomicInteger dispatches = new AtomicInteger();
+	private int inFlight;
+
+	RequestBatch(List<Request> requests, int concurrency, int maxPerHost, Function<Request, CompletableFuture<JsonElement>> sender) {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("RequestBatch concurrency must be positive: " + concurrency);
+		}
+		this.requests = List.copyOf(requests);
+		this.concurrency = concurrency;
+		this.maxPerHost = Math.max(1, Math.min(concurrency, maxPerHost));
+		this.sender = sender;
+		List<CompletableFuture<JsonElement>> futures = new ArrayList<>(this.requests.size());
+		for (int index = 0; index < this.requests.size(); index++) {
+			futures.add(new CompletableFuture<>());
+			pending.computeIfAbsent(this.requests.get(index).host(), ignored -> new ArrayDeque<>()).add(index);
+		}
+		this.responses = Collections.unmodifiableList(futures);
+	}
+
+	void start() {
+		dispatch();
+	}
+
+	/**
+	 * @return The responses in request order. Cancelling one before it is started skips its request, after cancels it.
+	 */
+	public List<CompletableFuture<JsonElement>> getResponses() {
+		return responses;
+	}
+
+	/**
+	 * @return The responses as they arrive, blocking for the next one. The stream ends after the last response.
+	 */
+	public Stream<Completed> inCompletionOrder() {
+		return Stream.generate(() -> {
+			try {
+				return completed.take();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new CompletionException("RequestBatch was interrupted waiting for a response", ex);
+			}
+		}).limit(responses.size());
+	}
+
+	/**
+	 * @return Every response in request order once all arrived, or the first failure.
+	 */
+	public CompletableFuture<List<JsonElement>> all() {
+		return CompletableFuture.allOf(responses.toArray(new CompletableFuture<?>[0]))
+				.thenApply(ignored -> responses.stream().map(CompletableFuture::join).toList());
+	}
+
+	/**
+	 * Cancel the requests in flight and skip the ones not started.
+	 */
+	public void cancel() {
+		responses.forEach(response -> response.cancel(true));
+	}
+
+	/**
+	 * Start the requests that have room. One thread dispatches at a time, a request completing while its thread
+	 * dispatches has the loop go once more instead of recursing.
+	 */
+	private void dispatch() {
+		if (dispatches.getAndIncrement() != 0) {
+			return;
+		}
+		int missed = 1;
+		do {
+			startPending();
+			missed = dispatches.addAndGet(-missed);
+		} while (missed != 0);
+	}
+
+	private void startPending() {
+		List<Integer> started = new ArrayList<>();
+		synchronized (this) {
+			Iterator<Map.Entry<String, Queue<Integer>>> hosts = pending.entrySet().iterator();
+			while (inFlight < concurrency && hosts.hasNext()) {
+				Map.Entry<String, Queue<Integer>> host = hosts.next();
+				int hostInFlight = inFlightPerHost.getOrDefault(host.getKey(), 0);
+				while (inFlight < concurrency && hostInFlight < maxPerHost && !host.getValue().isEmpty()) {
+					started.add(host.getValue().remove());
+					hostInFlight++;
+					inFlight++;
+				}
+				inFlightPerHost.put(host.getKey(), hostInFlight);
+				if (host.getValue().isEmpty()) {
+					hosts.remove();
+				}
+			}
+		}
+		// Started outside the lock, a request can complete right away.
+		started.forEach(this::send);
+	}
+
+	private void send(int index) {
+		Request request = requests.get(index);
+		CompletableFuture<JsonElement> response = responses.get(index);
+		CompletableFuture<JsonElement> upstream;
+		if (response.isDone()) {
+			upstream = response;
+		} else {
+			try {
+				upstream = sender.apply(request);
+			} catch (RuntimeException ex) {
+				upstream = CompletableFuture.failedFuture(ex);
+			}
+		}
+		CompletableFuture<JsonElement> call = upstream;
+		response.whenComplete((value, ex) -> {
+			if (response.isCancelled()) {
+				call.cancel(true);
+			}
+		});
+		call.whenComplete((value, ex) -> {
+			if (ex != null) {
+				response.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+			} else {
+				response.complete(value);
+			}
+			completed.add(new Completed(index, response));
+			synchronized (this) {
+				inFlight--;
+				inFlightPerHost.merge(request.host(), -1, Integer::sum);
+			}
+			dispatch();
+		});
+	}
+
+	/**
+	 * A request of a batch, Ex: RequestBatch.Request.get(connection) or RequestBatch.Request.post(query, connection).
+	 */
+	public record Request(HttpURLConnection connection, String requestQuery) {
+		public Request {
+			Objects.requireNonNull(connection);
+		}
+
+		public static Request get(HttpURLConnection connection) {
+			return new Request(connection, null);
+		}
+
+		public static Request post(String requestQuery, HttpURLConnection connection) {
+			return new Request(connection, requestQuery);
+		}
+
+		private String host() {
+			String host = connection.getURL().getHost();
+			return host == null ? "" : host.toLowerCase(Locale.ROOT);
+		}
+	}
+
+	/**
+	 * A response that arrived, with the index of its request.
+	 */
+	public record Completed(int index, CompletableFuture<JsonElement> response) {
+		/**
+		 * @return The response body.
+		 * @throws CompletionException If the request failed.
+		 */
+		public JsonElement join() {
+			return response.join();
+		}
+
+		public boolean isFailed() {
+			return response.isCompletedExceptionally();
+		}
+	}
+}
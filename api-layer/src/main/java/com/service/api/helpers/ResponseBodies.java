@@ -0,0 +1,378 @@
+package com.service.api.helpers;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static com.service.api.helpers.Constants.LogCodes.INFO_1654;
+
+/**
+ * Reads response bodies of HttpHelper with little allocation: JSON is parsed straight from the decoded stream, and
+ * bodies needed as bytes are read into pooled buffers sized from the Content-Length. gzip and deflate bodies are
+ * decoded, and bodies larger than the max size fail with a {@link ServiceRuntimeException} instead of filling the heap.
+ */
+final class ResponseBodies {
+	static final String ACCEPT_ENCODING = "Accept-Encoding";
+	static final String CONTENT_ENCODING = "Content-Encoding";
+	static final String CONTENT_LENGTH = "Content-Length";
+	static final String SUPPORTED_ENCODINGS = "gzip, deflate";
+
+	private static final Gson gson = new GsonBuilder().create();
+	private static final int BUFFER_SIZE = 16 * 1024;
+	private static final int MAX_POOLED_SIZE = 1024 * 1024;
+	private static final BlockingQueue<byte[]> POOL = new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+
+	private ResponseBodies() {
+		throw new IllegalStateException("ResponseBodies should be used as a utility class");
+	}
+
+	/**
+	 * @return The decoded body stream, failing once more than maxBytes are read.
+	 */
+	static InputStream decode(InputStream body, String contentEncoding, long contentLength, int httpResponseCode, long maxBytes)
+			throws IOException {
+		if (body == null) {
+			return InputStream.nullInputStream();
+		}
+		String encoding = contentEncoding == null ? "" : contentEncoding.trim().toLowerCase(Locale.ROOT);
+		if (encoding.isEmpty() || encoding.equals("identity")) {
+			if (contentLength > maxBytes) {
+				body.close();
+				throw tooLarge(httpResponseCode, maxBytes);
+			}
+			return new LimitedInputStream(body, httpResponseCode, maxBytes);
+		}
+		// Decoded bodies are limited too, a small gzip body can inflate to gigabytes.
+		InputStream encoded = new LimitedInputStream(body, httpResponseCode, maxBytes);
+		InputStream decoded;
+		switch (encoding) {
+			case "gzip", "x-gzip" -> decoded = new GZIPInputStream(encoded, BUFFER_SIZE);
+			case "deflate" -> decoded = new InflaterInputStream(encoded);
+			default -> {
+				encoded.close();
+				throw new IOException("Unsupported Content-Encoding: " + contentEncoding);
+			}
+		}
+		return new LimitedInputStream(decoded, httpResponseCode, maxBytes);
+	}
+
+	/**
+	 * Parse JSON straight from a decoded body, an empty body is an empty object.
+	 */
+	static JsonElement parse(InputStream decoded) throws IOException {
+		try (InputStream body = decoded) {
+			JsonElement element = gson.fromJson(new InputStreamReader(body, StandardCharsets.UTF_8), JsonElement.class);
+			return element != null ? element : new JsonObject();
+		}
+	}
+
+	/**
+	 * Decode a body and read it into a pooled buffer sized from its Content-Length, see {@link #read(InputStream, long)}.
+	 */
+	static Body read(InputStream body, String contentEncoding, long contentLength, int httpResponseCode, long maxBytes) throws IOException {
+		boolean identity = contentEncoding == null || contentEncoding.isBlank() || contentEncoding.trim().equalsIgnoreCase("identity");
+		return read(decode(body, contentEncoding, contentLength, httpResponseCode, maxBytes), identity ? contentLength : -1);
+	}
+
+	/**
+	 * Read a decoded body into a pooled buffer, close the returned body to give the buffer back.
+	 *
+	 * @param contentLength Length of the decoded body if known, Ex: the Content-Length of an identity body, or -1.
+	 */
+	static Body read(InputStream decoded, long contentLength) throws IOException {
+		byte[] buffer = acquire(contentLength >= 0 && contentLength < Integer.MAX_VALUE - 1 ? (int) contentLength + 1 : BUFFER_SIZE);
+		try (InputStream body = decoded) {
+			int length = 0;
+			while (true) {
+				if (length == buffer.length) {
+					byte[] grown = Arrays.copyOf(buffer, Math.min(Integer.MAX_VALUE - 8, buffer.length * 2));
+					release(buffer);
+					buffer = grown;
+				}
+				int read = body.read(buffer, length, buffer.length - length);
+				if (read < 0) {
+					Body complete = new Body(buffer, length);
+					buffer = null;
+					return complete;
+				}
+				length += read;
+			}
+		} finally {
+			// The body failed to read, the buffer goes back to the pool.
+			if (buffer != null) {
+				release(buffer);
+			}
+		}
+	}
+
+	/**
+	 * @return Handler of asynchronous bodies that fails once more than maxBytes are received.
+	 */
+	static HttpResponse.BodyHandler<byte[]> ofByteArray(long maxBytes) {
+		return info -> new LimitedSubscriber(HttpResponse.BodySubscribers.ofByteArray(), info.statusCode(),
+				info.headers().firstValueAsLong(CONTENT_LENGTH).orElse(-1), maxBytes);
+	}
+
+	/**
+	 * @return The body counting the bytes read from it, given to onClose once when closed.
+	 */
+	static InputStream counting(InputStream body, LongConsumer onClose) {
+		return body == null ? null : new CountingInputStream(body, onClose);
+	}
+
+	static ServiceRuntimeException tooLarge(int httpResponseCode, long maxBytes) {
+		return new ServiceRuntimeException(INFO_1654, httpResponseCode, "Response body is larger than " + maxBytes + " bytes");
+	}
+
+	private static byte[] acquire(int size) {
+		byte[] buffer = POOL.poll();
+		if (buffer != null && buffer.length >= size) {
+			return buffer;
+		}
+		if (buffer != null) {
+			POOL.offer(buffer);
+		}
+		return new byte[Math.max(size, BUFFER_SIZE)];
+	}
+
+	private static void release(byte[] buffer) {
+		if (buffer.length <= MAX_POOLED_SIZE) {
+			POOL.offer(buffer);
+		}
+	}
+
+	/**
+	 * A body read into a pooled buffer. Closing it gives the buffer back, it must not be used after.
+	 */
+	static final class Body implements AutoCloseable {
+		private byte[] buffer;
+		private final int length;
+
+		private Body(byte[] buffer, int length) {
+			this.buffer = buffer;
+			this.length = length;
+		}
+
+		int length() {
+			return length;
+		}
+
+		JsonElement toJson() {
+			if (length == 0) {
+				return new JsonObject();
+			}
+			JsonElement element = gson.fromJson(new InputStreamReader(new ByteArrayInputStream(buffer, 0, length), StandardCharsets.UTF_8), JsonElement.class);
+			return element != null ? element : new JsonObject();
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(buffer, length);
+		}
+
+		@Override
+		public String toString() {
+			return new String(buffer, 0, length, StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public void close() {
+			if (buffer != null) {
+				release(buffer);
+				buffer = null;
+			}
+		}
+	}
+
+	/**
+	 * Fails reads once more than the max bytes went through.
+	 */
+	private static final class LimitedInputStream extends FilterInputStream {
+		private final int httpResponseCode;
+		private final long maxBytes;
+		private long count;
+
+		private LimitedInputStream(InputStream in, int httpResponseCode, long maxBytes) {
+			super(in);
+			this.httpResponseCode = httpResponseCode;
+			this.maxBytes = maxBytes;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int read = super.read();
+			if (read >= 0) {
+				count(1);
+			}
+			return read;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int read = super.read(buffer, offset, length);
+			if (read > 0) {
+				count(read);
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count(skipped);
+			return skipped;
+		}
+
+		private void count(long read) {
+			count += read;
+			if (count > maxBytes) {
+				throw tooLarge(httpResponseCode, maxBytes);
+			}
+		}
+	}
+
+	/**
+	 * Counts the bytes that went through.
+	 */
+	private static final class CountingInputStream extends FilterInputStream {
+		private final LongConsumer onClose;
+		private long count;
+		private boolean closed;
+
+		private CountingInputStream(InputStream in, LongConsumer onClose) {
+			super(in);
+			this.onClose = onClose;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int read = super.read();
+			if (read >= 0) {
+				count++;
+			}
+			return read;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int read = super.read(buffer, offset, length);
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				if (!closed) {
+					closed = true;
+					onClose.accept(count);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Fails the body of an asynchronous response and cancels its download once more than the max bytes arrived.
+	 */
+	private static final class LimitedSubscriber implements HttpResponse.BodySubscriber<byte[]> {
+		private final HttpResponse.BodySubscriber<byte[]> delegate;
+		private final int httpResponseCode;
+		private final long contentLength;
+		private final long maxBytes;
+		private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+		private Flow.Subscription subscription;
+		private long received;
+
+		private LimitedSubscriber(HttpResponse.BodySubscriber<byte[]> delegate, int httpResponseCode, long contentLength, long maxBytes) {
+			this.delegate = delegate;
+			this.httpResponseCode = httpResponseCode;
+			this.contentLength = contentLength;
+			this.maxBytes = maxBytes;
+			delegate.getBody().whenComplete((bytes, ex) -> {
+				if (ex != null) {
+					body.completeExceptionally(ex);
+				} else {
+					body.complete(bytes);
+				}
+			});
+		}
+
+		@Override
+		public CompletionStage<byte[]> getBody() {
+			return body;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			if (contentLength > maxBytes) {
+				// Too large for sure, do not download it.
+				subscription.cancel();
+				body.completeExceptionally(tooLarge(httpResponseCode, maxBytes));
+				return;
+			}
+			delegate.onSubscribe(subscription);
+		}
+
+		@Override
+		public void onNext(List<ByteBuffer> items) {
+			if (body.isDone()) {
+				return;
+			}
+			for (ByteBuffer item : items) {
+				received += item.remaining();
+			}
+			if (received > maxBytes) {
+				subscription.cancel();
+				body.completeExceptionally(tooLarge(httpResponseCode, maxBytes));
+				return;
+			}
+			delegate.onNext(items);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			if (!body.isDone()) {
+				delegate.onError(throwable);
+			}
+		}
+
+		@Override
+		public void onComplete() {
+			if (!body.isDone()) {
+				delegate.onComplete();
+			}
+		}
+	}
+}
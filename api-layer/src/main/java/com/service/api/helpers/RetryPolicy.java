@@ -0,0 +1,294 @@
+package com.service.api.helpers;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+import static com.service.api.helpers.Constants.MAX_RETRY_SERVICE_REQUEST;
+
+/**
+ * Decides whether and when HttpHelper retries a request. Delays use exponential backoff with decorrelated jitter,
+ * Ex: min(maxDelay, random(baseDelay, previousDelay * 3)), unless a 429 or 503 response has a Retry-After header.
+ * <p>
+ * Only idempotent methods are retried, POST and PATCH only with an Idempotency-Key header. Retries are also paid from
+ * a per-host budget: every call adds a fraction of a retry to a bounded bucket and every retry takes a whole one, so
+ * during an outage retries stay a small share of the traffic instead of multiplying it.
+ * <p>
+ * Instances are thread-safe, the budgets are shared by every call made with the policy.
+ */
+public final class RetryPolicy {
+	public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+	public static final String RETRY_AFTER = "Retry-After";
+
+	private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "PUT", "DELETE", "OPTIONS", "TRACE");
+	private static final Set<Integer> RETRY_AFTER_STATUSES = Set.of(429, 503);
+	private static final RetryPolicy NONE = builder().maxAttempts(1).build();
+
+	private final int maxAttempts;
+	private final long baseDelayMs;
+	private final long maxDelayMs;
+	private final Set<Integer> retryStatuses;
+	private final Predicate<Throwable> retryOn;
+	private final double budgetRatio;
+	private final double budgetCapacity;
+	private final Clock clock;
+	private final Map<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+
+	private RetryPolicy(Builder builder) {
+		this.maxAttempts = builder.maxAttempts;
+		this.baseDelayMs = builder.baseDelay.toMillis();
+		this.maxDelayMs = builder.maxDelay.toMillis();
+		this.retryStatuses = Set.copyOf(builder.retryStatuses);
+		this.retryOn = builder.retryOn;
+		this.budgetRatio = builder.budgetRatio;
+		this.budgetCapacity = builder.budgetCapacity;
+		this.clock = builder.clock;
+	}
+
+	/**
+	 * Start a policy configuration.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @return A policy that never retries.
+	 */
+	public static RetryPolicy none() {
+		return NONE;
+	}
+
+	/**
+	 * @return Maximum number of attempts of a call, the first one included.
+	 */
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * Start tracking the attempts of a call.
+	 *
+	 * @param uri            Request URI, retries are budgeted per scheme, host and port.
+	 * @param method         Request method.
+	 * @param idempotencyKey Value of the Idempotency-Key header or null.
+	 */
+	public Call start(URI uri, String method, String idempotencyKey) {
+		RetryBudget budget = budgets.computeIfAbsent(uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort(),
+				key -> new RetryBudget(budgetCapacity));
+		budget.deposit(budgetRatio);
+		boolean idempotent = IDEMPOTENT_METHODS.contains(method.toUpperCase(Locale.ROOT)) || (idempotencyKey != null && !idempotencyKey.isEmpty());
+		return new Call(budget, idempotent);
+	}
+
+	/**
+	 * Parse a Retry-After header, either delay seconds or an HTTP date.
+	 *
+	 * @return The delay in milliseconds, 0 for dates in the past, or -1 if the value is missing or invalid.
+	 */
+	static long parseRetryAfter(String value, Clock clock) {
+		if (value == null || value.isBlank()) {
+			return -1;
+		}
+		String trimmed = value.trim();
+		try {
+			return Math.max(0, Long.parseLong(trimmed) * 1000);
+		} catch (NumberFormatException ignored) {
+			// Not delay seconds, try an HTTP date.
+		}
+		try {
+			ZonedDateTime date = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME);
+			return Math.max(0, date.toInstant().toEpochMilli() - clock.millis());
+		} catch (DateTimeParseException ex) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Attempts of one call. Not thread-safe, attempts of a call are made one after the other.
+	 */
+	public final class Call {
+		private final RetryBudget budget;
+		private final boolean idempotent;
+		private int attempts = 1;
+		private long previousDelayMs;
+
+		private Call(RetryBudget budget, boolean idempotent) {
+			this.budget = budget;
+			this.idempotent = idempotent;
+		}
+
+		/**
+		 * @return Number of attempts made so far, the current one included.
+		 */
+		public int getAttempts() {
+			return attempts;
+		}
+
+		/**
+		 * Decide on a response.
+		 *
+		 * @param status     Response status.
+		 * @param retryAfter Value of the Retry-After header or null.
+		 * @return Milliseconds to wait before the next attempt, or -1 to keep the response.
+		 */
+		public long onStatus(int status, String retryAfter) {
+			if (!retryStatuses.contains(status)) {
+				return -1;
+			}
+			long delayMs = RETRY_AFTER_STATUSES.contains(status) ? parseRetryAfter(retryAfter, clock) : -1;
+			if (delayMs > maxDelayMs) {
+				// The server asks for a longer pause than the policy allows, give up now rather than hold the call.
+				return -1;
+			}
+			return retry(delayMs);
+		}
+
+		/**
+		 * Decide on a failed attempt.
+		 *
+		 * @return Milliseconds to wait before the next attempt, or -1 to fail the call.
+		 */
+		public long onFailure(Throwable failure) {
+			return retryOn.test(failure) ? retry(-1) : -1;
+		}
+
+		private long retry(long delayMs) {
+			if (!idempotent || attempts >= maxAttempts || !budget.withdraw()) {
+				return -1;
+			}
+			if (delayMs < 0) {
+				long upper = Math.max(baseDelayMs, previousDelayMs * 3);
+				delayMs = Math.min(maxDelayMs, upper > baseDelayMs ? ThreadLocalRandom.current().nextLong(baseDelayMs, upper + 1) : baseDelayMs);
+			}
+			previousDelayMs = Math.max(delayMs, baseDelayMs);
+			attempts++;
+			return delayMs;
+		}
+	}
+
+	/**
+	 * Token bucket of the retries of one host.
+	 */
+	private static final class RetryBudget {
+		private final double capacity;
+		private double tokens;
+
+		private RetryBudget(double capacity) {
+			this.capacity = capacity;
+			this.tokens = capacity;
+		}
+
+		private synchronized void deposit(double amount) {
+			tokens = Math.min(capacity, tokens + amount);
+		}
+
+		private synchronized boolean withdraw() {
+			if (tokens < 1) {
+				return false;
+			}
+			tokens--;
+			return true;
+		}
+	}
+
+	/**
+	 * Policy configuration. Defaults to {@link Constants#MAX_RETRY_SERVICE_REQUEST} attempts, 100 ms to 10 s delays,
+	 * retrying 429, 502, 503 and 504 responses, timeouts and refused connections, with a budget of one retry per ten
+	 * calls and a reserve of ten retries per host.
+	 */
+	public static final class Builder {
+		private int maxAttempts = MAX_RETRY_SERVICE_REQUEST;
+		private Duration baseDelay = Duration.ofMillis(100);
+		private Duration maxDelay = Duration.ofSeconds(10);
+		private Set<Integer> retryStatuses = Set.of(429, 502, 503, 504);
+		private Predicate<Throwable> retryOn = RetryPolicy::isTransient;
+		private double budgetRatio = 0.1;
+		private double budgetCapacity = 10;
+		private Clock clock = Clock.systemUTC();
+
+		private Builder() {
+		}
+
+		public Builder maxAttempts(int maxAttempts) {
+			if (maxAttempts < 1) {
+				throw new IllegalArgumentException("RetryPolicy max attempts must be positive: " + maxAttempts);
+			}
+			this.maxAttempts = maxAttempts;
+			return this;
+		}
+
+		/**
+		 * Smallest delay between attempts and the maximum one, which also caps the Retry-After delays that are honored.
+		 */
+		public Builder delays(Duration baseDelay, Duration maxDelay) {
+			if (baseDelay.isNegative() || maxDelay.compareTo(baseDelay) < 0) {
+				throw new IllegalArgumentException("RetryPolicy delays must satisfy 0 <= base <= max: " + baseDelay + ", " + maxDelay);
+			}
+			this.baseDelay = baseDelay;
+			this.maxDelay = maxDelay;
+			return this;
+		}
+
+		/**
+		 * Response statuses to retry, Retry-After is honored for 429 and 503.
+		 */
+		public Builder retryStatuses(Integer... statuses) {
+			this.retryStatuses = Set.of(statuses);
+			return this;
+		}
+
+		/**
+		 * Failures to retry, timeouts and refused connections by default.
+		 */
+		public Builder retryOn(Predicate<Throwable> retryOn) {
+			this.retryOn = retryOn;
+			return this;
+		}
+
+		/**
+		 * Retries earned per call and the most retries a host can save up.
+		 */
+		public Builder budget(double ratio, double capacity) {
+			if (ratio < 0 || capacity < 0) {
+				throw new IllegalArgumentException("RetryPolicy budget must not be negative: " + ratio + ", " + capacity);
+			}
+			this.budgetRatio = ratio;
+			this.budgetCapacity = capacity;
+			return this;
+		}
+
+		/**
+		 * Clock for Retry-After dates.
+		 */
+		public Builder clock(Clock clock) {
+			this.clock = clock;
+			return this;
+		}
+
+		public RetryPolicy build() {
+			return new RetryPolicy(this);
+		}
+	}
+
+	/**
+	 * @return True for timeouts and refused connections.
+	 */
+	private static boolean isTransient(Throwable failure) {
+		return failure instanceof SocketTimeoutException || failure instanceof HttpTimeoutException
+				|| failure instanceof ConnectException || (failure instanceof IOException && failure.getCause() instanceof ConnectException);
+	}
+}
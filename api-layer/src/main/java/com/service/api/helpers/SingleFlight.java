@@ -0,0 +1,157 @@
+package com.service.api.helpers;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Coalesces concurrent identical calls: the first caller of a key makes the call and the callers arriving while it is
+ * in flight wait for its result instead of making their own. Nothing is kept once the call completes, the next caller
+ * makes a new call.
+ * <p>
+ * Results are handed out as they are to a lone caller and as copies when the call was shared, so callers can modify
+ * them, Ex: new SingleFlight&lt;&gt;(JsonElement::deepCopy). Instances are thread-safe.
+ *
+ * @param <K> Call key, Ex: method, URL and auth principal of a request.
+ * @param <V> Call result.
+ */
+public final class SingleFlight<K, V> {
+	private final ConcurrentMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+	private final UnaryOperator<V> copy;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * @param copy Copies a shared result for each caller.
+	 */
+	public SingleFlight(UnaryOperator<V> copy) {
+		this.copy = copy;
+	}
+
+	/**
+	 * Make the call, or wait for the identical call in flight.
+	 *
+	 * @throws InterruptedIOException If the thread is interrupted while waiting.
+	 */
+	public V execute(K key, Call<V> call) throws IOException {
+		Flight<V> mine = new Flight<>();
+		Flight<V> flight = join(key, mine);
+		if (flight != mine) {
+			hits.increment();
+			return copy.apply(await(flight.result));
+		}
+
+		misses.increment();
+		V value;
+		try {
+			value = call.call();
+		} catch (IOException | RuntimeException | Error ex) {
+			flights.remove(key, flight);
+			flight.result.completeExceptionally(ex);
+			throw ex;
+		}
+		// No caller can join once the flight is removed, so the count of followers is final.
+		flights.remove(key, flight);
+		flight.result.complete(value);
+		return flight.followers.get() > 0 ? copy.apply(value) : value;
+	}
+
+	/**
+	 * Start the call, or join the identical call in flight. Failing the returned future, Ex: cancelling it or timing it
+	 * out, cancels the call once every caller sharing it gave up.
+	 */
+	public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> call) {
+		Flight<V> mine = new Flight<>();
+		Flight<V> flight = join(key, mine);
+		if (flight == mine) {
+			misses.increment();
+			CompletableFuture<V> upstream = call.get();
+			flight.upstream = upstream;
+			upstream.whenComplete((value, ex) -> {
+				flights.remove(key, flight);
+				if (ex != null) {
+					flight.result.completeExceptionally(ex);
+				} else {
+					flight.result.complete(value);
+				}
+			});
+		} else {
+			hits.increment();
+		}
+
+		CompletableFuture<V> result = flight.result.thenApply(value -> flight.followers.get() > 0 ? copy.apply(value) : value);
+		result.whenComplete((value, ex) -> {
+			if (ex != null && flight.subscribers.decrementAndGet() == 0 && flight.upstream != null) {
+				flights.remove(key, flight);
+				flight.upstream.cancel(true);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * @return Number of calls that joined a call in flight.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return Number of calls that were made.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	private Flight<V> join(K key, Flight<V> mine) {
+		return flights.compute(key, (ignored, current) -> {
+			Flight<V> flight = current != null ? current : mine;
+			if (current != null) {
+				flight.followers.incrementAndGet();
+			}
+			flight.subscribers.incrementAndGet();
+			return flight;
+		});
+	}
+
+	private static <V> V await(CompletableFuture<V> result) throws IOException {
+		try {
+			return result.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("SingleFlight was interrupted waiting for a shared call");
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * A blocking call.
+	 */
+	@FunctionalInterface
+	public interface Call<V> {
+		V call() throws IOException;
+	}
+
+	private static final class Flight<V> {
+		private final CompletableFuture<V> result = new CompletableFuture<>();
+		private final AtomicInteger followers = new AtomicInteger();
+		private final AtomicInteger subscribers = new AtomicInteger();
+		private volatile CompletableFuture<V> upstream;
+	}
+}
@@ -2,8 +2,6 @@ package com.service.api.helpers;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 
 public class StringUtils {
@@ -11,21 +9,14 @@ public class StringUtils {
 		throw new IllegalStateException("StringUtils should be used as a utility class");
 	}
 
+	/**
+	 * Read a UTF-8 stream to its end. Decodes the bytes once instead of through a reader and a growing builder.
+	 */
 	public static String toString(InputStream inputStream) throws IOException {
-		final int bufferSize = 1024;
-		final char[] buffer = new char[bufferSize];
-		final StringBuilder out = new StringBuilder();
-		if (inputStream != null) {
-			Reader in = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
-			for (; ; ) {
-				int rsz = in.read(buffer, 0, buffer.length);
-				if (rsz < 0) {
-					break;
-				}
-				out.append(buffer, 0, rsz);
-			}
+		if (inputStream == null) {
+			return "";
 		}
-		return out.toString();
+		return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
 	}
 
 	public static String trimDoubleQuotes(String text) {
@@ -0,0 +1,122 @@
+package com.enterprise.agents.controller;
+
+import com.enterprise.agents.service.HealthMonitor;
+import com.service.api.helpers.StubServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HealthAggregateControllerTest {
+    @RegisterExtension
+    final StubServer server = new StubServer();
+    private HealthMonitor monitor;
+    // The slow target answers once released.
+    private final CountDownLatch slow = new CountDownLatch(1);
+    private final AtomicInteger probes = new AtomicInteger();
+
+    @BeforeEach
+    void registerHandlers() {
+        server.context("/", exchange -> {
+            probes.incrementAndGet();
+            if (exchange.getRequestURI().getPath().equals("/slow")) {
+                try {
+                    if (!slow.await(10, TimeUnit.SECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            byte[] body = "{\"status\":\"UP\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+    }
+
+    @AfterEach
+    void stopMonitor() {
+        monitor.stop();
+        slow.countDown();
+    }
+
+    @Test
+    void slowTargetIsTimeoutWithoutDelayingTheOthers() {
+        monitor = monitor(Duration.ofSeconds(1));
+        HealthAggregateController controller = new HealthAggregateController(monitor, Duration.ofSeconds(5));
+
+        long start = System.nanoTime();
+        Map<String, Object> health = controller.aggregateHealth(true).getBody();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMs < 2000, "answered in " + elapsedMs + " ms");
+        assertEquals("DOWN", health.get("status"));
+        assertEquals("TIMEOUT", status(health, "jira"));
+        assertEquals("UP", status(health, "github"));
+        assertEquals("UP", status(health, "slack"));
+        assertEquals("UP", status(health, "api"));
+    }
+
+    @Test
+    void refreshAnswersWithinTheDeadline() {
+        monitor = monitor(Duration.ofSeconds(5));
+        HealthAggregateController controller = new HealthAggregateController(monitor, Duration.ofMillis(500));
+
+        long start = System.nanoTime();
+        Map<String, Object> health = controller.aggregateHealth(true).getBody();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // The slow target is still being probed, its last result is served.
+        assertTrue(elapsedMs < 1500, "answered in " + elapsedMs + " ms");
+        assertEquals("DOWN", health.get("status"));
+        assertEquals("UNKNOWN", status(health, "jira"));
+        assertEquals(-1L, health.get("ageMs"));
+    }
+
+    @Test
+    void snapshotIsServedWithTheLatencyOfEachTargetWithoutProbing() {
+        monitor = monitor(Duration.ofSeconds(1));
+        HealthAggregateController controller = new HealthAggregateController(monitor, Duration.ofSeconds(5));
+        controller.aggregateHealth(true);
+        int probed = probes.get();
+
+        Map<String, Object> health = controller.aggregateHealth(false).getBody();
+
+        assertEquals(probed, probes.get());
+        assertEquals("TIMEOUT", status(health, "jira"));
+        long timedOut = (Long) details(health, "jira").get("latencyMs");
+        assertTrue(timedOut >= 1000, "latency " + timedOut);
+        assertTrue((Long) details(health, "github").get("latencyMs") < 1000);
+        assertTrue((Long) health.get("ageMs") >= 0);
+    }
+
+    private HealthMonitor monitor(Duration targetTimeout) {
+        String baseUrl = server.baseUrl();
+        return new HealthMonitor(baseUrl + "/github", baseUrl + "/google", baseUrl + "/slack", baseUrl + "/slow",
+                Duration.ofSeconds(30), targetTimeout, 8);
+    }
+
+    private static Object status(Map<String, Object> health, String service) {
+        return details(health, service).get("status");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> details(Map<String, Object> health, String service) {
+        Map<String, Object> details = (Map<String, Object>) health.get("details");
+        return (Map<String, Object>) details.get(service);
+    }
+}
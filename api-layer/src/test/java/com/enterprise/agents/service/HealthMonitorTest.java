@@ -0,0 +1,207 @@
+package com.enterprise.agents.service;
+
+import com.service.api.helpers.StubServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.http.HttpMethod;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HealthMonitorTest {
+    private static final Duration TARGET_TIMEOUT = Duration.ofSeconds(1);
+
+    @RegisterExtension
+    final StubServer server = new StubServer();
+    private HealthMonitor monitor;
+    private final Map<String, AtomicInteger> probes = new ConcurrentHashMap<>();
+    // Holds the answers of the services until released.
+    private volatile CountDownLatch answer = new CountDownLatch(0);
+    private final CountDownLatch hung = new CountDownLatch(1);
+
+    @BeforeEach
+    void registerHandlers() {
+        server.context("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            probes.computeIfAbsent(path, ignored -> new AtomicInteger()).incrementAndGet();
+            try {
+                if (!(path.equals("/hung") ? hung : answer).await(10, TimeUnit.SECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            byte[] body = "{\"status\":\"UP\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+    }
+
+    @AfterEach
+    void stopMonitor() {
+        if (monitor != null) {
+            monitor.stop();
+        }
+        hung.countDown();
+    }
+
+    @Test
+    void hungTargetIsTimeoutWithinTheTargetTimeout() {
+        monitor = monitor("/hung", Duration.ofSeconds(30), TARGET_TIMEOUT);
+
+        long start = System.nanoTime();
+        HealthMonitor.Snapshot snapshot = monitor.refresh().join();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMs < TARGET_TIMEOUT.toMillis() + 1000, "refreshed in " + elapsedMs + " ms");
+        HealthMonitor.TargetHealth jira = snapshot.targets().get("jira");
+        assertEquals("TIMEOUT", jira.status());
+        assertTrue(jira.latencyMs() >= TARGET_TIMEOUT.toMillis(), "latency " + jira.latencyMs());
+        assertEquals("UP", snapshot.targets().get("github").status());
+        assertFalse(snapshot.isUp());
+    }
+
+    @Test
+    void concurrentRefreshesProbeEachTargetOnce() throws InterruptedException {
+        monitor = monitor("/jira", Duration.ofSeconds(30), Duration.ofSeconds(5));
+        answer = new CountDownLatch(1);
+
+        List<CompletableFuture<HealthMonitor.Snapshot>> refreshes = new ArrayList<>();
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread caller = new Thread(() -> {
+                CompletableFuture<HealthMonitor.Snapshot> refresh = monitor.refresh();
+                synchronized (refreshes) {
+                    refreshes.add(refresh);
+                }
+            });
+            callers.add(caller);
+            caller.start();
+        }
+        for (Thread caller : callers) {
+            caller.join();
+        }
+        answer.countDown();
+
+        refreshes.forEach(refresh -> assertTrue(refresh.join().isUp()));
+        assertEquals(Map.of("/github", 1, "/google", 1, "/slack", 1, "/jira", 1), counts());
+    }
+
+    @Test
+    void staleSnapshotIsServedWhileRefreshedInTheBackground() {
+        monitor = monitor("/jira", Duration.ofMillis(50), Duration.ofSeconds(5));
+        HealthMonitor.Snapshot refreshed = monitor.refresh().join();
+        assertTrue(refreshed.isUp());
+
+        // Older than two poll intervals, and the services are now slow to answer.
+        answer = new CountDownLatch(1);
+        sleep(150);
+        long start = System.nanoTime();
+        HealthMonitor.Snapshot stale = monitor.getSnapshot();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertSame(refreshed, stale);
+        assertTrue(elapsedMs < 100, "served in " + elapsedMs + " ms");
+        await(() -> counts().values().stream().allMatch(count -> count >= 2));
+        answer.countDown();
+        await(() -> monitor.getSnapshot().getCheckedAt().isAfter(refreshed.getCheckedAt()));
+        assertTrue(monitor.getSnapshot().isUp());
+    }
+
+    @Test
+    void unknownTargetsAreProbedOnFirstRead() {
+        monitor = monitor("/jira", Duration.ofSeconds(30), TARGET_TIMEOUT);
+
+        HealthMonitor.Snapshot initial = monitor.getSnapshot();
+
+        assertEquals("UNKNOWN", initial.targets().get("github").status());
+        assertEquals(-1, initial.getAgeMs(Instant.now()));
+        await(() -> monitor.getSnapshot().isUp());
+    }
+
+    @Test
+    void probeConnectionsGetWhatIsLeftOfTheDeadline() throws IOException {
+        HealthMonitor.DeadlineRequestFactory requestFactory = new HealthMonitor.DeadlineRequestFactory(System.nanoTime() + TARGET_TIMEOUT.toNanos());
+        sleep(300);
+        HttpURLConnection connection = (HttpURLConnection) URI.create(server.baseUrl() + "/jira").toURL().openConnection();
+
+        requestFactory.prepareConnection(connection, "GET");
+
+        assertTrue(connection.getConnectTimeout() > 0 && connection.getConnectTimeout() <= 700, "connect " + connection.getConnectTimeout());
+        assertTrue(connection.getReadTimeout() > 0 && connection.getReadTimeout() <= 700, "read " + connection.getReadTimeout());
+        HttpURLConnection late = (HttpURLConnection) URI.create(server.baseUrl() + "/jira").toURL().openConnection();
+        assertThrows(SocketTimeoutException.class, () -> new HealthMonitor.DeadlineRequestFactory(System.nanoTime()).prepareConnection(late, "GET"));
+    }
+
+    @Test
+    void abortedProbeStopsReadingBeforeItsReadTimeout() throws InterruptedException {
+        HealthMonitor.DeadlineRequestFactory requestFactory = new HealthMonitor.DeadlineRequestFactory(System.nanoTime() + TimeUnit.SECONDS.toNanos(5));
+        CompletableFuture<Throwable> failure = CompletableFuture.supplyAsync(() -> {
+            try {
+                requestFactory.createRequest(URI.create(server.baseUrl() + "/hung"), HttpMethod.GET).execute().close();
+                return null;
+            } catch (IOException ex) {
+                return ex;
+            }
+        });
+        await(() -> counts().containsKey("/hung"));
+        long start = System.nanoTime();
+
+        requestFactory.abort();
+
+        assertNotNull(failure.join());
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMs < 1000, "stopped reading in " + elapsedMs + " ms");
+    }
+
+    private HealthMonitor monitor(String jiraPath, Duration interval, Duration targetTimeout) {
+        String baseUrl = server.baseUrl();
+        return new HealthMonitor(baseUrl + "/github", baseUrl + "/google", baseUrl + "/slack", baseUrl + jiraPath,
+                interval, targetTimeout, 8);
+    }
+
+    private Map<String, Integer> counts() {
+        Map<String, Integer> counts = new ConcurrentHashMap<>();
+        probes.forEach((path, count) -> counts.put(path, count.get()));
+        return counts;
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            sleep(10);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.service.api.helpers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveTimeoutsTest {
+    private static final URI ISSUES = URI.create("https://api.github.com/repos/42/issues");
+
+    @RegisterExtension
+    final StubServer server = new StubServer();
+
+    @BeforeEach
+    void registerHandlers() {
+        server.context("/items", exchange -> {
+            byte[] body = "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+    }
+
+    @Test
+    void readTimeoutFollowsThePercentileWithinBounds() throws Exception {
+        AdaptiveTimeouts timeouts = AdaptiveTimeouts.builder().minSamples(10).read(Duration.ofMillis(500), Duration.ofSeconds(20)).build();
+        URL url = ISSUES.toURL();
+        assertEquals(20000, timeouts.getReadTimeout("GET", url));
+
+        for (int i = 0; i < 100; i++) {
+            timeouts.recordResponse("GET", ISSUES, TimeUnit.MILLISECONDS.toNanos(i < 99 ? 200 : 1000));
+        }
+        int timeout = timeouts.getReadTimeout("GET", URI.create("https://api.github.com/repos/7/issues").toURL());
+        assertTrue(timeout >= 600 && timeout <= 720, "timeout " + timeout);
+        assertEquals(20000, timeouts.getReadTimeout("POST", url));
+
+        URI search = URI.create("https://api.github.com/search");
+        for (int i = 0; i < 100; i++) {
+            timeouts.recordResponse("GET", search, TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        assertEquals(500, timeouts.getReadTimeout("GET", search.toURL()));
+    }
+
+    @Test
+    void latenciesRollOutOfTheWindow() throws Exception {
+        AtomicLong now = new AtomicLong();
+        AdaptiveTimeouts timeouts = AdaptiveTimeouts.builder().minSamples(5).window(Duration.ofSeconds(60), 6).ticker(now::get).build();
+        for (int i = 0; i < 10; i++) {
+            timeouts.recordResponse("GET", ISSUES, TimeUnit.SECONDS.toNanos(5));
+        }
+        int slow = timeouts.getReadTimeout("GET", ISSUES.toURL());
+        assertTrue(slow >= 15000 && slow <= 18000, "timeout " + slow);
+        assertTrue(timeouts.getPercentile("GET", ISSUES, 0.95) >= 5000);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        for (int i = 0; i < 10; i++) {
+            timeouts.recordResponse("GET", ISSUES, TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        assertEquals(1000, timeouts.getReadTimeout("GET", ISSUES.toURL()));
+        assertEquals(1, timeouts.getEndpoints().size());
+        assertEquals("GET api.github.com/repos/{id}/issues", timeouts.getEndpoints().get(0).endpoint());
+    }
+
+    @Test
+    void endpointsAreBounded() {
+        AdaptiveTimeouts timeouts = AdaptiveTimeouts.builder().maxEndpoints(2).build();
+
+        timeouts.recordResponse("GET", URI.create("https://api.example.com/a"), 1_000_000);
+        timeouts.recordResponse("GET", URI.create("https://api.example.com/b"), 1_000_000);
+        timeouts.recordResponse("GET", URI.create("https://api.example.com/c"), 1_000_000);
+        timeouts.recordResponse("GET", URI.create("https://api.example.com/d"), 1_000_000);
+
+        assertEquals(3, timeouts.getEndpoints().size());
+        assertEquals("GET api.example.com/*", timeouts.getEndpoints().stream()
+                .filter(endpoint -> endpoint.calls() == 2).findFirst().orElseThrow().endpoint());
+    }
+
+    @Test
+    void builtConnectionsUseTheObservedLatencies() throws IOException {
+        HttpHelper.setAdaptiveTimeouts(AdaptiveTimeouts.builder().minSamples(3).build());
+        assertEquals(60000, connection().getReadTimeout());
+
+        for (int i = 0; i < 3; i++) {
+            HttpHelper.sendHttpRequest(connection(), "appId");
+        }
+
+        HttpURLConnection connection = connection();
+        assertEquals(1000, connection.getReadTimeout());
+        assertEquals(1000, connection.getConnectTimeout());
+        HttpHelper.setAdaptiveTimeouts(AdaptiveTimeouts.fixed());
+        assertEquals(Constants.REST_CLIENT_TIMEOUT_MS, connection().getReadTimeout());
+    }
+
+    private HttpURLConnection connection() {
+        return HttpHelper.buildHttpURLConnection(server.baseUrl() + "/items", "GET", "application/json", false, "appId");
+    }
+}
@@ -0,0 +1,74 @@
+package com.service.api.helpers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionWarmerTest {
+    @RegisterExtension
+    final StubServer server = new StubServer();
+    private final AtomicInteger heads = new AtomicInteger();
+
+    @BeforeEach
+    void registerHandlers() {
+        server.context("/", exchange -> {
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                heads.incrementAndGet();
+            }
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+    }
+
+    @Test
+    void originsAreResolvedAndConnectedOnce() {
+        ConnectionWarmer warmer = ConnectionWarmer.builder().connectionsPerHost(3).build();
+        assertFalse(warmer.isWarm());
+
+        CompletableFuture<List<ConnectionWarmer.HostWarmup>> warmup = warmer.warm(List.of(
+                URI.create(server.baseUrl() + "/login/oauth/authorize"), URI.create(server.baseUrl() + "/login/oauth/access_token")));
+        List<ConnectionWarmer.HostWarmup> hosts = warmup.join();
+
+        assertTrue(warmer.isWarm());
+        assertEquals(1, hosts.size());
+        ConnectionWarmer.HostWarmup host = hosts.get(0);
+        assertEquals(server.baseUrl() + "/", host.origin());
+        assertEquals(List.of("127.0.0.1"), host.addresses());
+        assertEquals(6, host.connections());
+        assertNull(host.error());
+        assertEquals(6, heads.get());
+        assertSame(warmup, warmer.warm(List.of(URI.create(server.baseUrl()))));
+        assertEquals(hosts, warmer.getHosts());
+    }
+
+    @Test
+    void unreachableHostsAreReportedWithoutBlockingTheWarmup() throws IOException {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        ConnectionWarmer warmer = ConnectionWarmer.builder().timeout(Duration.ofSeconds(5)).build();
+
+        List<ConnectionWarmer.HostWarmup> hosts = warmer.warm(List.of(URI.create("https://warmup.invalid/token"),
+                URI.create("http://127.0.0.1:" + closedPort + "/token"), URI.create(server.baseUrl() + "/token"))).join();
+
+        assertEquals(3, hosts.size());
+        assertEquals(0, hosts.get(0).connections());
+        assertEquals(-1, hosts.get(0).dnsMillis());
+        assertTrue(hosts.get(0).error().startsWith("UnknownHostException"), hosts.get(0).error());
+        assertEquals(0, hosts.get(1).connections());
+        assertNotNull(hosts.get(1).error());
+        assertEquals(4, hosts.get(2).connections());
+        assertTrue(warmer.isWarm());
+    }
+}
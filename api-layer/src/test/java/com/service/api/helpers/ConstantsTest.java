@@ -11,6 +11,7 @@ class ConstantsTest {
     @Test
     void constantsValuesAreCorrect() {
         assertEquals("Content-Type", Constants.CONTENT_TYPE);
+        assertEquals("Authorization", Constants.AUTHORIZATION);
         assertEquals(3, Constants.MAX_RETRY_SERVICE_REQUEST);
         assertEquals(300000, Constants.REST_CLIENT_TIMEOUT_MS);
         assertEquals("HUBSPOTSERVICE", Constants.API_SERVICE);
@@ -0,0 +1,181 @@
+package com.service.api.helpers;
+
+import com.google.gson.JsonElement;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpClientEngineTest {
+    @RegisterExtension
+    final StubServer server = new StubServer();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @BeforeEach
+    void registerHandlers() {
+        server.context("/team", exchange -> respond(exchange, 200, "{\"team\":{\"id\":\"T1\"}}"));
+        server.context("/echo", exchange -> respond(exchange, 200,
+                "{\"method\":\"" + exchange.getRequestMethod() + "\",\"body\":" + new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8) + "}"));
+        server.context("/auth", exchange -> respond(exchange, 200, "{\"authorization\":\"" + exchange.getRequestHeaders().getFirst("Authorization")
+                + "\",\"agent\":\"" + exchange.getRequestHeaders().getFirst("User-Agent") + "\"}"));
+        server.context("/missing", exchange -> respond(exchange, 404, "{\"error\":\"not_found\"}"));
+        server.context("/slow", exchange -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            respond(exchange, 200, "{}");
+        });
+        server.context("/hang", exchange -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, "{}");
+        });
+    }
+
+    @Test
+    void sendHttpRequestUsesEngine() throws IOException {
+        HttpHelper.setHttpClientEngine(HttpClientEngine.builder().build());
+
+        JsonElement team = HttpHelper.sendHttpRequest(connection("/team", "GET", false), "appId");
+        assertEquals("T1", JsonPath.getValue(team, "team.id"));
+
+        JsonElement echo = HttpHelper.sendHttpRequest("{\"a\":1}", connection("/echo", "POST", true), "appId");
+        assertEquals("POST", JsonPath.getValue(echo, "method"));
+        assertEquals(1, JsonPath.getValue(echo, "body.a", 0));
+
+        JsonPathValues values = HttpHelper.sendHttpRequest(connection("/team", "GET", false), JsonPathSet.of("team.id"), "appId");
+        assertEquals("T1", values.getValue(JsonPath.compile("team.id")));
+    }
+
+    @Test
+    void sendHttpRequestReportsErrorStatus() {
+        HttpHelper.setHttpClientEngine(HttpClientEngine.builder().build());
+
+        ServiceRuntimeException ex = assertThrows(ServiceRuntimeException.class, () -> HttpHelper.sendHttpRequest(connection("/missing", "GET", false), "appId"));
+        assertEquals(404, ex.getMessageArguments()[0]);
+        assertEquals("{\"error\":\"not_found\"}", ex.getMessageArguments()[1]);
+    }
+
+    @Test
+    void requestsWithUnknownAuthorizationAreNotSentThroughEngine() throws IOException {
+        HttpHelper.setHttpClientEngine(HttpClientEngine.builder().build());
+
+        HttpURLConnection connection = HttpHelper.buildHttpURLConnection(server.baseUrl() + "/auth", "GET", "application/json", false, "appId");
+        connection.setRequestProperty("Authorization", "Bearer t1");
+        JsonElement sent = HttpHelper.sendHttpRequest(connection, "appId");
+        assertEquals("Bearer t1", JsonPath.getValue(sent, "authorization"));
+        assertFalse(JsonPath.getValue(sent, "agent").startsWith("Java-http-client"));
+
+        connection = HttpHelper.buildHttpURLConnection(server.baseUrl() + "/auth", "GET", "application/json", false, "Bearer t2", "appId");
+        sent = HttpHelper.sendHttpRequest(connection, "appId");
+        assertEquals("Bearer t2", JsonPath.getValue(sent, "authorization"));
+        assertTrue(JsonPath.getValue(sent, "agent").startsWith("Java-http-client"));
+    }
+
+    @Test
+    void sendAsyncCapsRequestsPerHost() {
+        HttpClientEngine engine = HttpClientEngine.builder().maxRequestsPerHost(2).build();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            responses.add(engine.sendAsync(HttpRequest.newBuilder(URI.create(server.baseUrl() + "/slow")).build(), HttpResponse.BodyHandlers.ofString()));
+        }
+
+        responses.forEach(response -> assertEquals(200, response.join().statusCode()));
+        assertTrue(maxInFlight.get() <= 2, "max in flight " + maxInFlight.get());
+    }
+
+    @Test
+    void sendHttpRequestAsyncParsesResponse() {
+        HttpHelper.setHttpClientEngine(HttpClientEngine.builder().build());
+
+        CompletableFuture<JsonElement> team = HttpHelper.sendHttpRequestAsync(connection("/team", "GET", false), "appId");
+        CompletableFuture<JsonElement> echo = HttpHelper.sendHttpRequestAsync("{\"a\":1}", connection("/echo", "POST", true), "appId");
+
+        assertEquals("T1", JsonPath.getValue(team.join(), "team.id"));
+        assertEquals(1, JsonPath.getValue(echo.join(), "body.a", 0));
+    }
+
+    @Test
+    void sendHttpRequestAsyncReportsErrorStatus() {
+        CompletableFuture<JsonElement> missing = HttpHelper.sendHttpRequestAsync(connection("/missing", "GET", false), "appId");
+
+        CompletionException ex = assertThrows(CompletionException.class, missing::join);
+        ServiceRuntimeException cause = assertInstanceOf(ServiceRuntimeException.class, ex.getCause());
+        assertEquals(404, cause.getMessageArguments()[0]);
+    }
+
+    @Test
+    void sendHttpRequestAsyncFailsAtDeadline() {
+        CompletableFuture<JsonElement> hang = HttpHelper.sendHttpRequestAsync(connection("/hang", "GET", false), Duration.ofMillis(100), "appId");
+
+        CompletionException ex = assertThrows(CompletionException.class, hang::join);
+        ServiceRuntimeException cause = assertInstanceOf(ServiceRuntimeException.class, ex.getCause());
+        assertEquals(100L, cause.getMessageArguments()[1]);
+    }
+
+    @Test
+    void sendHttpRequestAsyncSendsAuthorizationSetOnTheConnection() {
+        HttpHelper.setHttpClientEngine(HttpClientEngine.builder().build());
+        HttpURLConnection connection = HttpHelper.buildHttpURLConnection(server.baseUrl() + "/auth", "GET", "application/json", false, "appId");
+        connection.setRequestProperty("Authorization", "Bearer t1");
+
+        JsonElement sent = HttpHelper.sendHttpRequestAsync(connection, "appId").join();
+        assertEquals("Bearer t1", JsonPath.getValue(sent, "authorization"));
+
+        HttpURLConnection hang = HttpHelper.buildHttpURLConnection(server.baseUrl() + "/hang", "GET", "application/json", false, "appId");
+        hang.setRequestProperty("Authorization", "Bearer t1");
+        CompletionException ex = assertThrows(CompletionException.class, () -> HttpHelper.sendHttpRequestAsync(hang, Duration.ofMillis(100), "appId").join());
+        assertInstanceOf(ServiceRuntimeException.class, ex.getCause());
+    }
+
+    @Test
+    void cancelledRequestGivesUpItsSlot() {
+        HttpClientEngine engine = HttpClientEngine.builder().maxRequestsPerHost(1).build();
+        CompletableFuture<HttpResponse<String>> hang = engine.sendAsync(HttpRequest.newBuilder(URI.create(server.baseUrl() + "/hang")).build(), HttpResponse.BodyHandlers.ofString());
+        CompletableFuture<HttpResponse<String>> waiting = engine.sendAsync(HttpRequest.newBuilder(URI.create(server.baseUrl() + "/team")).build(), HttpResponse.BodyHandlers.ofString());
+
+        assertTrue(waiting.cancel(true));
+        assertTrue(hang.cancel(true));
+        HttpResponse<String> team = engine.sendAsync(HttpRequest.newBuilder(URI.create(server.baseUrl() + "/team")).build(), HttpResponse.BodyHandlers.ofString())
+                .orTimeout(1, TimeUnit.SECONDS).join();
+        assertEquals(200, team.statusCode());
+    }
+
+    private HttpURLConnection connection(String path, String method, boolean doOutput) {
+        return HttpHelper.buildHttpURLConnection(server.baseUrl() + path, method, "application/json", doOutput, null, "appId");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+}
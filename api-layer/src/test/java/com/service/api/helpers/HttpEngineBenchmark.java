@@ -0,0 +1,80 @@
+package com.service.api.helpers;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares GET requests to a local server sent with HttpURLConnection against the shared {@link HttpClientEngine},
+ * from several threads at once. Run with {@code mvn -pl api-layer test-compile} and then {@link #main}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class HttpEngineBenchmark {
+    private static final byte[] RESPONSE = ("{\"ok\":true,\"team\":{\"id\":\"T9TK3CUKW\",\"name\":\"Slack Softball Team\"},"
+            + "\"authed_user\":{\"id\":\"U1234\",\"scope\":\"chat:write\"}}").getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private HttpClientEngine engine;
+    private String url;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 256);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, RESPONSE.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(RESPONSE);
+            }
+        });
+        serverExecutor = Executors.newFixedThreadPool(32);
+        server.setExecutor(serverExecutor);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        engine = HttpClientEngine.builder().build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        HttpHelper.setHttpClientEngine(null);
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public void httpUrlConnection(Blackhole blackhole) throws IOException {
+        HttpHelper.setHttpClientEngine(null);
+        blackhole.consume(HttpHelper.sendHttpRequest(HttpHelper.buildHttpURLConnection(url, "GET", "application/json", false, "bench"), "bench"));
+    }
+
+    @Benchmark
+    public void httpClientEngine(Blackhole blackhole) throws IOException {
+        HttpHelper.setHttpClientEngine(engine);
+        // Only connections with a known Authorization go through the engine.
+        HttpURLConnection connection = HttpHelper.buildHttpURLConnection(url, "GET", "application/json", false, null, "bench");
+        blackhole.consume(HttpHelper.sendHttpRequest(connection, "bench"));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(HttpEngineBenchmark.class.getSimpleName()).build()).run();
+    }
+}
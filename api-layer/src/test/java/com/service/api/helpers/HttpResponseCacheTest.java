@@ -0,0 +1,251 @@
+package com.service.api.helpers;
+
+import com.enterprise.agents.common.http.HttpResponseCache;
+import com.enterprise.agents.common.http.HttpResponseCacheInterceptor;
+import com.google.gson.JsonElement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpResponseCacheTest {
+    @RegisterExtension
+    final StubServer server = new StubServer();
+    private final List<Integer> statuses = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void registerHandlers() {
+        server.context("/repos", exchange -> {
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            String etag = "\"" + authorization.hashCode() + "\"";
+            exchange.getResponseHeaders().add("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                statuses.add(304);
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            statuses.add(200);
+            byte[] body = ("{\"repos\":[\"api\"],\"auth\":\"" + authorization + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        // Same version whoever asks, only the cache keeps principals apart.
+        server.context("/shared", exchange -> {
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                statuses.add(304);
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            statuses.add(200);
+            byte[] body = ("{\"auth\":\"" + exchange.getRequestHeaders().getFirst("Authorization") + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        // Gzip encoded, with a rate limit counted down on every response.
+        server.context("/encoded", exchange -> {
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            exchange.getResponseHeaders().add("X-RateLimit-Remaining", String.valueOf(100 - statuses.size()));
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                statuses.add(304);
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            statuses.add(200);
+            byte[] body = gzip("{\"repos\":[\"api\"]}");
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        // A version per language.
+        server.context("/localized", exchange -> {
+            String language = exchange.getRequestHeaders().getFirst("Accept-Language");
+            String etag = "\"" + language + "\"";
+            exchange.getResponseHeaders().add("ETag", etag);
+            exchange.getResponseHeaders().add("Vary", "Accept-Language");
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                statuses.add(304);
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            statuses.add(200);
+            byte[] body = ("{\"language\":\"" + language + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+    }
+
+    @Test
+    void notModifiedResponsesAreAnsweredFromTheCache() throws IOException {
+        JsonElement first = HttpHelper.sendHttpRequest(get("Bearer a"), "appId");
+        JsonElement second = HttpHelper.sendHttpRequest(get("Bearer a"), "appId");
+        JsonElement other = HttpHelper.sendHttpRequest(get("Bearer b"), "appId");
+
+        assertEquals(first, second);
+        assertEquals("Bearer b", JsonPath.getValue(other, "auth"));
+        assertEquals(List.of(200, 304, 200), statuses);
+        assertEquals(1, HttpResponseCache.shared().getHits());
+    }
+
+    @Test
+    void engineRequestsAreRevalidated() throws IOException {
+        HttpHelper.setHttpClientEngine(HttpClientEngine.builder().build());
+
+        HttpHelper.sendHttpRequest(get("Bearer a"), "appId");
+        JsonElement blocking = HttpHelper.sendHttpRequest(get("Bearer a"), "appId");
+        JsonElement async = HttpHelper.sendHttpRequestAsync(get("Bearer a"), "appId").join();
+
+        assertEquals("api", JsonPath.getValue(blocking, "repos[0]"));
+        assertEquals(blocking, async);
+        assertEquals(List.of(200, 304, 304), statuses);
+    }
+
+    @Test
+    void diskTierKeepsEntriesEvictedFromMemory() throws IOException {
+        Path directory = Files.createTempDirectory("http-cache");
+        byte[] body = "{\"items\":[1,2,3]}".repeat(100).getBytes(StandardCharsets.UTF_8);
+        HttpResponseCache cache = HttpResponseCache.builder().maxMemoryBytes(4096).disk(directory, 1 << 20).build();
+
+        cache.store("https://api.example.com/a", "Bearer a", "\"a\"", null, "application/json", body);
+        cache.store("https://api.example.com/b", "Bearer a", "\"b\"", null, "application/json", body);
+        assertTrue(cache.getMemoryBytes() < body.length, "bodies are kept deflated");
+        assertNull(cache.lookup("https://api.example.com/a", "Bearer b"));
+
+        HttpResponseCache restarted = HttpResponseCache.builder().disk(directory, 1 << 20).build();
+        HttpResponseCache.Entry entry = restarted.lookup("https://api.example.com/a", "Bearer a");
+        assertEquals("\"a\"", entry.getETag());
+        assertArrayEquals(body, entry.getBody());
+    }
+
+    @Test
+    void requestsWithUnknownAuthorizationAreNotCached() throws IOException {
+        for (String authorization : List.of("Bearer a", "Bearer b")) {
+            HttpURLConnection connection = HttpHelper.buildHttpURLConnection(server.baseUrl() + "/shared", "GET", "application/json", false, "appId");
+            connection.setRequestProperty("Authorization", authorization);
+            assertEquals(authorization, JsonPath.getValue(HttpHelper.sendHttpRequest(connection, "appId"), "auth"));
+        }
+
+        assertEquals(List.of(200, 200), statuses);
+        assertEquals(0, HttpResponseCache.shared().getHits());
+    }
+
+    @Test
+    void truncatedDiskEntriesFail() throws IOException {
+        Path directory = Files.createTempDirectory("http-cache");
+        byte[] body = "{\"items\":[1,2,3]}".repeat(100).getBytes(StandardCharsets.UTF_8);
+        HttpResponseCache.builder().disk(directory, 1 << 20).build()
+                .store("https://api.example.com/a", "Bearer a", "\"a\"", null, "application/json", body);
+        try (Stream<Path> files = Files.list(directory)) {
+            Path file = files.findFirst().orElseThrow();
+            byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(bytes, bytes.length - 20));
+        }
+
+        HttpResponseCache.Entry entry = HttpResponseCache.builder().disk(directory, 1 << 20).build().lookup("https://api.example.com/a", "Bearer a");
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertThrows(IllegalStateException.class, entry::getBody));
+    }
+
+    @Test
+    void restTemplateNotModifiedResponsesKeepTheStoredHeaders() {
+        HttpResponseCache cache = HttpResponseCache.builder().build();
+        RestTemplate restTemplate = restTemplate(cache);
+
+        ResponseEntity<byte[]> first = restTemplate.getForEntity(server.baseUrl() + "/encoded", byte[].class);
+        ResponseEntity<byte[]> second = restTemplate.getForEntity(server.baseUrl() + "/encoded", byte[].class);
+
+        assertEquals(List.of(200, 304), statuses);
+        assertEquals(1, cache.getHits());
+        assertEquals(200, second.getStatusCode().value());
+        assertArrayEquals(first.getBody(), second.getBody());
+        assertEquals("gzip", second.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("application/json", second.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+        assertEquals("\"v1\"", second.getHeaders().getETag());
+        // Headers of the 304 replace the stored ones.
+        assertEquals("99", second.getHeaders().getFirst("X-RateLimit-Remaining"));
+    }
+
+    @Test
+    void restTemplateResponsesAreCachedPerVariedRequestHeader() {
+        HttpResponseCache cache = HttpResponseCache.builder().build();
+        RestTemplate restTemplate = restTemplate(cache);
+
+        List<String> languages = new ArrayList<>();
+        for (String language : List.of("en", "fr", "en", "fr")) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.ACCEPT_LANGUAGE, language);
+            ResponseEntity<String> response = restTemplate.exchange(server.baseUrl() + "/localized", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+            languages.add(response.getBody());
+        }
+
+        assertEquals(List.of(200, 200, 304, 304), statuses);
+        assertEquals(List.of("{\"language\":\"en\"}", "{\"language\":\"fr\"}", "{\"language\":\"en\"}", "{\"language\":\"fr\"}"), languages);
+    }
+
+    @Test
+    void diskTierKeepsTheStoredHeaders() throws IOException {
+        Path directory = Files.createTempDirectory("http-cache");
+        HttpResponseCache.builder().disk(directory, 1 << 20).build().store("https://api.example.com/a", "Bearer a", name -> null,
+                Map.of("ETag", List.of("\"a\""), "Content-Encoding", List.of("gzip"), "Set-Cookie", List.of("session=1")), gzip("{}"));
+
+        HttpResponseCache.Entry entry = HttpResponseCache.builder().disk(directory, 1 << 20).build().lookup("https://api.example.com/a", "Bearer a");
+        assertEquals("\"a\"", entry.getETag());
+        assertEquals("gzip", entry.getHeader("content-encoding"));
+        assertNull(entry.getHeader("Set-Cookie"));
+        assertArrayEquals(gzip("{}"), entry.getBody());
+    }
+
+    private static RestTemplate restTemplate(HttpResponseCache cache) {
+        RestTemplate restTemplate = new RestTemplate(new SimpleClientHttpRequestFactory());
+        restTemplate.getInterceptors().add(new HttpResponseCacheInterceptor(cache));
+        return restTemplate;
+    }
+
+    private static byte[] gzip(String body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private HttpURLConnection get(String authorization) {
+        return HttpHelper.buildHttpURLConnection(server.baseUrl() + "/repos", "GET", "application/json", false, authorization, "appId");
+    }
+}
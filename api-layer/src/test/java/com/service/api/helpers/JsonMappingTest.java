@@ -0,0 +1,94 @@
+package com.service.api.helpers;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonMappingTest {
+    private static final String ISSUES = "{\"total\":2,\"issues\":["
+            + "{\"id\":\"10001\",\"key\":\"OPS-1\",\"fields\":{\"summary\":\"Disk full\",\"votes\":{\"votes\":3},\"flagged\":true}},"
+            + "{\"id\":\"10002\",\"key\":\"OPS-2\",\"fields\":{\"summary\":\"Slow query\"}}],\"names\":{}}";
+
+    record Issue(String key, String summary, int votes, Boolean flagged) {
+    }
+
+    private static final JsonMapping<Map<String, Object>> ISSUE_MAP = JsonMapping.builder()
+            .field("id", "id")
+            .field("key", "key")
+            .field("summary", "fields.summary")
+            .field("votes", "fields.votes.votes", Integer.class)
+            .toMap();
+
+    private static final JsonMapping<Issue> ISSUE_RECORD = JsonMapping.builder()
+            .field("key", "key")
+            .field("summary", "fields.summary")
+            .field("votes", "fields.votes.votes")
+            .field("flagged", "fields.flagged")
+            .toRecord(Issue.class);
+
+    @Test
+    void mapArrayToMaps() {
+        List<Map<String, Object>> issues = ISSUE_MAP.mapArray(JsonParser.parseString(ISSUES), "issues");
+
+        assertEquals(2, issues.size());
+        assertEquals(Map.of("id", "10001", "key", "OPS-1", "summary", "Disk full", "votes", 3), issues.get(0));
+        assertEquals("Slow query", issues.get(1).get("summary"));
+        assertNull(issues.get(1).get("votes"));
+        assertTrue(issues.get(1).containsKey("votes"));
+    }
+
+    @Test
+    void mapArrayToRecords() {
+        List<Issue> issues = ISSUE_RECORD.mapArray(OrgJsonNodeAccessor.INSTANCE, new JSONObject(ISSUES), "issues");
+
+        assertEquals(List.of(new Issue("OPS-1", "Disk full", 3, true), new Issue("OPS-2", "Slow query", 0, null)), issues);
+    }
+
+    @Test
+    void mapSingleElement() {
+        JsonElement issue = JsonParser.parseString(ISSUES).getAsJsonObject().getAsJsonArray("issues").get(0);
+        assertEquals("OPS-1", ISSUE_RECORD.map(issue).key());
+    }
+
+    @Test
+    void streamMapsArrayElements() throws IOException {
+        List<Issue> issues = ISSUE_RECORD.readArray(new JsonReader(new StringReader(ISSUES)), "issues");
+        assertEquals(ISSUE_RECORD.mapArray(JsonParser.parseString(ISSUES), "issues"), issues);
+
+        assertTrue(ISSUE_MAP.readArray(new JsonReader(new StringReader(ISSUES)), "missing").isEmpty());
+        assertEquals(2, ISSUE_MAP.readArray(new JsonReader(new StringReader("[{\"id\":\"1\"},{}]")), "").size());
+        assertThrows(IllegalArgumentException.class, () -> ISSUE_MAP.readArray(new JsonReader(new StringReader(ISSUES)), "issues[0]"));
+    }
+
+    @Test
+    void streamReadsFirstMatchOfMultiValuedPaths() throws IOException {
+        String projects = "[{\"key\":\"OPS\",\"components\":[{\"name\":\"db\"},{\"name\":\"web\"}]},{\"key\":\"DEV\",\"components\":[]}]";
+        JsonMapping<Map<String, Object>> mapping = JsonMapping.builder()
+                .field("key", "key")
+                .field("component", "components[*].name")
+                .toMap();
+
+        List<Map<String, Object>> streamed = mapping.readArray(new JsonReader(new StringReader(projects)), "");
+        assertEquals(mapping.mapArray(JsonParser.parseString(projects), ""), streamed);
+        assertEquals("db", streamed.get(0).get("component"));
+        assertNull(streamed.get(1).get("component"));
+    }
+
+    @Test
+    void buildRejectsInvalidSpecs() {
+        assertThrows(IllegalArgumentException.class, () -> JsonMapping.builder().field("votes", "votes", Double.class));
+        assertThrows(IllegalArgumentException.class, () -> JsonMapping.builder().field("key", "key").toRecord(Issue.class));
+        assertThrows(IllegalArgumentException.class, () -> JsonMapping.builder()
+                .field("key", "key").field("summary", "summary").field("votes", "votes", Long.class).field("flagged", "flagged")
+                .toRecord(Issue.class));
+    }
+}
@@ -0,0 +1,75 @@
+package com.service.api.helpers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonNodeAccessorTest {
+    private static final String DOCUMENT = "{\"access_token\":\"token\",\"expires_in\":3600,\"size\":3000000000,\"ok\":true,\"empty\":null,"
+            + "\"members\":[{\"id\":\"U1\",\"name\":\"one\"},{\"id\":\"U2\",\"name\":\"two\"}]}";
+
+    private static final JsonMapping<Map<String, Object>> SIZE = JsonMapping.builder().field("size", "size", Integer.class).toMap();
+
+    @Test
+    void gsonTreeIsQueried() {
+        JsonElement element = JsonParser.parseString(DOCUMENT);
+        assertAllBackendsAgree(GsonNodeAccessor.INSTANCE, element);
+    }
+
+    @Test
+    void jacksonTreeIsQueried() throws IOException {
+        JsonNode node = new ObjectMapper().readTree(DOCUMENT);
+        assertAllBackendsAgree(JacksonNodeAccessor.INSTANCE, node);
+    }
+
+    @Test
+    void orgJsonTreeIsQueried() {
+        Object node = new JSONObject(DOCUMENT);
+        assertAllBackendsAgree(OrgJsonNodeAccessor.INSTANCE, node);
+    }
+
+    @Test
+    void jsonTapeIsQueried() {
+        JsonTape.Node node = JsonTape.parse(DOCUMENT.getBytes(StandardCharsets.UTF_8)).getRoot();
+        assertAllBackendsAgree(JsonTapeNodeAccessor.INSTANCE, node);
+    }
+
+    @Test
+    void intValuesAreTruncatedOnEveryEntryPoint() {
+        JsonElement element = JsonParser.parseString(DOCUMENT);
+        CompiledJsonPath size = JsonPath.compile("size");
+
+        assertEquals((int) 3000000000L, JsonPath.getValue(element, "size", 0));
+        assertEquals((int) 3000000000L, JsonPath.getValues(element, size).getValue(size, 0));
+        assertEquals((int) 3000000000L, SIZE.map(element).get("size"));
+    }
+
+    private static <N> void assertAllBackendsAgree(JsonNodeAccessor<N> accessor, N root) {
+        assertEquals("token", JsonPath.getValue(accessor, root, "access_token"));
+        assertEquals(3600L, JsonPath.getValue(accessor, root, "expires_in", 0L));
+        assertEquals(3600, JsonPath.getValue(accessor, root, "expires_in", 0));
+        // Values out of the int range are truncated like Gson's getAsInt, whatever the entry point.
+        int truncated = JsonParser.parseString(DOCUMENT).getAsJsonObject().get("size").getAsInt();
+        assertEquals(truncated, JsonPath.getValue(accessor, root, "size", 0));
+        assertEquals(truncated, SIZE.map(accessor, root).get("size"));
+        assertTrue(JsonPath.getValue(accessor, root, "ok", false));
+        assertEquals("two", JsonPath.getValue(accessor, root, "members[1].name"));
+        assertEquals("one", JsonPath.getValue(accessor, root, "members[id=U1].name"));
+        assertEquals(List.of("U1", "U2"), JsonPath.stream(accessor, root, "members[*].id")
+                .map(accessor::getAsString).collect(Collectors.toList()));
+        assertTrue(JsonPath.hasValue(accessor, root, "empty"));
+        assertNull(JsonPath.getValue(accessor, root, "empty"));
+        assertFalse(JsonPath.hasValue(accessor, root, "missing.field"));
+    }
+}
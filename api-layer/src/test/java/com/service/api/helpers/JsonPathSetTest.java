@@ -0,0 +1,111 @@
+package com.service.api.helpers;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonPathSetTest {
+    private static final String DOCUMENT = "{\"ok\":true,\"skipped\":{\"x\":[1,2,3]},"
+            + "\"team\":{\"id\":\"T1\",\"name\":\"Acme\"},\"authed_user\":{\"id\":\"U1\"},"
+            + "\"members\":[{\"id\":\"a\"},{\"id\":\"b\",\"profile\":{\"email\":\"b@acme.com\"}}]}";
+
+    @Test
+    void extractReturnsRequestedValues() throws IOException {
+        JsonPathSet paths = JsonPathSet.of("team.id", "team.name", "authed_user.id", "members[1].profile.email", "ok");
+        JsonPathValues values = paths.extract(stream(DOCUMENT));
+
+        assertEquals("T1", values.getValue(JsonPath.compile("team.id")));
+        assertEquals("Acme", values.getValue(JsonPath.compile("team.name")));
+        assertEquals("U1", values.getValue(JsonPath.compile("authed_user.id")));
+        assertEquals("b@acme.com", values.getValue(JsonPath.compile("members[1].profile.email")));
+        assertTrue(values.getValue(JsonPath.compile("ok"), false));
+    }
+
+    @Test
+    void extractResolvesPathsNestedUnderRequestedObject() throws IOException {
+        JsonPathValues values = JsonPathSet.of("team", "team.id").extract(stream(DOCUMENT));
+
+        assertTrue(values.getElement("team").isJsonObject());
+        assertEquals("T1", values.getValue(JsonPath.compile("team.id")));
+    }
+
+    @Test
+    void extractReturnsNullForMissingPaths() throws IOException {
+        JsonPathValues values = JsonPathSet.of("missing.id", "members[5].id").extract(stream(DOCUMENT));
+
+        assertNull(values.getElement("missing.id"));
+        assertFalse(values.hasValue(JsonPath.compile("members[5].id")));
+    }
+
+    @Test
+    void extractHandlesEmptyStream() throws IOException {
+        JsonPathValues values = JsonPathSet.of("team.id").extract(stream(""));
+        assertNull(values.getElement("team.id"));
+    }
+
+    @Test
+    void getElementRejectsPathNotInSet() throws IOException {
+        JsonPathValues values = JsonPathSet.of("team.id").extract(stream(DOCUMENT));
+        assertThrows(IllegalArgumentException.class, () -> values.getElement("team.name"));
+    }
+
+    @Test
+    void extractResolvesKeySelectors() throws IOException {
+        JsonPathValues values = JsonPathSet.of("members[id=b].profile.email").extract(stream(DOCUMENT));
+        assertEquals("b@acme.com", values.getValue(JsonPath.compile("members[id=b].profile.email")));
+    }
+
+    @Test
+    void extractCollectsMultiValuedPaths() throws IOException {
+        JsonPathValues values = JsonPathSet.of("members[*].id", "members[1:].id", "members[0].id").extract(stream(DOCUMENT));
+
+        assertEquals("[\"a\",\"b\"]", values.getElement("members[*].id").toString());
+        assertEquals("[\"b\"]", values.getElement("members[1:].id").toString());
+        assertEquals("a", values.getValue(JsonPath.compile("members[0].id")));
+    }
+
+    @Test
+    void projectKeepsOnlyRequestedPaths() throws IOException {
+        JsonPathSet paths = JsonPathSet.of("team.id", "authed_user", "members[1].profile.email", "missing.id");
+        String expected = "{\"team\":{\"id\":\"T1\"},\"authed_user\":{\"id\":\"U1\"},"
+                + "\"members\":[null,{\"profile\":{\"email\":\"b@acme.com\"}}]}";
+
+        assertEquals(JsonParser.parseString(expected), paths.project(JsonParser.parseString(DOCUMENT)));
+        assertEquals(JsonParser.parseString(expected), paths.project(new JsonReader(new StringReader(DOCUMENT))));
+    }
+
+    @Test
+    void projectKeepsArrayPositionsForSelectors() throws IOException {
+        JsonPathSet paths = JsonPathSet.of("members[*].id", "members[id=b].profile", "skipped.x[-1:]");
+        JsonObject projection = paths.project(new JsonReader(new StringReader(DOCUMENT)));
+
+        assertEquals(JsonParser.parseString("{\"members\":[{\"id\":\"a\"},{\"id\":\"b\",\"profile\":{\"email\":\"b@acme.com\"}}],"
+                + "\"skipped\":{\"x\":[null,null,3]}}"), projection);
+        assertEquals("b@acme.com", JsonPath.getValue(projection, "members[id=b].profile.email"));
+        assertEquals(3, JsonPath.getValue(projection, "skipped.x[2]", 0));
+    }
+
+    @Test
+    void projectReturnsNewObject() {
+        JsonElement document = JsonParser.parseString(DOCUMENT);
+        JsonObject projection = JsonPath.project(document, Set.of(JsonPath.compile("team")));
+
+        projection.getAsJsonObject("team").addProperty("id", "T2");
+        assertEquals("T1", JsonPath.getValue(document, "team.id"));
+        assertEquals("{}", JsonPath.project(document, Set.of(JsonPath.compile("missing"))).toString());
+    }
+
+    private static ByteArrayInputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,9 +1,16 @@
 package com.service.api.helpers;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import org.junit.jupiter.api.Test;
 
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class JsonPathTest {
@@ -30,5 +37,215 @@ class JsonPathTest {
         JsonObject obj = JsonParser.parseString("{\"a\":{\"b\":\"c\"}} ").getAsJsonObject();
         assertEquals("default", JsonPath.getValue(obj, "a.x", "default"));
     }
-}
 
+    @Test
+    void compileReturnsCachedInstance() {
+        assertSame(JsonPath.compile("a.b[1].c"), JsonPath.compile("a.b[1].c"));
+        assertEquals(3, JsonPath.compile("a.b[1].c").size());
+    }
+
+    @Test
+    void compiledPathResolvesArrayIndex() {
+        JsonObject obj = JsonParser.parseString("{\"a\":{\"b\":[{\"c\":1},{\"c\":2}]}}").getAsJsonObject();
+        CompiledJsonPath path = JsonPath.compile("a.b[1].c");
+        assertEquals(2, JsonPath.getValue(obj, path, 0));
+        assertEquals(2L, JsonPath.getValue(obj, "a.b[1].c", 0L));
+        assertNull(JsonPath.getValue(obj, "a.b[2].c"));
+    }
+
+    @Test
+    void compiledPathSetsValue() {
+        JsonObject obj = new JsonObject();
+        JsonPath.setValue(obj, JsonPath.compile("a.list[1].name"), "x");
+        assertEquals("x", JsonPath.getValue(obj, "a.list[1].name"));
+        assertEquals(2, JsonPath.findArray(obj, "a.list").size());
+    }
+
+    @Test
+    void compileRejectsInvalidArrayIndex() {
+        assertThrows(IllegalArgumentException.class, () -> JsonPath.compile("a.b[x].c"));
+    }
+
+    @Test
+    void getValuesResolvesAllPathsInOneCall() {
+        JsonObject obj = JsonParser.parseString("{\"team\":{\"id\":\"T1\",\"name\":\"Acme\"},\"authed_user\":{\"id\":\"U1\"}}").getAsJsonObject();
+        CompiledJsonPath teamId = JsonPath.compile("team.id");
+        CompiledJsonPath teamName = JsonPath.compile("team.name");
+        CompiledJsonPath userId = JsonPath.compile("authed_user.id");
+        CompiledJsonPath missing = JsonPath.compile("team.missing");
+
+        JsonPathValues values = JsonPath.getValues(obj, teamId, teamName, userId, missing);
+
+        assertEquals("T1", values.getValue(teamId));
+        assertEquals("Acme", values.getValue(teamName));
+        assertEquals("U1", values.getValue(userId));
+        assertEquals("default", values.getValue(missing, "default"));
+    }
+
+    @Test
+    void keySelectorFindsArrayElement() {
+        JsonObject obj = JsonParser.parseString("{\"members\":[{\"id\":\"U1\",\"profile\":{\"email\":\"a@acme.com\"}},"
+                + "{\"id\":\"U2\",\"profile\":{\"email\":\"b@acme.com\"}}]}").getAsJsonObject();
+        assertEquals("b@acme.com", JsonPath.getValue(obj, "members[id=U2].profile.email"));
+        assertEquals("U1", JsonPath.getValue(obj, "members[profile.email=\"a@acme.com\"].id"));
+        assertNull(JsonPath.getValue(obj, "members[id=U3].profile.email"));
+    }
+
+    @Test
+    void keySelectorUsesIndexOnLargeArrays() {
+        JsonObject obj = new JsonObject();
+        JsonArray members = JsonPath.createArray(obj, "members");
+        for (int i = 0; i < 1000; i++) {
+            JsonObject member = new JsonObject();
+            member.addProperty("id", "U" + i);
+            members.add(member);
+        }
+        assertTrue(JsonPath.hasValue(obj, "members[id=U999]"));
+
+        // The index is rebuilt once the array changes.
+        JsonPath.setValue(obj, "members[id=U1000].name", "new");
+        assertEquals("new", JsonPath.getValue(obj, "members[id=U1000].name"));
+        assertEquals(1001, members.size());
+    }
+
+    @Test
+    void keySelectorFindsElementsEditedInPlace() {
+        JsonObject obj = new JsonObject();
+        JsonArray members = JsonPath.createArray(obj, "members");
+        for (int i = 0; i < 100; i++) {
+            JsonObject member = new JsonObject();
+            member.addProperty("id", "U" + i);
+            members.add(member);
+        }
+        assertTrue(JsonPath.hasValue(obj, "members[id=U50]"));
+
+        // Same size, the key was changed with JsonPath.
+        JsonPath.setValue(obj, "members[50].id", "X50");
+        assertTrue(JsonPath.hasValue(obj, "members[id=X50]"));
+        assertFalse(JsonPath.hasValue(obj, "members[id=U50]"));
+        JsonPath.writer(obj).set("members[id=X50].id", "Y50").write();
+        assertTrue(JsonPath.hasValue(obj, "members[id=Y50]"));
+
+        // Replaced by other code, the slot of the old key no longer matches.
+        JsonObject replaced = new JsonObject();
+        replaced.addProperty("id", "X60");
+        members.set(60, replaced);
+        assertFalse(JsonPath.hasValue(obj, "members[id=U60]"));
+        JsonPath.setValue(obj, "members[id=X60].name", "replaced");
+        assertEquals("replaced", replaced.get("name").getAsString());
+        assertEquals(100, members.size());
+    }
+
+    @Test
+    void keySelectorMissesDoNotWalkTheArray() {
+        JsonObject obj = new JsonObject();
+        JsonArray members = JsonPath.createArray(obj, "members");
+        for (int i = 0; i < 1000; i++) {
+            JsonObject member = new JsonObject();
+            member.addProperty("id", "U" + i);
+            members.add(member);
+        }
+        AtomicInteger reads = new AtomicInteger();
+        JsonNodeAccessor<JsonElement> counting = new JsonNodeAccessor<>() {
+            @Override
+            public boolean isObject(JsonElement node) {
+                return GsonNodeAccessor.INSTANCE.isObject(node);
+            }
+
+            @Override
+            public boolean isArray(JsonElement node) {
+                return GsonNodeAccessor.INSTANCE.isArray(node);
+            }
+
+            @Override
+            public boolean isPrimitive(JsonElement node) {
+                return GsonNodeAccessor.INSTANCE.isPrimitive(node);
+            }
+
+            @Override
+            public JsonElement getField(JsonElement object, String name) {
+                return GsonNodeAccessor.INSTANCE.getField(object, name);
+            }
+
+            @Override
+            public int size(JsonElement array) {
+                return GsonNodeAccessor.INSTANCE.size(array);
+            }
+
+            @Override
+            public JsonElement getElement(JsonElement array, int index) {
+                reads.incrementAndGet();
+                return GsonNodeAccessor.INSTANCE.getElement(array, index);
+            }
+
+            @Override
+            public String getAsString(JsonElement primitive) {
+                return GsonNodeAccessor.INSTANCE.getAsString(primitive);
+            }
+
+            @Override
+            public boolean getAsBoolean(JsonElement primitive) {
+                return GsonNodeAccessor.INSTANCE.getAsBoolean(primitive);
+            }
+
+            @Override
+            public long getAsLong(JsonElement primitive) {
+                return GsonNodeAccessor.INSTANCE.getAsLong(primitive);
+            }
+        };
+        assertTrue(JsonPath.hasValue(counting, obj, "members[id=U999]"));
+
+        reads.set(0);
+        for (int i = 0; i < 100; i++) {
+            assertFalse(JsonPath.hasValue(counting, obj, "members[id=absent" + i + "]"));
+        }
+        assertEquals(0, reads.get());
+
+        // Appending keyed elements keeps the index, the next lookup is not a rebuild.
+        JsonPath.setValue(obj, "members[id=U1000].name", "new");
+        reads.set(0);
+        assertEquals("new", JsonPath.getValue(counting, obj, "members[id=U1000].name"));
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    void keySelectorSetsValueOnExistingElement() {
+        JsonObject obj = JsonParser.parseString("{\"members\":[{\"id\":\"U1\"}]}").getAsJsonObject();
+        JsonPath.setValue(obj, "members[id=U1].name", "one");
+        assertEquals("one", JsonPath.getValue(obj, "members[0].name"));
+        assertEquals(1, JsonPath.findArray(obj, "members").size());
+    }
+
+    @Test
+    void streamExpandsWildcardsAndSlices() {
+        JsonObject obj = JsonParser.parseString("{\"issues\":[{\"key\":\"A-1\",\"fields\":{\"summary\":\"s1\"}},"
+                + "{\"key\":\"A-2\"},{\"key\":\"A-3\",\"fields\":{\"summary\":\"s3\"}}]}").getAsJsonObject();
+
+        assertEquals(List.of("s1", "s3"), JsonPath.stream(obj, "issues[*].fields.summary").map(JsonElement::getAsString).collect(Collectors.toList()));
+        assertEquals(List.of("A-2", "A-3"), JsonPath.stream(obj, "issues[1:].key").map(JsonElement::getAsString).collect(Collectors.toList()));
+        assertEquals(List.of("A-3"), JsonPath.stream(obj, "issues[-1:].key").map(JsonElement::getAsString).collect(Collectors.toList()));
+        assertEquals("A-1", JsonPath.getValue(obj, "issues[*].key"));
+    }
+
+    @Test
+    void streamIsLazy() {
+        JsonObject obj = new JsonObject();
+        JsonArray items = JsonPath.createArray(obj, "items");
+        for (int i = 0; i < 10; i++) {
+            items.add(i);
+        }
+        Iterator<JsonElement> iterator = JsonPath.iterator(obj, JsonPath.compile("items[*]"));
+        assertEquals(0, iterator.next().getAsInt());
+
+        // Elements appended after the first match are still seen, nothing was copied up front.
+        items.add(10);
+        assertEquals(11, JsonPath.stream(obj, "items[*]").count());
+        assertEquals(List.of(5, 6), JsonPath.stream(obj, "items[5:]").limit(2).map(JsonElement::getAsInt).collect(Collectors.toList()));
+    }
+
+    @Test
+    void setValueRejectsMultiValuedPath() {
+        JsonObject obj = JsonParser.parseString("{\"items\":[{}]}").getAsJsonObject();
+        assertThrows(IllegalArgumentException.class, () -> JsonPath.setValue(obj, "items[*].name", "x"));
+    }
+}
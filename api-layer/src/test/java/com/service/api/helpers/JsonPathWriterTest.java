@@ -0,0 +1,104 @@
+package com.service.api.helpers;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonPathWriterTest {
+
+    @Test
+    void writeCreatesSharedParentsOnce() {
+        JsonObject payload = new JsonObject();
+        JsonObject icon = new JsonObject();
+        icon.addProperty("image_34", "https://a.slack-edge.com/34.png");
+
+        JsonPath.writer(payload)
+                .set("team.id", "T1")
+                .set("team.name", "Acme")
+                .set("team.icon", icon)
+                .set("team.icon.image_44", "https://a.slack-edge.com/44.png")
+                .set("ok", true)
+                .set("members[1].id", "U2")
+                .set("members[id=U3].is_admin", true)
+                .set("channels", new JsonArray())
+                .set("count", 2)
+                .write();
+
+        assertEquals("{\"team\":{\"id\":\"T1\",\"name\":\"Acme\",\"icon\":{\"image_34\":\"https://a.slack-edge.com/34.png\","
+                + "\"image_44\":\"https://a.slack-edge.com/44.png\"}},\"ok\":true,"
+                + "\"members\":[{},{\"id\":\"U2\"},{\"id\":\"U3\",\"is_admin\":true}],\"channels\":[],\"count\":2}", payload.toString());
+    }
+
+    @Test
+    void writeUpdatesExistingElements() {
+        JsonObject payload = JsonParser.parseString("{\"team\":{\"id\":\"T1\"},\"members\":[{\"id\":\"U1\"}]}").getAsJsonObject();
+
+        JsonPath.writer(payload)
+                .set("team.name", "Acme")
+                .set("members[id=U1].name", "alice")
+                .write();
+
+        assertEquals("T1", JsonPath.getValue(payload, "team.id"));
+        assertEquals("Acme", JsonPath.getValue(payload, "team.name"));
+        assertEquals("alice", JsonPath.getValue(payload, "members[0].name"));
+        assertEquals(1, payload.getAsJsonArray("members").size());
+    }
+
+    @Test
+    void laterWriteReplacesEarlierWrites() {
+        JsonObject payload = new JsonObject();
+
+        JsonPath.writer(payload)
+                .set("team.id", "T1")
+                .set("team", new JsonObject())
+                .set("name", "first")
+                .set("name", (String) null)
+                .write();
+
+        assertEquals("{\"team\":{},\"name\":null}", payload.toString());
+    }
+
+    @Test
+    void writeClearsPendingWrites() {
+        JsonObject payload = new JsonObject();
+        JsonPathWriter writer = JsonPath.writer(payload).set("id", "T1");
+
+        writer.write();
+        payload.remove("id");
+        writer.write();
+
+        assertFalse(payload.has("id"));
+    }
+
+    @Test
+    void setRejectsPathsWithoutSingleField() {
+        JsonPathWriter writer = JsonPath.writer(new JsonObject());
+
+        assertThrows(IllegalArgumentException.class, () -> writer.set("members[*].id", "U1"));
+        assertThrows(IllegalArgumentException.class, () -> writer.set("members[0]", "U1"));
+    }
+
+    @Test
+    void writeRejectsFieldOfWrongType() {
+        JsonObject payload = JsonParser.parseString("{\"team\":\"T1\",\"members\":{}}").getAsJsonObject();
+
+        assertThrows(IllegalArgumentException.class, () -> JsonPath.writer(payload).set("team.id", "T1").write());
+        assertThrows(IllegalArgumentException.class, () -> JsonPath.writer(payload).set("members[0].id", "U1").write());
+    }
+
+    @Test
+    void setRejectsFieldsAndElementsBelowSameField() {
+        JsonObject payload = new JsonObject();
+
+        JsonPathWriter writer = JsonPath.writer(payload).set("a.x", 1);
+        assertThrows(IllegalArgumentException.class, () -> writer.set("a[0].y", 2));
+        assertThrows(IllegalArgumentException.class, () -> JsonPath.writer(payload).set("b[0].y", 2).set("b.x", 1));
+
+        // The earlier write is kept.
+        writer.write();
+        assertEquals("{\"a\":{\"x\":1}}", payload.toString());
+    }
+}
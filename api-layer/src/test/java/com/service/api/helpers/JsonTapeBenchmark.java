@@ -0,0 +1,74 @@
+package com.service.api.helpers;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a few paths out of a large users.list style response through a Gson tree, a streaming
+ * {@link JsonPathSet} and a {@link JsonTape}. Run with {@code mvn -pl api-layer test-compile} and then {@link #main}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonTapeBenchmark {
+    private static final CompiledJsonPath CURSOR = JsonPath.compile("response_metadata.next_cursor");
+    private static final CompiledJsonPath LAST_EMAIL = JsonPath.compile("members[-1:].profile.email");
+
+    @Param({"1000", "20000"})
+    public int members;
+
+    private byte[] document;
+    private JsonPathSet pathSet;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder("{\"ok\":true,\"members\":[");
+        for (int i = 0; i < members; i++) {
+            builder.append(i > 0 ? "," : "")
+                    .append("{\"id\":\"U").append(i).append("\",\"team_id\":\"T1\",\"name\":\"user").append(i)
+                    .append("\",\"deleted\":false,\"tz\":\"America/Los_Angeles\",\"profile\":{\"real_name\":\"User ").append(i)
+                    .append("\",\"title\":\"Engineer\",\"email\":\"user").append(i).append("@acme.com\",\"image_72\":\"https://avatars.slack-edge.com/")
+                    .append(i).append(".png\"},\"is_admin\":false,\"updated\":1502138686}");
+        }
+        document = builder.append("],\"response_metadata\":{\"next_cursor\":\"dXNlcjpVMEc5V0ZYTlo=\"}}").toString().getBytes(StandardCharsets.UTF_8);
+        pathSet = JsonPathSet.of(CURSOR, LAST_EMAIL);
+    }
+
+    @Benchmark
+    public void gsonTree(Blackhole blackhole) {
+        JsonElement element = JsonParser.parseString(new String(document, StandardCharsets.UTF_8));
+        blackhole.consume(JsonPath.getValue(element, CURSOR));
+        blackhole.consume(JsonPath.getValue(element, LAST_EMAIL));
+    }
+
+    @Benchmark
+    public void gsonStream(Blackhole blackhole) throws IOException {
+        JsonPathValues values = pathSet.extract(new ByteArrayInputStream(document));
+        blackhole.consume(values.getElement(CURSOR));
+        blackhole.consume(values.getElement(LAST_EMAIL));
+    }
+
+    @Benchmark
+    public void jsonTape(Blackhole blackhole) {
+        JsonTape.Node root = JsonTape.parse(document).getRoot();
+        blackhole.consume(JsonPath.getValue(JsonTapeNodeAccessor.INSTANCE, root, CURSOR, (String) null));
+        blackhole.consume(JsonPath.getValue(JsonTapeNodeAccessor.INSTANCE, root, LAST_EMAIL, (String) null));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JsonTapeBenchmark.class.getSimpleName()).build()).run();
+    }
+}
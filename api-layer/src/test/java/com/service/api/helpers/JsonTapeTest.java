@@ -0,0 +1,62 @@
+package com.service.api.helpers;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonTapeTest {
+    private static final String DOCUMENT = " {\"ok\" : true, \"members\" : [ {\"id\":\"U1\",\"profile\":{\"title\":\"a \\\"quoted\\\" \\u00e9t\\u00e9\\n\"}},"
+            + " {\"id\":\"U2\",\"tags\":[[], {}, [1, [2]]],\"name\":\"Zo\u00eb\",\"score\":1.5e2} ], \"caf\\u00e9\":\"x\", \"count\": -12 } ";
+
+    @Test
+    void valuesMatchGson() {
+        JsonElement element = JsonParser.parseString(DOCUMENT);
+        JsonTape.Node root = JsonTape.parse(DOCUMENT.getBytes(StandardCharsets.UTF_8)).getRoot();
+
+        for (String path : new String[]{"ok", "members[0].id", "members[0].profile.title", "members[1].name", "members[1].score",
+                "members[id=U2].name", "caf\u00e9", "count", "members[2].id", "missing"}) {
+            assertEquals(JsonPath.getValue(element, path), JsonPath.getValue(JsonTapeNodeAccessor.INSTANCE, root, path), path);
+        }
+        assertEquals(150L, JsonPath.getValue(JsonTapeNodeAccessor.INSTANCE, root, "members[1].score", 0L));
+        assertEquals(-12, JsonPath.getValue(JsonTapeNodeAccessor.INSTANCE, root, "count", 0));
+    }
+
+    @Test
+    void arraysAndObjectsAreNavigated() {
+        JsonTape.Node root = JsonTape.parse(DOCUMENT.getBytes(StandardCharsets.UTF_8)).getRoot();
+        JsonTape.Node tags = root.getField("members").getElement(1).getField("tags");
+
+        assertEquals(3, tags.size());
+        assertEquals(0, tags.getElement(0).size());
+        assertTrue(tags.getElement(1).isObject());
+        assertNull(tags.getElement(1).getField("id"));
+        assertEquals("[1, [2]]", tags.getElement(2).toString());
+        assertEquals(2, JsonPath.stream(JsonTapeNodeAccessor.INSTANCE, root, "members[*].id").count());
+    }
+
+    @Test
+    void containerNodesAreReused() {
+        JsonTape.Node root = JsonTape.parse(DOCUMENT.getBytes(StandardCharsets.UTF_8)).getRoot();
+
+        assertSame(root.getField("members"), root.getField("members"));
+        assertSame(root.getField("members").getElement(1), root.getField("members").getElement(1));
+    }
+
+    @Test
+    void scalarAndEmptyDocuments() {
+        assertEquals("x", JsonTape.parse(ByteBuffer.wrap("  \"x\" ".getBytes(StandardCharsets.UTF_8))).getRoot().getAsString());
+        assertTrue(JsonTape.parse("null".getBytes(StandardCharsets.UTF_8)).getRoot().isNull());
+        assertNull(JsonTape.parse(" ".getBytes(StandardCharsets.UTF_8)).getRoot());
+    }
+
+    @Test
+    void parseRejectsUnbalancedBrackets() {
+        assertThrows(IllegalArgumentException.class, () -> JsonTape.parse("{\"a\":[1}".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IllegalArgumentException.class, () -> JsonTape.parse("{\"a\":{}".getBytes(StandardCharsets.UTF_8)));
+    }
+}
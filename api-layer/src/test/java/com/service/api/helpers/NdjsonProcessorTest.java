@@ -0,0 +1,92 @@
+package com.service.api.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NdjsonProcessorTest {
+    private static final String EXPORT = "{\"type\":\"user\",\"id\":\"U1\",\"profile\":{\"email\":\"a@acme.com\",\"title\":\"x\"}}\n"
+            + "{\"type\":\"bot\",\"id\":\"B1\"}\r\n"
+            + "\n"
+            + "{\"type\":\"user\",\"id\":\"U2\",\"roles\":[\"admin\",\"owner\"]}";
+
+    @Test
+    void processFiltersAndProjectsLines() throws IOException {
+        NdjsonProcessor processor = NdjsonProcessor.builder()
+                .filter("type", "user"::equals)
+                .project("id", "profile.email")
+                .build();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertEquals(2, processor.process(stream(EXPORT), output));
+        assertEquals("{\"id\":\"U1\",\"profile\":{\"email\":\"a@acme.com\"}}\n{\"id\":\"U2\"}\n", output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void processCopiesMatchingLinesWithoutProjection() throws IOException {
+        NdjsonProcessor processor = NdjsonProcessor.builder().filter("roles[*]", "owner"::equals).build();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertEquals(1, processor.process(stream(EXPORT), output));
+        assertEquals("{\"type\":\"user\",\"id\":\"U2\",\"roles\":[\"admin\",\"owner\"]}\n", output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void processKeepsInputOrderAcrossBatches() throws IOException {
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            input.append("{\"n\":").append(i).append(",\"even\":").append(i % 2 == 0).append("}\n");
+            if (i % 2 == 0) {
+                expected.append("{\"n\":").append(i).append("}\n");
+            }
+        }
+        Path file = Files.createTempFile("export", ".ndjson");
+        try {
+            Files.writeString(file, input);
+            NdjsonProcessor processor = NdjsonProcessor.builder()
+                    .filter("even", "true"::equals)
+                    .project("n")
+                    .parallelism(4)
+                    .batchSize(100)
+                    .build();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+            assertEquals(2500, processor.process(file, output));
+            assertEquals(expected.toString(), output.toString(StandardCharsets.UTF_8));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void processRejectsMalformedLines() {
+        NdjsonProcessor processor = NdjsonProcessor.builder().project("id").build();
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> processor.process(stream("{\"id\":\"U1\"}\n{\"id\":[}\n"), new ByteArrayOutputStream()));
+        assertTrue(ex.getMessage().contains("offset 12"));
+    }
+
+    @Test
+    void processRejectsMalformedLinesWithoutProjection() {
+        NdjsonProcessor processor = NdjsonProcessor.builder().build();
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> processor.process(stream("{\"id\":\"U1\"}\n{\"id\" \"U2\",}\n"), new ByteArrayOutputStream()));
+        assertTrue(ex.getMessage().contains("offset 12"));
+        assertThrows(IllegalArgumentException.class, () -> processor.process(stream("{\"id\":tru}\n"), new ByteArrayOutputStream()));
+        assertThrows(IllegalArgumentException.class, () -> processor.process(stream("{} {}\n"), new ByteArrayOutputStream()));
+    }
+
+    private static ByteArrayInputStream stream(String ndjson) {
+        return new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8));
+    }
+}
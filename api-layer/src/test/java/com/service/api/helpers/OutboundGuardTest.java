@@ -0,0 +1,147 @@
+package com.service.api.helpers;
+
+import com.enterprise.agents.common.exception.CallNotPermittedException;
+import com.enterprise.agents.common.resilience.HostState;
+import com.enterprise.agents.common.resilience.OutboundGuard;
+import com.enterprise.agents.common.resilience.OutboundGuardEndpoint;
+import com.enterprise.agents.common.resilience.OutboundGuardInterceptor;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundGuardTest {
+    @RegisterExtension
+    final StubServer server = new StubServer();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final CountDownLatch slowStarted = new CountDownLatch(1);
+
+    @BeforeEach
+    void registerHandlers() {
+        server.context("/error", exchange -> respond(exchange, 500, "{\"error\":\"internal\"}"));
+        server.context("/ok", exchange -> respond(exchange, 200, "{\"ok\":true}"));
+        server.context("/slow", exchange -> {
+            slowStarted.countDown();
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, "{}");
+        });
+        HttpHelper.setRetryPolicy(RetryPolicy.none());
+    }
+
+    @Test
+    void circuitOpensOnFailuresAndClosesAfterProbes() throws Exception {
+        HttpHelper.setOutboundGuard(OutboundGuard.builder().window(4, 4).halfOpen(Duration.ofMillis(200), 1).build());
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(ServiceRuntimeException.class, () -> get("/error"));
+        }
+        assertThrows(CallNotPermittedException.class, () -> get("/ok"));
+        assertEquals(4, requests.get());
+        HostState open = HttpHelper.getOutboundGuard().getHostStates().get(0);
+        assertEquals("OPEN", open.state());
+        assertEquals(1, open.notPermittedCalls());
+
+        Thread.sleep(250);
+        get("/ok");
+        assertEquals("CLOSED", HttpHelper.getOutboundGuard().getHostStates().get(0).state());
+    }
+
+    @Test
+    void slowCallsOpenTheCircuit() {
+        HttpHelper.setOutboundGuard(OutboundGuard.builder().window(2, 2).halfOpen(Duration.ofSeconds(30), 1).slowCallThreshold(Duration.ofMillis(100), 50).build());
+
+        assertDoesNotThrow(() -> get("/slow"));
+        assertDoesNotThrow(() -> get("/ok"));
+        assertThrows(CallNotPermittedException.class, () -> get("/ok"));
+    }
+
+    @Test
+    void bulkheadRejectsCallsOverTheLimit() throws Exception {
+        HttpHelper.setOutboundGuard(OutboundGuard.builder().bulkhead(1, 0, Duration.ofMillis(10)).build());
+
+        CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> assertDoesNotThrow(() -> get("/slow")));
+        assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+        CallNotPermittedException ex = assertThrows(CallNotPermittedException.class, () -> get("/ok"));
+        assertEquals("127.0.0.1", ex.getHost());
+
+        slow.join();
+        assertDoesNotThrow(() -> get("/ok"));
+    }
+
+    @Test
+    void restTemplateFailuresOpenTheCircuitSharedWithHttpHelper() {
+        HttpHelper.setOutboundGuard(OutboundGuard.builder().window(4, 4).halfOpen(Duration.ofSeconds(30), 1).build());
+        RestTemplate restTemplate = restTemplate(HttpHelper.getOutboundGuard());
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(HttpServerErrorException.class, () -> restTemplate.getForObject(server.baseUrl() + "/error", String.class));
+        }
+
+        assertThrows(CallNotPermittedException.class, () -> get("/ok"));
+        assertThrows(CallNotPermittedException.class, () -> restTemplate.getForObject(server.baseUrl() + "/ok", String.class));
+        assertEquals(4, requests.get());
+    }
+
+    @Test
+    void endpointReportsTheStateOfEachHost() {
+        OutboundGuard guard = OutboundGuard.builder().window(2, 2).halfOpen(Duration.ofSeconds(30), 1).build();
+        RestTemplate restTemplate = restTemplate(guard);
+        String localhost = server.baseUrl().replace("127.0.0.1", "localhost");
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(HttpServerErrorException.class, () -> restTemplate.getForObject(server.baseUrl() + "/error", String.class));
+            restTemplate.getForObject(localhost + "/ok", String.class);
+        }
+        assertThrows(CallNotPermittedException.class, () -> restTemplate.getForObject(server.baseUrl() + "/ok", String.class));
+
+        Map<String, HostState> hosts = new OutboundGuardEndpoint(guard).hosts().stream()
+                .collect(Collectors.toMap(HostState::host, Function.identity()));
+        assertEquals(Set.of("127.0.0.1", "localhost"), hosts.keySet());
+        assertEquals("OPEN", hosts.get("127.0.0.1").state());
+        assertEquals(1, hosts.get("127.0.0.1").notPermittedCalls());
+        assertEquals("CLOSED", hosts.get("localhost").state());
+        assertEquals(0f, hosts.get("localhost").failureRate());
+        assertEquals(2, hosts.get("localhost").bufferedCalls());
+    }
+
+    private static RestTemplate restTemplate(OutboundGuard guard) {
+        RestTemplate restTemplate = new RestTemplate(new SimpleClientHttpRequestFactory());
+        restTemplate.getInterceptors().add(new OutboundGuardInterceptor(guard));
+        return restTemplate;
+    }
+
+    private void get(String path) throws IOException {
+        HttpHelper.sendHttpRequest(HttpHelper.buildHttpURLConnection(server.baseUrl() + path, "GET", "application/json", false, "appId"), "appId");
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        requests.incrementAndGet();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+}
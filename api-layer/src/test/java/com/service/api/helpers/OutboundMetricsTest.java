@@ -0,0 +1,153 @@
+package com.service.api.helpers;
+
+import com.enterprise.agents.common.config.RestTemplateConfig;
+import com.enterprise.agents.common.http.OutboundMetrics;
+import com.enterprise.agents.common.http.OutboundMetricsInterceptor;
+import com.enterprise.agents.common.resilience.OutboundGuard;
+import com.enterprise.agents.common.resilience.OutboundGuardInterceptor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundMetricsTest {
+    private static final String BODY = "{\"ok\":true}";
+
+    @RegisterExtension
+    final StubServer server = new StubServer();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @BeforeEach
+    void registerHandlers() {
+        server.context("/echo", exchange -> {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        // Unavailable for the first request.
+        server.context("/flaky", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            boolean unavailable = requests.incrementAndGet() == 1;
+            byte[] body = (unavailable ? "{}" : BODY).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Retry-After", "0");
+            exchange.sendResponseHeaders(unavailable ? 503 : 200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        HttpHelper.setRequestCoalescing(false);
+        HttpHelper.setResponseCaching(false);
+    }
+
+    @Test
+    void metersAreTaggedByIntegrationHostAndOperation() {
+        OutboundMetrics metrics = new OutboundMetrics(registry);
+        URI uri = URI.create("https://API.github.com/repos/123/issues");
+        metrics.onResponse("GET", uri, 200, TimeUnit.MILLISECONDS.toNanos(5), 0);
+        metrics.onResponse("GET", uri, 404, TimeUnit.MILLISECONDS.toNanos(5), 0);
+        metrics.onPoolWait(uri, TimeUnit.MILLISECONDS.toNanos(1));
+
+        assertEquals(1, registry.get(OutboundMetrics.REQUESTS)
+                .tags("integration", "GITHUB", "host", "api.github.com", "operation", "GET /repos/{id}/issues")
+                .tags("status", "200", "outcome", "SUCCESS")
+                .timer().count());
+        assertEquals(1, registry.get(OutboundMetrics.REQUESTS).tags("status", "404", "outcome", "CLIENT_ERROR").timer().count());
+        assertEquals(1, registry.get(OutboundMetrics.POOL_WAIT).tags("integration", "GITHUB", "host", "api.github.com").timer().count());
+
+        metrics.onFailure("GET", URI.create("http://localhost/health"), new SocketTimeoutException(), 1, -1);
+        assertEquals(1, registry.get(OutboundMetrics.REQUESTS)
+                .tags("integration", "other", "host", "localhost", "status", "TIMEOUT")
+                .timer().count());
+    }
+
+    @Test
+    void hostsAndOperationsPastTheMaximumAreTaggedOther() {
+        OutboundMetrics metrics = new OutboundMetrics(registry, 1, 1);
+        metrics.onResponse("GET", URI.create("https://api.github.com/repos/1"), 200, 1, 0);
+        for (int i = 0; i < 10; i++) {
+            metrics.onResponse("GET", URI.create("https://tenant" + i + ".atlassian.net/rest/api/search" + i), 200, 1, 0);
+        }
+
+        assertEquals(1, registry.get(OutboundMetrics.REQUESTS).tags("host", "api.github.com", "operation", "GET /repos/{id}").timer().count());
+        assertEquals(10, registry.get(OutboundMetrics.REQUESTS)
+                .tags("integration", "JIRA", "host", "other", "operation", "GET other")
+                .timer().count());
+        // One meter for the first host and operation, one for everything after them.
+        assertEquals(2, registry.find(OutboundMetrics.REQUESTS).timers().size());
+    }
+
+    @Test
+    void restTemplateBytesAreRecorded() {
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.getInterceptors().add(new OutboundMetricsInterceptor(new OutboundMetrics(registry)));
+        String payload = "{\"name\":\"metrics\"}";
+
+        assertEquals(payload, restTemplate.postForObject(server.baseUrl() + "/echo", payload, String.class));
+
+        assertEquals(1, registry.get(OutboundMetrics.REQUESTS).tags("host", "127.0.0.1", "operation", "POST /echo", "status", "200").timer().count());
+        assertEquals(payload.length(), registry.get(OutboundMetrics.REQUEST_SIZE).summary().totalAmount());
+        assertEquals(payload.length(), registry.get(OutboundMetrics.RESPONSE_SIZE).tags("operation", "POST /echo").summary().totalAmount());
+    }
+
+    @Test
+    void httpHelperRetriesAndBytesAreRecorded() throws IOException {
+        HttpHelper.setOutboundObserver(new OutboundMetrics(registry));
+        HttpURLConnection connection = HttpHelper.buildHttpURLConnection(server.baseUrl() + "/flaky", "GET", "application/json", false, null, "appId");
+
+        assertTrue(HttpHelper.sendHttpRequest(connection, "appId").getAsJsonObject().get("ok").getAsBoolean());
+
+        assertEquals(1, registry.get(OutboundMetrics.RETRIES).tags("host", "127.0.0.1", "operation", "GET /flaky").counter().count());
+        assertEquals(1, registry.get(OutboundMetrics.REQUESTS).tags("status", "503", "outcome", "SERVER_ERROR").timer().count());
+        assertEquals(1, registry.get(OutboundMetrics.REQUESTS).tags("status", "200").timer().count());
+        assertTrue(registry.get(OutboundMetrics.RESPONSE_SIZE).summary().totalAmount() >= BODY.length());
+    }
+
+    @Test
+    void everyRestTemplateBeanIsInstrumentedOnce() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        OutboundMetrics metrics = new OutboundMetrics(registry);
+        beanFactory.registerSingleton("outboundMetrics", metrics);
+        BeanPostProcessor postProcessor = RestTemplateConfig.outboundMetricsRestTemplates(beanFactory.getBeanProvider(OutboundMetrics.class));
+
+        RestTemplate plain = new RestTemplate();
+        RestTemplate guarded = new RestTemplate();
+        guarded.getInterceptors().add(new OutboundGuardInterceptor(OutboundGuard.builder().build()));
+        RestTemplate instrumented = new RestTemplate();
+        OutboundMetricsInterceptor existing = new OutboundMetricsInterceptor(metrics);
+        instrumented.getInterceptors().add(existing);
+        Object other = new Object();
+
+        for (int i = 0; i < 2; i++) {
+            assertSame(plain, postProcessor.postProcessAfterInitialization(plain, "plain"));
+            assertSame(guarded, postProcessor.postProcessAfterInitialization(guarded, "guarded"));
+            assertSame(instrumented, postProcessor.postProcessAfterInitialization(instrumented, "instrumented"));
+            assertSame(other, postProcessor.postProcessAfterInitialization(other, "other"));
+        }
+
+        assertEquals(1, plain.getInterceptors().size());
+        assertInstanceOf(OutboundMetricsInterceptor.class, plain.getInterceptors().get(0));
+        // First in the chain, so the guard wait is part of the latency.
+        assertEquals(2, guarded.getInterceptors().size());
+        assertInstanceOf(OutboundMetricsInterceptor.class, guarded.getInterceptors().get(0));
+        assertInstanceOf(OutboundGuardInterceptor.class, guarded.getInterceptors().get(1));
+        assertEquals(1, instrumented.getInterceptors().size());
+        assertSame(existing, instrumented.getInterceptors().get(0));
+    }
+}
@@ -0,0 +1,120 @@
+package com.service.api.helpers;
+
+import com.enterprise.agents.common.http.OutboundObserver;
+import com.enterprise.agents.common.model.IntegrationType;
+import com.google.gson.JsonElement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundObserverTest {
+    private static final String BODY = "{\"ok\":true}";
+
+    @RegisterExtension
+    final StubServer server = new StubServer();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    private final AtomicInteger poolWaits = new AtomicInteger();
+
+    @BeforeEach
+    void registerHandlers() {
+        // Unavailable for the first request.
+        server.context("/flaky", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            boolean unavailable = requests.incrementAndGet() == 1;
+            byte[] body = (unavailable ? "{}" : BODY).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Retry-After", "0");
+            exchange.sendResponseHeaders(unavailable ? 503 : 200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        HttpHelper.setRequestCoalescing(false);
+        HttpHelper.setResponseCaching(false);
+        HttpHelper.setOutboundObserver(new OutboundObserver() {
+            @Override
+            public void onResponse(String method, URI uri, int status, long nanos, long requestBytes) {
+                assertTrue(nanos > 0);
+                events.add(method + " " + uri.getPath() + " " + status + " out " + requestBytes);
+            }
+
+            @Override
+            public void onFailure(String method, URI uri, Throwable failure, long nanos, long requestBytes) {
+                events.add(method + " " + uri.getPath() + " " + failure.getClass().getSimpleName());
+            }
+
+            @Override
+            public void onResponseBody(String method, URI uri, long bytes) {
+                events.add(method + " " + uri.getPath() + " in " + bytes);
+            }
+
+            @Override
+            public void onRetry(String method, URI uri) {
+                events.add(method + " " + uri.getPath() + " retry");
+            }
+
+            @Override
+            public void onPoolWait(URI uri, long nanos) {
+                poolWaits.incrementAndGet();
+            }
+        });
+    }
+
+    @Test
+    void blockingAttemptsAreReportedWithRetriesAndBytes() throws IOException {
+        HttpURLConnection connection = HttpHelper.buildHttpURLConnection(server.baseUrl() + "/flaky", "GET", "application/json", false, null, "appId");
+        JsonElement response = HttpHelper.sendHttpRequest(connection, "appId");
+
+        assertTrue(response.getAsJsonObject().get("ok").getAsBoolean());
+        assertEquals(List.of("GET /flaky 503 out 0", "GET /flaky retry", "GET /flaky 200 out 0", "GET /flaky in " + BODY.length()), events);
+        assertEquals(2, poolWaits.get());
+    }
+
+    @Test
+    void engineAttemptsAreReportedWithRequestBytes() {
+        HttpHelper.setHttpClientEngine(HttpClientEngine.builder().build());
+        String requestQuery = "{\"name\":\"item\"}";
+        HttpURLConnection connection = HttpHelper.buildHttpURLConnection(server.baseUrl() + "/flaky", "POST", "application/json", true, null, "appId");
+
+        // A POST without an idempotency key is not retried, its 503 fails the call.
+        assertThrows(ServiceRuntimeException.class, () -> HttpHelper.sendHttpRequest(requestQuery, connection, "appId"));
+        assertEquals(List.of("POST /flaky 503 out " + requestQuery.length(), "POST /flaky in 2"), events);
+        assertEquals(1, poolWaits.get());
+    }
+
+    @Test
+    void integrationsAreMatchedOnRegisteredDomains() {
+        assertEquals(Optional.of(IntegrationType.GITHUB), IntegrationType.fromHost("api.github.com"));
+        assertEquals(Optional.of(IntegrationType.GITHUB), IntegrationType.fromHost("raw.githubusercontent.com"));
+        assertEquals(Optional.of(IntegrationType.SLACK), IntegrationType.fromHost("Slack.com"));
+        assertEquals(Optional.of(IntegrationType.GOOGLE), IntegrationType.fromHost("oauth2.googleapis.com"));
+        assertEquals(Optional.of(IntegrationType.JIRA), IntegrationType.fromHost("acme.atlassian.net"));
+        assertEquals(Optional.of(IntegrationType.JIRA), IntegrationType.fromHost("auth.atlassian.com"));
+        assertEquals(Optional.empty(), IntegrationType.fromHost("slackware.org"));
+        assertEquals(Optional.empty(), IntegrationType.fromHost("githubstatus.example"));
+        assertEquals(Optional.empty(), IntegrationType.fromHost("notgithub.com"));
+        assertEquals(Optional.empty(), IntegrationType.fromHost(null));
+    }
+
+    @Test
+    void asynchronousAttemptsAreReported() {
+        HttpURLConnection connection = HttpHelper.buildHttpURLConnection(server.baseUrl() + "/flaky", "GET", "application/json", false, null, "appId");
+        JsonElement response = HttpHelper.sendHttpRequestAsync(connection, "appId").join();
+
+        assertTrue(response.getAsJsonObject().get("ok").getAsBoolean());
+        assertEquals(List.of("GET /flaky 503 out 0", "GET /flaky in 2", "GET /flaky retry", "GET /flaky 200 out 0", "GET /flaky in " + BODY.length()),
+                events);
+    }
+}
@@ -0,0 +1,140 @@
+package com.service.api.helpers;
+
+import com.enterprise.agents.common.exception.CallNotPermittedException;
+import com.enterprise.agents.common.resilience.OutboundGuard;
+import com.google.gson.JsonElement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestBatchTest {
+    @RegisterExtension
+    final StubServer server = new StubServer();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+
+    @BeforeEach
+    void registerHandlers() {
+        server.context("/users/", exchange -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            String id = exchange.getRequestURI().getPath().substring("/users/".length());
+            boolean missing = id.equals("missing");
+            byte[] body = (missing ? "{\"error\":\"not found\"}" : "{\"id\":\"" + id + "\"}").getBytes(StandardCharsets.UTF_8);
+            active.decrementAndGet();
+            exchange.sendResponseHeaders(missing ? 404 : 200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+    }
+
+    @Test
+    void responsesAreInRequestOrderWithBoundedConcurrency() {
+        RequestBatch batch = HttpHelper.sendAll(requests("u0", "u1", "u2", "u3", "u4", "u5", "u6", "u7", "u8", "u9"), 3, "appId");
+
+        List<JsonElement> responses = batch.all().join();
+        for (int i = 0; i < responses.size(); i++) {
+            assertEquals("u" + i, JsonPath.getValue(responses.get(i), "id"));
+        }
+        assertTrue(maxActive.get() <= 3, "max active " + maxActive.get());
+    }
+
+    @Test
+    void perHostCapFollowsTheBulkhead() {
+        HttpHelper.setOutboundGuard(OutboundGuard.builder().bulkhead(2, 0, Duration.ofMillis(10)).build());
+
+        RequestBatch batch = HttpHelper.sendAll(requests("u0", "u1", "u2", "u3", "u4", "u5"), 10, "appId");
+
+        assertEquals(6, batch.all().join().size());
+        assertTrue(maxActive.get() <= 2, "max active " + maxActive.get());
+    }
+
+    @Test
+    void slotsHeldByOtherCallersAreWaitedFor() {
+        OutboundGuard guard = OutboundGuard.builder().bulkhead(2, 10, Duration.ofSeconds(5)).build();
+        HttpHelper.setOutboundGuard(guard);
+        OutboundGuard.Permit first = guard.acquire("127.0.0.1");
+        OutboundGuard.Permit second = guard.acquire("127.0.0.1");
+
+        RequestBatch batch = HttpHelper.sendAll(requests("u0", "u1", "u2"), 3, "appId");
+        CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS).execute(() -> {
+            first.complete(false);
+            second.complete(false);
+        });
+
+        assertEquals(3, batch.all().join().size());
+    }
+
+    @Test
+    void fullBulkheadFailsOnlyAfterTheMaxWait() {
+        OutboundGuard guard = OutboundGuard.builder().bulkhead(1, 10, Duration.ofMillis(100)).build();
+        HttpHelper.setOutboundGuard(guard);
+        OutboundGuard.Permit held = guard.acquire("127.0.0.1");
+
+        RequestBatch batch = HttpHelper.sendAll(requests("u0"), 1, "appId");
+
+        CompletionException failure = assertThrows(CompletionException.class, () -> batch.getResponses().get(0).join());
+        assertInstanceOf(CallNotPermittedException.class, failure.getCause());
+        held.complete(false);
+    }
+
+    @Test
+    void failuresOnlyFailTheirOwnResponse() {
+        RequestBatch batch = HttpHelper.sendAll(requests("u0", "missing", "u2"), 2, "appId");
+
+        List<RequestBatch.Completed> completed = batch.inCompletionOrder().collect(Collectors.toList());
+        assertEquals(Set.of(0, 1, 2), completed.stream().map(RequestBatch.Completed::index).collect(Collectors.toSet()));
+        List<CompletableFuture<JsonElement>> responses = batch.getResponses();
+        assertEquals("u2", JsonPath.getValue(responses.get(2).join(), "id"));
+        assertTrue(responses.get(1).isCompletedExceptionally());
+        assertTrue(completed.stream().filter(RequestBatch.Completed::isFailed).allMatch(response -> response.index() == 1));
+    }
+
+    @Test
+    void batchesLargerThanTheBlockingPoolWaitForItsThreads() {
+        HttpHelper.setHttpClientEngine(HttpClientEngine.builder().maxRequestsPerHost(200).build());
+        HttpHelper.setOutboundGuard(OutboundGuard.builder().bulkhead(200, 0, Duration.ofSeconds(5)).build());
+        List<RequestBatch.Request> requests = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            HttpURLConnection connection = HttpHelper.buildHttpURLConnection(server.baseUrl() + "/users/u" + i, "GET", "application/json", false, "appId");
+            // An Authorization unknown to HttpHelper, sent on its blocking pool.
+            connection.setRequestProperty("Authorization", "Bearer t1");
+            requests.add(RequestBatch.Request.get(connection));
+        }
+
+        List<JsonElement> responses = HttpHelper.sendAll(requests, 100, "appId").all().join();
+
+        assertEquals(100, responses.size());
+        assertEquals("u99", JsonPath.getValue(responses.get(99), "id"));
+        assertTrue(maxActive.get() <= 64, "max active " + maxActive.get());
+    }
+
+    private List<RequestBatch.Request> requests(String... ids) {
+        List<RequestBatch.Request> requests = new ArrayList<>();
+        for (String id : ids) {
+            HttpURLConnection connection = HttpHelper.buildHttpURLConnection(server.baseUrl() + "/users/" + id, "GET", "application/json", false, null, "appId");
+            requests.add(RequestBatch.Request.get(connection));
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,184 @@
+package com.service.api.helpers;
+
+import com.enterprise.agents.common.http.OutboundMetricsInterceptor;
+import com.enterprise.agents.common.http.OutboundObserver;
+import com.enterprise.agents.common.http.RequestHedging;
+import com.enterprise.agents.common.http.RequestHedgingInterceptor;
+import com.enterprise.agents.common.resilience.OutboundGuard;
+import com.enterprise.agents.common.resilience.OutboundGuardInterceptor;
+import com.google.gson.JsonElement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestHedgingTest {
+    @RegisterExtension
+    final StubServer server = new StubServer();
+    private final AtomicBoolean stallNext = new AtomicBoolean();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void registerHandlers() {
+        server.context("/items", exchange -> {
+            calls.incrementAndGet();
+            // Stall the first attempt to arrive, the hedge may overtake the request it copies.
+            if (stallNext.getAndSet(false)) {
+                try {
+                    Thread.sleep(3000);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] body = "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            } catch (IOException ignored) {
+                // The losing attempt was cancelled.
+            }
+        });
+        HttpHelper.setRequestCoalescing(false);
+        HttpHelper.setResponseCaching(false);
+        HttpHelper.setAdaptiveTimeouts(AdaptiveTimeouts.builder().minSamples(3).build());
+        HttpHelper.setHttpClientEngine(HttpClientEngine.builder().build());
+    }
+
+    @Test
+    void slowGetRequestsAreHedged() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            HttpHelper.sendHttpRequest(get(), "appId");
+        }
+        RequestHedging hedging = RequestHedging.shared();
+        assertEquals(0, hedging.getHedges());
+
+        stallNext.set(true);
+        long start = System.nanoTime();
+        JsonElement response = HttpHelper.sendHttpRequest(get(), "appId");
+        assertTrue(response.getAsJsonObject().get("ok").getAsBoolean());
+        assertTrue(System.nanoTime() - start < 2_000_000_000L, "the other attempt should answer before the stalled one");
+
+        stallNext.set(true);
+        start = System.nanoTime();
+        HttpHelper.sendHttpRequestAsync(get(), "appId").join();
+        assertTrue(System.nanoTime() - start < 2_000_000_000L, "the other attempt should answer before the stalled one");
+
+        assertEquals(2, hedging.getHedges());
+        assertTrue(hedging.getWins() <= 2);
+        assertEquals(7, calls.get());
+        assertTrue(hedging.getHedgeRate() > 0);
+    }
+
+    @Test
+    void hedgesAreCappedByTheBudget() throws InterruptedException {
+        RequestHedging hedging = RequestHedging.builder().budget(0.05, 1).build();
+        List<CompletableFuture<String>> attempts = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            CompletableFuture<String> response = hedging.send(0, () -> {
+                CompletableFuture<String> attempt = new CompletableFuture<>();
+                attempts.add(attempt);
+                return attempt;
+            }, ignored -> {
+            });
+            if (i == 0) {
+                while (attempts.size() < 2) {
+                    Thread.onSpinWait();
+                }
+                attempts.get(1).complete("hedge");
+                assertEquals("hedge", response.join());
+                assertTrue(attempts.get(0).isCancelled());
+            } else {
+                Thread.sleep(100);
+                attempts.get(2).complete("primary");
+                assertEquals("primary", response.join());
+            }
+        }
+        assertEquals(2, hedging.getRequests());
+        assertEquals(1, hedging.getHedges());
+        assertEquals(1, hedging.getWins());
+        assertEquals(1, hedging.getBudgetExhausted());
+        assertEquals(3, attempts.size());
+    }
+
+    @Test
+    void requestsAreSentOnceWithoutAPercentileOrWhenDisabled() throws IOException {
+        RequestHedging hedging = RequestHedging.builder().build();
+        assertEquals("only", hedging.send(-1, () -> CompletableFuture.completedFuture("only"), ignored -> {
+        }).join());
+        assertEquals(0, hedging.getRequests());
+
+        HttpHelper.setRequestHedging(false);
+        try {
+            for (int i = 0; i < 4; i++) {
+                HttpHelper.sendHttpRequest(get(), "appId");
+            }
+            assertEquals(0, RequestHedging.shared().getRequests());
+        } finally {
+            HttpHelper.setRequestHedging(true);
+        }
+    }
+
+    @Test
+    void restTemplateCallsAreSentWhenTheExecutorIsSaturated() {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.getInterceptors().add(new RequestHedgingInterceptor(RequestHedging.builder().build(), requestFactory, runnable -> {
+            throw new RejectedExecutionException("saturated");
+        }));
+
+        // Past the samples needed for a percentile every call is hedged, and the executor rejects every attempt.
+        for (int i = 0; i < 25; i++) {
+            assertEquals("{\"ok\":true}", restTemplate.getForObject(server.baseUrl() + "/items", String.class));
+        }
+        assertEquals(25, calls.get());
+    }
+
+    @Test
+    void restTemplateHedgesAreGuardedAndObserved() {
+        OutboundGuard guard = OutboundGuard.builder().build();
+        AtomicInteger observed = new AtomicInteger();
+        OutboundObserver observer = new OutboundObserver() {
+            @Override
+            public void onResponse(String method, URI uri, int status, long nanos, long requestBytes) {
+                observed.incrementAndGet();
+            }
+        };
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.getInterceptors().add(new RequestHedgingInterceptor(RequestHedging.builder().build(), requestFactory,
+                Executors.newCachedThreadPool(), List.of(new OutboundMetricsInterceptor(observer), new OutboundGuardInterceptor(guard, observer))));
+        for (int i = 0; i < 20; i++) {
+            restTemplate.getForObject(server.baseUrl() + "/items", String.class);
+        }
+        assertEquals(0, observed.get());
+
+        stallNext.set(true);
+        long start = System.nanoTime();
+        assertEquals("{\"ok\":true}", restTemplate.getForObject(server.baseUrl() + "/items", String.class));
+        assertTrue(System.nanoTime() - start < 2_000_000_000L, "the hedge should answer before the stalled call");
+
+        // Only the second attempt goes through the attempt interceptors.
+        assertEquals(1, observed.get());
+        assertEquals(1, guard.getHostStates().get(0).bufferedCalls());
+    }
+
+    private HttpURLConnection get() {
+        return HttpHelper.buildHttpURLConnection(server.baseUrl() + "/items", "GET", "application/json", false, null, "appId");
+    }
+}
@@ -0,0 +1,142 @@
+package com.service.api.helpers;
+
+import com.google.gson.JsonElement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseBodiesTest {
+    private static final String ITEMS = "{\"items\":[" + "{\"id\":1,\"name\":\"item\"},".repeat(200) + "{\"id\":2}]}";
+
+    @RegisterExtension
+    final StubServer server = new StubServer();
+    private volatile String acceptEncoding;
+
+    @BeforeEach
+    void registerHandlers() {
+        server.context("/items", exchange -> {
+            acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            byte[] body = gzip(ITEMS);
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        server.context("/error", exchange -> {
+            byte[] body = gzip("{\"error\":\"bad request\"}");
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(400, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        HttpHelper.setRequestCoalescing(false);
+    }
+
+    @Test
+    void gzipBodiesAreDecodedOnEveryPath() throws IOException {
+        JsonElement connection = HttpHelper.sendHttpRequest(get("/items"), "appId");
+        assertEquals("gzip, deflate", acceptEncoding);
+        assertEquals(2, JsonPath.getValue(connection, "items[200].id", 0));
+
+        HttpHelper.setHttpClientEngine(HttpClientEngine.builder().build());
+        assertEquals(connection, HttpHelper.sendHttpRequest(get("/items"), "appId"));
+        assertEquals(connection, HttpHelper.sendHttpRequestAsync(get("/items"), "appId").join());
+
+        ServiceRuntimeException ex = assertThrows(ServiceRuntimeException.class, () -> HttpHelper.sendHttpRequest(get("/error"), "appId"));
+        assertEquals("{\"error\":\"bad request\"}", ex.getMessageArguments()[1]);
+    }
+
+    @Test
+    void bodiesOverTheMaxSizeFail() {
+        HttpHelper.setMaxResponseBodySize(1024);
+
+        ServiceRuntimeException ex = assertThrows(ServiceRuntimeException.class, () -> HttpHelper.sendHttpRequest(get("/items"), "appId"));
+        assertEquals(200, ex.getMessageArguments()[0]);
+
+        HttpHelper.setHttpClientEngine(HttpClientEngine.builder().build());
+        CompletionException async = assertThrows(CompletionException.class, () -> HttpHelper.sendHttpRequestAsync(get("/items"), "appId").join());
+        assertInstanceOf(ServiceRuntimeException.class, async.getCause());
+    }
+
+    @Test
+    void bodiesAreReadIntoBuffersSizedFromTheContentLength() throws IOException {
+        byte[] bytes = ITEMS.getBytes(StandardCharsets.UTF_8);
+        try (ResponseBodies.Body body = ResponseBodies.read(new ByteArrayInputStream(bytes), null, bytes.length, 200, bytes.length)) {
+            assertEquals(bytes.length, body.length());
+            assertEquals(ITEMS, body.toString());
+            assertEquals(2, JsonPath.getValue(body.toJson(), "items[200].id", 0));
+        }
+        try (ResponseBodies.Body body = ResponseBodies.read(new ByteArrayInputStream(gzip(ITEMS)), "gzip", -1, 200, bytes.length)) {
+            assertArrayEquals(bytes, body.toByteArray());
+        }
+        assertThrows(ServiceRuntimeException.class, () -> ResponseBodies.read(new ByteArrayInputStream(bytes), null, bytes.length, 200, 100));
+    }
+
+    @Test
+    void buffersOfFailedReadsGoBackToThePool() throws IOException {
+        AtomicReference<byte[]> failed = new AtomicReference<>();
+        AtomicReference<byte[]> next = new AtomicReference<>();
+        // Hold every pooled buffer, so the pool is empty when the failed read gives its buffer back.
+        List<ResponseBodies.Body> held = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2 * Runtime.getRuntime().availableProcessors(); i++) {
+                held.add(ResponseBodies.read(reading(new AtomicReference<>(), null), 0));
+            }
+            assertThrows(IOException.class, () -> ResponseBodies.read(reading(failed, new IOException("connection reset")), 0));
+            ResponseBodies.read(reading(next, null), 0).close();
+        } finally {
+            held.forEach(ResponseBodies.Body::close);
+        }
+        assertSame(failed.get(), next.get());
+    }
+
+    /**
+     * @return An empty body keeping the buffer it is read into, failing with the failure if any.
+     */
+    private static InputStream reading(AtomicReference<byte[]> buffer, IOException failure) {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                return read(new byte[1], 0, 1);
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                buffer.set(bytes);
+                if (failure != null) {
+                    throw failure;
+                }
+                return -1;
+            }
+        };
+    }
+
+    private HttpURLConnection get(String path) {
+        return HttpHelper.buildHttpURLConnection(server.baseUrl() + path, "GET", "application/json", false, null, "appId");
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
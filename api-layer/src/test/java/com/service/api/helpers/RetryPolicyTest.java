@@ -0,0 +1,151 @@
+package com.service.api.helpers;
+
+import com.google.gson.JsonElement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryPolicyTest {
+    private static final URI HOST = URI.create("https://api.example.com/v1/items");
+
+    @RegisterExtension
+    final StubServer server = new StubServer();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final List<String> authorizations = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void registerHandlers() {
+        // Unavailable for the first two requests.
+        server.context("/flaky", exchange -> {
+            boolean unavailable = requests.incrementAndGet() <= 2;
+            authorizations.add(String.valueOf(exchange.getRequestHeaders().getFirst("Authorization")));
+            byte[] body = (unavailable ? "{\"error\":\"unavailable\"}" : "{\"ok\":true}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Retry-After", "0");
+            exchange.sendResponseHeaders(unavailable ? 503 : 200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+    }
+
+    @Test
+    void delaysUseDecorrelatedJitter() {
+        RetryPolicy policy = RetryPolicy.builder().maxAttempts(10).delays(Duration.ofMillis(100), Duration.ofMillis(1000)).build();
+        RetryPolicy.Call call = policy.start(HOST, "GET", null);
+
+        long previous = 100;
+        for (int i = 0; i < 9; i++) {
+            long delay = call.onFailure(new SocketTimeoutException());
+            assertTrue(delay >= 100 && delay <= Math.min(1000, previous * 3), "delay " + delay);
+            previous = delay;
+        }
+        assertEquals(-1, call.onFailure(new SocketTimeoutException()));
+        assertEquals(10, call.getAttempts());
+    }
+
+    @Test
+    void retryAfterIsHonored() {
+        Clock clock = Clock.fixed(Instant.parse("2024-05-01T10:00:00Z"), ZoneOffset.UTC);
+        RetryPolicy policy = RetryPolicy.builder().delays(Duration.ofMillis(100), Duration.ofSeconds(30)).clock(clock).build();
+
+        assertEquals(5000, policy.start(HOST, "GET", null).onStatus(429, "5"));
+        assertEquals(20000, policy.start(HOST, "GET", null).onStatus(503, "Wed, 01 May 2024 10:00:20 GMT"));
+        assertEquals(-1, policy.start(HOST, "GET", null).onStatus(503, "60"));
+        assertEquals(-1, policy.start(HOST, "GET", null).onStatus(404, null));
+        assertEquals(-1, RetryPolicy.parseRetryAfter("soon", clock));
+    }
+
+    @Test
+    void onlyIdempotentRequestsAreRetried() {
+        RetryPolicy policy = RetryPolicy.builder().build();
+
+        assertEquals(-1, policy.start(HOST, "POST", null).onStatus(503, "0"));
+        assertEquals(0, policy.start(HOST, "POST", "order-42").onStatus(503, "0"));
+        assertEquals(0, policy.start(HOST, "DELETE", null).onStatus(503, "0"));
+    }
+
+    @Test
+    void retriesAreLimitedByTheHostBudget() {
+        RetryPolicy policy = RetryPolicy.builder().budget(0.1, 2).build();
+
+        assertEquals(0, policy.start(HOST, "GET", null).onStatus(503, "0"));
+        assertEquals(0, policy.start(HOST, "GET", null).onStatus(503, "0"));
+        assertEquals(-1, policy.start(HOST, "GET", null).onStatus(503, "0"));
+        assertEquals(0, policy.start(URI.create("https://other.example.com"), "GET", null).onStatus(503, "0"));
+    }
+
+    @Test
+    void sendHttpRequestRetriesOnNewConnection() throws IOException {
+        JsonElement response = HttpHelper.sendHttpRequest(flaky(null), "appId");
+
+        assertTrue(JsonPath.getValue(response, "ok", false));
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    void retriesKeepTheAuthorization() throws IOException {
+        JsonElement response = HttpHelper.sendHttpRequest(flaky("Bearer t1"), "appId");
+
+        assertTrue(JsonPath.getValue(response, "ok", false));
+        assertEquals(List.of("Bearer t1", "Bearer t1", "Bearer t1"), authorizations);
+    }
+
+    @Test
+    void engineRetriesKeepTheAuthorizationOfTheBuiltConnection() {
+        HttpHelper.setHttpClientEngine(HttpClientEngine.builder().build());
+        HttpURLConnection connection = HttpHelper.buildHttpURLConnection(server.baseUrl() + "/flaky", "GET", "application/json", false, "Bearer t1", "appId");
+
+        JsonElement response = HttpHelper.sendHttpRequestAsync(connection, "appId").join();
+
+        assertTrue(JsonPath.getValue(response, "ok", false));
+        assertEquals(List.of("Bearer t1", "Bearer t1", "Bearer t1"), authorizations);
+    }
+
+    @Test
+    void requestsWithUnknownAuthorizationAreNotRetried() {
+        HttpURLConnection connection = HttpHelper.buildHttpURLConnection(server.baseUrl() + "/flaky", "GET", "application/json", false, "appId");
+        connection.setRequestProperty("Authorization", "Bearer t1");
+
+        ServiceRuntimeException ex = assertThrows(ServiceRuntimeException.class, () -> HttpHelper.sendHttpRequest(connection, "appId"));
+        assertEquals(503, ex.getMessageArguments()[0]);
+        assertEquals(List.of("Bearer t1"), authorizations);
+    }
+
+    @Test
+    void sendHttpRequestAsyncSchedulesRetries() {
+        JsonElement response = HttpHelper.sendHttpRequestAsync(flaky(null), "appId").join();
+
+        assertTrue(JsonPath.getValue(response, "ok", false));
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    void exhaustedRetriesReportTheLastResponse() {
+        HttpHelper.setHttpClientEngine(HttpClientEngine.builder().build());
+        HttpHelper.setRetryPolicy(RetryPolicy.builder().maxAttempts(2).build());
+
+        ServiceRuntimeException ex = assertThrows(ServiceRuntimeException.class, () -> HttpHelper.sendHttpRequest(flaky(null), "appId"));
+        assertEquals(503, ex.getMessageArguments()[0]);
+        assertEquals(2, requests.get());
+    }
+
+    private HttpURLConnection flaky(String authorization) {
+        return HttpHelper.buildHttpURLConnection(server.baseUrl() + "/flaky", "GET", "application/json", false, authorization, "appId");
+    }
+}
@@ -0,0 +1,134 @@
+package com.service.api.helpers;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+    @RegisterExtension
+    final StubServer server = new StubServer();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @BeforeEach
+    void registerHandlers() {
+        server.context("/channels", exchange -> {
+            requests.incrementAndGet();
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            byte[] body = ("{\"channels\":[\"general\"],\"auth\":\"" + authorization + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+    }
+
+    @Test
+    void concurrentCallsShareOneCall() throws Exception {
+        SingleFlight<String, JsonElement> flight = new SingleFlight<>(JsonElement::deepCopy);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        SingleFlight.Call<JsonElement> call = () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            JsonObject result = new JsonObject();
+            result.addProperty("id", "C1");
+            return result;
+        };
+
+        CompletableFuture<JsonElement> leader = CompletableFuture.supplyAsync(() -> assertDoesNotThrow(() -> flight.execute("key", call)));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        List<CompletableFuture<JsonElement>> followers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            followers.add(CompletableFuture.supplyAsync(() -> assertDoesNotThrow(() -> flight.execute("key", call))));
+        }
+        while (flight.getHits() < 3) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        JsonElement first = leader.join();
+        first.getAsJsonObject().addProperty("id", "changed");
+        for (CompletableFuture<JsonElement> follower : followers) {
+            assertEquals("C1", JsonPath.getValue(follower.join(), "id"));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, flight.getMisses());
+
+        flight.execute("key", call);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void identicalGetRequestsAreCoalesced() {
+        long hits = HttpHelper.getCoalescedRequestHits();
+        List<CompletableFuture<JsonElement>> responses = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            responses.add(CompletableFuture.supplyAsync(() -> assertDoesNotThrow(() -> HttpHelper.sendHttpRequest(get("Bearer a"), "appId"))));
+        }
+        responses.add(CompletableFuture.supplyAsync(() -> assertDoesNotThrow(() -> HttpHelper.sendHttpRequest(get("Bearer b"), "appId"))));
+
+        responses.forEach(response -> assertEquals("general", JsonPath.getValue(response.join(), "channels[0]")));
+        assertEquals("Bearer b", JsonPath.getValue(responses.get(4).join(), "auth"));
+        assertTrue(requests.get() < 5, "requests " + requests.get());
+        assertEquals(5 - requests.get(), HttpHelper.getCoalescedRequestHits() - hits);
+    }
+
+    @Test
+    void requestsWithUnknownAuthorizationAreNotCoalesced() {
+        List<CompletableFuture<JsonElement>> responses = new ArrayList<>();
+        for (String authorization : List.of("Bearer a", "Bearer b")) {
+            responses.add(CompletableFuture.supplyAsync(() -> assertDoesNotThrow(() -> {
+                HttpURLConnection connection = HttpHelper.buildHttpURLConnection(server.baseUrl() + "/channels", "GET", "application/json", false, "appId");
+                connection.setRequestProperty("Authorization", authorization);
+                return HttpHelper.sendHttpRequest(connection, "appId");
+            })));
+        }
+
+        assertEquals("Bearer a", JsonPath.getValue(responses.get(0).join(), "auth"));
+        assertEquals("Bearer b", JsonPath.getValue(responses.get(1).join(), "auth"));
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void asyncGetRequestsAreCoalesced() {
+        HttpHelper.setHttpClientEngine(HttpClientEngine.builder().build());
+
+        CompletableFuture<JsonElement> first = HttpHelper.sendHttpRequestAsync(get("Bearer a"), "appId");
+        CompletableFuture<JsonElement> second = HttpHelper.sendHttpRequestAsync(get("Bearer a"), "appId");
+        CompletableFuture<JsonElement> cancelled = HttpHelper.sendHttpRequestAsync(get("Bearer a"), "appId");
+        assertTrue(cancelled.cancel(true));
+
+        assertEquals("Bearer a", JsonPath.getValue(first.join(), "auth"));
+        assertEquals("Bearer a", JsonPath.getValue(second.join(), "auth"));
+        assertEquals(1, requests.get());
+    }
+
+    private HttpURLConnection get(String authorization) {
+        return HttpHelper.buildHttpURLConnection(server.baseUrl() + "/channels", "GET", "application/json", false, authorization, "appId");
+    }
+}
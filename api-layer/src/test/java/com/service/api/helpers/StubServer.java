@@ -0,0 +1,82 @@
+package com.service.api.helpers;
+
+import com.enterprise.agents.common.http.HttpResponseCache;
+import com.enterprise.agents.common.http.OutboundObserver;
+import com.enterprise.agents.common.http.RequestHedging;
+import com.enterprise.agents.common.resilience.OutboundGuard;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local HTTP server for the tests, started before and stopped after each test. The shared state of HttpHelper is
+ * isolated for each test and restored to its defaults afterwards, so no setting leaks into the next test class.
+ * Ex: @RegisterExtension final StubServer server = new StubServer();
+ */
+public final class StubServer implements BeforeEachCallback, AfterEachCallback {
+    private HttpServer server;
+    private ExecutorService executor;
+
+    @Override
+    public void beforeEach(ExtensionContext context) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+        // Keep the failures and cached responses of other tests away from the local host.
+        HttpHelper.setOutboundGuard(OutboundGuard.builder().build());
+        RequestHedging.setShared(RequestHedging.builder().build());
+        HttpResponseCache.setShared(HttpResponseCache.builder().build());
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        server.stop(0);
+        executor.shutdownNow();
+        restoreDefaults();
+    }
+
+    /**
+     * Serves the path and the paths below it with the handler.
+     * Ex: server.context("/items", exchange -> ...)
+     */
+    public StubServer context(String path, HttpHandler handler) {
+        server.createContext(path, handler);
+        return this;
+    }
+
+    /**
+     * @return The url of the server without a trailing slash. Ex: http://127.0.0.1:52431
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Resets every setting of HttpHelper to the value it starts with.
+     */
+    public static void restoreDefaults() {
+        HttpHelper.setHttpClientEngine(null);
+        HttpHelper.setRetryPolicy(RetryPolicy.builder().build());
+        HttpHelper.setOutboundGuard(OutboundGuard.shared());
+        HttpHelper.setOutboundObserver(OutboundObserver.NONE);
+        HttpHelper.setRequestCoalescing(true);
+        HttpHelper.setResponseCaching(true);
+        HttpHelper.setRequestHedging(true);
+        HttpHelper.setAdaptiveTimeouts(AdaptiveTimeouts.builder().build());
+        HttpHelper.setMaxResponseBodySize(16L << 20);
+        RequestHedging.setShared(RequestHedging.builder().build());
+        HttpResponseCache.setShared(HttpResponseCache.builder().build());
+    }
+}
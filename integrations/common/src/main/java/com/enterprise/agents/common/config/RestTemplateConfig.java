@@ -1,16 +1,126 @@
 package com.enterprise.agents.common.config;
 
+import com.enterprise.agents.common.http.HttpResponseCache;
+import com.enterprise.agents.common.http.HttpResponseCacheInterceptor;
+import com.enterprise.agents.common.http.OutboundMetrics;
+import com.enterprise.agents.common.http.OutboundMetricsInterceptor;
+import com.enterprise.agents.common.http.RequestHedging;
+import com.enterprise.agents.common.http.RequestHedgingInterceptor;
+import com.enterprise.agents.common.http.RequestHedgingMetrics;
+import com.enterprise.agents.common.resilience.OutboundGuard;
+import com.enterprise.agents.common.resilience.OutboundGuardInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Configuration
 @ComponentScan(basePackages = "com.enterprise.agents.common")
 public class RestTemplateConfig {
 
+    /**
+     * The guard shared with HttpHelper, so both clients trip the same circuit per host.
+     */
+    @Bean
+    public OutboundGuard outboundGuard() {
+        return OutboundGuard.shared();
+    }
+
+    /**
+     * The response cache shared with HttpHelper, with a disk tier when http.cache.disk-directory is set.
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public HttpResponseCache httpResponseCache(@Value("${http.cache.max-memory-bytes:16777216}") long maxMemoryBytes,
+                                               @Value("${http.cache.disk-directory:}") String diskDirectory,
+                                               @Value("${http.cache.max-disk-bytes:268435456}") long maxDiskBytes) {
+        HttpResponseCache.Builder builder = HttpResponseCache.builder().maxMemoryBytes(maxMemoryBytes);
+        if (!diskDirectory.isBlank()) {
+            builder.disk(Path.of(diskDirectory), maxDiskBytes);
+        }
+        return HttpResponseCache.setShared(builder.build());
+    }
+
+    /**
+     * The hedging shared with HttpHelper, so both clients spend one budget of second attempts.
+     */
+    @Bean
+    public RequestHedging requestHedging(@Value("${http.hedging.enabled:true}") boolean enabled,
+                                         @Value("${http.hedging.quantile:0.95}") double quantile,
+                                         @Value("${http.hedging.budget-ratio:0.05}") double budgetRatio,
+                                         @Value("${http.hedging.budget-capacity:10}") double budgetCapacity) {
+        RequestHedging hedging = enabled
+                ? RequestHedging.builder().quantile(quantile).budget(budgetRatio, budgetCapacity).build()
+                : RequestHedging.disabled();
+        return RequestHedging.setShared(hedging);
+    }
+
+    @Bean
+    public RequestHedgingMetrics requestHedgingMetrics(RequestHedging requestHedging) {
+        return new RequestHedgingMetrics(requestHedging);
+    }
+
+    /**
+     * Meters of every outbound call, set on HttpHelper by the application and on RestTemplate beans below.
+     */
+    @Bean
+    public OutboundMetrics outboundMetrics(MeterRegistry meterRegistry,
+                                           @Value("${http.metrics.max-hosts:64}") int maxHosts,
+                                           @Value("${http.metrics.max-operations:256}") int maxOperations) {
+        return new OutboundMetrics(meterRegistry, maxHosts, maxOperations);
+    }
+
+    /**
+     * Instruments every RestTemplate bean, including the ones declared by integration modules.
+     */
+    @Bean
+    public static BeanPostProcessor outboundMetricsRestTemplates(ObjectProvider<OutboundMetrics> outboundMetrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof RestTemplate restTemplate
+                        && restTemplate.getInterceptors().stream().noneMatch(OutboundMetricsInterceptor.class::isInstance)) {
+                    restTemplate.getInterceptors().add(0, new OutboundMetricsInterceptor(outboundMetrics.getObject()));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public RestTemplate restTemplate(OutboundGuard outboundGuard, HttpResponseCache httpResponseCache, RequestHedging requestHedging,
+                                     OutboundMetrics outboundMetrics) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.getInterceptors().add(new OutboundGuardInterceptor(outboundGuard, outboundMetrics));
+        restTemplate.getInterceptors().add(new HttpResponseCacheInterceptor(httpResponseCache));
+        // Last, the second attempt of a hedged call is guarded and metered like the first.
+        List<ClientHttpRequestInterceptor> attemptInterceptors = List.of(new OutboundMetricsInterceptor(outboundMetrics),
+                new OutboundGuardInterceptor(outboundGuard, outboundMetrics));
+        // Both attempts of each call the bulkhead lets through get a thread, more are sent unhedged.
+        restTemplate.getInterceptors().add(new RequestHedgingInterceptor(requestHedging, requestFactory,
+                hedgingExecutor(2 * outboundGuard.getMaxConcurrentCalls()), attemptInterceptors));
+        return restTemplate;
+    }
+
+    private static ThreadPoolExecutor hedgingExecutor(int maxThreads) {
+        AtomicInteger threads = new AtomicInteger();
+        return new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "rest-template-hedging-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
-} 
\ No newline at end of file
+}
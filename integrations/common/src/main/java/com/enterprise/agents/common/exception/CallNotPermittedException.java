@@ -0,0 +1,17 @@
+package com.enterprise.agents.common.exception;
+
+/**
+ * Thrown when an outbound call is refused because the circuit of its host is open or its bulkhead is full.
+ */
+public class CallNotPermittedException extends RuntimeException {
+    private final String host;
+
+    public CallNotPermittedException(String host, String reason) {
+        super("Call to " + host + " not permitted: " + reason);
+        this.host = host;
+    }
+
+    public String getHost() {
+        return host;
+    }
+}
@@ -0,0 +1,265 @@
+package com.enterprise.agents.common.http;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Rolling latency histograms of outbound calls per endpoint, the method, host and path, Ex:
+ * GET api.github.com/repos/{id}/issues. Numeric, UUID and long hexadecimal path segments are folded into {id}, and
+ * once the number of endpoints is reached new ones share one histogram per method and host, Ex: GET api.github.com/*.
+ * <p>
+ * Used by HttpHelper for its timeouts and by the RestTemplate bean for hedging. Instances are thread-safe.
+ */
+public class EndpointLatencies {
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+            "\\d+|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}|[0-9a-fA-F]{16,}|(?=[^/]*\\d)[A-Za-z0-9_-]{20,}");
+    private static final String OTHER_PATHS = "/*";
+
+    private final int maxEndpoints;
+    private final int slices;
+    private final long sliceNanos;
+    private final LongSupplier ticker;
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    private EndpointLatencies(Builder builder) {
+        this.maxEndpoints = builder.maxEndpoints;
+        this.slices = builder.slices;
+        this.sliceNanos = builder.window.toNanos() / builder.slices;
+        this.ticker = builder.ticker;
+    }
+
+    /**
+     * Start a configuration. Defaults to the last minute in 6 slices and 512 endpoints.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public void record(String method, URI uri, long nanos) {
+        record(method, uri.getHost(), uri.getPort(), uri.getPath(), nanos);
+    }
+
+    /**
+     * Record the latency of a call to the endpoint.
+     */
+    public void record(String method, String host, int port, String path, long nanos) {
+        String endpoint = endpoint(method, host, port, path);
+        Histogram histogram = histograms.get(endpoint);
+        if (histogram == null) {
+            // Fold new endpoints once the bound is reached, Ex: paths with unrecognized ids.
+            String bounded = histograms.size() < maxEndpoints ? endpoint : otherPaths(method, host, port);
+            histogram = histograms.computeIfAbsent(bounded, ignored -> new Histogram());
+        }
+        histogram.record(ticker.getAsLong(), nanos);
+    }
+
+    public Histogram get(String method, URI uri) {
+        return get(method, uri.getHost(), uri.getPort(), uri.getPath());
+    }
+
+    /**
+     * @return The histogram of the endpoint, the one shared by its method and host once folded, or null if never called.
+     */
+    public Histogram get(String method, String host, int port, String path) {
+        Histogram histogram = histograms.get(endpoint(method, host, port, path));
+        return histogram != null ? histogram : histograms.get(otherPaths(method, host, port));
+    }
+
+    /**
+     * @return The histograms by endpoint, including endpoints with no call left in the window.
+     */
+    public Map<String, Histogram> getEndpoints() {
+        return Collections.unmodifiableMap(histograms);
+    }
+
+    /**
+     * @return The endpoint of a call, Ex: GET api.github.com/repos/{id}/issues.
+     */
+    public static String endpoint(String method, String host, int port, String path) {
+        return method + " " + authority(host, port) + path(path);
+    }
+
+    /**
+     * @return The operation of a call whatever its host, Ex: GET /repos/{id}/issues.
+     */
+    public static String operation(String method, String path) {
+        return method + " " + path(path);
+    }
+
+    private static String path(String path) {
+        if (path == null || path.isEmpty()) {
+            return "/";
+        }
+        StringBuilder normalized = new StringBuilder();
+        for (String segment : path.split("/", -1)) {
+            if (!segment.isEmpty()) {
+                normalized.append('/').append(ID_SEGMENT.matcher(segment).matches() ? "{id}" : segment);
+            }
+        }
+        if (path.endsWith("/") || normalized.length() == 0) {
+            normalized.append('/');
+        }
+        return normalized.toString();
+    }
+
+    private static String otherPaths(String method, String host, int port) {
+        return method + " " + authority(host, port) + OTHER_PATHS;
+    }
+
+    private static String authority(String host, int port) {
+        String name = host == null ? "" : host.toLowerCase(Locale.ROOT);
+        return port < 0 ? name : name + ":" + port;
+    }
+
+    /**
+     * Latency counts in buckets about 19% wide from 1 ms, over a window split in slices that are reset as it rolls.
+     */
+    public final class Histogram {
+        private static final double GROWTH = 1.19;
+        private static final int BUCKETS = 96;
+
+        private final AtomicLongArray[] counts;
+        private final long[] sliceIds;
+
+        private Histogram() {
+            this.counts = new AtomicLongArray[slices];
+            this.sliceIds = new long[slices];
+            for (int i = 0; i < slices; i++) {
+                counts[i] = new AtomicLongArray(BUCKETS);
+                sliceIds[i] = Long.MIN_VALUE;
+            }
+        }
+
+        /**
+         * @return Number of calls in the window.
+         */
+        public long getCount() {
+            long total = 0;
+            for (long bucket : merged(ticker.getAsLong())) {
+                total += bucket;
+            }
+            return total;
+        }
+
+        /**
+         * @return The upper bound of the bucket holding the percentile of the window in nanoseconds, or 0 without
+         * calls, Ex: 0.99 for the p99.
+         */
+        public long getPercentile(double quantile) {
+            long[] merged = merged(ticker.getAsLong());
+            long total = 0;
+            for (long bucket : merged) {
+                total += bucket;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += merged[i];
+                if (seen >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(BUCKETS - 1);
+        }
+
+        private void record(long now, long nanos) {
+            long sliceId = Math.floorDiv(now, sliceNanos);
+            int slot = (int) Math.floorMod(sliceId, (long) counts.length);
+            synchronized (counts[slot]) {
+                if (sliceIds[slot] != sliceId) {
+                    for (int i = 0; i < BUCKETS; i++) {
+                        counts[slot].set(i, 0);
+                    }
+                    sliceIds[slot] = sliceId;
+                }
+            }
+            counts[slot].incrementAndGet(bucket(nanos));
+        }
+
+        private long[] merged(long now) {
+            long current = Math.floorDiv(now, sliceNanos);
+            long[] merged = new long[BUCKETS];
+            for (int slot = 0; slot < counts.length; slot++) {
+                synchronized (counts[slot]) {
+                    if (sliceIds[slot] > current - counts.length && sliceIds[slot] <= current) {
+                        for (int i = 0; i < BUCKETS; i++) {
+                            merged[i] += counts[slot].get(i);
+                        }
+                    }
+                }
+            }
+            return merged;
+        }
+
+        private static int bucket(long nanos) {
+            double millis = nanos / 1_000_000.0;
+            if (millis <= 1) {
+                return 0;
+            }
+            return (int) Math.min(BUCKETS - 1, Math.ceil(Math.log(millis) / Math.log(GROWTH)));
+        }
+
+        private static long upperBound(int bucket) {
+            return (long) (Math.pow(GROWTH, bucket) * 1_000_000);
+        }
+    }
+
+    /**
+     * Histograms configuration.
+     */
+    public static final class Builder {
+        private Duration window = Duration.ofMinutes(1);
+        private int slices = 6;
+        private int maxEndpoints = 512;
+        private LongSupplier ticker = System::nanoTime;
+
+        private Builder() {
+        }
+
+        /**
+         * Latencies older than the window are forgotten, a slice at a time.
+         */
+        public Builder window(Duration window, int slices) {
+            if (window.isNegative() || window.isZero() || slices < 1 || window.toNanos() < slices) {
+                throw new IllegalArgumentException("EndpointLatencies window must be positive with at least one slice: " + window + ", " + slices);
+            }
+            this.window = window;
+            this.slices = slices;
+            return this;
+        }
+
+        /**
+         * Endpoints tracked, later ones share one histogram per method and host.
+         */
+        public Builder maxEndpoints(int maxEndpoints) {
+            if (maxEndpoints < 1) {
+                throw new IllegalArgumentException("EndpointLatencies max endpoints must be positive: " + maxEndpoints);
+            }
+            this.maxEndpoints = maxEndpoints;
+            return this;
+        }
+
+        /**
+         * Source of the current time in nanoseconds, Ex: a fake clock in tests.
+         */
+        public Builder ticker(LongSupplier ticker) {
+            this.ticker = Objects.requireNonNull(ticker);
+            return this;
+        }
+
+        public EndpointLatencies build() {
+            return new EndpointLatencies(this);
+        }
+    }
+}
@@ -0,0 +1,578 @@
+package com.enterprise.agents.common.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Cache of GET response bodies with their validators, so repeated requests are sent as conditional requests and a
+ * 304 Not Modified response is answered from the cache. GitHub does not count 304 responses against the rate limit.
+ * <p>
+ * Entries are kept per URL and principal, the Authorization header, in a memory tier bounded by bytes with least
+ * recently used eviction, and optionally in a disk tier bounded by bytes with oldest first eviction. Bodies are
+ * deflated when it makes them smaller. Keys are SHA-256 hashes, so no token is kept in memory or written to disk.
+ * Responses with a Vary header are also kept per value of the request headers they vary on, known once such a
+ * response of the URL was stored by this instance. The response headers are stored with the body, except the
+ * connection ones and cookies, so a 304 can be answered with the headers of the cached response.
+ * <p>
+ * The shared instance is used by HttpHelper and by the RestTemplate bean. Instances are thread-safe.
+ */
+public class HttpResponseCache {
+    public static final String IF_NONE_MATCH = "If-None-Match";
+    public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    public static final String ETAG = "ETag";
+    public static final String LAST_MODIFIED = "Last-Modified";
+    public static final String CACHE_CONTROL = "Cache-Control";
+    public static final String VARY = "Vary";
+    public static final String CONTENT_TYPE = "Content-Type";
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpResponseCache.class);
+    private static final int DISK_FORMAT = 2;
+    // Headers of the connection or the client that are not part of the cached response.
+    private static final Set<String> UNSTORED_HEADERS = Set.of("connection", "keep-alive", "proxy-connection", "transfer-encoding",
+            "upgrade", "trailer", "te", "content-length", "set-cookie", "set-cookie2");
+    private static final String DISK_SUFFIX = ".http";
+    private static volatile HttpResponseCache shared;
+
+    private final long maxMemoryBytes;
+    private final Path diskDirectory;
+    private final long maxDiskBytes;
+    private final Map<String, Entry> memory = new LinkedHashMap<>(64, 0.75f, true);
+    // Request headers the last stored response of a URL and principal varies on, by their key.
+    private final Map<String, List<String>> variations = new ConcurrentHashMap<>();
+    private final AtomicLong diskBytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private long memoryBytes;
+
+    private HttpResponseCache(Builder builder) {
+        this.maxMemoryBytes = builder.maxMemoryBytes;
+        this.diskDirectory = builder.diskDirectory;
+        this.maxDiskBytes = builder.maxDiskBytes;
+        if (diskDirectory != null) {
+            try {
+                Files.createDirectories(diskDirectory);
+                try (Stream<Path> files = Files.list(diskDirectory)) {
+                    diskBytes.set(files.filter(HttpResponseCache::isEntryFile).mapToLong(HttpResponseCache::size).sum());
+                }
+            } catch (IOException ex) {
+                throw new IllegalArgumentException("HttpResponseCache could not use the disk directory " + diskDirectory, ex);
+            }
+        }
+    }
+
+    /**
+     * @return The cache shared by the application, a 16 MiB memory cache unless {@link #setShared} was called first.
+     */
+    public static HttpResponseCache shared() {
+        HttpResponseCache cache = shared;
+        if (cache == null) {
+            synchronized (HttpResponseCache.class) {
+                cache = shared;
+                if (cache == null) {
+                    cache = builder().build();
+                    shared = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Replace the shared cache, Ex: with one configured from application properties.
+     *
+     * @return The cache.
+     */
+    public static HttpResponseCache setShared(HttpResponseCache cache) {
+        shared = cache;
+        return cache;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return The cached response of the URL for the principal, or null.
+     */
+    public Entry lookup(String url, String authorization) {
+        return lookup(url, authorization, name -> null);
+    }
+
+    /**
+     * @param requestHeaders Gives the first value of a request header, or null, to select the response varying on it.
+     *                       Ex: request.getHeaders()::getFirst.
+     * @return The cached response of the URL for the principal and the request headers, or null.
+     */
+    public Entry lookup(String url, String authorization, UnaryOperator<String> requestHeaders) {
+        String key = key(url, authorization, requestHeaders);
+        Entry entry;
+        synchronized (memory) {
+            entry = memory.get(key);
+        }
+        if (entry == null && diskDirectory != null) {
+            entry = readDisk(key);
+            if (entry != null) {
+                putMemory(key, entry);
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+        }
+        return entry;
+    }
+
+    /**
+     * Count a response answered from the cache after a 304 Not Modified.
+     */
+    public void recordHit() {
+        hits.increment();
+    }
+
+    /**
+     * @return True if a 200 response with these headers can be stored: it has a validator, and neither
+     * Cache-Control: no-store nor Vary: *.
+     */
+    public static boolean isCacheable(String etag, String lastModified, String cacheControl, String vary) {
+        return (etag != null || lastModified != null)
+                && (cacheControl == null || !cacheControl.toLowerCase(Locale.ROOT).contains("no-store"))
+                && (vary == null || !vary.trim().equals("*"));
+    }
+
+    /**
+     * Store a 200 response body with its validators, replacing the cached one.
+     */
+    public void store(String url, String authorization, String etag, String lastModified, String contentType, byte[] body) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        if (etag != null) {
+            headers.put(ETAG, List.of(etag));
+        }
+        if (lastModified != null) {
+            headers.put(LAST_MODIFIED, List.of(lastModified));
+        }
+        if (contentType != null) {
+            headers.put(CONTENT_TYPE, List.of(contentType));
+        }
+        store(url, authorization, name -> null, headers, body);
+    }
+
+    /**
+     * Store a 200 response body with its headers, replacing the cached one. A response with a Vary header is stored
+     * for the values of the request headers it varies on.
+     *
+     * @param requestHeaders Gives the first value of a request header, or null. Ex: request.getHeaders()::getFirst.
+     */
+    public void store(String url, String authorization, UnaryOperator<String> requestHeaders, Map<String, List<String>> responseHeaders,
+                      byte[] body) {
+        Entry entry = Entry.of(storedHeaders(responseHeaders), body);
+        String primary = key(url, authorization, List.of(), requestHeaders);
+        List<String> varying = varying(entry.getHeader(VARY));
+        if (varying.isEmpty()) {
+            variations.remove(primary);
+        } else {
+            variations.put(primary, varying);
+        }
+        String key = key(url, authorization, varying, requestHeaders);
+        putMemory(key, entry);
+        if (diskDirectory != null) {
+            writeDisk(key, entry);
+        }
+        stores.increment();
+    }
+
+    /**
+     * @return Number of responses answered from the cache.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return Number of lookups without a cached response.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return Number of responses stored.
+     */
+    public long getStores() {
+        return stores.sum();
+    }
+
+    /**
+     * @return Bytes held by the memory tier.
+     */
+    public long getMemoryBytes() {
+        synchronized (memory) {
+            return memoryBytes;
+        }
+    }
+
+    private void putMemory(String key, Entry entry) {
+        synchronized (memory) {
+            Entry previous = memory.remove(key);
+            if (previous != null) {
+                memoryBytes -= previous.weight();
+            }
+            if (entry.weight() > maxMemoryBytes / 4) {
+                // Too large for memory, it would flush most other entries.
+                return;
+            }
+            memory.put(key, entry);
+            memoryBytes += entry.weight();
+            Iterator<Entry> eldest = memory.values().iterator();
+            while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+                memoryBytes -= eldest.next().weight();
+                eldest.remove();
+            }
+        }
+    }
+
+    private Entry readDisk(String key) {
+        Path file = diskDirectory.resolve(key + DISK_SUFFIX);
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(file))) {
+            if (input.readInt() != DISK_FORMAT) {
+                return null;
+            }
+            Map<String, List<String>> headers = new LinkedHashMap<>();
+            for (int count = input.readInt(); count > 0; count--) {
+                String name = input.readUTF();
+                List<String> values = new ArrayList<>();
+                for (int valueCount = input.readInt(); valueCount > 0; valueCount--) {
+                    values.add(input.readUTF());
+                }
+                headers.put(name, List.copyOf(values));
+            }
+            boolean compressed = input.readBoolean();
+            int size = input.readInt();
+            byte[] data = input.readAllBytes();
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return new Entry(headers, data, compressed, size);
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException ex) {
+            logger.warn("Could not read cached response {}", file, ex);
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, Entry entry) {
+        Path file = diskDirectory.resolve(key + DISK_SUFFIX);
+        try {
+            long previous = Files.exists(file) ? size(file) : 0;
+            Path temporary = Files.createTempFile(diskDirectory, key, ".tmp");
+            try (DataOutputStream output = new DataOutputStream(Files.newOutputStream(temporary))) {
+                output.writeInt(DISK_FORMAT);
+                output.writeInt(entry.headers.size());
+                for (Map.Entry<String, List<String>> header : entry.headers.entrySet()) {
+                    output.writeUTF(header.getKey());
+                    output.writeInt(header.getValue().size());
+                    for (String value : header.getValue()) {
+                        output.writeUTF(value);
+                    }
+                }
+                output.writeBoolean(entry.compressed);
+                output.writeInt(entry.size);
+                output.write(entry.data);
+            }
+            long written = size(temporary);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (diskBytes.addAndGet(written - previous) > maxDiskBytes) {
+                trimDisk();
+            }
+        } catch (IOException ex) {
+            logger.warn("Could not write cached response {}", file, ex);
+        }
+    }
+
+    /**
+     * Delete the least recently used files until the disk tier is back under 90% of its bound.
+     */
+    private synchronized void trimDisk() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(diskDirectory)) {
+            files = list.filter(HttpResponseCache::isEntryFile)
+                    .sorted(Comparator.comparing(HttpResponseCache::lastModified))
+                    .collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            if (diskBytes.get() <= maxDiskBytes * 9 / 10) {
+                break;
+            }
+            long size = size(file);
+            if (Files.deleteIfExists(file)) {
+                diskBytes.addAndGet(-size);
+            }
+        }
+    }
+
+    private String key(String url, String authorization, UnaryOperator<String> requestHeaders) {
+        String primary = key(url, authorization, List.of(), requestHeaders);
+        List<String> varying = variations.get(primary);
+        return varying != null ? key(url, authorization, varying, requestHeaders) : primary;
+    }
+
+    private static String key(String url, String authorization, List<String> varying, UnaryOperator<String> requestHeaders) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(url.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            if (authorization != null) {
+                digest.update(authorization.getBytes(StandardCharsets.UTF_8));
+            }
+            for (String name : varying) {
+                String value = requestHeaders.apply(name);
+                digest.update((byte) 0);
+                digest.update(name.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                if (value != null) {
+                    digest.update(value.trim().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    /**
+     * @return The request header names of a Vary header, lower case and sorted, empty without one.
+     */
+    private static List<String> varying(String vary) {
+        if (vary == null) {
+            return List.of();
+        }
+        return Arrays.stream(vary.split(","))
+                .map(name -> name.trim().toLowerCase(Locale.ROOT))
+                .filter(name -> !name.isEmpty())
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private static Map<String, List<String>> storedHeaders(Map<String, List<String>> responseHeaders) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        responseHeaders.forEach((name, values) -> {
+            if (name != null && values != null && !values.isEmpty() && !UNSTORED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                headers.put(name, List.copyOf(values));
+            }
+        });
+        return headers;
+    }
+
+    private static boolean isEntryFile(Path file) {
+        return file.getFileName().toString().endsWith(DISK_SUFFIX);
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException ex) {
+            return 0;
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException ex) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * A cached response body with its headers.
+     */
+    public static final class Entry {
+        private final Map<String, List<String>> headers;
+        private final byte[] data;
+        private final boolean compressed;
+        private final int size;
+
+        private Entry(Map<String, List<String>> headers, byte[] data, boolean compressed, int size) {
+            this.headers = Collections.unmodifiableMap(headers);
+            this.data = data;
+            this.compressed = compressed;
+            this.size = size;
+        }
+
+        private static Entry of(Map<String, List<String>> headers, byte[] body) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(body);
+                deflater.finish();
+                ByteArrayOutputStream output = new ByteArrayOutputStream(body.length / 2 + 16);
+                byte[] buffer = new byte[8192];
+                while (!deflater.finished() && output.size() < body.length) {
+                    output.write(buffer, 0, deflater.deflate(buffer));
+                }
+                if (deflater.finished() && output.size() < body.length) {
+                    return new Entry(headers, output.toByteArray(), true, body.length);
+                }
+                return new Entry(headers, body.clone(), false, body.length);
+            } finally {
+                deflater.end();
+            }
+        }
+
+        public String getETag() {
+            return getHeader(ETAG);
+        }
+
+        public String getLastModified() {
+            return getHeader(LAST_MODIFIED);
+        }
+
+        public String getContentType() {
+            return getHeader(CONTENT_TYPE);
+        }
+
+        /**
+         * @return The first value of the stored response header, or null.
+         */
+        public String getHeader(String name) {
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                if (header.getKey().equalsIgnoreCase(name)) {
+                    return header.getValue().get(0);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return The stored response headers, without the connection ones and cookies. Ex: Content-Encoding.
+         */
+        public Map<String, List<String>> getHeaders() {
+            return headers;
+        }
+
+        /**
+         * @return The response body, inflated if it is stored deflated.
+         * @throws IllegalStateException If the deflated body is corrupted or truncated, Ex: a damaged disk tier file.
+         */
+        public byte[] getBody() {
+            if (!compressed) {
+                return data.clone();
+            }
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(data);
+                byte[] body = new byte[size];
+                int read = 0;
+                while (read < size && !inflater.finished()) {
+                    read += inflater.inflate(body, read, size - read);
+                    if (read < size && (inflater.needsInput() || inflater.needsDictionary())) {
+                        // Inflating would return 0 forever.
+                        throw new IllegalStateException("HttpResponseCache entry is truncated");
+                    }
+                }
+                if (read < size) {
+                    throw new IllegalStateException("HttpResponseCache entry is shorter than its size");
+                }
+                return body;
+            } catch (DataFormatException ex) {
+                throw new IllegalStateException("HttpResponseCache entry is corrupted", ex);
+            } finally {
+                inflater.end();
+            }
+        }
+
+        /**
+         * Add the conditional request headers of the entry.
+         *
+         * @param headers Receives header name and value, Ex: connection::setRequestProperty.
+         */
+        public void addValidators(java.util.function.BiConsumer<String, String> headers) {
+            String etag = getETag();
+            String lastModified = getLastModified();
+            if (etag != null) {
+                headers.accept(IF_NONE_MATCH, etag);
+            }
+            if (lastModified != null) {
+                headers.accept(IF_MODIFIED_SINCE, lastModified);
+            }
+        }
+
+        private long weight() {
+            long weight = data.length + 128L;
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                weight += header.getKey().length() + header.getValue().stream().mapToLong(String::length).sum();
+            }
+            return weight;
+        }
+    }
+
+    /**
+     * Cache configuration. Defaults to a 16 MiB memory tier and no disk tier.
+     */
+    public static final class Builder {
+        private long maxMemoryBytes = 16L << 20;
+        private Path diskDirectory;
+        private long maxDiskBytes = 256L << 20;
+
+        private Builder() {
+        }
+
+        public Builder maxMemoryBytes(long maxMemoryBytes) {
+            if (maxMemoryBytes < 0) {
+                throw new IllegalArgumentException("HttpResponseCache memory size must not be negative: " + maxMemoryBytes);
+            }
+            this.maxMemoryBytes = maxMemoryBytes;
+            return this;
+        }
+
+        /**
+         * Also keep entries in files of the directory, up to the given bytes, so they survive restarts and memory
+         * evictions.
+         */
+        public Builder disk(Path directory, long maxDiskBytes) {
+            if (maxDiskBytes < 1) {
+                throw new IllegalArgumentException("HttpResponseCache disk size must be positive: " + maxDiskBytes);
+            }
+            this.diskDirectory = directory;
+            this.maxDiskBytes = maxDiskBytes;
+            return this;
+        }
+
+        public HttpResponseCache build() {
+            return new HttpResponseCache(this);
+        }
+    }
+}
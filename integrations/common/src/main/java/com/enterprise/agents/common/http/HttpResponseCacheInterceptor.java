@@ -0,0 +1,117 @@
+package com.enterprise.agents.common.http;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * Sends RestTemplate GET calls conditionally on the response cached for their URL, Authorization and the request
+ * headers it varies on, answers a 304 Not Modified with the cached body and headers as a 200, and stores cacheable 200
+ * responses with their headers.
+ */
+public class HttpResponseCacheInterceptor implements ClientHttpRequestInterceptor {
+    private final HttpResponseCache cache;
+
+    public HttpResponseCacheInterceptor(HttpResponseCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (!HttpMethod.GET.equals(request.getMethod())) {
+            return execution.execute(request, body);
+        }
+        String url = request.getURI().toString();
+        String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        HttpHeaders requestHeaders = request.getHeaders();
+        HttpResponseCache.Entry cached = cache.lookup(url, authorization, requestHeaders::getFirst);
+        if (cached != null) {
+            cached.addValidators(request.getHeaders()::set);
+        }
+
+        ClientHttpResponse response = execution.execute(request, body);
+        HttpHeaders headers = response.getHeaders();
+        if (response.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value() && cached != null) {
+            response.close();
+            cache.recordHit();
+            return new CachedResponse(cached, headers);
+        }
+        String etag = headers.getETag();
+        String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+        if (response.getStatusCode().value() != HttpStatus.OK.value()
+                || !HttpResponseCache.isCacheable(etag, lastModified, headers.getCacheControl(), headers.getFirst(HttpHeaders.VARY))) {
+            return response;
+        }
+        byte[] bytes;
+        try (InputStream inputStream = response.getBody()) {
+            bytes = inputStream.readAllBytes();
+        } finally {
+            response.close();
+        }
+        cache.store(url, authorization, requestHeaders::getFirst, headers, bytes);
+        return new CachedResponse(headers, bytes);
+    }
+
+    /**
+     * A 200 response with a body held in memory.
+     */
+    private static final class CachedResponse implements ClientHttpResponse {
+        private final HttpHeaders headers;
+        private final byte[] body;
+
+        /**
+         * The cached response, its headers updated with those of the 304 except the ones describing the body.
+         */
+        private CachedResponse(HttpResponseCache.Entry entry, HttpHeaders notModified) {
+            this.headers = new HttpHeaders();
+            this.body = entry.getBody();
+            headers.putAll(entry.getHeaders());
+            notModified.forEach((name, values) -> {
+                String lowerCase = name.toLowerCase(Locale.ROOT);
+                if (!lowerCase.startsWith("content-") && !lowerCase.equals("transfer-encoding") && !lowerCase.equals("connection")) {
+                    headers.put(name, values);
+                }
+            });
+            headers.setContentLength(body.length);
+        }
+
+        private CachedResponse(HttpHeaders headers, byte[] body) {
+            this.headers = headers;
+            this.body = body;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return HttpStatus.OK;
+        }
+
+        @Override
+        public String getStatusText() {
+            return HttpStatus.OK.getReasonPhrase();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.enterprise.agents.common.http;
+
+import com.enterprise.agents.common.exception.CallNotPermittedException;
+import com.enterprise.agents.common.model.IntegrationType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters of outbound HTTP calls, tagged by integration, host and operation, Ex: GITHUB, api.github.com and
+ * GET /repos/{id}/issues:
+ * <ul>
+ * <li>http.client.outbound.requests, latency histogram also tagged by status and outcome</li>
+ * <li>http.client.outbound.request.size and http.client.outbound.response.size, bytes out and in</li>
+ * <li>http.client.outbound.retries</li>
+ * <li>http.client.outbound.pool.wait, time waiting for a connection slot, tagged by integration and host</li>
+ * </ul>
+ * Tags are bounded: ids in paths are folded into {id}, and hosts and operations past the configured maximum are
+ * tagged other. Failures without a response are tagged by kind, Ex: TIMEOUT, so exception names never become tags.
+ */
+public class OutboundMetrics implements OutboundObserver {
+    public static final String REQUESTS = "http.client.outbound.requests";
+    public static final String REQUEST_SIZE = "http.client.outbound.request.size";
+    public static final String RESPONSE_SIZE = "http.client.outbound.response.size";
+    public static final String RETRIES = "http.client.outbound.retries";
+    public static final String POOL_WAIT = "http.client.outbound.pool.wait";
+
+    private static final String OTHER = "other";
+
+    private final MeterRegistry registry;
+    private final int maxHosts;
+    private final int maxOperations;
+    private final Set<String> hosts = ConcurrentHashMap.newKeySet();
+    private final Set<String> operations = ConcurrentHashMap.newKeySet();
+
+    public OutboundMetrics(MeterRegistry registry) {
+        this(registry, 64, 256);
+    }
+
+    /**
+     * @param maxHosts      Hosts tagged by name, later ones are tagged other.
+     * @param maxOperations Operations tagged by method and path, later ones are tagged by method only.
+     */
+    public OutboundMetrics(MeterRegistry registry, int maxHosts, int maxOperations) {
+        if (maxHosts < 1 || maxOperations < 1) {
+            throw new IllegalArgumentException("OutboundMetrics max hosts and operations must be positive: " + maxHosts + ", " + maxOperations);
+        }
+        this.registry = registry;
+        this.maxHosts = maxHosts;
+        this.maxOperations = maxOperations;
+    }
+
+    @Override
+    public void onResponse(String method, URI uri, int status, long nanos, long requestBytes) {
+        record(method, uri, String.valueOf(status), outcome(status), nanos, requestBytes);
+    }
+
+    @Override
+    public void onFailure(String method, URI uri, Throwable failure, long nanos, long requestBytes) {
+        record(method, uri, failure(failure), "UNKNOWN", nanos, requestBytes);
+    }
+
+    @Override
+    public void onResponseBody(String method, URI uri, long bytes) {
+        DistributionSummary.builder(RESPONSE_SIZE)
+                .baseUnit("bytes")
+                .tags(tags(method, uri))
+                .register(registry)
+                .record(bytes);
+    }
+
+    @Override
+    public void onRetry(String method, URI uri) {
+        Counter.builder(RETRIES)
+                .tags(tags(method, uri))
+                .register(registry)
+                .increment();
+    }
+
+    @Override
+    public void onPoolWait(URI uri, long nanos) {
+        Timer.builder(POOL_WAIT)
+                .tags(Tags.of("integration", integration(uri.getHost()), "host", host(uri.getHost())))
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void record(String method, URI uri, String status, String outcome, long nanos, long requestBytes) {
+        Tags tags = tags(method, uri);
+        Timer.builder(REQUESTS)
+                .tags(tags)
+                .tags("status", status, "outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(60))
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (requestBytes >= 0) {
+            DistributionSummary.builder(REQUEST_SIZE)
+                    .baseUnit("bytes")
+                    .tags(tags)
+                    .register(registry)
+                    .record(requestBytes);
+        }
+    }
+
+    private Tags tags(String method, URI uri) {
+        String operation = EndpointLatencies.operation(method, uri.getPath());
+        return Tags.of("integration", integration(uri.getHost()), "host", host(uri.getHost()),
+                "operation", bounded(operations, maxOperations, operation, method + " " + OTHER));
+    }
+
+    private String host(String host) {
+        return host == null ? OTHER : bounded(hosts, maxHosts, host.toLowerCase(Locale.ROOT), OTHER);
+    }
+
+    private static String integration(String host) {
+        return IntegrationType.fromHost(host).map(Enum::name).orElse(OTHER);
+    }
+
+    private static String bounded(Set<String> seen, int max, String value, String other) {
+        if (seen.contains(value)) {
+            return value;
+        }
+        // Racing callers can go a few over the bound, it only needs to stop unbounded growth.
+        if (seen.size() < max) {
+            seen.add(value);
+            return value;
+        }
+        return other;
+    }
+
+    private static String outcome(int status) {
+        if (status >= 500) {
+            return "SERVER_ERROR";
+        }
+        if (status >= 400) {
+            return "CLIENT_ERROR";
+        }
+        if (status >= 300) {
+            return "REDIRECTION";
+        }
+        return status >= 200 ? "SUCCESS" : "INFORMATIONAL";
+    }
+
+    private static String failure(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause instanceof SocketTimeoutException || cause instanceof HttpTimeoutException) {
+            return "TIMEOUT";
+        }
+        if (cause instanceof CallNotPermittedException) {
+            return "NOT_PERMITTED";
+        }
+        if (cause instanceof CancellationException || cause instanceof InterruptedIOException) {
+            return "CANCELLED";
+        }
+        return "IO_ERROR";
+    }
+}
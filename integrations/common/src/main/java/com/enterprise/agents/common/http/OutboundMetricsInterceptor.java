@@ -0,0 +1,114 @@
+package com.enterprise.agents.common.http;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.function.LongConsumer;
+
+/**
+ * Reports RestTemplate calls to an observer: latency and status once the response headers arrive, bytes sent, and
+ * bytes received once the response is closed. First in the chain, so the latency includes the outbound guard wait.
+ */
+public class OutboundMetricsInterceptor implements ClientHttpRequestInterceptor {
+    private final OutboundObserver observer;
+
+    public OutboundMetricsInterceptor(OutboundObserver observer) {
+        this.observer = observer;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        String method = request.getMethod().name();
+        URI uri = request.getURI();
+        long start = System.nanoTime();
+        ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+            observer.onResponse(method, uri, response.getStatusCode().value(), System.nanoTime() - start, body.length);
+        } catch (IOException | RuntimeException e) {
+            observer.onFailure(method, uri, e, System.nanoTime() - start, body.length);
+            throw e;
+        }
+        return new CountingResponse(response, bytes -> observer.onResponseBody(method, uri, bytes));
+    }
+
+    /**
+     * A response counting the bytes read from its body, reported once when closed.
+     */
+    private static final class CountingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse response;
+        private final LongConsumer onClose;
+        private long bytes;
+        private boolean closed;
+
+        private CountingResponse(ClientHttpResponse response, LongConsumer onClose) {
+            this.response = response;
+            this.onClose = onClose;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return response.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return new FilterInputStream(response.getBody()) {
+                @Override
+                public int read() throws IOException {
+                    int read = super.read();
+                    if (read >= 0) {
+                        bytes++;
+                    }
+                    return read;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = super.read(buffer, offset, length);
+                    if (read > 0) {
+                        bytes += read;
+                    }
+                    return read;
+                }
+
+                @Override
+                public long skip(long n) throws IOException {
+                    long skipped = super.skip(n);
+                    bytes += skipped;
+                    return skipped;
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            try {
+                response.close();
+            } finally {
+                if (!closed) {
+                    closed = true;
+                    onClose.accept(bytes);
+                }
+            }
+        }
+    }
+}
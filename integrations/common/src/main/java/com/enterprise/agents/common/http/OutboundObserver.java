@@ -0,0 +1,45 @@
+package com.enterprise.agents.common.http;
+
+import java.net.URI;
+
+/**
+ * Told about every outbound HTTP attempt of HttpHelper and of the RestTemplate beans, Ex: {@link OutboundMetrics}.
+ * Methods are called on the threads sending and receiving, they must be quick and must not throw.
+ */
+public interface OutboundObserver {
+    OutboundObserver NONE = new OutboundObserver() {
+    };
+
+    /**
+     * The response headers of an attempt arrived.
+     *
+     * @param nanos        Time from sending the request to the response headers.
+     * @param requestBytes Size of the request body, or -1 if unknown.
+     */
+    default void onResponse(String method, URI uri, int status, long nanos, long requestBytes) {
+    }
+
+    /**
+     * An attempt failed without a response, Ex: timed out or refused by the outbound guard.
+     */
+    default void onFailure(String method, URI uri, Throwable failure, long nanos, long requestBytes) {
+    }
+
+    /**
+     * The response body of an attempt was read, as received before decoding.
+     */
+    default void onResponseBody(String method, URI uri, long bytes) {
+    }
+
+    /**
+     * An attempt is retried.
+     */
+    default void onRetry(String method, URI uri) {
+    }
+
+    /**
+     * A call waited for a connection slot of its host, Ex: a bulkhead or per host limit.
+     */
+    default void onPoolWait(URI uri, long nanos) {
+    }
+}
@@ -0,0 +1,299 @@
+package com.enterprise.agents.common.http;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Hedges idempotent reads: when no response arrived by the observed percentile of the endpoint, the p95 by default,
+ * a second attempt is sent and whichever response comes first wins, the other is cancelled or discarded. This cuts
+ * the tail latency caused by one slow connection or upstream instance.
+ * <p>
+ * Hedges are capped by a global budget: every hedgeable request adds a fraction of a hedge to a bounded bucket and
+ * every hedge takes a whole one, so at most 5% more requests are sent by default. The shared instance is used by
+ * HttpHelper and by the RestTemplate bean. Instances are thread-safe.
+ *
+ * <pre>
+ * CompletableFuture&lt;HttpResponse&lt;byte[]&gt;&gt; response = RequestHedging.shared().send(p95Millis,
+ *         () -&gt; client.sendAsync(request, BodyHandlers.ofByteArray()), ignored -&gt; { });
+ * </pre>
+ */
+public class RequestHedging {
+    private static volatile RequestHedging shared;
+
+    private final double quantile;
+    private final long minDelayMillis;
+    private final double budgetRatio;
+    private final double budgetCapacity;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder wins = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+    private double tokens;
+
+    private RequestHedging(Builder builder) {
+        this.quantile = builder.quantile;
+        this.minDelayMillis = builder.minDelay.toMillis();
+        this.budgetRatio = builder.budgetRatio;
+        this.budgetCapacity = builder.budgetCapacity;
+        this.tokens = builder.budgetCapacity;
+    }
+
+    /**
+     * @return The hedging shared by the application, created with the default settings unless {@link #setShared}
+     * was called first.
+     */
+    public static RequestHedging shared() {
+        RequestHedging hedging = shared;
+        if (hedging == null) {
+            synchronized (RequestHedging.class) {
+                hedging = shared;
+                if (hedging == null) {
+                    hedging = builder().build();
+                    shared = hedging;
+                }
+            }
+        }
+        return hedging;
+    }
+
+    /**
+     * Replace the shared hedging, Ex: with one configured from application properties.
+     *
+     * @return The hedging.
+     */
+    public static RequestHedging setShared(RequestHedging hedging) {
+        shared = hedging;
+        return hedging;
+    }
+
+    /**
+     * @return Hedging that never sends a second attempt.
+     */
+    public static RequestHedging disabled() {
+        return builder().budget(0, 0).build();
+    }
+
+    /**
+     * Start a configuration. Defaults to hedging after the p95, at least 10 ms, with a budget of one hedge per 20
+     * requests and a burst of 10.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return The percentile of the endpoint latency to hedge after, Ex: 0.95.
+     */
+    public double getQuantile() {
+        return quantile;
+    }
+
+    /**
+     * Send an idempotent request, and a second attempt if it has no response by the percentile and the budget allows.
+     *
+     * @param percentileMillis Observed percentile latency of the endpoint, see {@link #getQuantile()}, or -1 to send
+     *                         the request once, Ex: for a non idempotent request or an endpoint with too few samples.
+     * @param attempt          Sends an attempt. Cancelling its future must stop the attempt, or complete it so the
+     *                         response is discarded.
+     * @param discard          Releases a response that lost, Ex: closes its body.
+     * @return The first successful response, or the failure of the last attempt if every attempt failed.
+     */
+    public <T> CompletableFuture<T> send(long percentileMillis, Supplier<CompletableFuture<T>> attempt, Consumer<? super T> discard) {
+        if (percentileMillis < 0) {
+            return attempt.get();
+        }
+        requests.increment();
+        deposit();
+        Hedge<T> hedge = new Hedge<>(attempt, discard);
+        hedge.start(Math.max(minDelayMillis, percentileMillis));
+        return hedge.result;
+    }
+
+    /**
+     * @return Number of requests that could be hedged.
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * @return Number of second attempts sent.
+     */
+    public long getHedges() {
+        return hedges.sum();
+    }
+
+    /**
+     * @return Number of second attempts that responded first.
+     */
+    public long getWins() {
+        return wins.sum();
+    }
+
+    /**
+     * @return Number of second attempts not sent because the budget was spent.
+     */
+    public long getBudgetExhausted() {
+        return budgetExhausted.sum();
+    }
+
+    /**
+     * @return Second attempts per hedgeable request, Ex: 0.05 when the budget is spent.
+     */
+    public double getHedgeRate() {
+        long total = requests.sum();
+        return total == 0 ? 0 : (double) hedges.sum() / total;
+    }
+
+    private synchronized void deposit() {
+        tokens = Math.min(budgetCapacity, tokens + budgetRatio);
+    }
+
+    private synchronized boolean withdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    /**
+     * The attempts of one request, settled by the first success or by the failure of the last attempt.
+     */
+    private final class Hedge<T> {
+        private final Supplier<CompletableFuture<T>> attempt;
+        private final Consumer<? super T> discard;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private CompletableFuture<T> primary;
+        private CompletableFuture<T> second;
+        private int pending;
+
+        private Hedge(Supplier<CompletableFuture<T>> attempt, Consumer<? super T> discard) {
+            this.attempt = attempt;
+            this.discard = discard;
+        }
+
+        private void start(long delayMillis) {
+            CompletableFuture<T> first = attempt.get();
+            synchronized (this) {
+                primary = first;
+                pending = 1;
+            }
+            first.whenComplete((response, ex) -> settle(response, ex, false));
+            CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS).execute(this::hedge);
+            // Cancel the attempts still in flight once a response won, or once the caller gave up.
+            result.whenComplete((response, ex) -> cancel());
+        }
+
+        private void hedge() {
+            synchronized (this) {
+                if (result.isDone() || pending == 0) {
+                    return;
+                }
+                if (!withdraw()) {
+                    budgetExhausted.increment();
+                    return;
+                }
+                pending++;
+            }
+            hedges.increment();
+            CompletableFuture<T> hedged = attempt.get();
+            synchronized (this) {
+                second = hedged;
+            }
+            if (result.isDone()) {
+                hedged.cancel(true);
+            }
+            hedged.whenComplete((response, ex) -> settle(response, ex, true));
+        }
+
+        private void settle(T response, Throwable ex, boolean hedged) {
+            if (ex == null) {
+                if (result.complete(response)) {
+                    if (hedged) {
+                        wins.increment();
+                    }
+                } else {
+                    discard.accept(response);
+                }
+                return;
+            }
+            boolean last;
+            synchronized (this) {
+                last = --pending == 0;
+            }
+            // A failed first attempt is not hedged, it is up to the retry policy of the caller.
+            if (last) {
+                result.completeExceptionally(ex);
+            }
+        }
+
+        private void cancel() {
+            CompletableFuture<T> first;
+            CompletableFuture<T> hedged;
+            synchronized (this) {
+                first = primary;
+                hedged = second;
+            }
+            first.cancel(true);
+            if (hedged != null) {
+                hedged.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Hedging configuration.
+     */
+    public static final class Builder {
+        private double quantile = 0.95;
+        private Duration minDelay = Duration.ofMillis(10);
+        private double budgetRatio = 0.05;
+        private double budgetCapacity = 10;
+
+        private Builder() {
+        }
+
+        /**
+         * Percentile of the endpoint latency after which a second attempt is sent.
+         */
+        public Builder quantile(double quantile) {
+            if (!(quantile > 0 && quantile < 1)) {
+                throw new IllegalArgumentException("RequestHedging quantile must be between 0 and 1: " + quantile);
+            }
+            this.quantile = quantile;
+            return this;
+        }
+
+        /**
+         * Shortest wait before a second attempt, Ex: for endpoints answering within a millisecond.
+         */
+        public Builder minDelay(Duration minDelay) {
+            if (minDelay.isNegative()) {
+                throw new IllegalArgumentException("RequestHedging min delay must not be negative: " + minDelay);
+            }
+            this.minDelay = minDelay;
+            return this;
+        }
+
+        /**
+         * Hedges earned per request, and the most hedges that can be saved up for a burst.
+         */
+        public Builder budget(double ratio, double capacity) {
+            if (ratio < 0 || capacity < 0) {
+                throw new IllegalArgumentException("RequestHedging budget must not be negative: " + ratio + ", " + capacity);
+            }
+            this.budgetRatio = ratio;
+            this.budgetCapacity = capacity;
+            return this;
+        }
+
+        public RequestHedging build() {
+            return new RequestHedging(this);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.enterprise.agents.common.http;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.InterceptingClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hedges RestTemplate GET calls with {@link RequestHedging}: when a call has no response by the observed percentile
+ * of its endpoint, a second one is sent on another connection of the request factory and the first response wins.
+ * <p>
+ * Must be the last interceptor, the second attempt is sent through the request factory and the attempt interceptors
+ * only, so the guard and the meters of the RestTemplate are passed as attempt interceptors too. Both attempts run on
+ * the executor, the caller waits for the winner. When the executor is saturated the call is sent unhedged on the
+ * caller thread, and a second attempt is skipped. Each attempt adds its own latency to the percentile, a late first
+ * attempt too.
+ * Ex: new RequestHedgingInterceptor(hedging, requestFactory, executor, List.of(new OutboundGuardInterceptor(guard, metrics)))
+ */
+public class RequestHedgingInterceptor implements ClientHttpRequestInterceptor {
+    private static final long MIN_SAMPLES = 20;
+
+    private final RequestHedging hedging;
+    private final ClientHttpRequestFactory requestFactory;
+    private final Executor executor;
+    private final EndpointLatencies latencies = EndpointLatencies.builder().build();
+
+    public RequestHedgingInterceptor(RequestHedging hedging, ClientHttpRequestFactory requestFactory, Executor executor) {
+        this(hedging, requestFactory, executor, List.of());
+    }
+
+    /**
+     * @param attemptInterceptors Applied to the second attempts only, in order. Ex: the guard and the meters.
+     */
+    public RequestHedgingInterceptor(RequestHedging hedging, ClientHttpRequestFactory requestFactory, Executor executor,
+                                     List<ClientHttpRequestInterceptor> attemptInterceptors) {
+        this.hedging = hedging;
+        this.requestFactory = attemptInterceptors.isEmpty()
+                ? requestFactory
+                : new InterceptingClientHttpRequestFactory(requestFactory, attemptInterceptors);
+        this.executor = executor;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (!HttpMethod.GET.equals(request.getMethod()) || body.length > 0) {
+            return execution.execute(request, body);
+        }
+        long percentile = percentile(request);
+        if (percentile < 0) {
+            return timed(request, () -> execution.execute(request, body)).execute();
+        }
+        return hedge(request, percentile, execution, body);
+    }
+
+    private long percentile(HttpRequest request) {
+        EndpointLatencies.Histogram histogram = latencies.get(request.getMethod().name(), request.getURI());
+        if (histogram == null || histogram.getCount() < MIN_SAMPLES) {
+            return -1;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(histogram.getPercentile(hedging.getQuantile()));
+    }
+
+    private ClientHttpResponse hedge(HttpRequest request, long percentile, ClientHttpRequestExecution execution, byte[] body) throws IOException {
+        CompletableFuture<ClientHttpResponse> primary;
+        try {
+            primary = submit(timed(request, () -> execution.execute(request, body)));
+        } catch (RejectedExecutionException ex) {
+            // The executor is saturated, send the call unhedged rather than fail it.
+            return timed(request, () -> execution.execute(request, body)).execute();
+        }
+        // The execution can only be used once, later attempts are copies of the request.
+        AtomicBoolean first = new AtomicBoolean(true);
+        CompletableFuture<ClientHttpResponse> response = hedging.send(percentile, () -> {
+            if (first.getAndSet(false)) {
+                return primary;
+            }
+            return attempt(timed(request, () -> {
+                ClientHttpRequest copy = requestFactory.createRequest(request.getURI(), request.getMethod());
+                copy.getHeaders().putAll(request.getHeaders());
+                return copy.execute();
+            }));
+        }, ClientHttpResponse::close);
+        try {
+            return response.get();
+        } catch (InterruptedException ex) {
+            response.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("RestTemplate was interrupted sending to " + request.getURI().getHost());
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause() instanceof CompletionException && ex.getCause().getCause() != null ? ex.getCause().getCause() : ex.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Record the latency of the call when it responds, from the time it is executed.
+     */
+    private Call timed(HttpRequest request, Call call) {
+        return () -> {
+            long sent = System.nanoTime();
+            ClientHttpResponse response = call.execute();
+            latencies.record(request.getMethod().name(), request.getURI(), System.nanoTime() - sent);
+            return response;
+        };
+    }
+
+    /**
+     * Run a second attempt on the executor, failing it if the executor is saturated.
+     */
+    private CompletableFuture<ClientHttpResponse> attempt(Call call) {
+        try {
+            return submit(call);
+        } catch (RejectedExecutionException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    /**
+     * Run an attempt on the executor. A response arriving after the attempt was cancelled is closed, so its
+     * connection goes back to the pool.
+     *
+     * @throws RejectedExecutionException If the executor is saturated.
+     */
+    private CompletableFuture<ClientHttpResponse> submit(Call call) {
+        CompletableFuture<ClientHttpResponse> attempt = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                ClientHttpResponse response = call.execute();
+                if (!attempt.complete(response)) {
+                    response.close();
+                }
+            } catch (IOException | RuntimeException ex) {
+                attempt.completeExceptionally(ex);
+            }
+        });
+        return attempt;
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        ClientHttpResponse execute() throws IOException;
+    }
+}
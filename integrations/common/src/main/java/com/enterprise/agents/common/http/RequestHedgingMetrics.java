@@ -0,0 +1,37 @@
+package com.enterprise.agents.common.http;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Publishes the hedging counters: hedgeable requests, second attempts, second attempts that won, attempts skipped
+ * for lack of budget, and the hedge rate.
+ */
+public class RequestHedgingMetrics implements MeterBinder {
+    private final RequestHedging hedging;
+
+    public RequestHedgingMetrics(RequestHedging hedging) {
+        this.hedging = hedging;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("http.client.hedge.requests", hedging, RequestHedging::getRequests)
+                .description("Outbound requests that could be hedged")
+                .register(registry);
+        FunctionCounter.builder("http.client.hedges", hedging, RequestHedging::getHedges)
+                .description("Second attempts sent for slow outbound requests")
+                .register(registry);
+        FunctionCounter.builder("http.client.hedge.wins", hedging, RequestHedging::getWins)
+                .description("Second attempts that responded first")
+                .register(registry);
+        FunctionCounter.builder("http.client.hedge.budget.exhausted", hedging, RequestHedging::getBudgetExhausted)
+                .description("Second attempts not sent because the hedge budget was spent")
+                .register(registry);
+        Gauge.builder("http.client.hedge.rate", hedging, RequestHedging::getHedgeRate)
+                .description("Second attempts per hedgeable request")
+                .register(registry);
+    }
+}
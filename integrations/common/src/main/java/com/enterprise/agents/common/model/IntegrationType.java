@@ -1,5 +1,9 @@
 package com.enterprise.agents.common.model;
 
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
 public enum IntegrationType {
     GITHUB("GitHub", "github.com", "repo,user,read:org"),
     SLACK("Slack", "slack.com", "channels:read,chat:write,users:read,team:read"),
@@ -28,6 +32,36 @@ public enum IntegrationType {
         return defaultScopes;
     }
 
+    /**
+     * @return The integration serving the host, Ex: GITHUB for api.github.com and GOOGLE for oauth2.googleapis.com.
+     */
+    public static Optional<IntegrationType> fromHost(String host) {
+        if (host == null) {
+            return Optional.empty();
+        }
+        String name = host.toLowerCase(Locale.ROOT);
+        for (IntegrationType type : values()) {
+            for (String domain : type.getHostDomains()) {
+                if (name.equals(domain) || name.endsWith("." + domain)) {
+                    return Optional.of(type);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return The registered domains of the vendor, its hosts and their subdomains belong to the integration.
+     */
+    public List<String> getHostDomains() {
+        return switch (this) {
+            case GITHUB -> List.of("github.com", "githubusercontent.com");
+            case SLACK -> List.of("slack.com");
+            case GOOGLE -> List.of("googleapis.com", "google.com");
+            case JIRA -> List.of("atlassian.net", "atlassian.com");
+        };
+    }
+
     public String getOAuthUrl() {
         return switch (this) {
             case GITHUB -> "https://github.com/login/oauth/authorize";
@@ -0,0 +1,110 @@
+package com.enterprise.agents.common.resilience;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulkhead of one upstream host: at most a fixed number of calls run at once, and a bounded number of callers wait
+ * for a slot, so a slow host cannot hold every request thread. Asynchronous callers wait without a thread, a freed
+ * slot is handed to them first.
+ */
+class HostBulkhead {
+    private final Semaphore permits;
+    private final int maxConcurrentCalls;
+    private final int maxQueuedCalls;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Queue<CompletableFuture<Boolean>> waiters = new ConcurrentLinkedQueue<>();
+
+    HostBulkhead(int maxConcurrentCalls, int maxQueuedCalls) {
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxQueuedCalls = maxQueuedCalls;
+    }
+
+    /**
+     * Take a slot, waiting up to the max wait if the queue has room.
+     *
+     * @return False if there is no slot in time, the queue is full or the thread is interrupted.
+     */
+    boolean acquire(Duration maxWait) {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        if (maxWait.isZero() || queued.incrementAndGet() > maxQueuedCalls) {
+            if (!maxWait.isZero()) {
+                queued.decrementAndGet();
+            }
+            return false;
+        }
+        try {
+            return permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    /**
+     * Take a slot without blocking, waiting up to the max wait if the queue has room.
+     *
+     * @return Completes with false if there is no slot in time or the queue is full.
+     */
+    CompletableFuture<Boolean> acquireAsync(Duration maxWait) {
+        if (permits.tryAcquire()) {
+            return CompletableFuture.completedFuture(true);
+        }
+        if (maxWait.isZero() || queued.incrementAndGet() > maxQueuedCalls) {
+            if (!maxWait.isZero()) {
+                queued.decrementAndGet();
+            }
+            return CompletableFuture.completedFuture(false);
+        }
+        CompletableFuture<Boolean> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        // A slot freed before the waiter was queued went back to the semaphore.
+        if (permits.tryAcquire() && !waiter.complete(true)) {
+            release();
+        }
+        waiter.completeOnTimeout(false, maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        waiter.whenComplete((acquired, ex) -> {
+            waiters.remove(waiter);
+            queued.decrementAndGet();
+        });
+        return waiter;
+    }
+
+    void release() {
+        permits.release();
+        // Hand free slots to the asynchronous waiters, including the ones queued while this slot was released.
+        while (!waiters.isEmpty() && permits.tryAcquire()) {
+            if (!handOver()) {
+                permits.release();
+            }
+        }
+    }
+
+    private boolean handOver() {
+        CompletableFuture<Boolean> waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (waiter.complete(true)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int getActiveCalls() {
+        return maxConcurrentCalls - permits.availablePermits();
+    }
+
+    int getQueuedCalls() {
+        return queued.get();
+    }
+}
@@ -0,0 +1,101 @@
+package com.enterprise.agents.common.resilience;
+
+/**
+ * Circuit breaker of one upstream host over a sliding window of the last calls.
+ * <p>
+ * The circuit opens when the failure rate or the slow call rate of the window reaches its threshold, refuses calls
+ * while open, then lets a few probe calls through half-open. The probes close the circuit if they stay under the
+ * thresholds and open it again otherwise. Results of calls started before a state change are ignored.
+ */
+class HostCircuitBreaker {
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final OutboundGuard.Config config;
+    private final byte[] window;
+    private State state = State.CLOSED;
+    private int generation;
+    private int position;
+    private int buffered;
+    private int failures;
+    private int slowCalls;
+    private long openUntilNanos;
+    private int probesStarted;
+    private long notPermittedCalls;
+
+    HostCircuitBreaker(OutboundGuard.Config config) {
+        this.config = config;
+        this.window = new byte[config.windowSize()];
+    }
+
+    /**
+     * @return The generation of the state the call was admitted in, or -1 if the call is not permitted.
+     */
+    synchronized int tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openUntilNanos >= 0) {
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.CLOSED || (state == State.HALF_OPEN && probesStarted++ < config.halfOpenCalls())) {
+            return generation;
+        }
+        notPermittedCalls++;
+        return -1;
+    }
+
+    /**
+     * Record the result of a call admitted in the generation.
+     */
+    synchronized void onResult(int admittedGeneration, long durationNanos, boolean failed) {
+        if (admittedGeneration != generation || state == State.OPEN) {
+            return;
+        }
+        boolean slow = durationNanos >= config.slowCallDuration().toNanos();
+        byte outcome = (byte) ((failed ? 1 : 0) | (slow ? 2 : 0));
+        if (buffered == window.length) {
+            byte evicted = window[position];
+            failures -= evicted & 1;
+            slowCalls -= (evicted >> 1) & 1;
+        } else {
+            buffered++;
+        }
+        window[position] = outcome;
+        position = (position + 1) % window.length;
+        failures += outcome & 1;
+        slowCalls += (outcome >> 1) & 1;
+
+        int minimum = state == State.HALF_OPEN ? config.halfOpenCalls() : config.minimumCalls();
+        if (buffered < minimum) {
+            return;
+        }
+        if (failures * 100 >= config.failureRateThreshold() * buffered || slowCalls * 100 >= config.slowCallRateThreshold() * buffered) {
+            transition(State.OPEN);
+        } else if (state == State.HALF_OPEN) {
+            transition(State.CLOSED);
+        }
+    }
+
+    private void transition(State next) {
+        state = next;
+        generation++;
+        position = 0;
+        buffered = 0;
+        failures = 0;
+        slowCalls = 0;
+        probesStarted = 0;
+        if (next == State.OPEN) {
+            openUntilNanos = System.nanoTime() + config.openDuration().toNanos();
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    synchronized HostState snapshot(String host, HostBulkhead bulkhead) {
+        return new HostState(host, state.name(),
+                buffered == 0 ? 0 : failures * 100f / buffered,
+                buffered == 0 ? 0 : slowCalls * 100f / buffered,
+                buffered, notPermittedCalls, bulkhead.getActiveCalls(), bulkhead.getQueuedCalls());
+    }
+}
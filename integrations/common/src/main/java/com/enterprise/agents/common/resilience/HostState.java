@@ -0,0 +1,11 @@
+package com.enterprise.agents.common.resilience;
+
+/**
+ * Circuit breaker and bulkhead state of one upstream host.
+ *
+ * @param failureRate  Percentage of failed calls in the window.
+ * @param slowCallRate Percentage of slow calls in the window.
+ */
+public record HostState(String host, String state, float failureRate, float slowCallRate, int bufferedCalls,
+                        long notPermittedCalls, int activeCalls, int queuedCalls) {
+}
@@ -0,0 +1,270 @@
+package com.enterprise.agents.common.resilience;
+
+import com.enterprise.agents.common.exception.CallNotPermittedException;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Per upstream host circuit breaker and bulkhead for outbound HTTP calls. The shared instance is used by HttpHelper
+ * and by the RestTemplate bean, so a slow host trips the same circuit whichever client calls it.
+ *
+ * <pre>
+ * OutboundGuard.Permit permit = OutboundGuard.shared().acquire("slack.com");
+ * boolean failed = true;
+ * try {
+ *     int status = send();
+ *     failed = status &gt;= 500;
+ * } finally {
+ *     permit.complete(failed);
+ * }
+ * </pre>
+ */
+public class OutboundGuard {
+    private static volatile OutboundGuard shared;
+
+    private final Config config;
+    private final Map<String, Host> hosts = new ConcurrentHashMap<>();
+
+    private OutboundGuard(Config config) {
+        this.config = config;
+    }
+
+    /**
+     * @return The guard shared by the application, created with the default settings on first use.
+     */
+    public static OutboundGuard shared() {
+        OutboundGuard guard = shared;
+        if (guard == null) {
+            synchronized (OutboundGuard.class) {
+                guard = shared;
+                if (guard == null) {
+                    guard = builder().build();
+                    shared = guard;
+                }
+            }
+        }
+        return guard;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Admit a call to the host, waiting for a bulkhead slot up to the configured max wait.
+     *
+     * @throws CallNotPermittedException If the circuit is open or the bulkhead stays full.
+     */
+    public Permit acquire(String host) {
+        return acquire(host, config.maxWait());
+    }
+
+    /**
+     * Admit a call to the host without waiting, for callers that must not block.
+     *
+     * @throws CallNotPermittedException If the circuit is open or the bulkhead is full.
+     */
+    public Permit tryAcquire(String host) {
+        return acquire(host, Duration.ZERO);
+    }
+
+    /**
+     * Admit a call to the host without blocking, waiting for a bulkhead slot up to the configured max wait.
+     *
+     * @return Completes with the permit, or fails with a {@link CallNotPermittedException} if the circuit is open or
+     * the bulkhead stays full.
+     */
+    public CompletableFuture<Permit> acquireAsync(String host) {
+        String key = key(host);
+        Host guarded = hosts.computeIfAbsent(key, ignored -> new Host(config));
+        return guarded.bulkhead.acquireAsync(config.maxWait()).thenApply(acquired -> {
+            if (!acquired) {
+                throw new CallNotPermittedException(key, "bulkhead full");
+            }
+            return admit(key, guarded);
+        });
+    }
+
+    private Permit acquire(String host, Duration maxWait) {
+        String key = key(host);
+        Host guarded = hosts.computeIfAbsent(key, ignored -> new Host(config));
+        if (!guarded.bulkhead.acquire(maxWait)) {
+            throw new CallNotPermittedException(key, "bulkhead full");
+        }
+        return admit(key, guarded);
+    }
+
+    private static String key(String host) {
+        return host == null ? "" : host.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Check the circuit of a call holding a bulkhead slot, freeing the slot if it is open.
+     */
+    private Permit admit(String key, Host guarded) {
+        int generation = guarded.breaker.tryAcquire();
+        if (generation < 0) {
+            guarded.bulkhead.release();
+            throw new CallNotPermittedException(key, "circuit open");
+        }
+        return new Permit(guarded, generation);
+    }
+
+    /**
+     * @return Maximum number of calls admitted at once per host.
+     */
+    public int getMaxConcurrentCalls() {
+        return config.maxConcurrentCalls();
+    }
+
+    /**
+     * @return The state of every host called so far, by host name.
+     */
+    public List<HostState> getHostStates() {
+        return hosts.entrySet().stream()
+                .map(entry -> entry.getValue().breaker.snapshot(entry.getKey(), entry.getValue().bulkhead))
+                .sorted(Comparator.comparing(HostState::host))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * An admitted call. Complete it exactly once, later completions are ignored.
+     */
+    public static final class Permit {
+        private final Host host;
+        private final int generation;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private Permit(Host host, int generation) {
+            this.host = host;
+            this.generation = generation;
+        }
+
+        /**
+         * Record the outcome of the call and free its bulkhead slot.
+         *
+         * @param failed True if the call failed, Ex: an I/O error or a 5xx response.
+         */
+        public void complete(boolean failed) {
+            if (completed.compareAndSet(false, true)) {
+                host.bulkhead.release();
+                host.breaker.onResult(generation, System.nanoTime() - startNanos, failed);
+            }
+        }
+    }
+
+    private static final class Host {
+        private final HostCircuitBreaker breaker;
+        private final HostBulkhead bulkhead;
+
+        private Host(Config config) {
+            this.breaker = new HostCircuitBreaker(config);
+            this.bulkhead = new HostBulkhead(config.maxConcurrentCalls(), config.maxQueuedCalls());
+        }
+    }
+
+    record Config(int windowSize, int minimumCalls, int failureRateThreshold, int slowCallRateThreshold,
+                  Duration slowCallDuration, Duration openDuration, int halfOpenCalls,
+                  int maxConcurrentCalls, int maxQueuedCalls, Duration maxWait) {
+    }
+
+    /**
+     * Guard configuration, applied to every host. Defaults to opening at 50% failures or 80% calls slower than 10 s
+     * over the last 20 calls (at least 10), staying open 30 s, probing with 3 calls, and 25 concurrent calls per host
+     * with up to 50 callers waiting at most 500 ms.
+     */
+    public static final class Builder {
+        private int windowSize = 20;
+        private int minimumCalls = 10;
+        private int failureRateThreshold = 50;
+        private int slowCallRateThreshold = 80;
+        private Duration slowCallDuration = Duration.ofSeconds(10);
+        private Duration openDuration = Duration.ofSeconds(30);
+        private int halfOpenCalls = 3;
+        private int maxConcurrentCalls = 25;
+        private int maxQueuedCalls = 50;
+        private Duration maxWait = Duration.ofMillis(500);
+
+        private Builder() {
+        }
+
+        /**
+         * Number of last calls the rates are computed over, and the number of calls needed before the circuit can open.
+         */
+        public Builder window(int windowSize, int minimumCalls) {
+            if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize) {
+                throw new IllegalArgumentException("OutboundGuard window must satisfy 1 <= minimum calls <= size: " + minimumCalls + ", " + windowSize);
+            }
+            this.windowSize = windowSize;
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        /**
+         * Failure rate in percent that opens the circuit.
+         */
+        public Builder failureRateThreshold(int percent) {
+            this.failureRateThreshold = percent(percent);
+            return this;
+        }
+
+        /**
+         * Calls at least as long as the duration are slow, the slow call rate in percent opens the circuit.
+         */
+        public Builder slowCallThreshold(Duration duration, int percent) {
+            this.slowCallDuration = duration;
+            this.slowCallRateThreshold = percent(percent);
+            return this;
+        }
+
+        /**
+         * How long the circuit stays open and how many probe calls are let through half-open.
+         */
+        public Builder halfOpen(Duration openDuration, int probeCalls) {
+            if (probeCalls < 1) {
+                throw new IllegalArgumentException("OutboundGuard probe calls must be positive: " + probeCalls);
+            }
+            this.openDuration = openDuration;
+            this.halfOpenCalls = probeCalls;
+            return this;
+        }
+
+        /**
+         * Calls running at once per host, callers waiting for a slot per host and how long they wait.
+         */
+        public Builder bulkhead(int maxConcurrentCalls, int maxQueuedCalls, Duration maxWait) {
+            if (maxConcurrentCalls < 1 || maxQueuedCalls < 0) {
+                throw new IllegalArgumentException("OutboundGuard bulkhead needs a positive concurrency and a non negative queue: "
+                        + maxConcurrentCalls + ", " + maxQueuedCalls);
+            }
+            this.maxConcurrentCalls = maxConcurrentCalls;
+            this.maxQueuedCalls = maxQueuedCalls;
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        public OutboundGuard build() {
+            if (halfOpenCalls > windowSize) {
+                throw new IllegalArgumentException("OutboundGuard probe calls must fit in the window: " + halfOpenCalls + " > " + windowSize);
+            }
+            return new OutboundGuard(new Config(windowSize, minimumCalls, failureRateThreshold, slowCallRateThreshold,
+                    slowCallDuration, openDuration, halfOpenCalls, maxConcurrentCalls, maxQueuedCalls, maxWait));
+        }
+
+        private static int percent(int percent) {
+            if (percent < 1 || percent > 100) {
+                throw new IllegalArgumentException("OutboundGuard thresholds are percentages between 1 and 100: " + percent);
+            }
+            return percent;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.enterprise.agents.common.resilience;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Exposes the circuit breaker and bulkhead state of every upstream host at /actuator/outbound.
+ */
+@Component
+@Endpoint(id = "outbound")
+public class OutboundGuardEndpoint {
+    private final OutboundGuard guard;
+
+    public OutboundGuardEndpoint(OutboundGuard guard) {
+        this.guard = guard;
+    }
+
+    @ReadOperation
+    public List<HostState> hosts() {
+        return guard.getHostStates();
+    }
+}
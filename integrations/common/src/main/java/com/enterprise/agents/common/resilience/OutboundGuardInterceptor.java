@@ -0,0 +1,49 @@
+package com.enterprise.agents.common.resilience;
+
+import com.enterprise.agents.common.http.OutboundObserver;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+
+/**
+ * Guards RestTemplate calls with the circuit breaker and bulkhead of their host. I/O errors and 5xx responses count
+ * as failures.
+ */
+public class OutboundGuardInterceptor implements ClientHttpRequestInterceptor {
+    private final OutboundGuard guard;
+    private final OutboundObserver observer;
+
+    public OutboundGuardInterceptor(OutboundGuard guard) {
+        this(guard, OutboundObserver.NONE);
+    }
+
+    /**
+     * @param observer Told how long each call waited for its bulkhead.
+     */
+    public OutboundGuardInterceptor(OutboundGuard guard, OutboundObserver observer) {
+        this.guard = guard;
+        this.observer = observer;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        long start = System.nanoTime();
+        OutboundGuard.Permit permit;
+        try {
+            permit = guard.acquire(request.getURI().getHost());
+        } finally {
+            observer.onPoolWait(request.getURI(), System.nanoTime() - start);
+        }
+        boolean failed = true;
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            failed = response.getStatusCode().is5xxServerError();
+            return response;
+        } finally {
+            permit.complete(failed);
+        }
+    }
+}